@@ -0,0 +1,92 @@
+package com.example.batchdemo.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 生成并缓存基准测试用的 CSV 文件：同样的大小与行长分布只生成一次，放在 java.io.tmpdir/batchdemo-bench 下。
+ * 数据用固定种子生成，每次运行内容一致；字段带首尾空白与小写字母，让清洗逻辑有实际工作量。
+ */
+final class BenchmarkFiles {
+
+    private static final Path DIRECTORY = Path.of(System.getProperty("java.io.tmpdir"), "batchdemo-bench");
+    private static final byte[] ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789".getBytes();
+
+    private BenchmarkFiles() {
+    }
+
+    static Path csv(long size, LineProfile profile) {
+        Path file = DIRECTORY.resolve("input-" + size + "-" + profile.name().toLowerCase() + ".csv");
+        try {
+            if (Files.exists(file) && Files.size(file) == size) {
+                return file;
+            }
+            Files.createDirectories(DIRECTORY);
+            Path temp = Files.createTempFile(DIRECTORY, "input-", ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                SplittableRandom random = new SplittableRandom(42L);
+                byte[] line = new byte[64 * 1024];
+                long written = 0L;
+                while (written < size) {
+                    int length = (int) Math.max(0L, Math.min(profile.nextLength(random), size - written - 1));
+                    fillLine(line, length, random);
+                    line[length] = '\n';
+                    out.write(line, 0, length + 1);
+                    written += length + 1;
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException("生成基准测试文件失败: " + file, e);
+        }
+    }
+
+    /**
+     * 内存中的样本行，供处理器与写入器基准使用。
+     */
+    static List<String> lines(int count, LineProfile profile) {
+        SplittableRandom random = new SplittableRandom(7L);
+        List<String> lines = new ArrayList<>(count);
+        byte[] line = new byte[64 * 1024];
+        for (int i = 0; i < count; i++) {
+            int length = profile.nextLength(random);
+            fillLine(line, length, random);
+            lines.add(new String(line, 0, length));
+        }
+        return lines;
+    }
+
+    static Path tempOutput(String prefix) {
+        try {
+            Files.createDirectories(DIRECTORY);
+            Path file = Files.createTempFile(DIRECTORY, prefix, ".csv");
+            file.toFile().deleteOnExit();
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException("创建输出文件失败", e);
+        }
+    }
+
+    /**
+     * 形如 "  abc12,de3f,...  " 的 CSV 行：首尾各两个空格，字段间用逗号分隔。
+     */
+    private static void fillLine(byte[] line, int length, SplittableRandom random) {
+        for (int i = 0; i < length; i++) {
+            if (i < 2 || i >= length - 2) {
+                line[i] = ' ';
+            } else if (random.nextInt(12) == 0) {
+                line[i] = ',';
+            } else {
+                line[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+            }
+        }
+    }
+}
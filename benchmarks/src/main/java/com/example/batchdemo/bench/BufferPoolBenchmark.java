@@ -0,0 +1,76 @@
+package com.example.batchdemo.bench;
+
+import com.example.batchdemo.service.PreallocatedBufferPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓冲池借还一次的耗时：单线程时应命中线程弹匣，多线程时 magazineSize=0 强制所有借还都走全局无锁队列，
+ * 用来观察争用下的开销。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BufferPoolBenchmark {
+
+    @Param({"64KB", "1MB"})
+    public String bufferSize;
+
+    @Param({"2", "0"})
+    public int magazineSize;
+
+    private PreallocatedBufferPool pool;
+    private int capacity;
+
+    @Setup
+    public void setUp() {
+        pool = new PreallocatedBufferPool(List.of(DataSize.ofKilobytes(64), DataSize.ofMegabytes(1)),
+                DataSize.parse(bufferSize), 16, DataSize.ofMegabytes(256), 64, magazineSize, Duration.ofSeconds(30));
+        pool.flushAndPreallocate();
+        capacity = (int) DataSize.parse(bufferSize).toBytes();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.onShutdown();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ByteBuffer borrowReturnSingleThread() {
+        return borrowAndReturn();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ByteBuffer borrowReturnContended() {
+        return borrowAndReturn();
+    }
+
+    private ByteBuffer borrowAndReturn() {
+        ByteBuffer buffer = pool.borrowBuffer(capacity);
+        buffer.put(0, (byte) 1);
+        pool.returnBuffer(buffer);
+        return buffer;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.batchdemo.bench;
+
+import com.example.batchdemo.job.DataCleaningProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 清洗一个 chunk（200 行，与 Job 的提交间隔一致）的耗时，结果按每行平均给出。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataCleaningProcessorBenchmark {
+
+    private static final int CHUNK_SIZE = 200;
+
+    @Param({"SHORT", "MIXED", "LONG"})
+    public LineProfile profile;
+
+    private final DataCleaningProcessor processor = new DataCleaningProcessor();
+    private List<String> chunk;
+
+    @Setup
+    public void setUp() {
+        chunk = BenchmarkFiles.lines(CHUNK_SIZE, profile);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNK_SIZE)
+    public void processChunk(Blackhole blackhole) {
+        for (String line : chunk) {
+            blackhole.consume(processor.process(line));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.batchdemo.bench;
+
+import com.example.batchdemo.io.FileChannelLineWriter;
+import com.example.batchdemo.service.PreallocatedBufferPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 写出一个 chunk（200 行）的耗时，对比同步写出与异步双缓冲写出。
+ * 每轮迭代重新打开输出文件，避免文件无限增长；写入进入页缓存，不含 force。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileChannelLineWriterBenchmark {
+
+    private static final int CHUNK_SIZE = 200;
+
+    @Param({"SHORT", "MIXED", "LONG"})
+    public LineProfile profile;
+
+    @Param({"false", "true"})
+    public boolean async;
+
+    private PreallocatedBufferPool bufferPool;
+    private Chunk<String> chunk;
+    private Path output;
+    private FileChannelLineWriter writer;
+
+    @Setup
+    public void setUp() {
+        bufferPool = new PreallocatedBufferPool(List.of(DataSize.ofMegabytes(1)), DataSize.ofMegabytes(1),
+                8, DataSize.ofMegabytes(64), 16, 2, Duration.ofSeconds(30));
+        chunk = new Chunk<>(BenchmarkFiles.lines(CHUNK_SIZE, profile));
+        output = BenchmarkFiles.tempOutput("writer-");
+    }
+
+    @Setup(Level.Iteration)
+    public void openWriter() {
+        writer = new FileChannelLineWriter(output, bufferPool);
+        writer.setAsync(async);
+        writer.open(new ExecutionContext());
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeWriter() {
+        writer.close();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        bufferPool.onShutdown();
+        Files.deleteIfExists(output);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNK_SIZE)
+    public void writeChunk() throws Exception {
+        writer.write(chunk);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.batchdemo.bench;
+
+import java.util.SplittableRandom;
+
+/**
+ * 生成测试数据时的行长分布。
+ */
+public enum LineProfile {
+
+    /** 20~60 字节的短行，换行符密集，主要考验逐行开销。 */
+    SHORT(20, 60, 0, 0),
+    /** 大多数 60~200 字节，约 1% 的行 2~8KB，接近真实导出数据。 */
+    MIXED(60, 200, 100, 8 * 1024),
+    /** 1~16KB 的长行，频繁跨窗口/分片边界。 */
+    LONG(1024, 16 * 1024, 0, 0);
+
+    private final int minLength;
+    private final int maxLength;
+    private final int longLineEvery;
+    private final int longLineMax;
+
+    LineProfile(int minLength, int maxLength, int longLineEvery, int longLineMax) {
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+        this.longLineEvery = longLineEvery;
+        this.longLineMax = longLineMax;
+    }
+
+    int nextLength(SplittableRandom random) {
+        if (longLineEvery > 0 && random.nextInt(longLineEvery) == 0) {
+            return random.nextInt(2 * 1024, longLineMax + 1);
+        }
+        return random.nextInt(minLength, maxLength + 1);
+    }
+}
@@ -0,0 +1,104 @@
+#!/usr/bin/env bash
+# 在一台机器上用多个 JVM 跑跨进程分区：先启动若干 worker，再由 manager 提交 REMOTE_PARTITIONED Job，
+# manager 结束后停止所有 worker。Job 仓库放在脚本单独启动的 H2 TCP 服务里，所有 JVM 都以客户端身份连接，
+# kill 任何一个 worker 都不会带走数据库（AUTO_SERVER 模式下第一个进程就是数据库服务，杀掉它会打断所有连接）。
+#
+# 用法: scripts/remote-partition-demo.sh 输入文件 输出文件 [worker 数，默认 3]
+# 环境变量:
+#   KILL_WORKER_AFTER=秒数  在该时间后 kill -9 第一个 worker，验证它的分区被其它 worker 从已提交的偏移接手
+#   H2_PORT=19092           H2 TCP 服务端口
+#   H2_JAR                  h2 jar 路径，默认取本地 Maven 仓库中最新的版本
+#   HEARTBEAT_TIMEOUT=10s   判定 worker 失联的心跳超时，演示时调短
+#   WORKER_THREADS=2        每个 worker 同时执行的分区数
+#   GRID_SIZE=16            切分数
+#   JAVA_OPTS               传给每个 JVM 的参数，例如 -Xmx1g
+set -euo pipefail
+
+if [ $# -lt 2 ]; then
+    echo "用法: $0 输入文件 输出文件 [worker 数]" >&2
+    exit 1
+fi
+INPUT=$(realpath "$1")
+OUTPUT=$(realpath -m "$2")
+WORKERS=${3:-3}
+
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+JAR=$(ls "$ROOT"/target/spring-batch-demo-*-exec.jar 2>/dev/null | head -n 1 || true)
+if [ -z "$JAR" ]; then
+    (cd "$ROOT" && mvn -q -DskipTests package)
+    JAR=$(ls "$ROOT"/target/spring-batch-demo-*-exec.jar | head -n 1)
+fi
+
+H2_JAR=${H2_JAR:-$(ls "$HOME"/.m2/repository/com/h2database/h2/*/h2-*.jar 2>/dev/null | sort -V | tail -n 1 || true)}
+if [ -z "$H2_JAR" ]; then
+    echo "找不到 h2 jar，请用 H2_JAR 指定" >&2
+    exit 1
+fi
+H2_PORT=${H2_PORT:-19092}
+
+WORK_DIR=$(mktemp -d "${TMPDIR:-/tmp}/remote-partition.XXXXXX")
+LOGS="$WORK_DIR/logs"
+mkdir -p "$LOGS"
+COMMON=(
+    "--spring.datasource.url=jdbc:h2:tcp://localhost:$H2_PORT/batchdb"
+    "--batch.remote.heartbeat-timeout=${HEARTBEAT_TIMEOUT:-10s}"
+    "--batch.remote.worker-threads=${WORKER_THREADS:-2}"
+    "--batch.remote.grid-size=${GRID_SIZE:-16}"
+)
+
+pids=()
+h2_pid=
+cleanup() {
+    if [ ${#pids[@]} -gt 0 ]; then
+        kill "${pids[@]}" 2>/dev/null || true
+        wait "${pids[@]}" 2>/dev/null || true
+    fi
+    if [ -n "$h2_pid" ]; then
+        kill "$h2_pid" 2>/dev/null || true
+        wait "$h2_pid" 2>/dev/null || true
+    fi
+}
+trap cleanup EXIT
+
+# 独立的数据库进程，-ifNotExists 允许客户端首次连接时建库，只监听本机
+java -cp "$H2_JAR" org.h2.tools.Server -tcp -tcpPort "$H2_PORT" -ifNotExists -baseDir "$WORK_DIR" \
+    > "$LOGS/h2.log" 2>&1 &
+h2_pid=$!
+until grep -q "TCP server running" "$LOGS/h2.log" 2>/dev/null; do
+    if ! kill -0 "$h2_pid" 2>/dev/null; then
+        echo "H2 TCP 服务启动失败，见 $LOGS/h2.log" >&2
+        exit 1
+    fi
+    sleep 1
+done
+
+# 先启动一个 worker 建好 Job 仓库，其余进程再连进来，避免同时初始化表结构
+for i in $(seq 1 "$WORKERS"); do
+    # shellcheck disable=SC2086
+    java ${JAVA_OPTS:-} -jar "$JAR" --spring.profiles.active=worker "${COMMON[@]}" \
+        "--batch.remote.worker-id=worker-$i" > "$LOGS/worker-$i.log" 2>&1 &
+    pids+=($!)
+    if [ "$i" -eq 1 ]; then
+        until grep -q "分区 worker .* 已启动" "$LOGS/worker-1.log" 2>/dev/null; do
+            if ! kill -0 "${pids[0]}" 2>/dev/null; then
+                echo "worker-1 启动失败，见 $LOGS/worker-1.log" >&2
+                exit 1
+            fi
+            sleep 1
+        done
+    fi
+done
+echo "已启动 $WORKERS 个 worker，日志目录: $LOGS"
+
+if [ -n "${KILL_WORKER_AFTER:-}" ]; then
+    (sleep "$KILL_WORKER_AFTER" && kill -9 "${pids[0]}" 2>/dev/null && echo "已 kill -9 worker-1（pid ${pids[0]}）") &
+fi
+
+# shellcheck disable=SC2086
+java ${JAVA_OPTS:-} -jar "$JAR" --spring.profiles.active=manager --spring.main.web-application-type=none "${COMMON[@]}" \
+    "--file.requests=REMOTE_PARTITIONED:$INPUT:$OUTPUT" 2>&1 | tee "$LOGS/manager.log"
+status=${PIPESTATUS[0]}
+
+grep -h "开始执行分区\|认领已被收回" "$LOGS"/worker-*.log || true
+echo "manager 退出码: $status，输出: $OUTPUT"
+exit "$status"
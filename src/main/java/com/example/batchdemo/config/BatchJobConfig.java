@@ -1,39 +1,102 @@
 package com.example.batchdemo.config;
 
+import com.example.batchdemo.io.ByteLine;
+import com.example.batchdemo.io.ByteLinePool;
+import com.example.batchdemo.io.FileChannelByteLineWriter;
 import com.example.batchdemo.io.FileChannelLineWriter;
+import com.example.batchdemo.io.GzipLineReader;
+import com.example.batchdemo.io.MemoryMappedByteLineReader;
 import com.example.batchdemo.io.MemoryMappedCsvReader;
+import com.example.batchdemo.io.MemoryMappedCsvRecordReader;
+import com.example.batchdemo.io.MultiFileLineReader;
+import com.example.batchdemo.io.RecordOffsetSource;
 import com.example.batchdemo.io.SendfileCsvReader;
-import com.example.batchdemo.job.DataCleaningProcessor;
+import com.example.batchdemo.job.AdaptiveCompletionPolicy;
+import com.example.batchdemo.job.DeduplicatingProcessor;
+import com.example.batchdemo.job.ExternalSortTasklet;
+import com.example.batchdemo.job.InputFingerprintTasklet;
+import com.example.batchdemo.job.LineAlignedPartitioner;
+import com.example.batchdemo.job.PartFileMergeTasklet;
+import com.example.batchdemo.job.QuarantiningProcessor;
+import com.example.batchdemo.job.RemotePartitionHandler;
+import com.example.batchdemo.metrics.ChunkTimingListener;
+import com.example.batchdemo.metrics.PipelineMetrics;
+import com.example.batchdemo.service.GzipCodec;
+import com.example.batchdemo.service.PartitionClaimStore;
 import com.example.batchdemo.service.PreallocatedBufferPool;
+import com.example.batchdemo.service.SendfileTransferEngine;
+import com.example.batchdemo.service.WindowReadAhead;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemProcessListener;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.ItemWriteListener;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecutionListener;
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
 import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.explore.JobExplorer;
 import org.springframework.batch.core.job.builder.JobBuilder;
 import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
 import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.core.step.tasklet.Tasklet;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.batch.item.ItemReader;
-import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.support.CompositeItemProcessor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
 
 import java.nio.file.Path;
+import java.util.List;
 
 @Configuration
 @EnableBatchProcessing
+@EnableConfigurationProperties({WriterProperties.class, ChunkProperties.class, CsvProperties.class, DedupProperties.class,
+        SortProperties.class, IngestProperties.class, QuarantineProperties.class, CleaningProperties.class,
+        RemotePartitionProperties.class})
 public class BatchJobConfig {
 
     private final JobRepository jobRepository;
     private final PlatformTransactionManager transactionManager;
     private final PreallocatedBufferPool bufferPool;
+    private final WriterProperties writerProperties;
+    private final ChunkProperties chunkProperties;
+    private final CsvProperties csvProperties;
+    private final DedupProperties dedupProperties;
+    private final SortProperties sortProperties;
+    private final QuarantineProperties quarantineProperties;
+    private final CleaningProperties cleaningProperties;
+    private final PipelineMetrics pipelineMetrics;
+    private final ChunkTimingListener chunkTimingListener;
+    private final GzipCodec gzipCodec;
 
-    public BatchJobConfig(JobRepository jobRepository, PlatformTransactionManager transactionManager, PreallocatedBufferPool bufferPool) {
+    public BatchJobConfig(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                          PreallocatedBufferPool bufferPool, WriterProperties writerProperties,
+                          ChunkProperties chunkProperties, CsvProperties csvProperties,
+                          DedupProperties dedupProperties, SortProperties sortProperties,
+                          QuarantineProperties quarantineProperties, CleaningProperties cleaningProperties,
+                          PipelineMetrics pipelineMetrics, ChunkTimingListener chunkTimingListener,
+                          GzipCodec gzipCodec) {
         this.jobRepository = jobRepository;
         this.transactionManager = transactionManager;
         this.bufferPool = bufferPool;
+        this.writerProperties = writerProperties;
+        this.chunkProperties = chunkProperties;
+        this.csvProperties = csvProperties;
+        this.dedupProperties = dedupProperties;
+        this.sortProperties = sortProperties;
+        this.quarantineProperties = quarantineProperties;
+        this.cleaningProperties = cleaningProperties;
+        this.pipelineMetrics = pipelineMetrics;
+        this.chunkTimingListener = chunkTimingListener;
+        this.gzipCodec = gzipCodec;
     }
 
     /**
@@ -56,50 +119,500 @@ public class BatchJobConfig {
                 .build();
     }
 
+    /**
+     * mmap 字节版本 Job：行以 {@link ByteLine} 在读取、清洗、写出之间流转，不创建 String。
+     */
     @Bean
-    public Step memoryMappedStep(@Value("#{jobParameters['input']}") String input,
-                                 @Value("#{jobParameters['output']}") String output) {
-        return new StepBuilder("memoryMappedStep", jobRepository)
-                .<String, String>chunk(200)
-                .reader(memoryMappedReader(input))
-                .processor(defaultProcessor())
-                .writer(writer(output))
-                .transactionManager(transactionManager)
+    public Job memoryMappedByteJob(Step memoryMappedByteStep) {
+        return new JobBuilder("memoryMappedByteJob", jobRepository)
+                .start(memoryMappedByteStep)
+                .build();
+    }
+
+    /**
+     * CSV 记录版本 Job：按 RFC 4180 切分记录，只解码投影列，不满足过滤条件的记录在读取时跳过。
+     */
+    @Bean
+    public Job csvJob(Step csvStep) {
+        return new JobBuilder("csvJob", jobRepository)
+                .start(csvStep)
+                .build();
+    }
+
+    /**
+     * 排序版本 Job：先按 mmap 模式清洗到临时文件，再由外部归并排序按键写出最终输出。
+     * 排序失败后重启只重跑排序 step，已完成的清洗输出保留。
+     */
+    @Bean
+    public Job sortedJob(Step sortedCleaningStep, Step externalSortStep) {
+        return new JobBuilder("sortedJob", jobRepository)
+                .start(sortedCleaningStep)
+                .next(externalSortStep)
+                .build();
+    }
+
+    /**
+     * gzip 输入版本 Job：BGZF 文件按块并行解压，其它 gzip 文件顺序解压，清洗与写出与 mmap 版本相同。
+     */
+    @Bean
+    public Job gzipJob(Step gzipStep) {
+        return new JobBuilder("gzipJob", jobRepository)
+                .start(gzipStep)
+                .build();
+    }
+
+    /**
+     * 增量版本 Job：只处理只追加输入新增的行并追加到已有输出，成功后更新输入指纹，供下次运行判断从哪里继续。
+     */
+    @Bean
+    public Job incrementalJob(Step incrementalStep, Step saveFingerprintStep) {
+        return new JobBuilder("incrementalJob", jobRepository)
+                .start(incrementalStep)
+                .next(saveFingerprintStep)
+                .build();
+    }
+
+    /**
+     * 多输入版本 Job：按清单依次读取多个文件，清洗后合并写入一个输出，大量小文件只产生一次 Job 启动。
+     */
+    @Bean
+    public Job manifestJob(Step manifestStep) {
+        return new JobBuilder("manifestJob", jobRepository)
+                .start(manifestStep)
+                .build();
+    }
+
+    /**
+     * 分区版本 Job：按行对齐切分单个大文件，多个 worker 线程并行清洗，最后拼接分片输出。
+     */
+    @Bean
+    public Job partitionedJob(Step partitionedManagerStep, Step mergePartFilesStep) {
+        return new JobBuilder("partitionedJob", jobRepository)
+                .start(partitionedManagerStep)
+                .next(mergePartFilesStep)
+                .build();
+    }
+
+    /**
+     * 跨进程分区版本 Job：切分方式与分片拼接同分区版本，worker step 由其它 JVM 认领执行，见 {@link RemotePartitionHandler}。
+     */
+    @Bean
+    public Job remotePartitionedJob(Step remotePartitionedManagerStep, Step mergePartFilesStep) {
+        return new JobBuilder("remotePartitionedJob", jobRepository)
+                .start(remotePartitionedManagerStep)
+                .next(mergePartFilesStep)
+                .build();
+    }
+
+    @Bean
+    public Step memoryMappedStep(MemoryMappedCsvReader memoryMappedReader, FileChannelLineWriter writer) {
+        return withCleaning(this.<String, String>chunkStep("memoryMappedStep"), memoryMappedReader)
+                .writer(writer)
+                .build();
+    }
+
+    @Bean
+    public Step memoryMappedByteStep(MemoryMappedByteLineReader memoryMappedByteReader, FileChannelByteLineWriter byteLineWriter) {
+        return this.<ByteLine, ByteLine>chunkStep("memoryMappedByteStep")
+                .reader(memoryMappedByteReader)
+                .processor(byteLineProcessor())
+                .writer(byteLineWriter)
+                .build();
+    }
+
+    @Bean
+    public Step csvStep(MemoryMappedCsvRecordReader csvRecordReader, FileChannelLineWriter writer) {
+        return withCleaning(this.<String, String>chunkStep("csvStep"), csvRecordReader)
+                .writer(writer)
+                .build();
+    }
+
+    @Bean
+    public Step sortedCleaningStep(MemoryMappedCsvReader memoryMappedReader, FileChannelLineWriter unsortedWriter) {
+        return withCleaning(this.<String, String>chunkStep("sortedCleaningStep"), memoryMappedReader)
+                .writer(unsortedWriter)
+                .build();
+    }
+
+    @Bean
+    public Step externalSortStep(Tasklet externalSortTasklet) {
+        return new StepBuilder("externalSortStep", jobRepository)
+                .tasklet(externalSortTasklet, transactionManager)
+                .build();
+    }
+
+    @Bean
+    public Step sendfileStep(SendfileCsvReader sendfileReader, FileChannelLineWriter writer) {
+        return withCleaning(this.<String, String>chunkStep("sendfileStep"), sendfileReader)
+                .writer(writer)
+                .build();
+    }
+
+    @Bean
+    public Step gzipStep(GzipLineReader gzipReader, FileChannelLineWriter writer) {
+        return withCleaning(this.<String, String>chunkStep("gzipStep"), gzipReader)
+                .writer(writer)
+                .build();
+    }
+
+    @Bean
+    public Step incrementalStep(MemoryMappedCsvReader incrementalReader, FileChannelLineWriter incrementalWriter) {
+        return withCleaning(this.<String, String>chunkStep("incrementalStep"), incrementalReader)
+                .writer(incrementalWriter)
+                .build();
+    }
+
+    @Bean
+    public Step manifestStep(MultiFileLineReader manifestReader, FileChannelLineWriter writer) {
+        return withCleaning(this.<String, String>chunkStep("manifestStep"), manifestReader)
+                .writer(writer)
                 .build();
     }
 
     @Bean
-    public Step sendfileStep(@Value("#{jobParameters['input']}") String input,
-                             @Value("#{jobParameters['output']}") String output) {
-        return new StepBuilder("sendfileStep", jobRepository)
-                .<String, String>chunk(200)
-                .reader(sendfileReader(input))
+    public Step saveFingerprintStep(Tasklet inputFingerprintTasklet) {
+        return new StepBuilder("saveFingerprintStep", jobRepository)
+                .tasklet(inputFingerprintTasklet, transactionManager)
+                .build();
+    }
+
+    @Bean
+    public Step partitionedManagerStep(Step partitionedWorkerStep, LineAlignedPartitioner lineAlignedPartitioner,
+                                       TaskExecutor partitionTaskExecutor,
+                                       @Value("${batch.partition.grid-size:0}") int gridSize) {
+        return new StepBuilder("partitionedManagerStep", jobRepository)
+                .partitioner("partitionedWorkerStep", lineAlignedPartitioner)
+                .step(partitionedWorkerStep)
+                .gridSize(resolveThreadCount(gridSize))
+                .taskExecutor(partitionTaskExecutor)
+                .build();
+    }
+
+    /**
+     * worker step 的名字仍是 partitionedWorkerStep，worker 进程按这个名字找到同一个 step 定义执行。
+     */
+    @Bean
+    public Step remotePartitionedManagerStep(LineAlignedPartitioner lineAlignedPartitioner,
+                                             RemotePartitionProperties remotePartitionProperties,
+                                             PartitionClaimStore partitionClaimStore, JobExplorer jobExplorer) {
+        return new StepBuilder("remotePartitionedManagerStep", jobRepository)
+                .partitioner("partitionedWorkerStep", lineAlignedPartitioner)
+                .partitionHandler(remotePartitionProperties.newPartitionHandler(partitionClaimStore, jobExplorer, jobRepository))
+                .build();
+    }
+
+    @Bean
+    public Step partitionedWorkerStep(MemoryMappedCsvReader partitionReader, FileChannelLineWriter partitionWriter) {
+        return this.<String, String>chunkStep("partitionedWorkerStep")
+                .reader(partitionReader)
                 .processor(defaultProcessor())
-                .writer(writer(output))
-                .transactionManager(transactionManager)
+                .writer(partitionWriter)
+                .build();
+    }
+
+    @Bean
+    public Step mergePartFilesStep(Tasklet partFileMergeTasklet) {
+        return new StepBuilder("mergePartFilesStep", jobRepository)
+                .tasklet(partFileMergeTasklet, transactionManager)
                 .build();
     }
 
     @Bean
     @StepScope
-    public ItemReader<String> memoryMappedReader(@Value("#{jobParameters['input']}") String input) {
-        return new MemoryMappedCsvReader(Path.of(input), 8 * 1024 * 1024); // 8MB 窗口
+    public LineAlignedPartitioner lineAlignedPartitioner(@Value("#{jobParameters['input']}") String input,
+                                                         @Value("#{jobParameters['output']}") String output) {
+        return new LineAlignedPartitioner(Path.of(input), Path.of(output));
     }
 
+    /**
+     * 每个分区只映射自己的字节区间，窗口大小与单线程 mmap 读取器保持一致。
+     */
     @Bean
     @StepScope
-    public ItemReader<String> sendfileReader(@Value("#{jobParameters['input']}") String input) {
-        return new SendfileCsvReader(Path.of(input), 4 * 1024 * 1024); // 4MB 分片大小
+    public MemoryMappedCsvReader partitionReader(@Value("#{jobParameters['input']}") String input,
+                                                 @Value("#{stepExecutionContext['startOffset']}") Long startOffset,
+                                                 @Value("#{stepExecutionContext['endOffset']}") Long endOffset,
+                                                 @Value("${batch.mmap.window-size:8MB}") DataSize windowSize,
+                                                 WindowReadAhead windowReadAhead) {
+        MemoryMappedCsvReader reader = new MemoryMappedCsvReader(Path.of(input), (int) windowSize.toBytes(), startOffset, endOffset);
+        reader.setMeters(pipelineMetrics.reader("partition"));
+        return windowReadAhead.applyTo(reader);
     }
 
+    /**
+     * 跨进程分区时写 worker 为本次认领指定的 attemptOutput，已有提交时从上一次认领的文件复制提交点之前的部分续写。
+     */
+    @Bean
+    @StepScope
+    public FileChannelLineWriter partitionWriter(@Value("#{stepExecutionContext['attemptOutput'] ?: stepExecutionContext['partOutput']}") String partOutput,
+                                                 @Value("#{stepExecutionContext['restartSource']}") String restartSource,
+                                                 @Value("#{jobParameters['output']}") String output) {
+        FileChannelLineWriter writer = writerProperties.applyTo(new FileChannelLineWriter(Path.of(partOutput), bufferPool));
+        if (restartSource != null) {
+            writer.setRestartSource(Path.of(restartSource));
+        }
+        writer.setMeters(pipelineMetrics.writer("partition"));
+        return gzipCodec.applyTo(writer, Path.of(output)); // 多成员 gzip 分片直接拼接仍是合法的 gzip 文件
+    }
+
+    /**
+     * 排序版本 Job 的清洗输出先写到 output.unsorted，排序成功后删除；排序读取它时需要明文，因此不压缩。
+     */
+    @Bean
+    @StepScope
+    public FileChannelLineWriter unsortedWriter(@Value("#{jobParameters['output']}") String output) {
+        FileChannelLineWriter writer = writerProperties.applyTo(new FileChannelLineWriter(unsortedPath(output), bufferPool));
+        writer.setMeters(pipelineMetrics.writer("line"));
+        return writer;
+    }
+
+    @Bean
+    @StepScope
+    public ExternalSortTasklet externalSortTasklet(@Value("#{jobParameters['output']}") String output) {
+        return sortProperties.newTasklet(unsortedPath(output), Path.of(output), bufferPool);
+    }
+
+    private static Path unsortedPath(String output) {
+        Path path = Path.of(output);
+        return path.resolveSibling(path.getFileName() + ".unsorted");
+    }
+
+    /**
+     * 增量 Job 只读取启动时确定的 [startOffset, endOffset)，两端都在行首，文件在运行期间继续增长也不会读到半行。
+     */
+    @Bean
+    @StepScope
+    public MemoryMappedCsvReader incrementalReader(@Value("#{jobParameters['input']}") String input,
+                                                   @Value("#{jobParameters['startOffset']}") Long startOffset,
+                                                   @Value("#{jobParameters['endOffset']}") Long endOffset,
+                                                   @Value("${batch.mmap.window-size:8MB}") DataSize windowSize,
+                                                   WindowReadAhead windowReadAhead) {
+        MemoryMappedCsvReader reader = new MemoryMappedCsvReader(Path.of(input), (int) windowSize.toBytes(), startOffset, endOffset);
+        reader.setMeters(pipelineMetrics.reader("mmap"));
+        return windowReadAhead.applyTo(reader);
+    }
+
+    /**
+     * 全量运行时 outputOffset 为 0，等同于清空重写；增量运行时截断到上次的输出大小后追加。
+     */
+    @Bean
+    @StepScope
+    public FileChannelLineWriter incrementalWriter(@Value("#{jobParameters['output']}") String output,
+                                                   @Value("#{jobParameters['outputOffset']}") Long outputOffset) {
+        FileChannelLineWriter writer = writerProperties.applyTo(new FileChannelLineWriter(Path.of(output), bufferPool));
+        writer.setAppendPosition(outputOffset);
+        writerProperties.applyFinalOutputTo(writer);
+        writer.setMeters(pipelineMetrics.writer("line"));
+        return gzipCodec.applyTo(writer, Path.of(output));
+    }
+
+    @Bean
+    @StepScope
+    public InputFingerprintTasklet inputFingerprintTasklet(@Value("#{jobParameters['input']}") String input,
+                                                           @Value("#{jobParameters['output']}") String output,
+                                                           @Value("#{jobParameters['endOffset']}") Long endOffset) {
+        return new InputFingerprintTasklet(Path.of(input), Path.of(output), endOffset);
+    }
+
+    @Bean
+    @StepScope
+    public PartFileMergeTasklet partFileMergeTasklet(@Value("#{jobParameters['output']}") String output) {
+        return new PartFileMergeTasklet(Path.of(output));
+    }
+
+    /**
+     * 分区 worker 线程池，线程数与分区数一致，默认按 CPU 核数切分。
+     */
+    @Bean
+    public ThreadPoolTaskExecutor partitionTaskExecutor(@Value("${batch.partition.grid-size:0}") int gridSize) {
+        int threads = resolveThreadCount(gridSize);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("partition-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * chunk step 的公共部分：chunk 边界由 step 作用域的自适应提交策略决定（它同时监听每行大小与提交耗时），
+     * 并挂上计时监听器，处理耗时与提交延迟按 step 名分别统计。
+     */
+    private <I, O> SimpleStepBuilder<I, O> chunkStep(String name) {
+        AdaptiveCompletionPolicy policy = adaptiveCompletionPolicy();
+        SimpleStepBuilder<I, O> builder = new StepBuilder(name, jobRepository).chunk(policy, transactionManager);
+        builder.listener((ItemReadListener<Object>) policy);
+        builder.listener((ItemWriteListener<Object>) policy);
+        builder.listener((ChunkListener) policy);
+        builder.listener((ItemProcessListener<Object, Object>) chunkTimingListener);
+        builder.listener((ItemWriteListener<Object>) chunkTimingListener);
+        builder.listener((ChunkListener) chunkTimingListener);
+        return builder;
+    }
+
+    /**
+     * 单线程字符串 step 的读取器与处理器：清洗，开启 batch.quarantine.enabled 时校验并隔离坏记录，
+     * 开启 batch.dedup.enabled 时清洗后再去重。
+     * 分区 worker 不去重也不隔离：每个分区各自的指纹集合看不到其它分区的记录，拒收文件也无法按分区拼接续跑。
+     */
+    private SimpleStepBuilder<String, String> withCleaning(SimpleStepBuilder<String, String> builder, ItemReader<String> reader) {
+        builder.reader(reader);
+        ItemProcessor<String, String> cleaning = defaultProcessor();
+        if (quarantineProperties.isEnabled()) {
+            QuarantiningProcessor quarantiningProcessor = quarantiningProcessor();
+            builder.stream(quarantiningProcessor);
+            builder.listener((StepExecutionListener) quarantiningProcessor);
+            builder.listener((ChunkListener) quarantiningProcessor);
+            if (reader instanceof RecordOffsetSource source) {
+                builder.listener(QuarantiningProcessor.offsetListener(quarantiningProcessor, source));
+            }
+            cleaning = quarantiningProcessor;
+        }
+        if (!dedupProperties.isEnabled()) {
+            return builder.processor(cleaning);
+        }
+        DeduplicatingProcessor deduplicatingProcessor = deduplicatingProcessor();
+        CompositeItemProcessor<String, String> processor = new CompositeItemProcessor<>();
+        processor.setDelegates(List.of(cleaning, deduplicatingProcessor));
+        builder.processor(processor);
+        builder.stream(deduplicatingProcessor); // 组合处理器不会被自动注册为 stream
+        builder.listener((StepExecutionListener) deduplicatingProcessor);
+        return builder;
+    }
+
+    /**
+     * 隔离状态与拒收文件只属于一次 step 执行，拒收文件放在 Job 参数 output 旁边。
+     */
+    @Bean
+    @StepScope
+    public QuarantiningProcessor quarantiningProcessor() {
+        return quarantineProperties.newProcessor(defaultProcessor(), bufferPool);
+    }
+
+    /**
+     * 去重状态只属于一次 step 执行，close 时释放指纹表的直接内存并删除溢写文件；指纹日志留到 step 成功后删除，供重启恢复。
+     */
+    @Bean
+    @StepScope
+    public DeduplicatingProcessor deduplicatingProcessor() {
+        return dedupProperties.newProcessor();
+    }
+
+    /**
+     * 每个 step 执行（包括每个分区 worker）各自一个策略实例，条数上限在同一 step 的 chunk 之间延续。
+     */
+    @Bean
+    @StepScope
+    public AdaptiveCompletionPolicy adaptiveCompletionPolicy() {
+        return chunkProperties.newCompletionPolicy();
+    }
+
+    private static int resolveThreadCount(int configured) {
+        return configured > 0 ? configured : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * step 作用域的 Bean 声明具体类型，代理才会实现 ItemStream，Step 才能回调 open/update 保存重启偏移。
+     */
+    @Bean
+    @StepScope
+    public MemoryMappedCsvReader memoryMappedReader(@Value("#{jobParameters['input']}") String input,
+                                                    @Value("${batch.mmap.window-size:8MB}") DataSize windowSize,
+                                                 WindowReadAhead windowReadAhead) {
+        MemoryMappedCsvReader reader = new MemoryMappedCsvReader(Path.of(input), (int) windowSize.toBytes());
+        reader.setMeters(pipelineMetrics.reader("mmap"));
+        return windowReadAhead.applyTo(reader);
+    }
+
+    /**
+     * 每个 step 一个行对象池，读取器借出、写入器写完归还。
+     */
+    @Bean
+    @StepScope
+    public MemoryMappedByteLineReader memoryMappedByteReader(@Value("#{jobParameters['input']}") String input,
+                                                             @Value("${batch.mmap.window-size:8MB}") DataSize windowSize,
+                                                    WindowReadAhead windowReadAhead) {
+        MemoryMappedByteLineReader reader = new MemoryMappedByteLineReader(Path.of(input), (int) windowSize.toBytes(), new ByteLinePool());
+        reader.setMeters(pipelineMetrics.reader("mmap-bytes"));
+        return windowReadAhead.applyTo(reader);
+    }
+
+    /**
+     * 带引号字段可以跨行，记录边界无法按字节位置切分，因此只有单线程版本。
+     */
+    @Bean
+    @StepScope
+    public MemoryMappedCsvRecordReader csvRecordReader(@Value("#{jobParameters['input']}") String input,
+                                                       @Value("${batch.mmap.window-size:8MB}") DataSize windowSize,
+                                                       WindowReadAhead windowReadAhead) {
+        MemoryMappedCsvRecordReader reader = csvProperties.applyTo(
+                new MemoryMappedCsvRecordReader(Path.of(input), (int) windowSize.toBytes(), csvProperties.getDelimiter()));
+        reader.setMeters(pipelineMetrics.reader("csv"));
+        return windowReadAhead.applyTo(reader);
+    }
+
+    @Bean
+    @StepScope
+    public SendfileCsvReader sendfileReader(@Value("#{jobParameters['input']}") String input,
+                                            @Value("${batch.sendfile.chunk-size:4MB}") DataSize chunkSize,
+                                            SendfileTransferEngine sendfileTransferEngine) {
+        SendfileCsvReader reader = new SendfileCsvReader(Path.of(input), (int) chunkSize.toBytes(), sendfileTransferEngine, bufferPool);
+        reader.setMeters(pipelineMetrics.reader("sendfile"));
+        return reader;
+    }
+
+    /**
+     * 清单中的 gzip 文件同样在共享的 gzip 线程池上解压。
+     */
+    @Bean
+    @StepScope
+    public MultiFileLineReader manifestReader(@Value("#{jobParameters['input']}") String input,
+                                              @Value("${batch.mmap.window-size:8MB}") DataSize windowSize) {
+        MultiFileLineReader reader = new MultiFileLineReader(Path.of(input), (int) windowSize.toBytes(),
+                gzipCodec.executor(), 2 * gzipCodec.threads());
+        reader.setMeters(pipelineMetrics.reader("manifest"));
+        return reader;
+    }
+
+    /**
+     * 解压在共享的 gzip 线程池上进行，每个读取器最多预取两倍线程数的块。
+     */
+    @Bean
+    @StepScope
+    public GzipLineReader gzipReader(@Value("#{jobParameters['input']}") String input) {
+        GzipLineReader reader = new GzipLineReader(Path.of(input), gzipCodec.executor(), 2 * gzipCodec.threads());
+        reader.setMeters(pipelineMetrics.reader("gzip"));
+        return reader;
+    }
+
+    /**
+     * 配置了 batch.cleaning.rules 时使用编译后的规则，否则去首尾空白并转大写；编译后的程序不可变，分区 worker 共用同一个实例。
+     */
     @Bean
     public ItemProcessor<String, String> defaultProcessor() {
-        return new DataCleaningProcessor();
+        return cleaningProperties.newProcessor();
+    }
+
+    @Bean
+    public ItemProcessor<ByteLine, ByteLine> byteLineProcessor() {
+        return cleaningProperties.newByteLineProcessor();
+    }
+
+    @Bean
+    @StepScope
+    public FileChannelLineWriter writer(@Value("#{jobParameters['output']}") String output) {
+        FileChannelLineWriter writer = writerProperties.applyTo(new FileChannelLineWriter(Path.of(output), bufferPool));
+        writerProperties.applyFinalOutputTo(writer);
+        writer.setMeters(pipelineMetrics.writer("line"));
+        return gzipCodec.applyTo(writer, Path.of(output));
     }
 
     @Bean
     @StepScope
-    public ItemWriter<String> writer(@Value("#{jobParameters['output']}") String output) {
-        return new FileChannelLineWriter(Path.of(output), bufferPool);
+    public FileChannelByteLineWriter byteLineWriter(@Value("#{jobParameters['output']}") String output) {
+        FileChannelByteLineWriter writer = writerProperties.applyTo(new FileChannelByteLineWriter(Path.of(output), bufferPool));
+        writerProperties.applyFinalOutputTo(writer);
+        writer.setMeters(pipelineMetrics.writer("byte-line"));
+        return gzipCodec.applyTo(writer, Path.of(output));
     }
 }
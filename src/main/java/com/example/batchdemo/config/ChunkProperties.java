@@ -0,0 +1,99 @@
+package com.example.batchdemo.config;
+
+import com.example.batchdemo.job.AdaptiveCompletionPolicy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * chunk 大小相关配置，对应 application.yml 中的 batch.chunk.*，所有 chunk step 共用。
+ */
+@ConfigurationProperties(prefix = "batch.chunk")
+public class ChunkProperties {
+
+    /** 每个 chunk 的最少条数。 */
+    private int minItems = 50;
+
+    /** 每个 chunk 的最多条数。 */
+    private int maxItems = 50_000;
+
+    /** 第一个 chunk 的条数。 */
+    private int initialItems = 200;
+
+    /** 单个 chunk 累计的行字节数上限，达到后提前提交。 */
+    private DataSize maxBytes = DataSize.ofMegabytes(8);
+
+    /** 提交耗时占 chunk 耗时的目标比例，超过时增大 chunk。 */
+    private double targetOverhead = 0.05;
+
+    /** 提交耗时超过该值时减小 chunk。 */
+    private Duration maxCommitLatency = Duration.ofMillis(200);
+
+    /** 老年代 GC 后使用率超过该值时减小 chunk。 */
+    private double heapPressure = 0.85;
+
+    public int getMinItems() {
+        return minItems;
+    }
+
+    public void setMinItems(int minItems) {
+        this.minItems = minItems;
+    }
+
+    public int getMaxItems() {
+        return maxItems;
+    }
+
+    public void setMaxItems(int maxItems) {
+        this.maxItems = maxItems;
+    }
+
+    public int getInitialItems() {
+        return initialItems;
+    }
+
+    public void setInitialItems(int initialItems) {
+        this.initialItems = initialItems;
+    }
+
+    public DataSize getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(DataSize maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public double getTargetOverhead() {
+        return targetOverhead;
+    }
+
+    public void setTargetOverhead(double targetOverhead) {
+        this.targetOverhead = targetOverhead;
+    }
+
+    public Duration getMaxCommitLatency() {
+        return maxCommitLatency;
+    }
+
+    public void setMaxCommitLatency(Duration maxCommitLatency) {
+        this.maxCommitLatency = maxCommitLatency;
+    }
+
+    public double getHeapPressure() {
+        return heapPressure;
+    }
+
+    public void setHeapPressure(double heapPressure) {
+        this.heapPressure = heapPressure;
+    }
+
+    /**
+     * 按当前配置创建一个新的自适应提交策略，每个 step 执行一个实例。
+     */
+    public AdaptiveCompletionPolicy newCompletionPolicy() {
+        return new AdaptiveCompletionPolicy(minItems, maxItems, initialItems, maxBytes.toBytes(),
+                targetOverhead, maxCommitLatency, heapPressure);
+    }
+}
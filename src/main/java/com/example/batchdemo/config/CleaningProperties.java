@@ -0,0 +1,104 @@
+package com.example.batchdemo.config;
+
+import com.example.batchdemo.io.ByteLine;
+import com.example.batchdemo.job.ByteLineCleaningProcessor;
+import com.example.batchdemo.job.CleaningProgram;
+import com.example.batchdemo.job.DataCleaningProcessor;
+import com.example.batchdemo.job.RuleCleaningProcessor;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 清洗规则配置，对应 application.yml 中的 batch.cleaning.*，规则写法见 {@link CleaningProgram}。
+ * 没有配置规则时沿用去首尾空白并转大写的默认清洗。
+ */
+@ConfigurationProperties(prefix = "batch.cleaning")
+public class CleaningProperties {
+
+    /** 切分列时的字段分隔符，引号内的分隔符不算。 */
+    private char delimiter = ',';
+
+    /** 按顺序生效的规则。 */
+    private List<Rule> rules = new ArrayList<>();
+
+    /** 代码映射表，规则中以 map:名称 引用。 */
+    private Map<String, Map<String, String>> mappings = new LinkedHashMap<>();
+
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    public void setDelimiter(char delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    public void setRules(List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    public Map<String, Map<String, String>> getMappings() {
+        return mappings;
+    }
+
+    public void setMappings(Map<String, Map<String, String>> mappings) {
+        this.mappings = mappings;
+    }
+
+    /**
+     * 规则在这里编译，正则或日期格式写错时应用启动即失败，不会等到 Job 运行。
+     */
+    public ItemProcessor<String, String> newProcessor() {
+        if (rules.isEmpty()) {
+            return new DataCleaningProcessor();
+        }
+        return new RuleCleaningProcessor(compile());
+    }
+
+    /**
+     * MMAP_BYTES 模式的处理器，与字符串 step 执行同一套规则。
+     */
+    public ItemProcessor<ByteLine, ByteLine> newByteLineProcessor() {
+        return new ByteLineCleaningProcessor(rules.isEmpty() ? null : compile());
+    }
+
+    private CleaningProgram compile() {
+        List<CleaningProgram.Rule> compiled = rules.stream()
+                .map(rule -> new CleaningProgram.Rule(rule.getColumns(), rule.getOperations()))
+                .toList();
+        return CleaningProgram.compile(delimiter, compiled, mappings);
+    }
+
+    public static class Rule {
+
+        /** 作用的列号（从 0 开始），为空时作用于所有列。 */
+        private List<Integer> columns = new ArrayList<>();
+
+        /** 依次执行的操作。 */
+        private List<String> operations = new ArrayList<>();
+
+        public List<Integer> getColumns() {
+            return columns;
+        }
+
+        public void setColumns(List<Integer> columns) {
+            this.columns = columns;
+        }
+
+        public List<String> getOperations() {
+            return operations;
+        }
+
+        public void setOperations(List<String> operations) {
+            this.operations = operations;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.batchdemo.config;
+
+import com.example.batchdemo.io.CsvPredicate;
+import com.example.batchdemo.io.MemoryMappedCsvRecordReader;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSV 记录读取器相关配置，对应 application.yml 中的 batch.csv.*，CSV 模式的 Job 使用。
+ */
+@ConfigurationProperties(prefix = "batch.csv")
+public class CsvProperties {
+
+    /** 字段分隔符。 */
+    private char delimiter = ',';
+
+    /** 第一条记录是否为表头。 */
+    private boolean header = true;
+
+    /** 输出的列（列名或从 0 开始的列号），为空时输出整条记录。 */
+    private List<String> columns = new ArrayList<>();
+
+    /** 过滤条件（列=值 或 列!=值），全部满足的记录才输出。 */
+    private List<String> filters = new ArrayList<>();
+
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    public void setDelimiter(char delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    public boolean isHeader() {
+        return header;
+    }
+
+    public void setHeader(boolean header) {
+        this.header = header;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public void setColumns(List<String> columns) {
+        this.columns = columns;
+    }
+
+    public List<String> getFilters() {
+        return filters;
+    }
+
+    public void setFilters(List<String> filters) {
+        this.filters = filters;
+    }
+
+    /**
+     * 把表头、投影列与过滤条件应用到读取器上。
+     */
+    public MemoryMappedCsvRecordReader applyTo(MemoryMappedCsvRecordReader reader) {
+        reader.setHeader(header);
+        reader.setColumns(columns);
+        reader.setFilters(filters.stream().map(CsvPredicate::parse).toList());
+        return reader;
+    }
+}
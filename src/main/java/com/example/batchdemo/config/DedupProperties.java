@@ -0,0 +1,90 @@
+package com.example.batchdemo.config;
+
+import com.example.batchdemo.job.DeduplicatingProcessor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 去重相关配置，对应 application.yml 中的 batch.dedup.*，开启后单线程的字符串 step 在清洗之后去重。
+ */
+@ConfigurationProperties(prefix = "batch.dedup")
+public class DedupProperties {
+
+    /** 是否去除重复记录。 */
+    private boolean enabled = false;
+
+    /** 作为键的列号（从 0 开始），为空时以整行为键。 */
+    private List<Integer> keyColumns = new ArrayList<>();
+
+    /** 按列取键时的字段分隔符。 */
+    private char delimiter = ',';
+
+    /** 内存中指纹表的直接内存上限，每个不同的键约 21 字节，超出后溢写到磁盘。 */
+    private DataSize memoryBudget = DataSize.ofMegabytes(256);
+
+    /** 溢写文件目录，为空时使用 java.io.tmpdir。 */
+    private String spillDirectory = "";
+
+    /** 同一层的溢写文件达到该数量时归并成一个。 */
+    private int mergeFanout = 4;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<Integer> getKeyColumns() {
+        return keyColumns;
+    }
+
+    public void setKeyColumns(List<Integer> keyColumns) {
+        this.keyColumns = keyColumns;
+    }
+
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    public void setDelimiter(char delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    public DataSize getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public void setMemoryBudget(DataSize memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    public String getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    public void setSpillDirectory(String spillDirectory) {
+        this.spillDirectory = spillDirectory;
+    }
+
+    public int getMergeFanout() {
+        return mergeFanout;
+    }
+
+    public void setMergeFanout(int mergeFanout) {
+        this.mergeFanout = mergeFanout;
+    }
+
+    /**
+     * 按当前配置创建一个新的去重处理器，每个 step 执行一个实例。
+     */
+    public DeduplicatingProcessor newProcessor() {
+        Path spill = Path.of(spillDirectory.isBlank() ? System.getProperty("java.io.tmpdir") : spillDirectory);
+        return new DeduplicatingProcessor(keyColumns, delimiter, memoryBudget.toBytes(), spill, mergeFanout);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.batchdemo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 目录监听接入配置，对应 application.yml 中的 batch.ingest.*，由 DirectoryIngestService 使用。
+ */
+@ConfigurationProperties(prefix = "batch.ingest")
+public class IngestProperties {
+
+    /** 是否监听落地目录。 */
+    private boolean enabled = false;
+
+    /** 落地目录，只处理目录下第一层的普通文件。 */
+    private List<String> directories = new ArrayList<>();
+
+    /** 输出目录。 */
+    private String outputDirectory = "";
+
+    /** 文件大小与修改时间保持不变多久后才认为已写完。 */
+    private Duration settleTime = Duration.ofSeconds(2);
+
+    /** 全量扫描落地目录的间隔，补上 WatchService 丢失（OVERFLOW）或不支持的事件。 */
+    private Duration rescanInterval = Duration.ofSeconds(30);
+
+    /** 小于该大小的文件合并进多输入 Job，其余文件各自一个 Job。 */
+    private DataSize smallFileThreshold = DataSize.ofMegabytes(16);
+
+    /** 不小于该大小的文件走分区 Job，介于两个阈值之间的走单线程 mmap Job。 */
+    private DataSize partitionThreshold = DataSize.ofGigabytes(1);
+
+    /** 一个多输入 Job 最多合并的文件数。 */
+    private int batchMaxFiles = 2000;
+
+    /** 一个多输入 Job 最多合并的字节数。 */
+    private DataSize batchMaxBytes = DataSize.ofMegabytes(256);
+
+    /** 第一个小文件就绪后最多等待多久就提交，即使批次未满。 */
+    private Duration batchMaxWait = Duration.ofSeconds(5);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<String> getDirectories() {
+        return directories;
+    }
+
+    public void setDirectories(List<String> directories) {
+        this.directories = directories;
+    }
+
+    public String getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    public void setOutputDirectory(String outputDirectory) {
+        this.outputDirectory = outputDirectory;
+    }
+
+    public Duration getSettleTime() {
+        return settleTime;
+    }
+
+    public void setSettleTime(Duration settleTime) {
+        this.settleTime = settleTime;
+    }
+
+    public Duration getRescanInterval() {
+        return rescanInterval;
+    }
+
+    public void setRescanInterval(Duration rescanInterval) {
+        this.rescanInterval = rescanInterval;
+    }
+
+    public DataSize getSmallFileThreshold() {
+        return smallFileThreshold;
+    }
+
+    public void setSmallFileThreshold(DataSize smallFileThreshold) {
+        this.smallFileThreshold = smallFileThreshold;
+    }
+
+    public DataSize getPartitionThreshold() {
+        return partitionThreshold;
+    }
+
+    public void setPartitionThreshold(DataSize partitionThreshold) {
+        this.partitionThreshold = partitionThreshold;
+    }
+
+    public int getBatchMaxFiles() {
+        return batchMaxFiles;
+    }
+
+    public void setBatchMaxFiles(int batchMaxFiles) {
+        this.batchMaxFiles = batchMaxFiles;
+    }
+
+    public DataSize getBatchMaxBytes() {
+        return batchMaxBytes;
+    }
+
+    public void setBatchMaxBytes(DataSize batchMaxBytes) {
+        this.batchMaxBytes = batchMaxBytes;
+    }
+
+    public Duration getBatchMaxWait() {
+        return batchMaxWait;
+    }
+
+    public void setBatchMaxWait(Duration batchMaxWait) {
+        this.batchMaxWait = batchMaxWait;
+    }
+}
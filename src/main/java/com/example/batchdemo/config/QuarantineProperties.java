@@ -0,0 +1,119 @@
+package com.example.batchdemo.config;
+
+import com.example.batchdemo.job.QuarantiningProcessor;
+import com.example.batchdemo.job.RecordValidator;
+import com.example.batchdemo.service.PreallocatedBufferPool;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 脏数据隔离配置，对应 application.yml 中的 batch.quarantine.*，开启后单线程的字符串 step 把坏记录写进拒收文件而不是让 chunk 回滚。
+ */
+@ConfigurationProperties(prefix = "batch.quarantine")
+public class QuarantineProperties {
+
+    /** 是否开启校验与隔离。 */
+    private boolean enabled = false;
+
+    /** 拒收记录数上限，超过即让 Job 失败；小于 0 表示不限。 */
+    private long maxRejects = -1L;
+
+    /** 拒收比例上限（0.01 即 1%），超过即让 Job 失败；0 表示不限。 */
+    private double maxRejectRatio = 0.0;
+
+    /** 处理条数达到该值后才检查拒收比例，避免开头几条坏记录就让 Job 失败。 */
+    private long ratioMinRecords = 10000L;
+
+    /** 记录的最大字符数，0 表示不检查。 */
+    private int maxLength = 0;
+
+    /** 期望的列数，0 表示不检查。 */
+    private int expectedColumns = 0;
+
+    /** 计算列数时的字段分隔符。 */
+    private char delimiter = ',';
+
+    /** 是否拒收空行。 */
+    private boolean rejectBlank = false;
+
+    /** 是否拒收包含无法按 UTF-8 解码字节的记录（解码后出现替换字符 U+FFFD）。 */
+    private boolean rejectMalformedEncoding = true;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getMaxRejects() {
+        return maxRejects;
+    }
+
+    public void setMaxRejects(long maxRejects) {
+        this.maxRejects = maxRejects;
+    }
+
+    public double getMaxRejectRatio() {
+        return maxRejectRatio;
+    }
+
+    public void setMaxRejectRatio(double maxRejectRatio) {
+        this.maxRejectRatio = maxRejectRatio;
+    }
+
+    public long getRatioMinRecords() {
+        return ratioMinRecords;
+    }
+
+    public void setRatioMinRecords(long ratioMinRecords) {
+        this.ratioMinRecords = ratioMinRecords;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public void setMaxLength(int maxLength) {
+        this.maxLength = maxLength;
+    }
+
+    public int getExpectedColumns() {
+        return expectedColumns;
+    }
+
+    public void setExpectedColumns(int expectedColumns) {
+        this.expectedColumns = expectedColumns;
+    }
+
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    public void setDelimiter(char delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    public boolean isRejectBlank() {
+        return rejectBlank;
+    }
+
+    public void setRejectBlank(boolean rejectBlank) {
+        this.rejectBlank = rejectBlank;
+    }
+
+    public boolean isRejectMalformedEncoding() {
+        return rejectMalformedEncoding;
+    }
+
+    public void setRejectMalformedEncoding(boolean rejectMalformedEncoding) {
+        this.rejectMalformedEncoding = rejectMalformedEncoding;
+    }
+
+    public QuarantiningProcessor newProcessor(ItemProcessor<String, String> delegate, PreallocatedBufferPool bufferPool) {
+        RecordValidator validator = new RecordValidator(maxLength, expectedColumns, delimiter, rejectBlank,
+                rejectMalformedEncoding);
+        return new QuarantiningProcessor(delegate, validator, bufferPool, maxRejects, maxRejectRatio, ratioMinRecords);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.batchdemo.config;
+
+import com.example.batchdemo.job.RemotePartitionHandler;
+import com.example.batchdemo.service.PartitionClaimStore;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 跨进程分区配置，对应 application.yml 中的 batch.remote.*。manager 与 worker 必须连接同一个 Job 仓库，
+ * 见 application.yml 中的 manager、worker profile。
+ */
+@ConfigurationProperties(prefix = "batch.remote")
+public class RemotePartitionProperties {
+
+    /** REMOTE_PARTITIONED Job 的切分数，通常取所有 worker 线程数之和的数倍，让快的 worker 多领。 */
+    private int gridSize = 16;
+
+    /** manager 检查分区状态、空闲 worker 查找待认领分区的间隔。 */
+    private Duration pollInterval = Duration.ofSeconds(1);
+
+    /** worker 刷新心跳的间隔。 */
+    private Duration heartbeatInterval = Duration.ofSeconds(2);
+
+    /** 心跳超过该时长未刷新即认为 worker 已失联，分区交给其它 worker。 */
+    private Duration heartbeatTimeout = Duration.ofSeconds(30);
+
+    /** 单个分区最多被认领的次数，用完后该分区失败。 */
+    private int maxAttempts = 3;
+
+    /** manager 最多等待多久，超时后未完成的分区记为失败；0 表示一直等待。 */
+    private Duration maxWait = Duration.ZERO;
+
+    /** 本进程是否作为 worker 认领分区。 */
+    private boolean workerEnabled = false;
+
+    /** 本进程同时执行的分区数。 */
+    private int workerThreads = 2;
+
+    /** worker 标识，为空时使用 进程号@主机名。 */
+    private String workerId = "";
+
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    public void setGridSize(int gridSize) {
+        this.gridSize = gridSize;
+    }
+
+    public Duration getPollInterval() {
+        return pollInterval;
+    }
+
+    public void setPollInterval(Duration pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    public Duration getHeartbeatInterval() {
+        return heartbeatInterval;
+    }
+
+    public void setHeartbeatInterval(Duration heartbeatInterval) {
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    public Duration getHeartbeatTimeout() {
+        return heartbeatTimeout;
+    }
+
+    public void setHeartbeatTimeout(Duration heartbeatTimeout) {
+        this.heartbeatTimeout = heartbeatTimeout;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    public void setMaxWait(Duration maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    public boolean isWorkerEnabled() {
+        return workerEnabled;
+    }
+
+    public void setWorkerEnabled(boolean workerEnabled) {
+        this.workerEnabled = workerEnabled;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    public void setWorkerId(String workerId) {
+        this.workerId = workerId;
+    }
+
+    public RemotePartitionHandler newPartitionHandler(PartitionClaimStore claimStore, JobExplorer jobExplorer,
+                                                      JobRepository jobRepository) {
+        return new RemotePartitionHandler(claimStore, jobExplorer, jobRepository, gridSize, pollInterval,
+                heartbeatTimeout, maxAttempts, maxWait);
+    }
+}
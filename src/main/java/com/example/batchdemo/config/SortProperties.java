@@ -0,0 +1,101 @@
+package com.example.batchdemo.config;
+
+import com.example.batchdemo.job.ExternalSortTasklet;
+import com.example.batchdemo.service.PreallocatedBufferPool;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+/**
+ * 外部排序相关配置，对应 application.yml 中的 batch.sort.*，MMAP_SORTED 模式的排序 step 使用。
+ */
+@ConfigurationProperties(prefix = "batch.sort")
+public class SortProperties {
+
+    /** 排序键的列号（从 0 开始），小于 0 时以整行为键。 */
+    private int keyColumn = -1;
+
+    /** 按列取键时的字段分隔符。 */
+    private char delimiter = ',';
+
+    /** 所有排序线程的排序区（直接内存）总量。 */
+    private DataSize memoryBudget = DataSize.ofGigabytes(1);
+
+    /** 并行生成有序段与中间归并的线程数，0 表示按 CPU 核数。 */
+    private int threads = 0;
+
+    /** 一轮归并最多同时打开的段数，超过时先分组归并。 */
+    private int mergeFanIn = 128;
+
+    /** 归并时每一路的 mmap 窗口大小。 */
+    private DataSize mergeWindowSize = DataSize.ofMegabytes(4);
+
+    /** 有序段临时文件目录，为空时使用 java.io.tmpdir。 */
+    private String tempDirectory = "";
+
+    public int getKeyColumn() {
+        return keyColumn;
+    }
+
+    public void setKeyColumn(int keyColumn) {
+        this.keyColumn = keyColumn;
+    }
+
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    public void setDelimiter(char delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    public DataSize getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public void setMemoryBudget(DataSize memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getMergeFanIn() {
+        return mergeFanIn;
+    }
+
+    public void setMergeFanIn(int mergeFanIn) {
+        this.mergeFanIn = mergeFanIn;
+    }
+
+    public DataSize getMergeWindowSize() {
+        return mergeWindowSize;
+    }
+
+    public void setMergeWindowSize(DataSize mergeWindowSize) {
+        this.mergeWindowSize = mergeWindowSize;
+    }
+
+    public String getTempDirectory() {
+        return tempDirectory;
+    }
+
+    public void setTempDirectory(String tempDirectory) {
+        this.tempDirectory = tempDirectory;
+    }
+
+    /**
+     * 按当前配置创建一个把 input 排序到 output 的 tasklet。
+     */
+    public ExternalSortTasklet newTasklet(Path input, Path output, PreallocatedBufferPool bufferPool) {
+        Path temp = Path.of(tempDirectory.isBlank() ? System.getProperty("java.io.tmpdir") : tempDirectory);
+        return new ExternalSortTasklet(input, output, keyColumn, delimiter, memoryBudget.toBytes(), threads,
+                mergeFanIn, (int) mergeWindowSize.toBytes(), temp, bufferPool);
+    }
+}
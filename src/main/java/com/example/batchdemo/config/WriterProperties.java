@@ -0,0 +1,119 @@
+package com.example.batchdemo.config;
+
+import com.example.batchdemo.io.AbstractFileChannelWriter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * 写入器相关配置，对应 application.yml 中的 batch.writer.*，所有 Job 的写入器共用同一套设置。
+ */
+@ConfigurationProperties(prefix = "batch.writer")
+public class WriterProperties {
+
+    /** 是否启用异步双缓冲写出。 */
+    private boolean async = false;
+
+    /** 异步模式下每个写入器占用的缓冲区个数。 */
+    private int ringSize = 4;
+
+    /** 每隔多少行在输出旁的 .idx 中记录一次行起始偏移，0 表示不生成索引。只作用于最终输出，分区分片与中间文件不生成。 */
+    private int lineIndexInterval = 0;
+
+    /** 在最终输出开头预留多少字节的控制头（记录数、字节数、CRC32C），结尾同时写控制尾；0 表示不写。压缩输出不写。 */
+    private int controlHeaderSize = 0;
+
+    /** 写在控制头统计值之后的标签，例如来源系统或批次号。 */
+    private String controlLabel = "";
+
+    /** 持久化策略：NONE、FORCE_AT_CLOSE、FORCE_EVERY_BYTES 或 FORCE_EVERY_CHUNKS，force 只发生在 chunk 提交点与 close。 */
+    private AbstractFileChannelWriter.DurabilityPolicy durability = AbstractFileChannelWriter.DurabilityPolicy.NONE;
+
+    /** FORCE_EVERY_BYTES 下两次 force 之间至少写出的字节数。 */
+    private DataSize forceEveryBytes = DataSize.ofMegabytes(256);
+
+    /** FORCE_EVERY_CHUNKS 下每隔多少个 chunk 提交 force 一次。 */
+    private int forceEveryChunks = 100;
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    public int getRingSize() {
+        return ringSize;
+    }
+
+    public void setRingSize(int ringSize) {
+        this.ringSize = ringSize;
+    }
+
+    public int getLineIndexInterval() {
+        return lineIndexInterval;
+    }
+
+    public void setLineIndexInterval(int lineIndexInterval) {
+        this.lineIndexInterval = lineIndexInterval;
+    }
+
+    public int getControlHeaderSize() {
+        return controlHeaderSize;
+    }
+
+    public void setControlHeaderSize(int controlHeaderSize) {
+        this.controlHeaderSize = controlHeaderSize;
+    }
+
+    public String getControlLabel() {
+        return controlLabel;
+    }
+
+    public void setControlLabel(String controlLabel) {
+        this.controlLabel = controlLabel;
+    }
+
+    public AbstractFileChannelWriter.DurabilityPolicy getDurability() {
+        return durability;
+    }
+
+    public void setDurability(AbstractFileChannelWriter.DurabilityPolicy durability) {
+        this.durability = durability;
+    }
+
+    public DataSize getForceEveryBytes() {
+        return forceEveryBytes;
+    }
+
+    public void setForceEveryBytes(DataSize forceEveryBytes) {
+        this.forceEveryBytes = forceEveryBytes;
+    }
+
+    public int getForceEveryChunks() {
+        return forceEveryChunks;
+    }
+
+    public void setForceEveryChunks(int forceEveryChunks) {
+        this.forceEveryChunks = forceEveryChunks;
+    }
+
+    /**
+     * 把配置应用到一个尚未打开的写入器上。
+     */
+    public <W extends AbstractFileChannelWriter<?>> W applyTo(W writer) {
+        writer.setAsync(async);
+        writer.setRingSize(ringSize);
+        writer.setDurability(durability, forceEveryBytes.toBytes(), forceEveryChunks);
+        return writer;
+    }
+
+    /**
+     * 为写最终输出的写入器开启行偏移索引与控制记录；分片在合并后偏移会变、中间文件不需要控制记录，不调用此方法。
+     */
+    public <W extends AbstractFileChannelWriter<?>> W applyFinalOutputTo(W writer) {
+        writer.setLineIndexInterval(lineIndexInterval);
+        writer.setControlRecords(controlHeaderSize, controlLabel);
+        return writer;
+    }
+}
@@ -0,0 +1,487 @@
+package com.example.batchdemo.io;
+
+import com.example.batchdemo.metrics.WriterMeters;
+import com.example.batchdemo.service.PreallocatedBufferPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.batch.item.ItemWriter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.CRC32C;
+import java.util.zip.Deflater;
+
+/**
+ * FileChannel 写入器的公共部分：借用预分配的直接内存缓冲区攒批写出，并负责重启截断与提交位置记录。
+ * 子类只负责把一个条目的字节通过 {@link #put(byte[], int, int)} 放进缓冲区。
+ * 每次 chunk 提交时记录输出文件位置；重启时截断到该位置继续追加，而不是清空重写。
+ * 开启异步模式后，写满的缓冲区交给 {@link AsyncChannelWriter} 的 I/O 线程写盘，编码与写盘重叠进行。
+ * 开启压缩后，写满的缓冲区交给 {@link BgzfBlockWriter} 并行压缩成 gzip 成员按序写出，此时不再使用异步环。
+ * 开启行索引后，每个条目视为一行，按间隔记录行起始偏移，随 chunk 提交写到输出旁的 {@link LineOffsetIndex}。
+ * 开启控制记录后，open 时预留控制头，写出时累计记录数、字节数与 CRC32C（与行索引共用同一次 CRC32C 计算）；作为 step 监听器（随 writer 自动注册）得知 step 成功完成后，
+ * close 时才写控制尾并覆盖控制头，不再额外读写正文，失败时控制头保持未完成标记。
+ * 持久化策略决定在哪些 chunk 提交点 force；重启时输出短于提交位置说明提交点之前有数据没落盘，直接报错。
+ */
+public abstract class AbstractFileChannelWriter<T> extends ItemStreamSupport
+        implements ItemWriter<T>, ItemStream, StepExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(AbstractFileChannelWriter.class);
+
+    /** ExecutionContext 中记录已提交输出位置的键。 */
+    public static final String POSITION_KEY = "position";
+
+    /** ExecutionContext 中记录最近一次 force 时输出位置的键，崩溃后该位置之前的数据一定在盘上。 */
+    public static final String DURABLE_POSITION_KEY = "durablePosition";
+
+    /**
+     * 输出的持久化策略，force 只发生在 chunk 提交点，提交位置落库前数据已落盘。
+     * 同步与异步写出含义相同：异步模式先等 I/O 线程写完已移交的缓冲区，再由这里统一决定是否 force。
+     */
+    public enum DurabilityPolicy {
+        /** 从不 force，交给操作系统回写。 */
+        NONE,
+        /** 只在 close 时 force 一次。 */
+        FORCE_AT_CLOSE,
+        /** 距上次 force 写出的字节数达到阈值后，在下一个提交点 force，close 时再 force 一次。 */
+        FORCE_EVERY_BYTES,
+        /** 每隔若干个 chunk 提交 force 一次，close 时再 force 一次；间隔为 1 时每个提交点都已落盘。 */
+        FORCE_EVERY_CHUNKS
+    }
+
+    private static final String RECORDS_KEY = "records";
+    private static final String CHECKSUM_KEY = "checksum";
+
+    protected static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    private final Path outputPath;
+    private final PreallocatedBufferPool bufferPool;
+    private FileChannel channel;
+    private ByteBuffer buffer;
+
+    private boolean async = false;
+    private int ringSize = 4;
+    private AsyncChannelWriter asyncWriter;
+    private ExecutorService compressionExecutor;
+    private ThreadLocal<Deflater> deflaters;
+    private int maxCompressionsInFlight;
+    private BgzfBlockWriter compressor;
+    private long appendPosition = -1L;
+    private Path restartSource;
+    private int lineIndexInterval = 0;
+    private LineIndexWriter lineIndex;
+    private int controlHeaderSize = 0;
+    private String controlLabel = "";
+    private ControlRecords controlRecords;
+    private boolean completed;
+    private long handedOff;
+    private final CRC32C chunkChecksum = new CRC32C();
+    private long chunkLength;
+    private WriterMeters meters;
+    private DurabilityPolicy durability = DurabilityPolicy.NONE;
+    private long forceEveryBytes;
+    private int forceEveryChunks;
+    private long durablePosition;
+    private int chunksSinceForce;
+
+    protected AbstractFileChannelWriter(Path outputPath, PreallocatedBufferPool bufferPool) {
+        this.outputPath = outputPath;
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * 是否启用异步双缓冲写出，需在 open 之前设置。
+     */
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    /**
+     * 异步模式下环中的缓冲区个数，至少 2 个才能形成双缓冲。
+     */
+    public void setRingSize(int ringSize) {
+        this.ringSize = Math.max(2, ringSize);
+    }
+
+    /**
+     * 首次打开时不清空输出，而是截断到 position 后继续追加（增量处理时 position 为上次运行结束时的输出大小）；
+     * 需在 open 之前设置。重启时仍以上次提交的位置为准。
+     */
+    public void setAppendPosition(long position) {
+        this.appendPosition = position;
+    }
+
+    /**
+     * 重启时已提交的数据在 source 而不在输出文件里：open 先把 source 中提交点之前的部分复制到输出，再照常续写。
+     * 用于每次认领写独立文件的跨进程分区，source 可能仍被旧 worker 写着，但它只会在提交点之后写。需在 open 之前设置。
+     */
+    public void setRestartSource(Path source) {
+        this.restartSource = source;
+    }
+
+    /**
+     * 以多成员 gzip（BGZF 块）写出，压缩在 executor 上并行进行，最多 maxInFlight 个缓冲区同时在压缩中；
+     * 需在 open 之前设置。
+     */
+    public void setCompression(ExecutorService executor, ThreadLocal<Deflater> deflaters, int maxInFlight) {
+        this.compressionExecutor = executor;
+        this.deflaters = deflaters;
+        this.maxCompressionsInFlight = maxInFlight;
+    }
+
+    /**
+     * 每隔 interval 行记录一次行起始偏移，生成 output.idx；0 表示不生成。压缩输出的偏移无法直接定位，不生成索引。
+     * 需在 open 之前设置。
+     */
+    public void setLineIndexInterval(int interval) {
+        this.lineIndexInterval = Math.max(0, interval);
+    }
+
+    /**
+     * 在输出开头预留 headerSize 字节的控制头、结尾写控制尾，label 写在控制头的统计值之后；headerSize 为 0 表示不写。
+     * 压缩输出不写控制记录。需在 open 之前设置。
+     */
+    public void setControlRecords(int headerSize, String label) {
+        this.controlHeaderSize = Math.max(0, headerSize);
+        this.controlLabel = label;
+    }
+
+    /**
+     * 持久化策略，everyBytes 与 everyChunks 分别用于 FORCE_EVERY_BYTES 与 FORCE_EVERY_CHUNKS。需在 open 之前设置。
+     */
+    public void setDurability(DurabilityPolicy policy, long everyBytes, int everyChunks) {
+        this.durability = policy;
+        this.forceEveryBytes = Math.max(1L, everyBytes);
+        this.forceEveryChunks = Math.max(1, everyChunks);
+    }
+
+    /**
+     * 记录刷出次数、write 调用次数与写出字节数，需在 open 之前设置。
+     */
+    public void setMeters(WriterMeters meters) {
+        this.meters = meters;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        this.completed = false;
+        chunkChecksum.reset();
+        this.chunkLength = 0L;
+        String positionKey = getExecutionContextKey(POSITION_KEY);
+        if (controlHeaderSize > 0 && compressionExecutor == null) {
+            this.controlRecords = new ControlRecords(controlHeaderSize, controlLabel, LINE_SEPARATOR);
+        }
+        try {
+            if (executionContext.containsKey(positionKey) || appendPosition >= 0) {
+                // 重启：丢弃上次提交点之后写出的半截数据，从提交点继续追加
+                long committed = executionContext.getLong(positionKey, appendPosition);
+                if (restartSource != null && executionContext.containsKey(positionKey) && !restartSource.equals(outputPath)) {
+                    copyCommitted(restartSource, committed);
+                }
+                this.channel = FileChannel.open(outputPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                this.durablePosition = executionContext.getLong(getExecutionContextKey(DURABLE_POSITION_KEY), 0L);
+                long size = channel.size();
+                if (executionContext.containsKey(positionKey) && size < committed) {
+                    channel.close();
+                    throw new ItemStreamException("输出文件只有 " + size + " 字节，短于已提交的位置 " + committed
+                            + "，提交点之后未落盘的数据已丢失（最近一次 force 的位置为 " + durablePosition + "），需要重新运行: " + outputPath);
+                }
+                if (controlRecords != null && executionContext.containsKey(positionKey)) {
+                    controlRecords.restore(executionContext.getLong(getExecutionContextKey(RECORDS_KEY), 0L),
+                            executionContext.getInt(getExecutionContextKey(CHECKSUM_KEY), 0), committed);
+                } else if (controlRecords != null && committed > 0) {
+                    committed = controlRecords.resume(channel); // 增量追加：截掉旧控制尾
+                }
+                channel.truncate(committed);
+                channel.position(committed);
+            } else {
+                this.channel = FileChannel.open(outputPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            }
+            if (controlRecords != null && channel.position() == 0) {
+                controlRecords.reserveHeader(channel);
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("打开输出文件失败", e);
+        }
+        if (lineIndexInterval > 0 && compressionExecutor == null) {
+            try {
+                this.handedOff = channel.position();
+                long dataStart = controlRecords != null ? controlRecords.headerSize() : 0L;
+                this.lineIndex = LineIndexWriter.open(outputPath, dataStart, handedOff, lineIndexInterval);
+            } catch (IOException e) {
+                throw new ItemStreamException("打开行偏移索引失败", e);
+            }
+        }
+        if (compressionExecutor != null) {
+            this.compressor = new BgzfBlockWriter(channel, bufferPool, compressionExecutor, deflaters,
+                    maxCompressionsInFlight, meters);
+        } else if (async) {
+            this.asyncWriter = new AsyncChannelWriter(channel, bufferPool, ringSize, String.valueOf(outputPath.getFileName()),
+                    meters);
+        }
+    }
+
+    private void copyCommitted(Path source, long committed) throws IOException {
+        try (FileChannel from = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel to = FileChannel.open(outputPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                     StandardOpenOption.WRITE)) {
+            long limit = Math.min(committed, from.size()); // 短于提交点时由下面的长度检查报错
+            long copied = 0L;
+            while (copied < limit) {
+                copied += from.transferTo(copied, limit - copied, to);
+            }
+        }
+    }
+
+    @Override
+    public void write(Chunk<? extends T> items) throws Exception {
+        buffer = asyncWriter != null ? asyncWriter.acquire() : bufferPool.borrowBuffer();
+        try {
+            for (T item : items) {
+                if (lineIndex != null) {
+                    lineIndex.lineStarted(handedOff + buffer.position());
+                }
+                if (controlRecords != null) {
+                    controlRecords.recordStarted();
+                }
+                writeItem(item);
+            }
+            if (asyncWriter != null || compressor != null) {
+                // 最后一个缓冲区也移交出去，提交点只等待本 chunk 已移交的缓冲区落盘
+                ByteBuffer last = buffer;
+                buffer = null;
+                if (meters != null && last.position() > 0) {
+                    meters.recordFlush();
+                }
+                account(last);
+                // 不在这里等待：I/O 线程继续写盘、块在压缩线程上继续压缩，到提交点（update）再等
+                if (asyncWriter != null) {
+                    asyncWriter.submit(last);
+                } else {
+                    compressor.submit(last);
+                }
+            } else {
+                flush();
+            }
+        } finally {
+            if (buffer != null) {
+                if (asyncWriter != null) {
+                    asyncWriter.recycle(buffer);
+                } else {
+                    bufferPool.returnBuffer(buffer);
+                }
+                buffer = null;
+            }
+        }
+    }
+
+    /**
+     * 把一个条目（含行分隔符）放进缓冲区。
+     */
+    protected abstract void writeItem(T item) throws IOException;
+
+    /**
+     * 追加字节，缓冲区写满时先刷到通道；超过缓冲区大小的长行会分段写出。
+     */
+    protected final void put(byte[] src, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            int n = Math.min(length, buffer.remaining());
+            buffer.put(src, offset, n);
+            offset += n;
+            length -= n;
+        }
+    }
+
+    private void flush() throws IOException {
+        if (meters != null && buffer.position() > 0) {
+            meters.recordFlush();
+        }
+        account(buffer);
+        if (asyncWriter != null) {
+            asyncWriter.submit(buffer);
+            buffer = null; // acquire 阻塞期间若被中断，不能把已移交的缓冲区再回收一次
+            buffer = asyncWriter.acquire();
+            return;
+        }
+        if (compressor != null) {
+            compressor.submit(buffer);
+            buffer = null;
+            buffer = bufferPool.borrowBuffer();
+            return;
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            int written = channel.write(buffer);
+            if (meters != null) {
+                meters.recordWrite(written);
+            }
+        }
+        buffer.clear();
+    }
+
+    /**
+     * 缓冲区即将写出或移交（写模式，[0, position) 为数据），计入本 chunk 的字节数与 CRC32C；
+     * 行索引与控制记录在提交时共用这一份校验和，每个字节只算一次。
+     */
+    private void account(ByteBuffer data) {
+        if (controlRecords == null && lineIndex == null) {
+            return;
+        }
+        chunkChecksum.update(data.duplicate().flip());
+        chunkLength += data.position();
+        if (lineIndex != null) {
+            handedOff += data.position();
+        }
+    }
+
+    /**
+     * 同步模式下 write() 返回前数据已全部写入通道；异步模式在这里才等待 I/O 线程写完已移交的缓冲区，
+     * 压缩模式在这里才等待已移交的块压缩写完。之后的通道位置就是本 chunk 的提交点，压缩输出截断到这里仍是完整的 gzip 成员序列。
+     * 一个 chunk 内多次调用 write() 也只在提交点等待一次。
+     */
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            if (asyncWriter != null) {
+                asyncWriter.awaitCommit();
+            }
+            if (compressor != null) {
+                compressor.drain();
+            }
+            long position = channel.position();
+            int checksum = (int) chunkChecksum.getValue();
+            long length = chunkLength;
+            chunkChecksum.reset();
+            chunkLength = 0L;
+            if (lineIndex != null) {
+                lineIndex.commit(position, checksum, length); // 先于提交位置落库，中途退出时索引领先，重启会重建
+            }
+            if (controlRecords != null) {
+                controlRecords.commit(position, checksum, length);
+                executionContext.putLong(getExecutionContextKey(RECORDS_KEY), controlRecords.records());
+                executionContext.putInt(getExecutionContextKey(CHECKSUM_KEY), controlRecords.checksum());
+            }
+            if (forceDue(position)) {
+                force(false);
+                durablePosition = position;
+            }
+            executionContext.putLong(getExecutionContextKey(DURABLE_POSITION_KEY), durablePosition);
+            executionContext.putLong(getExecutionContextKey(POSITION_KEY), position);
+        } catch (IOException e) {
+            throw new ItemStreamException("记录输出文件位置失败", e);
+        }
+    }
+
+    private boolean forceDue(long position) {
+        return switch (durability) {
+            case FORCE_EVERY_BYTES -> position - durablePosition >= forceEveryBytes;
+            case FORCE_EVERY_CHUNKS -> ++chunksSinceForce >= forceEveryChunks;
+            default -> false;
+        };
+    }
+
+    private void force(boolean metaData) throws IOException {
+        long start = System.nanoTime();
+        channel.force(metaData);
+        chunksSinceForce = 0;
+        if (meters != null) {
+            meters.recordForce(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * step 以 COMPLETED 结束时记下，随后的 close 才写控制尾；Spring Batch 先调用 afterStep 再关闭流。
+     */
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        this.completed = stepExecution.getStatus() == BatchStatus.COMPLETED;
+        return null;
+    }
+
+    /**
+     * 不在 step 中使用时由调用方在 close 之前声明写出已成功完成。
+     */
+    public void markCompleted() {
+        this.completed = true;
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            if (asyncWriter != null) {
+                asyncWriter.close();
+            }
+            if (compressor != null) {
+                compressor.finish();
+            }
+            if (controlRecords != null && completed) {
+                controlRecords.finish(channel); // 失败时控制头保持 INC，不写控制尾
+            }
+            if (durability != DurabilityPolicy.NONE) {
+                force(true); // 文件长度在写出过程中增长，连同元数据一起落盘
+            }
+            if (lineIndex != null) {
+                lineIndex.close();
+                lineIndex = null;
+            }
+            channel.close();
+        } catch (IOException e) {
+            throw new ItemStreamException("关闭输出文件失败", e);
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * 不论关闭过程是否出错都停掉压缩、归还缓冲区并关闭行索引与输出通道，避免失败路径泄漏文件句柄；
+     * 正常路径上它们已经关闭，这里只清理引用。
+     * 异步写出的 I/O 线程与环在 {@link AsyncChannelWriter#close()} 自己的 finally 中已经释放。
+     */
+    private void release() {
+        asyncWriter = null;
+        if (compressor != null) {
+            compressor.close();
+            compressor = null;
+        }
+        controlRecords = null;
+        try {
+            if (lineIndex != null) {
+                lineIndex.close();
+            }
+        } catch (IOException e) {
+            log.warn("关闭行偏移索引失败: {}", outputPath, e);
+        } finally {
+            lineIndex = null;
+            try {
+                if (channel.isOpen()) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                log.warn("关闭输出文件失败: {}", outputPath, e);
+            }
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.example.batchdemo.io;
+
+import com.example.batchdemo.metrics.ReaderMeters;
+import com.example.batchdemo.service.WindowReadAhead;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * mmap 行读取器的公共部分：按窗口映射文件、批量定位换行符、跨窗口拼接半行以及提交偏移。
+ * 子类只决定一行字节如何变成条目（String 或 {@link ByteLine}），也可以覆盖记录边界的判定（见 {@link #recordEnd}）或跳过某些行。
+ * 可以只读取 [startOffset, endOffset) 字节区间，配合分区 Job 让多个线程各自处理同一文件的不同行段，
+ * 区间边界需要事先对齐到行首（见 {@link LineBoundaries}）。
+ * 每次 chunk 提交时把已交付行的字节偏移写入 ExecutionContext，失败重启后从该偏移重新映射，不必从头读起。
+ * 设置 {@link ReaderMeters} 后记录映射次数与耗时，行数在本地累计、提交时按偏移差汇报字节数。
+ * 设置 {@link WindowReadAhead} 后进入预读模式：消费当前窗口的同时在后台映射并预先缺页下一个窗口；
+ * 切换窗口时等待预读的时间占消费时间比例偏高就把窗口加倍（不超过上限），连续几个窗口都不需要等待时再逐步缩回。
+ */
+public abstract class AbstractMemoryMappedReader<T> extends ItemStreamSupport implements ItemReader<T>, ItemStream, RecordOffsetSource {
+
+    /** ExecutionContext 中记录下一行起始字节偏移的键。 */
+    public static final String OFFSET_KEY = "offset";
+
+    private final Path path;
+    private final int windowSize;
+    private int currentWindowSize;
+    private final long startOffset;
+    private final long endOffset;
+
+    private FileChannel channel;
+    private long filePosition = 0L;
+    private long fileSize = 0L;
+    private long windowStart = 0L;
+    private MappedByteBuffer window;
+    private final LineAccumulator lineBuffer = new LineAccumulator();
+    private long recordStart = -1L;
+
+    private ReaderMeters meters;
+    private long reportedOffset = 0L;
+    private long unreportedLines = 0L;
+
+    private WindowReadAhead readAhead;
+    private int maxWindowSize;
+    private Future<MappedByteBuffer> nextWindow;
+    private long nextWindowStart = -1L;
+    private long windowReadyAt = 0L;
+    private int calmWindows = 0;
+
+    /**
+     * 只读取 [startOffset, endOffset) 区间，endOffset 超过文件大小时以文件末尾为准。
+     */
+    protected AbstractMemoryMappedReader(Path path, int windowSize, long startOffset, long endOffset) {
+        this.path = path;
+        this.windowSize = windowSize;
+        this.currentWindowSize = windowSize;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+    }
+
+    public void setMeters(ReaderMeters meters) {
+        this.meters = meters;
+    }
+
+    /**
+     * 开启预读模式，窗口大小在构造时的 windowSize 与 maxWindowSize 之间自适应，需在 open 之前设置。
+     */
+    public void setReadAhead(WindowReadAhead readAhead, int maxWindowSize) {
+        this.readAhead = readAhead;
+        this.maxWindowSize = Math.max(windowSize, maxWindowSize);
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.fileSize = Math.min(channel.size(), endOffset);
+            long resumeOffset = executionContext.getLong(getExecutionContextKey(OFFSET_KEY), startOffset);
+            this.filePosition = Math.min(resumeOffset, fileSize);
+            this.reportedOffset = filePosition;
+            this.windowReadyAt = 0L;
+            beforeFirstWindow(channel, filePosition);
+            mapNextWindow();
+        } catch (IOException e) {
+            throw new ItemStreamException("无法打开文件进行内存映射", e);
+        }
+    }
+
+    @Nullable
+    @Override
+    public T read() throws Exception {
+        T item = nextLine();
+        if (item != null) {
+            unreportedLines++;
+        }
+        return item;
+    }
+
+    @Nullable
+    private T nextLine() throws IOException {
+        while (true) {
+            if (window == null || !window.hasRemaining()) {
+                if (filePosition >= fileSize) {
+                    if (!lineBuffer.hasPending()) {
+                        return null;
+                    }
+                    T item = drainPending();
+                    if (item != null) {
+                        return item;
+                    }
+                    continue;
+                }
+                mapNextWindow();
+                continue;
+            }
+
+            int start = window.position();
+            int limit = window.limit();
+            int newline = recordEnd(window, start, limit);
+            if (!lineBuffer.hasPending()) {
+                recordStart = windowStart + start;
+            }
+            if (newline < 0) {
+                // 行跨越窗口边界：暂存本窗口剩余部分，映射下一个窗口后继续查找
+                lineBuffer.append(window, start, limit);
+                window.position(limit);
+                continue;
+            }
+            window.position(newline + 1);
+            T item;
+            if (lineBuffer.hasPending()) {
+                lineBuffer.append(window, start, newline);
+                item = drainPending();
+            } else {
+                int end = newline > start && window.get(newline - 1) == '\r' ? newline - 1 : newline; // 去掉 Windows 换行的回车符
+                item = windowLine(window, start, end);
+            }
+            if (item != null) {
+                return item;
+            }
+        }
+    }
+
+    @Override
+    public long lastRecordOffset() {
+        return recordStart;
+    }
+
+    /**
+     * 在 [from, to) 内查找结束当前记录的 '\n'，找不到返回 -1（记录跨越窗口，之后从下一个窗口开头继续查找）。
+     * 默认每个换行都结束一行；记录内允许出现换行的格式（如带引号字段的 CSV）由子类覆盖，
+     * 跨窗口时需要的扫描状态由子类自己保存。
+     */
+    protected int recordEnd(ByteBuffer window, int from, int to) {
+        return LineScanner.indexOfNewline(window, from, to);
+    }
+
+    /**
+     * open 时、映射第一个窗口前调用，position 是本次开始读取的偏移（重启时为上次提交的偏移）。
+     */
+    protected void beforeFirstWindow(FileChannel channel, long position) throws IOException {
+    }
+
+    /**
+     * 一整行都在当前窗口内：[from, to) 不含换行符。返回 null 表示跳过这一行，读取器继续读下一行。
+     */
+    protected abstract T windowLine(ByteBuffer window, int from, int to);
+
+    /**
+     * 行跨越了窗口边界，内容已拼接在 bytes 的 [0, length) 中，返回后数组会被复用。返回 null 表示跳过这一行。
+     */
+    protected abstract T carriedLine(byte[] bytes, int length);
+
+    private T drainPending() {
+        int length = lineBuffer.pendingLength();
+        byte[] bytes = lineBuffer.pendingBytes();
+        if (bytes[length - 1] == '\r') {
+            length--;
+        }
+        T item = carriedLine(bytes, length);
+        lineBuffer.reset();
+        return item;
+    }
+
+    private void mapNextWindow() throws IOException {
+        // 主动释放上一段窗口，避免多个大文件时累积未释放的映射内存
+        unmapWindow();
+        long remaining = fileSize - filePosition;
+        long size = Math.min(remaining, currentWindowSize);
+        if (size <= 0) {
+            window = null;
+            return;
+        }
+        long mapStart = System.nanoTime();
+        MappedByteBuffer mapped = readAhead != null ? takePrefetched() : null;
+        if (mapped == null) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, filePosition, size);
+        }
+        long now = System.nanoTime();
+        if (meters != null) {
+            meters.recordRemap(now - mapStart);
+        }
+        if (readAhead != null && windowReadyAt != 0L) {
+            adaptWindowSize(now - mapStart, mapStart - windowReadyAt);
+        }
+        windowReadyAt = now;
+        windowStart = filePosition;
+        window = mapped;
+        window.order(ByteOrder.LITTLE_ENDIAN); // 与 x86/ARM 本机字节序一致，批量扫描时 getLong 不需要字节翻转
+        filePosition += window.capacity();
+        if (readAhead != null && filePosition < fileSize) {
+            nextWindowStart = filePosition;
+            nextWindow = readAhead.mapAhead(channel, filePosition, Math.min(fileSize - filePosition, currentWindowSize));
+        }
+    }
+
+    /**
+     * 取出预读好的下一个窗口，预读失败时抛出原始 I/O 异常。
+     */
+    @Nullable
+    private MappedByteBuffer takePrefetched() throws IOException {
+        Future<MappedByteBuffer> pending = nextWindow;
+        long pendingStart = nextWindowStart;
+        nextWindow = null;
+        nextWindowStart = -1L;
+        if (pending == null) {
+            return null;
+        }
+        MappedByteBuffer mapped = awaitWindow(pending);
+        if (pendingStart != filePosition) { // 不会发生：预读总是紧接当前窗口
+            DirectBufferCleaner.free(mapped);
+            return null;
+        }
+        return mapped;
+    }
+
+    private static MappedByteBuffer awaitWindow(Future<MappedByteBuffer> pending) throws IOException {
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待预读窗口被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("预读窗口失败", e.getCause());
+        }
+    }
+
+    /**
+     * stallNanos 是切换窗口时等待预读（或同步映射）的时间，consumeNanos 是消费上一个窗口的时间。
+     */
+    private void adaptWindowSize(long stallNanos, long consumeNanos) {
+        if (stallNanos * 10 > consumeNanos && currentWindowSize < maxWindowSize) {
+            currentWindowSize = (int) Math.min(maxWindowSize, 2L * currentWindowSize);
+            calmWindows = 0;
+        } else if (stallNanos * 100 < consumeNanos && currentWindowSize > windowSize && ++calmWindows >= 4) {
+            currentWindowSize = Math.max(windowSize, currentWindowSize / 2);
+            calmWindows = 0;
+        }
+    }
+
+    /**
+     * chunk 提交时调用：此时本 chunk 的行已全部写出，记录下一行的起始偏移作为重启点。
+     */
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        long offset = currentOffset();
+        executionContext.putLong(getExecutionContextKey(OFFSET_KEY), offset);
+        reportProgress(offset);
+    }
+
+    private void reportProgress(long offset) {
+        if (meters != null) {
+            meters.recordProgress(offset - reportedOffset, unreportedLines);
+        }
+        reportedOffset = offset;
+        unreportedLines = 0L;
+    }
+
+    /**
+     * 下一行起始的字节偏移：已消费位置减去尚未凑成整行的暂存字节。
+     */
+    private long currentOffset() {
+        long consumed = window == null ? filePosition : windowStart + window.position();
+        return consumed - lineBuffer.pendingLength();
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (channel != null) {
+            reportProgress(currentOffset());
+        }
+        unmapWindow();
+        discardPrefetched();
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new ItemStreamException("关闭文件通道失败", e);
+            }
+        }
+    }
+
+    /**
+     * 关闭时丢弃尚未使用的预读窗口：还在排队的直接取消，已经在映射的等它完成后释放。
+     */
+    private void discardPrefetched() {
+        Future<MappedByteBuffer> pending = nextWindow;
+        nextWindow = null;
+        nextWindowStart = -1L;
+        if (pending == null || pending.cancel(false)) {
+            return;
+        }
+        try {
+            DirectBufferCleaner.free(awaitWindow(pending));
+        } catch (IOException ignored) {
+            // 预读失败的窗口没有映射，无需释放
+        }
+    }
+
+    /**
+     * 显式解除映射，及时回收映射内存，方便下一个文件复用映射空间。
+     */
+    private void unmapWindow() {
+        if (window == null) {
+            return;
+        }
+        DirectBufferCleaner.free(window);
+        window = null;
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.batchdemo.io;
+
+import com.example.batchdemo.metrics.WriterMeters;
+import com.example.batchdemo.service.PreallocatedBufferPool;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 双缓冲异步写出：处理线程填满一个缓冲区就交给专用 I/O 线程写盘，自己立即拿下一个空缓冲区继续编码，
+ * 编码与磁盘写入交替重叠而不是串行等待。
+ * 缓冲区来自 {@link PreallocatedBufferPool}，在打开时一次借出 ringSize 个组成环，空闲环耗尽时 acquire 阻塞形成背压。
+ */
+public class AsyncChannelWriter {
+
+    private static final ByteBuffer POISON = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+    private final PreallocatedBufferPool bufferPool;
+    private final WriterMeters meters;
+    private final BlockingQueue<ByteBuffer> free;
+    private final BlockingQueue<ByteBuffer> filled;
+    private final Thread ioThread;
+    private final Object progress = new Object();
+
+    private long submitted = 0L;
+    private long completed = 0L; // 由 progress 保护
+    private volatile Throwable failure;
+
+    public AsyncChannelWriter(FileChannel channel, PreallocatedBufferPool bufferPool, int ringSize,
+                              String name, @Nullable WriterMeters meters) {
+        this.channel = channel;
+        this.bufferPool = bufferPool;
+        this.meters = meters;
+        this.free = new ArrayBlockingQueue<>(ringSize);
+        this.filled = new ArrayBlockingQueue<>(ringSize + 1);
+        for (int i = 0; i < ringSize; i++) {
+            free.add(bufferPool.borrowBuffer());
+        }
+        this.ioThread = new Thread(this::drain, "async-writer-" + name);
+        this.ioThread.setDaemon(true);
+        this.ioThread.start();
+    }
+
+    /**
+     * 取一个空缓冲区；环里的缓冲区都在等待写盘时阻塞。
+     */
+    public ByteBuffer acquire() throws IOException {
+        checkFailure();
+        try {
+            ByteBuffer buffer = free.take();
+            buffer.clear();
+            return buffer;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待空闲写缓冲区被中断");
+        }
+    }
+
+    /**
+     * 移交一个已填充的缓冲区给 I/O 线程，空缓冲区直接放回空闲环。
+     */
+    public void submit(ByteBuffer buffer) throws IOException {
+        checkFailure();
+        buffer.flip();
+        if (!buffer.hasRemaining()) {
+            free.offer(buffer);
+            return;
+        }
+        submitted++;
+        try {
+            filled.put(buffer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("移交写缓冲区被中断");
+        }
+    }
+
+    /**
+     * 未填充就不再使用的缓冲区放回空闲环。
+     */
+    public void recycle(ByteBuffer buffer) {
+        free.offer(buffer);
+    }
+
+    /**
+     * chunk 提交点：只等待此前已移交的缓冲区写进通道（页缓存）；是否 force 由写入器的持久化策略决定，与同步模式一致。
+     */
+    public void awaitCommit() throws IOException {
+        synchronized (progress) {
+            while (completed < submitted && failure == null) {
+                try {
+                    progress.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("等待异步写盘完成被中断");
+                }
+            }
+        }
+        checkFailure();
+    }
+
+    /**
+     * 等待剩余数据写完后停止 I/O 线程，并把环上的缓冲区归还到池。
+     */
+    public void close() throws IOException {
+        try {
+            awaitCommit();
+        } finally {
+            filled.offer(POISON);
+            try {
+                ioThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ByteBuffer buffer;
+            while ((buffer = free.poll()) != null) {
+                bufferPool.returnBuffer(buffer);
+            }
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            ByteBuffer buffer;
+            try {
+                buffer = filled.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (buffer == POISON) {
+                return;
+            }
+            try {
+                if (failure == null) {
+                    while (buffer.hasRemaining()) {
+                        int written = channel.write(buffer);
+                        if (meters != null) {
+                            meters.recordWrite(written);
+                        }
+                    }
+                }
+            } catch (Throwable e) {
+                failure = e;
+            } finally {
+                buffer.clear();
+                free.offer(buffer);
+                synchronized (progress) {
+                    completed++;
+                    progress.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable error = failure;
+        if (error != null) {
+            throw new IOException("异步写盘失败", error);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.batchdemo.io;
+
+import com.example.batchdemo.metrics.WriterMeters;
+import com.example.batchdemo.service.PreallocatedBufferPool;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 多线程 gzip 写出（类似 pigz）：写入器刷出的每个缓冲区切成若干 BGZF 块，每块作为一个任务交给压缩线程池，
+ * 各自压缩成独立的 gzip 成员，由写入线程按提交顺序写入通道；一个 1MB 缓冲区的 16 个块可以同时在不同线程上压缩。
+ * 输出是标准的多成员 gzip，gzip/zcat 可直接解压；每个成员头部带 BGZF 的 BC 扩展字段记录块大小，
+ * {@link GzipLineReader} 据此并行解压。
+ * 在途的缓冲区数有上限，压缩跟不上时写入线程等待最早的块写完，内存占用不随文件增长。
+ */
+public final class BgzfBlockWriter implements AutoCloseable {
+
+    /** 每个 BGZF 块最多容纳的原始字节数，保证压缩后整块不超过 64KB（与 htslib 一致）。 */
+    static final int MAX_BLOCK_DATA = 0xFF00;
+    static final int MAX_BLOCK_SIZE = 0x10000;
+    static final int HEADER_SIZE = 18;
+    static final int TRAILER_SIZE = 8;
+
+    /** BGZF 约定的文件结束标记：一个不含数据的空块。 */
+    private static final byte[] EOF_BLOCK = {
+            0x1f, (byte) 0x8b, 0x08, 0x04, 0, 0, 0, 0, 0, (byte) 0xff, 0x06, 0, 0x42, 0x43, 0x02, 0, 0x1b, 0,
+            0x03, 0, 0, 0, 0, 0, 0, 0, 0, 0};
+
+    private final FileChannel channel;
+    private final PreallocatedBufferPool bufferPool;
+    private final ExecutorService executor;
+    private final ThreadLocal<Deflater> deflaters;
+    private final int maxInFlight;
+    private final WriterMeters meters;
+    private final Deque<Block> inFlight = new ArrayDeque<>();
+    private int buffersInFlight;
+
+    public BgzfBlockWriter(FileChannel channel, PreallocatedBufferPool bufferPool, ExecutorService executor,
+                           ThreadLocal<Deflater> deflaters, int maxInFlight, WriterMeters meters) {
+        this.channel = channel;
+        this.bufferPool = bufferPool;
+        this.executor = executor;
+        this.deflaters = deflaters;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.meters = meters;
+    }
+
+    /**
+     * 移交一个写模式的原始数据缓冲区（从缓冲池借出），按块拆成压缩任务，最后一块压缩完成后由压缩线程归还。
+     */
+    public void submit(ByteBuffer raw) throws IOException {
+        if (raw.position() == 0) {
+            bufferPool.returnBuffer(raw);
+            return;
+        }
+        while (buffersInFlight >= maxInFlight) {
+            writeOldest();
+        }
+        raw.flip();
+        int blocks = (raw.remaining() + MAX_BLOCK_DATA - 1) / MAX_BLOCK_DATA;
+        AtomicInteger pending = new AtomicInteger(blocks);
+        for (int i = 0; i < blocks; i++) {
+            int offset = i * MAX_BLOCK_DATA;
+            ByteBuffer block = raw.slice(offset, Math.min(MAX_BLOCK_DATA, raw.limit() - offset));
+            Future<ByteBuffer> compressed = executor.submit(() -> compress(block, raw, pending));
+            inFlight.add(new Block(compressed, i == blocks - 1));
+        }
+        buffersInFlight++;
+    }
+
+    /**
+     * 等待所有已移交的缓冲区压缩并按顺序写入通道，返回后通道位置落在块边界上，可以作为提交点。
+     */
+    public void drain() throws IOException {
+        while (!inFlight.isEmpty()) {
+            writeOldest();
+        }
+    }
+
+    /**
+     * 写完剩余的块并追加 BGZF 结束标记。
+     */
+    public void finish() throws IOException {
+        drain();
+        ByteBuffer eof = ByteBuffer.wrap(EOF_BLOCK);
+        while (eof.hasRemaining()) {
+            channel.write(eof);
+        }
+    }
+
+    /**
+     * 放弃尚未写出的块（失败路径），等压缩线程结束后归还它们的缓冲区。
+     */
+    @Override
+    public void close() {
+        while (!inFlight.isEmpty()) {
+            Block block = inFlight.poll();
+            try {
+                bufferPool.returnBuffer(block.compressed().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException ignored) {
+                // 压缩失败的块在压缩线程里已经归还了缓冲区
+            }
+        }
+    }
+
+    private void writeOldest() throws IOException {
+        Block block = inFlight.poll();
+        if (block.lastOfBuffer()) {
+            buffersInFlight--;
+        }
+        ByteBuffer compressed;
+        try {
+            compressed = block.compressed().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待压缩线程被中断");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("压缩数据块失败", e.getCause());
+        }
+        try {
+            while (compressed.hasRemaining()) {
+                int written = channel.write(compressed);
+                if (meters != null) {
+                    meters.recordWrite(written);
+                }
+            }
+        } finally {
+            bufferPool.returnBuffer(compressed);
+        }
+    }
+
+    /**
+     * 在压缩线程上运行：把一个不超过 MAX_BLOCK_DATA 字节的块压缩成一个 gzip 成员，放进池化缓冲区后以读模式返回；
+     * 同一个原始缓冲区的块都结束后归还它。
+     */
+    private ByteBuffer compress(ByteBuffer block, ByteBuffer raw, AtomicInteger pending) throws IOException {
+        ByteBuffer out = null;
+        try {
+            out = bufferPool.borrowBuffer(MAX_BLOCK_SIZE);
+            int length = block.remaining();
+            CRC32 crc = new CRC32();
+            crc.update(block.duplicate());
+            out.limit(MAX_BLOCK_SIZE - TRAILER_SIZE).position(HEADER_SIZE);
+            Deflater deflater = deflaters.get();
+            deflater.reset();
+            deflater.setInput(block);
+            deflater.finish();
+            while (!deflater.finished()) {
+                if (deflater.deflate(out) == 0 && !out.hasRemaining()) {
+                    throw new IOException("BGZF 块压缩后超过 64KB"); // 不会发生：0xFF00 字节最坏情况也放得下
+                }
+            }
+            out.limit(MAX_BLOCK_SIZE);
+            putIntLE(out, (int) crc.getValue());
+            putIntLE(out, length);
+            writeHeader(out, 0, out.position());
+            out.flip();
+            ByteBuffer result = out;
+            out = null;
+            return result;
+        } finally {
+            if (out != null) {
+                bufferPool.returnBuffer(out);
+            }
+            if (pending.decrementAndGet() == 0) {
+                bufferPool.returnBuffer(raw);
+            }
+        }
+    }
+
+    /**
+     * gzip 成员头：FLG 只置 FEXTRA，扩展字段为 BGZF 的 BC 子字段，值为整块大小减一。
+     */
+    private static void writeHeader(ByteBuffer out, int at, int blockSize) {
+        out.put(at, (byte) 0x1f).put(at + 1, (byte) 0x8b).put(at + 2, (byte) 8).put(at + 3, (byte) 4);
+        out.put(at + 4, (byte) 0).put(at + 5, (byte) 0).put(at + 6, (byte) 0).put(at + 7, (byte) 0);
+        out.put(at + 8, (byte) 0).put(at + 9, (byte) 0xff);
+        out.put(at + 10, (byte) 6).put(at + 11, (byte) 0);
+        out.put(at + 12, (byte) 'B').put(at + 13, (byte) 'C').put(at + 14, (byte) 2).put(at + 15, (byte) 0);
+        out.put(at + 16, (byte) (blockSize - 1)).put(at + 17, (byte) ((blockSize - 1) >>> 8));
+    }
+
+    private static void putIntLE(ByteBuffer out, int value) {
+        out.put((byte) value).put((byte) (value >>> 8)).put((byte) (value >>> 16)).put((byte) (value >>> 24));
+    }
+
+    /**
+     * 一个在途的压缩块，lastOfBuffer 标记它是所属原始缓冲区的最后一块。
+     */
+    private record Block(Future<ByteBuffer> compressed, boolean lastOfBuffer) {
+    }
+}
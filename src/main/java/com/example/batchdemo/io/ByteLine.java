@@ -0,0 +1,74 @@
+package com.example.batchdemo.io;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 可复用的行视图：直接持有一行 UTF-8/ASCII 字节，清洗与写出都在字节上完成，全程不创建 String。
+ * 实例来自 {@link ByteLinePool}，写入器写完后调用 {@link #release()} 归还，下一个 chunk 继续复用同一批对象。
+ */
+public final class ByteLine {
+
+    private final ByteLinePool owner;
+    private byte[] data;
+    private int offset;
+    private int length;
+
+    ByteLine(ByteLinePool owner, int capacity) {
+        this.owner = owner;
+        this.data = new byte[capacity];
+    }
+
+    public byte[] data() {
+        return data;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * 调整有效区间，例如去掉首尾空白时只移动边界，不拷贝字节。
+     */
+    public void slice(int newOffset, int newLength) {
+        if (newOffset < 0 || newLength < 0 || newOffset + newLength > data.length) {
+            throw new IndexOutOfBoundsException("切片越界: offset=" + newOffset + ", length=" + newLength);
+        }
+        this.offset = newOffset;
+        this.length = newLength;
+    }
+
+    /**
+     * 用 source 的 [from, from + count) 替换整行内容，容量不足时扩容。用于清洗结果比原行长的情况。
+     */
+    public void set(byte[] source, int from, int count) {
+        System.arraycopy(source, from, prepare(count), 0, count);
+    }
+
+    /**
+     * 为写入 capacity 个字节准备底层数组，容量不足时扩容（扩容后的数组随对象一起复用）。
+     */
+    byte[] prepare(int capacity) {
+        if (data.length < capacity) {
+            data = new byte[Math.max(capacity, data.length * 2)];
+        }
+        offset = 0;
+        length = capacity;
+        return data;
+    }
+
+    /**
+     * 归还到所属的池，调用后不得再访问该对象。
+     */
+    public void release() {
+        owner.release(this);
+    }
+
+    @Override
+    public String toString() {
+        return new String(data, offset, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.batchdemo.io;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * {@link ByteLine} 对象池。每个 step 一个实例，读取器借出、写入器归还，
+ * 两者在同一个 chunk 线程上运行，因此不需要加锁；稳定后对象数约等于一个 chunk 的条目数。
+ */
+public class ByteLinePool {
+
+    private static final int INITIAL_LINE_CAPACITY = 256;
+
+    private final Deque<ByteLine> free = new ArrayDeque<>();
+
+    /**
+     * 借出一行并准备好 length 字节的空间。
+     */
+    public ByteLine acquire(int length) {
+        ByteLine line = free.pollLast();
+        if (line == null) {
+            line = new ByteLine(this, Math.max(length, INITIAL_LINE_CAPACITY));
+        }
+        line.prepare(length);
+        return line;
+    }
+
+    void release(ByteLine line) {
+        free.offerLast(line);
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.batchdemo.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 写入器的控制头与控制尾：open 时在文件开头预留固定长度的头部，写出时累计记录数，每次提交时并入写入器算好的正文字节数与 CRC32C，
+ * close 时在同一个通道上定位写出尾部并覆盖头部，不需要再读一遍正文。
+ * <pre>
+ * HDR|记录数|正文字节数|CRC32C|标签（空格补齐到预留长度）
+ * ……正文……
+ * TRL|记录数|正文字节数|CRC32C
+ * </pre>
+ * 数字定宽（19 位十进制、8 位十六进制），头尾长度固定，增量追加时从头部读回统计值，截掉旧尾部后接着写。
+ * 写入过程中头部的标记是 INC，只有 step 成功完成后才写尾部并把头部改为 HDR；
+ * 失败或崩溃留下的文件没有尾部、头部仍是 INC，下游不会把它当成完整的输出。
+ */
+final class ControlRecords {
+
+    private static final String HEADER_TAG = "HDR";
+    private static final String INCOMPLETE_TAG = "INC";
+    private static final String TRAILER_TAG = "TRL";
+    private static final char SEPARATOR = '|';
+    private static final int COUNT_WIDTH = 19;
+    private static final int CHECKSUM_WIDTH = 8;
+    /** "HDR|" + 记录数 + "|" + 字节数 + "|" + 校验和，头尾共用这一段。 */
+    private static final int FIELDS_LENGTH = HEADER_TAG.length() + 1 + COUNT_WIDTH + 1 + COUNT_WIDTH + 1 + CHECKSUM_WIDTH;
+
+    private final int headerSize;
+    private final byte[] label;
+    private final byte[] lineSeparator;
+    private long records;
+
+    // 最近一次提交时的统计值，close 时据此写头尾
+    private long committedRecords;
+    private long committedBytes;
+    private int committedChecksum;
+
+    ControlRecords(int headerSize, String label, byte[] lineSeparator) {
+        this.label = label.getBytes(StandardCharsets.UTF_8);
+        this.lineSeparator = lineSeparator;
+        int minimum = FIELDS_LENGTH + 1 + this.label.length + lineSeparator.length;
+        if (headerSize < minimum) {
+            throw new IllegalArgumentException("控制头预留长度 " + headerSize + " 不足，至少需要 " + minimum + " 字节");
+        }
+        this.headerSize = headerSize;
+    }
+
+    int headerSize() {
+        return headerSize;
+    }
+
+    long records() {
+        return committedRecords;
+    }
+
+    int checksum() {
+        return committedChecksum;
+    }
+
+    /**
+     * 重启时恢复上次提交的统计值，正文到 committedPosition 为止。
+     */
+    void restore(long records, int checksum, long committedPosition) {
+        this.records = records;
+        this.committedRecords = records;
+        this.committedChecksum = checksum;
+        this.committedBytes = committedPosition - headerSize;
+    }
+
+    /**
+     * 增量追加时从已有输出的头部读回统计值，返回正文结束的位置（旧尾部从这里开始）。
+     */
+    long resume(FileChannel channel) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(FIELDS_LENGTH);
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, bytes.position()) < 0) {
+                throw new IOException("输出文件没有完整的控制头，无法追加");
+            }
+        }
+        String fields = new String(bytes.array(), StandardCharsets.US_ASCII);
+        if (fields.startsWith(INCOMPLETE_TAG + SEPARATOR)) {
+            throw new IOException("输出文件的控制头标记为未完成，上一次写出没有成功结束，无法追加");
+        }
+        if (!fields.startsWith(HEADER_TAG + SEPARATOR)) {
+            throw new IOException("输出文件没有控制头，无法追加: " + fields);
+        }
+        try {
+            int offset = HEADER_TAG.length() + 1;
+            long records = Long.parseLong(fields, offset, offset + COUNT_WIDTH, 10);
+            offset += COUNT_WIDTH + 1;
+            long bytesWritten = Long.parseLong(fields, offset, offset + COUNT_WIDTH, 10);
+            offset += COUNT_WIDTH + 1;
+            int checksum = Integer.parseUnsignedInt(fields, offset, offset + CHECKSUM_WIDTH, 16);
+            long end = headerSize + bytesWritten;
+            if (end > channel.size()) {
+                throw new IOException("控制头记录的正文长度 " + bytesWritten + " 超出文件大小");
+            }
+            restore(records, checksum, end);
+            writeFully(channel, header(INCOMPLETE_TAG), 0L); // 追加期间头部标记为未完成
+            return end;
+        } catch (NumberFormatException e) {
+            throw new IOException("控制头格式错误: " + fields, e);
+        }
+    }
+
+    /**
+     * 在文件开头写出预留的头部（标记为未完成），正文从 headerSize 开始。
+     */
+    void reserveHeader(FileChannel channel) throws IOException {
+        writeFully(channel, header(INCOMPLETE_TAG), 0L);
+        channel.position(headerSize);
+    }
+
+    void recordStarted() {
+        records++;
+    }
+
+    /**
+     * chunk 提交：本 chunk 写出了 chunkLength 字节、CRC32C 为 chunkChecksum，并入累计值，记下提交时的统计。
+     */
+    void commit(long position, int chunkChecksum, long chunkLength) throws IOException {
+        committedChecksum = Crc32cCombiner.combine(committedChecksum, chunkChecksum, chunkLength);
+        committedBytes += chunkLength;
+        committedRecords = records;
+        if (headerSize + committedBytes != position) {
+            throw new IOException("控制记录统计的正文字节数 " + committedBytes + " 与输出位置 " + position + " 不一致");
+        }
+    }
+
+    /**
+     * step 成功完成后调用：截掉最近一次提交之后的数据，在提交点写出尾部，最后把头部改为 HDR，头尾与正文一致。
+     */
+    void finish(FileChannel channel) throws IOException {
+        long end = headerSize + committedBytes;
+        channel.truncate(end);
+        writeFully(channel, trailer(), end);
+        writeFully(channel, header(HEADER_TAG), 0L);
+    }
+
+    private ByteBuffer header(String tag) {
+        byte[] bytes = new byte[headerSize];
+        Arrays.fill(bytes, (byte) ' ');
+        byte[] fields = fields(tag).getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(fields, 0, bytes, 0, fields.length);
+        bytes[fields.length] = SEPARATOR;
+        System.arraycopy(label, 0, bytes, fields.length + 1, label.length);
+        System.arraycopy(lineSeparator, 0, bytes, headerSize - lineSeparator.length, lineSeparator.length);
+        return ByteBuffer.wrap(bytes);
+    }
+
+    private ByteBuffer trailer() {
+        byte[] fields = fields(TRAILER_TAG).getBytes(StandardCharsets.US_ASCII);
+        return ByteBuffer.allocate(fields.length + lineSeparator.length).put(fields).put(lineSeparator).flip();
+    }
+
+    private String fields(String tag) {
+        return String.format("%s%c%0" + COUNT_WIDTH + "d%c%0" + COUNT_WIDTH + "d%c%08x",
+                tag, SEPARATOR, committedRecords, SEPARATOR, committedBytes, SEPARATOR, committedChecksum);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer bytes, long position) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes, position + bytes.position());
+        }
+    }
+}
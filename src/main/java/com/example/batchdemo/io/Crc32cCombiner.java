@@ -0,0 +1,65 @@
+package com.example.batchdemo.io;
+
+/**
+ * CRC32C 无法从一个已有的值继续累加，续写输出时用这里的合并代替重读已写部分。
+ */
+final class Crc32cCombiner {
+
+    /** CRC32C（Castagnoli）多项式的反射形式。 */
+    private static final int CASTAGNOLI = 0x82F63B78;
+
+    private Crc32cCombiner() {
+    }
+
+    /**
+     * 已知 A 的校验和 crc1 与紧随其后的 B（长 length2 字节）的校验和 crc2，求 A+B 的校验和。
+     * 即 zlib 的 crc32_combine，只把多项式换成 Castagnoli；GF(2) 上的矩阵平方，耗时与 log(length2) 成正比。
+     */
+    static int combine(int crc1, int crc2, long length2) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+        int[] even = new int[32];
+        int[] odd = new int[32];
+        odd[0] = CASTAGNOLI; // 补一个 0 位的算子
+        int row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        square(even, odd); // 补 2 个 0 位
+        square(odd, even); // 补 4 个 0 位
+        do {
+            square(even, odd); // 第一次为补 1 个 0 字节
+            if ((length2 & 1) != 0) {
+                crc1 = times(even, crc1);
+            }
+            length2 >>= 1;
+            if (length2 == 0) {
+                break;
+            }
+            square(odd, even);
+            if ((length2 & 1) != 0) {
+                crc1 = times(odd, crc1);
+            }
+            length2 >>= 1;
+        } while (length2 != 0);
+        return crc1 ^ crc2;
+    }
+
+    private static int times(int[] matrix, int vector) {
+        int sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void square(int[] square, int[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = times(matrix, matrix[n]);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.batchdemo.io;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 下推到读取器的简单过滤条件：某一列等于 / 不等于一个常量，在切分后的原始字节上比较，不解码字段。
+ * 文本形式为 {@code 列=值} 或 {@code 列!=值}，列可以是表头中的列名或从 0 开始的列号；
+ * {@code 列!=} 表示该列非空。
+ */
+public final class CsvPredicate {
+
+    private final String column;
+    private final boolean negated;
+    private final byte[] value;
+
+    private CsvPredicate(String column, boolean negated, String value) {
+        this.column = column;
+        this.negated = negated;
+        this.value = value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static CsvPredicate parse(String expression) {
+        int eq = expression == null ? -1 : expression.indexOf('=');
+        if (eq <= 0) {
+            throw new IllegalArgumentException("过滤条件格式需为 列=值 或 列!=值: " + expression);
+        }
+        boolean negated = expression.charAt(eq - 1) == '!';
+        String column = expression.substring(0, negated ? eq - 1 : eq).trim();
+        if (column.isEmpty()) {
+            throw new IllegalArgumentException("过滤条件缺少列: " + expression);
+        }
+        return new CsvPredicate(column, negated, expression.substring(eq + 1));
+    }
+
+    /**
+     * 列名或列号，由读取器结合表头解析成列下标。
+     */
+    public String getColumn() {
+        return column;
+    }
+
+    /**
+     * 判断记录的第 field 列是否满足条件；field 超出本记录的列数时按空值处理。
+     */
+    public boolean test(CsvTokenizer tokenizer, int field) {
+        boolean equal = field < tokenizer.fieldCount()
+                ? tokenizer.contentEquals(field, value)
+                : value.length == 0;
+        return equal != negated;
+    }
+
+    @Override
+    public String toString() {
+        return column + (negated ? "!=" : "=") + new String(value, StandardCharsets.UTF_8);
+    }
+}
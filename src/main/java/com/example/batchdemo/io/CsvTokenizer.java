@@ -0,0 +1,214 @@
+package com.example.batchdemo.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 直接在映射字节上切分 RFC 4180 CSV 记录：只记录每个字段在缓冲区中的 [start, end) 偏移，不拷贝、不解码，
+ * 需要字段内容时再按下标取值。字段以分隔符和引号为界，用 {@link LineScanner} 的 SWAR 扫描定位，
+ * 不逐字节判断。带引号的字段可以包含分隔符、换行和转义的双引号（""）。
+ * <p>
+ * 同时负责带引号字段感知的记录边界：引号内的换行不结束记录，扫描状态跨窗口保留。
+ * 每个读取器持有一个实例，非线程安全。
+ */
+public final class CsvTokenizer {
+
+    private final byte delimiter;
+    private final byte quote;
+
+    private ByteBuffer source;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int count = 0;
+    private boolean inQuotes = false;
+    private byte[] scratch = new byte[64];
+
+    public CsvTokenizer(byte delimiter, byte quote) {
+        if (delimiter == quote || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalArgumentException("无效的 CSV 分隔符: " + (char) delimiter);
+        }
+        this.delimiter = delimiter;
+        this.quote = quote;
+    }
+
+    /**
+     * 在 [from, to) 内查找结束当前记录的 '\n'：引号外的换行才是记录边界。找不到返回 -1，
+     * 此时引号状态保留下来，下次从下一段字节的开头继续扫描；找到时状态清零。
+     * 引号转义 "" 成对出现，按奇偶翻转状态即可，不需要区分。
+     */
+    public int recordEnd(ByteBuffer buffer, int from, int to) {
+        int position = from;
+        while (true) {
+            int newline = LineScanner.indexOfNewline(buffer, position, to);
+            int segmentEnd = newline < 0 ? to : newline;
+            int q = LineScanner.indexOf(buffer, position, segmentEnd, quote);
+            while (q >= 0) {
+                inQuotes = !inQuotes;
+                q = LineScanner.indexOf(buffer, q + 1, segmentEnd, quote);
+            }
+            if (newline < 0) {
+                return -1;
+            }
+            if (!inQuotes) {
+                return newline;
+            }
+            position = newline + 1; // 换行在引号内，属于字段内容
+        }
+    }
+
+    /**
+     * 清除跨窗口保留的引号状态，重新从记录开头扫描时调用。
+     */
+    public void reset() {
+        inQuotes = false;
+    }
+
+    /**
+     * 切分 [from, to) 中的一条完整记录（不含行尾换行），最多切出 maxFields 个字段，其余部分不再扫描。
+     * 返回切出的字段数；结果在下一次调用前有效。
+     */
+    public int tokenize(ByteBuffer buffer, int from, int to, int maxFields) {
+        this.source = buffer;
+        this.count = 0;
+        int position = from;
+        while (count < maxFields) {
+            int start = position;
+            if (position < to && buffer.get(position) == quote) {
+                position = closingQuote(buffer, position + 1, to) + 1;
+            }
+            int delimiterAt = LineScanner.indexOf(buffer, Math.min(position, to), to, delimiter);
+            int end = delimiterAt < 0 ? to : delimiterAt;
+            add(start, end);
+            if (delimiterAt < 0) {
+                break;
+            }
+            position = delimiterAt + 1;
+        }
+        return count;
+    }
+
+    public int fieldCount() {
+        return count;
+    }
+
+    /**
+     * 字段原始字节（带引号字段包含两侧引号）的起始偏移。
+     */
+    public int start(int field) {
+        return starts[field];
+    }
+
+    /**
+     * 字段原始字节的结束偏移（不含）。
+     */
+    public int end(int field) {
+        return ends[field];
+    }
+
+    public boolean isQuoted(int field) {
+        return ends[field] > starts[field] && source.get(starts[field]) == quote;
+    }
+
+    /**
+     * 字段内容（去掉引号与转义后）是否为空。
+     */
+    public boolean isEmpty(int field) {
+        int length = ends[field] - starts[field];
+        return length == 0 || (length == 2 && isQuoted(field));
+    }
+
+    /**
+     * 字段内容是否与 expected（UTF-8 字节）相同，不解码字段；带引号字段边比较边去转义。
+     */
+    public boolean contentEquals(int field, byte[] expected) {
+        int start = starts[field];
+        int end = ends[field];
+        if (!isQuoted(field)) {
+            if (end - start != expected.length) {
+                return false;
+            }
+            for (int i = 0; i < expected.length; i++) {
+                if (source.get(start + i) != expected[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        int matched = 0;
+        for (int i = start + 1; i < end; i++) {
+            byte b = source.get(i);
+            if (b == quote) {
+                if (i + 1 < end && source.get(i + 1) == quote) {
+                    i++;
+                } else {
+                    break; // 结束引号
+                }
+            }
+            if (matched == expected.length || expected[matched++] != b) {
+                return false;
+            }
+        }
+        return matched == expected.length;
+    }
+
+    /**
+     * 解码字段内容：去掉两侧引号并还原转义的双引号。只在确实需要字段值时调用。
+     */
+    public String decode(int field) {
+        int start = starts[field];
+        int end = ends[field];
+        if (!isQuoted(field)) {
+            ensureScratch(end - start);
+            source.get(start, scratch, 0, end - start);
+            return new String(scratch, 0, end - start, StandardCharsets.UTF_8);
+        }
+        ensureScratch(end - start);
+        int length = 0;
+        for (int i = start + 1; i < end; i++) {
+            byte b = source.get(i);
+            if (b == quote) {
+                if (i + 1 < end && source.get(i + 1) == quote) {
+                    i++;
+                } else {
+                    break;
+                }
+            }
+            scratch[length++] = b;
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 从引号后的 position 开始查找结束引号的位置，跳过转义的 ""；引号未闭合时返回 to - 1。
+     */
+    private int closingQuote(ByteBuffer buffer, int position, int to) {
+        while (true) {
+            int q = LineScanner.indexOf(buffer, position, to, quote);
+            if (q < 0) {
+                return to - 1;
+            }
+            if (q + 1 < to && buffer.get(q + 1) == quote) {
+                position = q + 2;
+                continue;
+            }
+            return q;
+        }
+    }
+
+    private void add(int start, int end) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    private void ensureScratch(int length) {
+        if (length > scratch.length) {
+            scratch = Arrays.copyOf(scratch, Math.max(length, scratch.length * 2));
+        }
+    }
+}
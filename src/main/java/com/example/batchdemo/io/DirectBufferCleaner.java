@@ -0,0 +1,50 @@
+package com.example.batchdemo.io;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+
+import sun.misc.Unsafe;
+
+/**
+ * 显式释放直接内存/解除 mmap 映射：调用 Unsafe.invokeCleaner，不必等待 GC 触发 Cleaner。
+ * 拿不到 Unsafe 时退化为依赖 GC 回收。
+ */
+public final class DirectBufferCleaner {
+
+    private static final MethodHandle INVOKE_CLEANER = buildCleaner();
+
+    private DirectBufferCleaner() {
+    }
+
+    /**
+     * 释放一个直接缓冲区（含 MappedByteBuffer），调用后不得再访问该缓冲区。
+     * 对堆内缓冲区、slice/duplicate 视图不做任何事。
+     */
+    public static void free(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect() || INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(buffer);
+        } catch (Throwable ignored) {
+            // 视图缓冲区不允许显式释放，最坏情况依赖 GC 清理
+        }
+    }
+
+    private static MethodHandle buildCleaner() {
+        try {
+            // Unsafe.getUnsafe() 只允许引导类加载器调用，这里通过 theUnsafe 字段取得实例
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Unsafe unsafe = (Unsafe) field.get(null);
+            return MethodHandles.lookup()
+                    .findVirtual(Unsafe.class, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(unsafe);
+        } catch (Throwable e) {
+            return null; // 无法获取 Unsafe 时退化为 GC 清理
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.batchdemo.io;
+
+import com.example.batchdemo.service.PreallocatedBufferPool;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * {@link FileChannelLineWriter} 的字节版本：把 {@link ByteLine} 的字节直接拷进直接内存缓冲区，
+ * 写完后把行对象归还给池，供读取器在下一个 chunk 复用。
+ */
+public class FileChannelByteLineWriter extends AbstractFileChannelWriter<ByteLine> {
+
+    public FileChannelByteLineWriter(Path outputPath, PreallocatedBufferPool bufferPool) {
+        super(outputPath, bufferPool);
+    }
+
+    @Override
+    protected void writeItem(ByteLine item) throws IOException {
+        put(item.data(), item.offset(), item.length());
+        put(LINE_SEPARATOR, 0, LINE_SEPARATOR.length);
+        item.release();
+    }
+}
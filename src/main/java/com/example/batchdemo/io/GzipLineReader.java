@@ -0,0 +1,373 @@
+package com.example.batchdemo.io;
+
+import com.example.batchdemo.metrics.ReaderMeters;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.lang.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * gzip 输入的行读取器。
+ * <ul>
+ *     <li>BGZF 格式（每个 gzip 成员头部的 BC 扩展字段给出块大小，{@link BgzfBlockWriter} 与 bgzip 的输出都是）：
+ *     读取线程只沿着块头跳转，各块的读取、解压与 CRC 校验提交给解压线程池并行完成，按顺序消费，预取块数有上限；</li>
+ *     <li>其它 gzip（单成员或不带块大小的多成员）：无法定位块边界，只能用 {@link GZIPInputStream} 顺序解压。</li>
+ * </ul>
+ * chunk 提交时记录下一行所在块的压缩偏移（offset，进度按它与文件大小计算）和该行在块内的解压偏移；
+ * 重启时 BGZF 从该块直接继续，顺序模式则从头解压并跳过已交付的字节。
+ */
+public class GzipLineReader extends ItemStreamSupport implements ItemReader<String>, ItemStream {
+
+    /** ExecutionContext 中记录下一行所在块的压缩偏移的键。 */
+    public static final String OFFSET_KEY = "offset";
+
+    /** ExecutionContext 中记录下一行在块内（顺序模式下为从文件开头算起）的解压偏移的键。 */
+    public static final String SKIP_KEY = "skip";
+
+    private static final int SEQUENTIAL_BLOCK = 64 * 1024;
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    private final Path path;
+    private final ExecutorService executor;
+    private final int readAhead;
+    private final Queue<byte[]> freeArrays = new ConcurrentLinkedQueue<>();
+    private final LineAccumulator lineBuffer = new LineAccumulator();
+
+    private FileChannel channel;
+    private long fileSize;
+    private boolean blocked;
+    private long nextHeader;
+    private final Deque<Future<Block>> pending = new ArrayDeque<>();
+    private InputStream sequential;
+    private long sequentialOffset;
+
+    private Block current;
+    private long lineBlockOffset;
+    private long lineBlockStart;
+    private int lineStart;
+
+    private ReaderMeters meters;
+    private long reportedOffset = 0L;
+    private long unreportedLines = 0L;
+
+    /**
+     * readAhead 为 BGZF 模式下同时在解压或已解压待消费的块数。
+     */
+    public GzipLineReader(Path path, ExecutorService executor, int readAhead) {
+        this.path = path;
+        this.executor = executor;
+        this.readAhead = Math.max(1, readAhead);
+    }
+
+    public void setMeters(ReaderMeters meters) {
+        this.meters = meters;
+    }
+
+    /**
+     * 文件是否以 gzip 魔数开头；文件不存在等错误返回 false，留给 Job 自己报告。
+     */
+    public static boolean isGzip(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(2);
+            channel.read(magic, 0L);
+            return magic.position() == 2 && magic.get(0) == 0x1f && magic.get(1) == (byte) 0x8b;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.fileSize = channel.size();
+            long offset = executionContext.getLong(getExecutionContextKey(OFFSET_KEY), 0L);
+            long skip = executionContext.getLong(getExecutionContextKey(SKIP_KEY), 0L);
+            this.blocked = fileSize > 0 && blockSize(0L) > 0;
+            if (blocked) {
+                this.nextHeader = offset;
+                this.reportedOffset = offset;
+                fillPending();
+                this.current = nextBlock();
+            } else {
+                this.sequential = new GZIPInputStream(Channels.newInputStream(channel), SEQUENTIAL_BLOCK);
+                this.sequentialOffset = 0L;
+                this.current = nextBlock();
+                while (current != null && current.uncompressedStart + current.length <= skip) {
+                    release(current);
+                    current = nextBlock();
+                }
+                skip -= current != null ? current.uncompressedStart : skip;
+                this.reportedOffset = channel.position();
+            }
+            if (current != null) {
+                current.position = (int) skip;
+                markLineStart();
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("无法打开 gzip 文件", e);
+        }
+    }
+
+    @Nullable
+    @Override
+    public String read() throws Exception {
+        String line = nextLine();
+        if (line != null) {
+            unreportedLines++;
+        }
+        return line;
+    }
+
+    @Nullable
+    private String nextLine() throws IOException {
+        while (true) {
+            if (current == null) {
+                return lineBuffer.hasPending() ? lineBuffer.drain() : null;
+            }
+            if (current.position >= current.length) {
+                release(current);
+                current = nextBlock();
+                if (current != null && !lineBuffer.hasPending()) {
+                    markLineStart();
+                }
+                continue;
+            }
+            int start = current.position;
+            int newline = LineScanner.indexOfNewline(current.view, start, current.length);
+            if (newline < 0) {
+                // 行跨越块边界：暂存后继续解压下一块，行首仍记在本块
+                lineBuffer.append(current.view, start, current.length);
+                current.position = current.length;
+                continue;
+            }
+            current.position = newline + 1;
+            String line = lineBuffer.line(current.view, start, newline);
+            markLineStart();
+            return line;
+        }
+    }
+
+    /**
+     * 记录下一行的起点为当前块的当前位置。
+     */
+    private void markLineStart() {
+        lineBlockOffset = current.offset;
+        lineBlockStart = current.uncompressedStart;
+        lineStart = current.position;
+    }
+
+    @Nullable
+    private Block nextBlock() throws IOException {
+        long waitStart = System.nanoTime();
+        Block block = blocked ? takeDecoded() : readSequential();
+        if (meters != null && block != null) {
+            meters.recordRemap(System.nanoTime() - waitStart);
+        }
+        return block;
+    }
+
+    @Nullable
+    private Block takeDecoded() throws IOException {
+        Future<Block> future = pending.poll();
+        if (future == null) {
+            return null;
+        }
+        try {
+            Block block = future.get();
+            fillPending();
+            return block;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待解压线程被中断");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("解压 gzip 块失败", e.getCause());
+        }
+    }
+
+    /**
+     * 沿着块头向后跳转，把后续的块提交给解压线程池，直到预取数达到上限。
+     */
+    private void fillPending() throws IOException {
+        while (pending.size() < readAhead && nextHeader < fileSize) {
+            long offset = nextHeader;
+            int size = blockSize(offset);
+            if (size <= 0) {
+                throw new IOException("偏移 " + offset + " 处不是 BGZF 块，无法继续并行解压");
+            }
+            nextHeader += size;
+            pending.add(executor.submit(() -> decode(offset, size)));
+        }
+    }
+
+    /**
+     * 读取 position 处的 gzip 成员头，带 BGZF BC 扩展字段时返回整块大小，否则返回 -1。
+     */
+    private int blockSize(long position) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(BgzfBlockWriter.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining() && channel.read(header, position + header.position()) > 0) {
+            // 读满 18 字节的块头
+        }
+        if (header.hasRemaining() || header.get(0) != 0x1f || header.get(1) != (byte) 0x8b
+                || (header.get(3) & 0x04) == 0 || header.getShort(10) != 6
+                || header.get(12) != 'B' || header.get(13) != 'C' || header.getShort(14) != 2) {
+            return -1;
+        }
+        return (header.getShort(16) & 0xFFFF) + 1;
+    }
+
+    /**
+     * 在解压线程上运行：读取整块，解压数据并校验 CRC32 与长度。
+     */
+    private Block decode(long offset, int size) throws IOException {
+        ByteBuffer compressed = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        while (compressed.hasRemaining()) {
+            if (channel.read(compressed, offset + compressed.position()) < 0) {
+                throw new EOFException("BGZF 块被截断，偏移 " + offset);
+            }
+        }
+        int expectedCrc = compressed.getInt(size - 8);
+        int length = compressed.getInt(size - 4);
+        byte[] data = acquire(length);
+        Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        inflater.setInput(compressed.array(), BgzfBlockWriter.HEADER_SIZE,
+                size - BgzfBlockWriter.HEADER_SIZE - BgzfBlockWriter.TRAILER_SIZE);
+        try {
+            int inflated = 0;
+            while (inflated < length && !inflater.finished()) {
+                int n = inflater.inflate(data, inflated, length - inflated);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += n;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, inflated);
+            if (inflated != length || (int) crc.getValue() != expectedCrc) {
+                throw new IOException("BGZF 块校验失败，偏移 " + offset);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("BGZF 块数据损坏，偏移 " + offset, e);
+        }
+        return new Block(offset, 0L, data, length);
+    }
+
+    @Nullable
+    private Block readSequential() throws IOException {
+        byte[] data = acquire(SEQUENTIAL_BLOCK);
+        int length = 0;
+        while (length < data.length) {
+            int n = sequential.read(data, length, data.length - length);
+            if (n < 0) {
+                break;
+            }
+            length += n;
+        }
+        if (length == 0) {
+            freeArrays.offer(data);
+            return null;
+        }
+        Block block = new Block(channel.position(), sequentialOffset, data, length);
+        sequentialOffset += length;
+        return block;
+    }
+
+    private byte[] acquire(int length) {
+        byte[] array = freeArrays.poll();
+        return array != null && array.length >= length ? array : new byte[Math.max(length, SEQUENTIAL_BLOCK)];
+    }
+
+    private void release(Block block) {
+        freeArrays.offer(block.data);
+    }
+
+    /**
+     * chunk 提交时调用：记录下一行所在块的压缩偏移与块内解压偏移（顺序模式下为从文件开头算起的解压偏移）。
+     */
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        executionContext.putLong(getExecutionContextKey(OFFSET_KEY), lineBlockOffset);
+        executionContext.putLong(getExecutionContextKey(SKIP_KEY), lineBlockStart + lineStart);
+        reportProgress(lineBlockOffset);
+    }
+
+    private void reportProgress(long offset) {
+        if (meters != null) {
+            meters.recordProgress(offset - reportedOffset, unreportedLines);
+        }
+        reportedOffset = offset;
+        unreportedLines = 0L;
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (channel == null) {
+            return;
+        }
+        reportProgress(current == null ? fileSize : lineBlockOffset);
+        for (Future<Block> future : pending) {
+            future.cancel(false);
+        }
+        pending.clear();
+        current = null;
+        try {
+            if (sequential != null) {
+                sequential.close();
+                sequential = null;
+            }
+            channel.close();
+        } catch (IOException e) {
+            throw new ItemStreamException("关闭 gzip 文件失败", e);
+        } finally {
+            channel = null;
+        }
+    }
+
+    /**
+     * 一块解压后的数据，view 只用于 {@link LineScanner} 批量扫描。
+     */
+    private static final class Block {
+        final long offset;
+        final long uncompressedStart;
+        final byte[] data;
+        final int length;
+        final ByteBuffer view;
+        int position;
+
+        Block(long offset, long uncompressedStart, byte[] data, int length) {
+            this.offset = offset;
+            this.uncompressedStart = uncompressedStart;
+            this.data = data;
+            this.length = length;
+            this.view = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+}
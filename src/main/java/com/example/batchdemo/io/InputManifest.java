@@ -0,0 +1,57 @@
+package com.example.batchdemo.io;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 多输入 Job 的清单文件：每行一个输入路径，按顺序读取。Job 参数只保存清单路径，
+ * 上千个小文件的路径不会超出 Job 仓库参数列的长度；Job 结束后清单保留在输出旁，记录输出由哪些文件合并而来。
+ */
+public final class InputManifest {
+
+    private InputManifest() {
+    }
+
+    public static List<Path> read(Path manifest) throws IOException {
+        List<Path> inputs = new ArrayList<>();
+        for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+            if (!line.isBlank()) {
+                inputs.add(Path.of(line.trim()));
+            }
+        }
+        return inputs;
+    }
+
+    /**
+     * 写到临时文件后原子替换，读取方不会看到写了一半的清单。
+     */
+    public static void write(Path manifest, List<Path> inputs) throws IOException {
+        List<String> lines = new ArrayList<>(inputs.size());
+        for (Path input : inputs) {
+            lines.add(input.toAbsolutePath().toString());
+        }
+        Path temp = manifest.resolveSibling(manifest.getFileName() + ".tmp");
+        Files.write(temp, lines, StandardCharsets.UTF_8);
+        Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 清单中所有输入的字节数之和，用于进度与内存预算估算；不存在的文件按 0 计，留给 Job 自己报告。
+     */
+    public static long totalSize(Path manifest) {
+        long total = 0L;
+        try {
+            for (Path input : read(manifest)) {
+                total += Files.isRegularFile(input) ? Files.size(input) : 0L;
+            }
+        } catch (IOException e) {
+            return total;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.batchdemo.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 把 {@link LineScanner} 定位出的字节区间一次性拷贝成行，并暂存跨窗口/跨分片的半行。
+ * 每个读取器持有一个实例，内部字节数组按需扩容后复用，不在每行上分配 StringBuilder。
+ */
+final class LineAccumulator {
+
+    private byte[] bytes = new byte[256];
+    private int length = 0;
+
+    /**
+     * 缓冲区 [from, to) 内是一整行，直接解码；to 指向 '\n'（不含）。
+     */
+    String line(ByteBuffer source, int from, int to) {
+        if (length > 0) {
+            append(source, from, to);
+            return drain();
+        }
+        int len = to - from;
+        ensureCapacity(len);
+        source.get(from, bytes, 0, len);
+        return decode(bytes, len);
+    }
+
+    /**
+     * 行跨越了缓冲区末尾，先把已读到的部分暂存起来。
+     */
+    void append(ByteBuffer source, int from, int to) {
+        int len = to - from;
+        ensureCapacity(length + len);
+        source.get(from, bytes, length, len);
+        length += len;
+    }
+
+    boolean hasPending() {
+        return length > 0;
+    }
+
+    int pendingLength() {
+        return length;
+    }
+
+    /**
+     * 暂存半行的底层数组，有效内容为 [0, pendingLength())，调用 {@link #reset()} 后会被复用。
+     */
+    byte[] pendingBytes() {
+        return bytes;
+    }
+
+    void reset() {
+        length = 0;
+    }
+
+    /**
+     * 取出暂存的半行（文件最后一行没有换行符时使用）。
+     */
+    String drain() {
+        String line = decode(bytes, length);
+        length = 0;
+        return line;
+    }
+
+    private static String decode(byte[] bytes, int len) {
+        if (len > 0 && bytes[len - 1] == '\r') { // 去掉 Windows 换行的回车符
+            len--;
+        }
+        return new String(bytes, 0, len, StandardCharsets.UTF_8);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(required, bytes.length * 2));
+        }
+    }
+}
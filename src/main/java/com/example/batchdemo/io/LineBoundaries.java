@@ -0,0 +1,94 @@
+package com.example.batchdemo.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 行边界工具：把任意字节位置对齐到下一行的行首，保证切分出的字节区间都不会截断一行。
+ */
+public final class LineBoundaries {
+
+    private static final int PROBE_SIZE = 64 * 1024;
+
+    private LineBoundaries() {
+    }
+
+    /**
+     * 返回 position 处或其后第一个行首的位置；position 本身是行首时原样返回，找不到换行符时返回文件大小。
+     */
+    public static long alignToNextLine(FileChannel channel, long position) throws IOException {
+        long size = channel.size();
+        if (position <= 0) {
+            return 0L;
+        }
+        if (position >= size) {
+            return size;
+        }
+        ByteBuffer probe = ByteBuffer.allocate(PROBE_SIZE);
+        // 从 position - 1 开始找：如果前一个字节就是换行符，position 已经是行首
+        long cursor = position - 1;
+        while (cursor < size) {
+            probe.clear();
+            int read = channel.read(probe, cursor);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return cursor + i + 1;
+                }
+            }
+            cursor += read;
+        }
+        return size;
+    }
+
+    /**
+     * 返回 [0, limit) 中最后一个换行符之后的位置，即最后一个完整行的结尾；没有换行符时返回 0。
+     * 仍在追加的文件末尾可能是写了一半的行，读到这里为止就不会把它当成完整行处理。
+     */
+    public static long lastLineEnd(FileChannel channel, long limit) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(PROBE_SIZE);
+        long end = Math.min(limit, channel.size());
+        while (end > 0) {
+            long from = Math.max(0L, end - PROBE_SIZE);
+            probe.clear().limit((int) (end - from));
+            while (probe.hasRemaining() && channel.read(probe, from + probe.position()) > 0) {
+                // 读满本次探测的区间
+            }
+            for (int i = probe.position() - 1; i >= 0; i--) {
+                if (probe.get(i) == '\n') {
+                    return from + i + 1;
+                }
+            }
+            end = from;
+        }
+        return 0L;
+    }
+
+    /**
+     * 把 [0, size) 按行对齐切成至多 parts 个区间，返回每个区间的起点（最后附带文件大小作为终点）。
+     * 行比区间还长时相邻起点会重合，此时自动合并，所以区间数可能少于 parts。
+     */
+    public static long[] split(FileChannel channel, int parts) throws IOException {
+        long size = channel.size();
+        List<Long> starts = new ArrayList<>();
+        starts.add(0L);
+        for (int i = 1; i < parts; i++) {
+            long nominal = size / parts * i;
+            long aligned = alignToNextLine(channel, nominal);
+            if (aligned > starts.get(starts.size() - 1) && aligned < size) {
+                starts.add(aligned);
+            }
+        }
+        long[] bounds = new long[starts.size() + 1];
+        for (int i = 0; i < starts.size(); i++) {
+            bounds[i] = starts.get(i);
+        }
+        bounds[starts.size()] = size;
+        return bounds;
+    }
+}
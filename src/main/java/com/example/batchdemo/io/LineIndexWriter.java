@@ -0,0 +1,144 @@
+package com.example.batchdemo.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * 写入器一侧的行偏移索引：写入器报告每行的起始偏移和刷出的字节，chunk 提交时把新增采样追加到索引文件，
+ * 再用定位写覆盖固定长度的头部，索引始终与最近一次提交的输出位置一致。
+ * 续写（重启或增量追加）时若索引头部记录的数据长度正好等于续写位置，直接接着写；否则扫描已有输出重建。
+ * 每个 chunk 的 CRC32C 由写入器算好后随提交传入（与控制记录共用同一次计算），这里用 {@link Crc32cCombiner} 并入累计值，
+ * 续写时也不必重读已有输出。
+ */
+final class LineIndexWriter implements AutoCloseable {
+
+    private static final int SCAN_BUFFER_SIZE = 1024 * 1024;
+
+    private final FileChannel channel;
+    private final int interval;
+    private final long dataStart;
+    private long lineCount;
+    private int checksum;
+    private long checksumLength;
+    private long sampleCount;
+    private long[] pending = new long[64];
+    private int pendingCount;
+
+    private LineIndexWriter(FileChannel channel, int interval, long dataStart) {
+        this.channel = channel;
+        this.interval = interval;
+        this.dataStart = dataStart;
+    }
+
+    /**
+     * 为 data 打开索引，行从 dataStart 开始（之前是写入器预留的控制头），数据将从 position 处继续写；
+     * position 等于 dataStart 时新建索引。
+     */
+    static LineIndexWriter open(Path data, long dataStart, long position, int interval) throws IOException {
+        FileChannel channel = FileChannel.open(LineOffsetIndex.indexPath(data),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        LineIndexWriter writer = new LineIndexWriter(channel, interval, dataStart);
+        try {
+            LineOffsetIndex.Header header = position > dataStart ? LineOffsetIndex.Header.readFrom(channel) : null;
+            if (header != null && header.interval() == interval && header.dataLength() == position) {
+                writer.lineCount = header.lineCount();
+                writer.checksum = header.checksum();
+                writer.checksumLength = position - dataStart;
+                writer.sampleCount = header.sampleCount();
+                channel.truncate(LineOffsetIndex.HEADER_SIZE + writer.sampleCount * Long.BYTES);
+            } else {
+                channel.truncate(0L);
+                writer.rebuild(data, position);
+            }
+            writer.commit(position, 0, 0L);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return writer;
+    }
+
+    /**
+     * 写入器开始写一行，offset 为该行在输出中的起始偏移。
+     */
+    void lineStarted(long offset) {
+        if (lineCount % interval == 0) {
+            if (pendingCount == pending.length) {
+                pending = Arrays.copyOf(pending, pendingCount * 2);
+            }
+            pending[pendingCount++] = offset;
+        }
+        lineCount++;
+    }
+
+    /**
+     * 输出已提交到 dataLength，本次新写的 chunkLength 字节的 CRC32C 为 chunkChecksum：并入校验和，追加新增采样并更新头部。
+     */
+    void commit(long dataLength, int chunkChecksum, long chunkLength) throws IOException {
+        checksum = Crc32cCombiner.combine(checksum, chunkChecksum, chunkLength);
+        checksumLength += chunkLength;
+        if (dataStart + checksumLength != dataLength) {
+            throw new IOException("行偏移索引统计的字节数 " + checksumLength + " 与输出位置 " + dataLength + " 不一致");
+        }
+        if (pendingCount > 0) {
+            ByteBuffer bytes = ByteBuffer.allocate(pendingCount * Long.BYTES);
+            bytes.asLongBuffer().put(pending, 0, pendingCount);
+            long position = LineOffsetIndex.HEADER_SIZE + sampleCount * Long.BYTES;
+            while (bytes.hasRemaining()) {
+                channel.write(bytes, position + bytes.position());
+            }
+            sampleCount += pendingCount;
+            pendingCount = 0;
+        }
+        new LineOffsetIndex.Header(interval, checksum, lineCount, dataLength, sampleCount).writeTo(channel);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * 扫描已有输出的 [dataStart, length)，重新统计行、采样与校验和。
+     */
+    private void rebuild(Path data, long length) throws IOException {
+        if (length <= dataStart) {
+            return;
+        }
+        CRC32C crc = new CRC32C();
+        try (FileChannel input = FileChannel.open(data, StandardOpenOption.READ)) {
+            ByteBuffer window = ByteBuffer.allocateDirect(SCAN_BUFFER_SIZE);
+            long position = dataStart;
+            boolean atLineStart = true;
+            while (position < length) {
+                window.clear().limit((int) Math.min(SCAN_BUFFER_SIZE, length - position));
+                int read = input.read(window, position);
+                if (read < 0) {
+                    throw new IOException("输出文件比提交位置短: " + data);
+                }
+                int from = 0;
+                while (from < read) {
+                    if (atLineStart) {
+                        lineStarted(position + from);
+                    }
+                    int newline = LineScanner.indexOfNewline(window, from, read);
+                    if (newline < 0) {
+                        atLineStart = false;
+                        break;
+                    }
+                    from = newline + 1;
+                    atLineStart = true;
+                }
+                crc.update(window.flip());
+                position += read;
+            }
+        }
+        checksum = (int) crc.getValue();
+        checksumLength = length - dataStart;
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.batchdemo.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * 写入器在输出旁生成的行偏移索引（output.idx）：每隔 interval 行记录一次该行起始的字节偏移，另记总行数、数据长度与 CRC32C。
+ * 输出带控制头时，第 0 行从控制头之后开始，校验和只覆盖 [第 0 行的偏移, 数据长度)。
+ * 文件格式（大端）：魔数、版本、间隔、CRC32C 各 4 字节，行数、数据长度、采样个数各 8 字节，之后是采样偏移数组。
+ * 加载只需读头部与采样两次；定位任意一行最多从最近的采样向后扫 interval 行，按字节均分时只看采样、不读数据文件。
+ */
+public final class LineOffsetIndex {
+
+    static final int MAGIC = 0x4C494458; // "LIDX"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 40;
+
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    private final Path dataPath;
+    private final Header header;
+    private final long[] samples;
+
+    private LineOffsetIndex(Path dataPath, Header header, long[] samples) {
+        this.dataPath = dataPath;
+        this.header = header;
+        this.samples = samples;
+    }
+
+    /**
+     * 索引头部：数据的前 dataLength 字节共 lineCount 行，第 i 个采样是第 i * interval 行的起始偏移。
+     */
+    record Header(int interval, int checksum, long lineCount, long dataLength, long sampleCount) {
+
+        void writeTo(FileChannel channel) throws IOException {
+            ByteBuffer bytes = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC).putInt(VERSION).putInt(interval).putInt(checksum)
+                    .putLong(lineCount).putLong(dataLength).putLong(sampleCount)
+                    .flip();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes, bytes.position());
+            }
+        }
+
+        /**
+         * 读取并校验头部，文件过短、魔数或版本不符、采样个数与文件大小对不上时返回 null。
+         */
+        static Header readFrom(FileChannel channel) throws IOException {
+            if (channel.size() < HEADER_SIZE) {
+                return null;
+            }
+            ByteBuffer bytes = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, bytes, 0L);
+            bytes.flip();
+            if (bytes.getInt() != MAGIC || bytes.getInt() != VERSION) {
+                return null;
+            }
+            Header header = new Header(bytes.getInt(), bytes.getInt(), bytes.getLong(), bytes.getLong(), bytes.getLong());
+            if (header.interval <= 0 || channel.size() < HEADER_SIZE + header.sampleCount * Long.BYTES) {
+                return null;
+            }
+            return header;
+        }
+    }
+
+    public static Path indexPath(Path data) {
+        return data.resolveSibling(data.getFileName() + ".idx");
+    }
+
+    /**
+     * 加载 data 旁的索引；索引缺失或已损坏时抛出 IOException。
+     */
+    public static LineOffsetIndex load(Path data) throws IOException {
+        Path path = indexPath(data);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = Header.readFrom(channel);
+            if (header == null) {
+                throw new IOException("行偏移索引已损坏: " + path);
+            }
+            ByteBuffer bytes = ByteBuffer.allocate(Math.toIntExact(header.sampleCount * Long.BYTES));
+            readFully(channel, bytes, HEADER_SIZE);
+            long[] samples = new long[(int) header.sampleCount];
+            bytes.flip().asLongBuffer().get(samples);
+            return new LineOffsetIndex(data, header, samples);
+        }
+    }
+
+    public long lineCount() {
+        return header.lineCount;
+    }
+
+    public long dataLength() {
+        return header.dataLength;
+    }
+
+    public int checksum() {
+        return header.checksum;
+    }
+
+    public int interval() {
+        return header.interval;
+    }
+
+    /**
+     * 第 line 行（从 0 开始）的起始字节偏移；line 等于行数时返回数据长度。
+     * 从不大于该行的最近采样出发向后数换行，最多读 interval 行。
+     */
+    public long offsetOf(long line) throws IOException {
+        if (line < 0 || line > header.lineCount) {
+            throw new IndexOutOfBoundsException("行号超出范围: " + line + "，共 " + header.lineCount + " 行");
+        }
+        if (line == header.lineCount) {
+            return header.dataLength;
+        }
+        long position = samples[(int) (line / header.interval)];
+        long remaining = line % header.interval;
+        if (remaining == 0) {
+            return position;
+        }
+        try (FileChannel channel = FileChannel.open(dataPath, StandardOpenOption.READ)) {
+            ByteBuffer window = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+            while (position < header.dataLength) {
+                window.clear().limit((int) Math.min(SCAN_BUFFER_SIZE, header.dataLength - position));
+                int read = channel.read(window, position);
+                if (read < 0) {
+                    break;
+                }
+                int from = 0;
+                int newline;
+                while ((newline = LineScanner.indexOfNewline(window, from, read)) >= 0) {
+                    if (--remaining == 0) {
+                        return position + newline + 1;
+                    }
+                    from = newline + 1;
+                }
+                position += read;
+            }
+        }
+        throw new IOException("数据文件比索引记录的短: " + dataPath);
+    }
+
+    /**
+     * 按字节把数据均分成不超过 parts 段，每段都从一个采样行开始，不读数据文件；
+     * 每段的字节数与目标相差不超过 interval 行。数据较少时返回的段数可能少于 parts。
+     */
+    public List<Range> split(int parts) {
+        List<Range> ranges = new ArrayList<>(parts);
+        long firstLine = 0L;
+        long start = dataStart();
+        for (int i = 1; i < parts; i++) {
+            long target = dataStart() + (header.dataLength - dataStart()) * i / parts;
+            int sample = ceilingSample(target);
+            if (sample >= samples.length) {
+                break;
+            }
+            long line = (long) sample * header.interval;
+            if (line <= firstLine) {
+                continue;
+            }
+            ranges.add(new Range(firstLine, line - firstLine, start, samples[sample]));
+            firstLine = line;
+            start = samples[sample];
+        }
+        ranges.add(new Range(firstLine, header.lineCount - firstLine, start, header.dataLength));
+        return ranges;
+    }
+
+    /**
+     * 重新计算 [第 0 行的偏移, 数据长度) 的 CRC32C 并与索引记录的比较，用于确认数据与索引是同一次写出的。
+     */
+    public boolean verify() throws IOException {
+        if (Files.size(dataPath) < header.dataLength) {
+            return false;
+        }
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(dataPath, StandardOpenOption.READ)) {
+            ByteBuffer window = ByteBuffer.allocateDirect(SCAN_BUFFER_SIZE * 16);
+            long position = dataStart();
+            while (position < header.dataLength) {
+                window.clear().limit((int) Math.min(window.capacity(), header.dataLength - position));
+                int read = channel.read(window, position);
+                if (read < 0) {
+                    return false;
+                }
+                crc.update(window.flip());
+                position += read;
+            }
+        }
+        return (int) crc.getValue() == header.checksum;
+    }
+
+    /**
+     * 第 0 行的起始偏移；没有行时就是数据长度。
+     */
+    private long dataStart() {
+        return samples.length > 0 ? samples[0] : header.dataLength;
+    }
+
+    /**
+     * 第一个不小于 target 的采样序号，都小于时返回采样个数。
+     */
+    private int ceilingSample(long target) {
+        int low = 0;
+        int high = samples.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (samples[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer target, long position) throws IOException {
+        while (target.hasRemaining()) {
+            if (channel.read(target, position + target.position()) < 0) {
+                throw new IOException("行偏移索引被截断");
+            }
+        }
+    }
+
+    /**
+     * 一段连续的行：从第 firstLine 行开始共 lineCount 行，字节区间 [startOffset, endOffset)。
+     */
+    public record Range(long firstLine, long lineCount, long startOffset, long endOffset) {
+    }
+}
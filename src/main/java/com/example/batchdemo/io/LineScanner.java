@@ -0,0 +1,52 @@
+package com.example.batchdemo.io;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 批量查找换行符（以及任意单个字节）：每次读 8 个字节，用 SWAR（SIMD within a register）位运算同时判断 8 个字节，
+ * 代替逐字节 get() 比较，JIT 后每个字节只需不到一条指令。
+ */
+public final class LineScanner {
+
+    private static final long NEWLINES = 0x0A0A0A0A0A0A0A0AL;
+    private static final long LOWS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long BROADCAST = 0x0101010101010101L;
+
+    private LineScanner() {
+    }
+
+    /**
+     * 在 [from, to) 内查找第一个 '\n' 的绝对下标，找不到返回 -1。不会修改 buffer 的 position/limit。
+     */
+    public static int indexOfNewline(ByteBuffer buffer, int from, int to) {
+        return indexOf(buffer, from, to, NEWLINES, (byte) '\n');
+    }
+
+    /**
+     * 在 [from, to) 内查找第一个等于 target 的字节，CSV 切分时用来定位分隔符与引号。
+     */
+    public static int indexOf(ByteBuffer buffer, int from, int to, byte target) {
+        return indexOf(buffer, from, to, (target & 0xFFL) * BROADCAST, target);
+    }
+
+    private static int indexOf(ByteBuffer buffer, int from, int to, long pattern, byte target) {
+        boolean littleEndian = buffer.order() == ByteOrder.LITTLE_ENDIAN;
+        int i = from;
+        int wordEnd = to - Long.BYTES;
+        for (; i <= wordEnd; i += Long.BYTES) {
+            long word = buffer.getLong(i) ^ pattern; // 等于目标的字节变成 0
+            long found = ~(((word & LOWS) + LOWS) | word | LOWS); // 只有 0 字节的最高位为 1，无进位误判
+            if (found != 0) {
+                int bit = littleEndian ? Long.numberOfTrailingZeros(found) : Long.numberOfLeadingZeros(found);
+                return i + (bit >>> 3);
+            }
+        }
+        for (; i < to; i++) {
+            if (buffer.get(i) == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
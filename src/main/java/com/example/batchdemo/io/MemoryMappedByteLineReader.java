@@ -0,0 +1,37 @@
+package com.example.batchdemo.io;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * mmap 读取器的字节版本：每行拷贝进池化的 {@link ByteLine}，不做字符解码，也不创建 String。
+ * 窗口映射、区间读取与重启偏移与 {@link MemoryMappedCsvReader} 完全一致。
+ */
+public class MemoryMappedByteLineReader extends AbstractMemoryMappedReader<ByteLine> {
+
+    private final ByteLinePool linePool;
+
+    public MemoryMappedByteLineReader(Path path, int windowSize, ByteLinePool linePool) {
+        this(path, windowSize, 0L, Long.MAX_VALUE, linePool);
+    }
+
+    public MemoryMappedByteLineReader(Path path, int windowSize, long startOffset, long endOffset, ByteLinePool linePool) {
+        super(path, windowSize, startOffset, endOffset);
+        this.linePool = linePool;
+    }
+
+    @Override
+    protected ByteLine windowLine(ByteBuffer window, int from, int to) {
+        int length = to - from;
+        ByteLine line = linePool.acquire(length);
+        window.get(from, line.data(), 0, length);
+        return line;
+    }
+
+    @Override
+    protected ByteLine carriedLine(byte[] bytes, int length) {
+        ByteLine line = linePool.acquire(length);
+        System.arraycopy(bytes, 0, line.data(), 0, length);
+        return line;
+    }
+}
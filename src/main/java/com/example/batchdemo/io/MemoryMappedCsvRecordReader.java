@@ -0,0 +1,219 @@
+package com.example.batchdemo.io;
+
+import org.springframework.batch.item.ItemStreamException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 按 RFC 4180 读取 CSV 记录的 mmap 读取器：记录边界感知引号，带引号的字段可以跨行；
+ * 每条记录由 {@link CsvTokenizer} 在映射字节上切分出字段偏移，只切到需要的最后一列为止。
+ * <ul>
+ *     <li>列投影：只保留 columns 中的列，按配置顺序把这些列的原始字节（带引号字段保留引号与转义）
+ *     用分隔符拼接后解码成一个 String，其余列既不拷贝也不解码，宽表只取少数几列时解码量成比例下降；</li>
+ *     <li>过滤下推：不满足 {@link CsvPredicate} 的记录在解码前就跳过，不进入清洗与写出。</li>
+ * </ul>
+ * 列可以按表头列名或从 0 开始的列号指定；有表头时，从文件开头读取时表头本身也按投影输出（不参与过滤）。
+ * 重启偏移总是落在记录边界上，从偏移处重新映射时引号状态为初始状态。
+ */
+public class MemoryMappedCsvRecordReader extends AbstractMemoryMappedReader<String> {
+
+    private final byte delimiter;
+    private final CsvTokenizer tokenizer;
+
+    private boolean header = true;
+    private List<String> columns = List.of();
+    private List<CsvPredicate> filters = List.of();
+
+    private int[] projection = new int[0];
+    private int[] filterFields = new int[0];
+    private int tokenLimit = 0;
+    private boolean headerPending = false;
+    private byte[] out = new byte[256];
+    private ByteBuffer carried;
+
+    public MemoryMappedCsvRecordReader(Path path, int windowSize, char delimiter) {
+        super(path, windowSize, 0L, Long.MAX_VALUE);
+        this.delimiter = (byte) delimiter;
+        this.tokenizer = new CsvTokenizer(this.delimiter, (byte) '"');
+    }
+
+    /**
+     * 第一条记录是否为表头，默认是。按列名投影或过滤时必须有表头。
+     */
+    public void setHeader(boolean header) {
+        this.header = header;
+    }
+
+    /**
+     * 输出的列（列名或列号），为空时输出整条记录。
+     */
+    public void setColumns(List<String> columns) {
+        this.columns = List.copyOf(columns);
+    }
+
+    /**
+     * 过滤条件，全部满足的记录才输出。
+     */
+    public void setFilters(List<CsvPredicate> filters) {
+        this.filters = List.copyOf(filters);
+    }
+
+    @Override
+    protected int recordEnd(ByteBuffer window, int from, int to) {
+        return tokenizer.recordEnd(window, from, to);
+    }
+
+    /**
+     * 读取表头并把列名解析成列下标；重启时同样从文件开头读取表头，但不再输出。
+     */
+    @Override
+    protected void beforeFirstWindow(FileChannel channel, long position) throws IOException {
+        List<String> names = header ? readHeader(channel) : List.of();
+        this.projection = resolve(columns, names);
+        List<String> filterColumns = new ArrayList<>(filters.size());
+        filters.forEach(filter -> filterColumns.add(filter.getColumn()));
+        this.filterFields = resolve(filterColumns, names);
+        int lastField = -1;
+        for (int field : projection) {
+            lastField = Math.max(lastField, field);
+        }
+        for (int field : filterFields) {
+            lastField = Math.max(lastField, field);
+        }
+        this.tokenLimit = lastField + 1;
+        this.headerPending = header && position == 0L;
+        tokenizer.reset();
+    }
+
+    @Override
+    protected String windowLine(ByteBuffer window, int from, int to) {
+        return project(window, from, to);
+    }
+
+    @Override
+    protected String carriedLine(byte[] bytes, int length) {
+        if (carried == null || carried.array() != bytes) {
+            carried = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return project(carried, 0, length);
+    }
+
+    private String project(ByteBuffer source, int from, int to) {
+        if (tokenLimit > 0) {
+            tokenizer.tokenize(source, from, to, tokenLimit);
+        }
+        if (headerPending) {
+            headerPending = false;
+        } else if (!matches()) {
+            return null;
+        }
+        int length = 0;
+        if (projection.length == 0) {
+            length = copy(source, from, to, 0);
+        } else {
+            for (int i = 0; i < projection.length; i++) {
+                if (i > 0) {
+                    length = copyDelimiter(length);
+                }
+                int field = projection[i];
+                if (field < tokenizer.fieldCount()) { // 缺少的列按空字段输出
+                    length = copy(source, tokenizer.start(field), tokenizer.end(field), length);
+                }
+            }
+        }
+        return new String(out, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private boolean matches() {
+        for (int i = 0; i < filterFields.length; i++) {
+            if (!filters.get(i).test(tokenizer, filterFields[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int copy(ByteBuffer source, int from, int to, int length) {
+        int size = to - from;
+        ensureOut(length + size);
+        source.get(from, out, length, size);
+        return length + size;
+    }
+
+    private int copyDelimiter(int length) {
+        ensureOut(length + 1);
+        out[length] = delimiter;
+        return length + 1;
+    }
+
+    private void ensureOut(int required) {
+        if (required > out.length) {
+            out = Arrays.copyOf(out, Math.max(required, out.length * 2));
+        }
+    }
+
+    /**
+     * 用普通读取取出第一条记录（可能跨多行）并解码列名，表头通常很短，不值得为它单独映射。
+     */
+    private List<String> readHeader(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192).order(ByteOrder.LITTLE_ENDIAN);
+        tokenizer.reset();
+        int scanned = 0;
+        int end;
+        while (true) {
+            int read = channel.read(buffer, buffer.position());
+            int filled = buffer.position();
+            end = tokenizer.recordEnd(buffer, scanned, filled);
+            if (end >= 0 || read < 0) {
+                end = end >= 0 ? end : filled;
+                break;
+            }
+            scanned = filled;
+            if (!buffer.hasRemaining()) {
+                ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.flip();
+                buffer = larger.put(buffer);
+            }
+        }
+        if (end > 0 && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        int count = tokenizer.tokenize(buffer, 0, end, Integer.MAX_VALUE);
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(tokenizer.decode(i).trim());
+        }
+        return names;
+    }
+
+    /**
+     * 把列名或列号解析成列下标：优先匹配表头中的列名，其次按列号处理。
+     */
+    private static int[] resolve(List<String> specs, List<String> names) {
+        int[] fields = new int[specs.size()];
+        for (int i = 0; i < fields.length; i++) {
+            String spec = specs.get(i).trim();
+            int field = names.indexOf(spec);
+            if (field < 0) {
+                try {
+                    field = Integer.parseInt(spec);
+                } catch (NumberFormatException e) {
+                    throw new ItemStreamException("CSV 表头中找不到列: " + spec + "，表头: " + names);
+                }
+                if (field < 0) {
+                    throw new ItemStreamException("CSV 列号不能为负数: " + spec);
+                }
+            }
+            fields[i] = field;
+        }
+        return fields;
+    }
+}
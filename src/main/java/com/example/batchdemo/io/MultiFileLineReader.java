@@ -0,0 +1,189 @@
+package com.example.batchdemo.io;
+
+import com.example.batchdemo.metrics.ReaderMeters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 按清单顺序逐个读取多个输入文件的行，把大量小文件合并成一个 Job、一个 step，摊薄每个 Job 的启动与仓库开销。
+ * 每个文件由一个 mmap 读取器（gzip 文件为 {@link GzipLineReader}）读取，读完即关闭再打开下一个，同一时刻只占用一个窗口。
+ * chunk 提交时记录当前文件的序号及其读取器的偏移，重启时从该文件的该偏移继续；
+ * offset 记为之前所有文件的大小加当前文件内的偏移，进度按清单中文件的总大小计算。
+ * 清单中已不存在的文件记录警告后跳过。记录的源偏移同样按之前所有文件的大小累加，gzip 文件中的记录报告 -1。
+ */
+public class MultiFileLineReader extends ItemStreamSupport implements ItemReader<String>, ItemStream, RecordOffsetSource {
+
+    private static final Logger log = LoggerFactory.getLogger(MultiFileLineReader.class);
+
+    /** ExecutionContext 中记录当前文件在清单中的序号的键。 */
+    public static final String FILE_KEY = "file";
+
+    /** ExecutionContext 中记录所有文件合计已处理字节数的键。 */
+    public static final String OFFSET_KEY = "offset";
+
+    private static final String FILE_OFFSET_KEY = "fileOffset";
+    private static final String FILE_SKIP_KEY = "fileSkip";
+    private static final String DELEGATE_NAME = "file";
+
+    private final Path manifest;
+    private final int windowSize;
+    private final ExecutorService gzipExecutor;
+    private final int gzipReadAhead;
+
+    private List<Path> inputs;
+    private long[] starts;
+    private int index;
+    private ItemStream currentStream;
+    private ItemReader<String> currentReader;
+    private ReaderMeters meters;
+
+    /**
+     * gzipExecutor 为 null 时所有文件都按明文读取。
+     */
+    public MultiFileLineReader(Path manifest, int windowSize, @Nullable ExecutorService gzipExecutor, int gzipReadAhead) {
+        this.manifest = manifest;
+        this.windowSize = windowSize;
+        this.gzipExecutor = gzipExecutor;
+        this.gzipReadAhead = gzipReadAhead;
+    }
+
+    public void setMeters(ReaderMeters meters) {
+        this.meters = meters;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        try {
+            this.inputs = InputManifest.read(manifest);
+        } catch (IOException e) {
+            throw new ItemStreamException("无法读取输入清单: " + manifest, e);
+        }
+        this.starts = new long[inputs.size() + 1];
+        for (int i = 0; i < inputs.size(); i++) {
+            starts[i + 1] = starts[i] + sizeOf(inputs.get(i));
+        }
+        this.index = executionContext.getInt(getExecutionContextKey(FILE_KEY), 0);
+        ExecutionContext resume = new ExecutionContext();
+        if (executionContext.containsKey(getExecutionContextKey(FILE_OFFSET_KEY))) {
+            resume.putLong(DELEGATE_NAME + "." + AbstractMemoryMappedReader.OFFSET_KEY,
+                    executionContext.getLong(getExecutionContextKey(FILE_OFFSET_KEY)));
+        }
+        if (executionContext.containsKey(getExecutionContextKey(FILE_SKIP_KEY))) {
+            resume.putLong(DELEGATE_NAME + "." + GzipLineReader.SKIP_KEY,
+                    executionContext.getLong(getExecutionContextKey(FILE_SKIP_KEY)));
+        }
+        openDelegate(resume);
+    }
+
+    @Nullable
+    @Override
+    public String read() throws Exception {
+        while (currentReader != null) {
+            String line = currentReader.read();
+            if (line != null) {
+                return line;
+            }
+            closeDelegate();
+            index++;
+            openDelegate(new ExecutionContext());
+        }
+        return null;
+    }
+
+    @Override
+    public long lastRecordOffset() {
+        if (currentReader instanceof RecordOffsetSource source && source.lastRecordOffset() >= 0) {
+            return starts[index] + source.lastRecordOffset();
+        }
+        return -1L;
+    }
+
+    /**
+     * 打开序号为 index 的文件，跳过已不存在的文件；清单读完时不再打开。
+     */
+    private void openDelegate(ExecutionContext resume) {
+        while (index < inputs.size() && !Files.isRegularFile(inputs.get(index))) {
+            log.warn("输入清单 {} 中的文件已不存在，跳过: {}", manifest, inputs.get(index));
+            index++;
+            resume = new ExecutionContext();
+        }
+        if (index >= inputs.size()) {
+            return;
+        }
+        Path input = inputs.get(index);
+        ItemStreamSupport delegate;
+        if (gzipExecutor != null && GzipLineReader.isGzip(input)) {
+            GzipLineReader reader = new GzipLineReader(input, gzipExecutor, gzipReadAhead);
+            reader.setMeters(meters);
+            delegate = reader;
+            currentReader = reader;
+        } else {
+            MemoryMappedCsvReader reader = new MemoryMappedCsvReader(input, windowSize);
+            reader.setMeters(meters);
+            delegate = reader;
+            currentReader = reader;
+        }
+        delegate.setName(DELEGATE_NAME);
+        delegate.open(resume);
+        currentStream = delegate;
+    }
+
+    private void closeDelegate() {
+        if (currentStream != null) {
+            currentStream.close();
+        }
+        currentStream = null;
+        currentReader = null;
+    }
+
+    /**
+     * chunk 提交时调用：记录当前文件序号与其读取器的偏移，之前的文件已全部交付。
+     */
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (inputs == null) {
+            return;
+        }
+        executionContext.putInt(getExecutionContextKey(FILE_KEY), index);
+        executionContext.remove(getExecutionContextKey(FILE_OFFSET_KEY));
+        executionContext.remove(getExecutionContextKey(FILE_SKIP_KEY));
+        long fileOffset = 0L;
+        if (currentStream != null) {
+            ExecutionContext state = new ExecutionContext();
+            currentStream.update(state);
+            fileOffset = state.getLong(DELEGATE_NAME + "." + AbstractMemoryMappedReader.OFFSET_KEY, 0L);
+            executionContext.putLong(getExecutionContextKey(FILE_OFFSET_KEY), fileOffset);
+            if (state.containsKey(DELEGATE_NAME + "." + GzipLineReader.SKIP_KEY)) {
+                executionContext.putLong(getExecutionContextKey(FILE_SKIP_KEY),
+                        state.getLong(DELEGATE_NAME + "." + GzipLineReader.SKIP_KEY));
+            }
+        }
+        executionContext.putLong(getExecutionContextKey(OFFSET_KEY), starts[Math.min(index, inputs.size())] + fileOffset);
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        closeDelegate();
+        inputs = null;
+    }
+
+    private static long sizeOf(Path input) {
+        try {
+            return Files.size(input);
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+}
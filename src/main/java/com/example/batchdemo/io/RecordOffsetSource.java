@@ -0,0 +1,12 @@
+package com.example.batchdemo.io;
+
+/**
+ * 能报告最近一条记录在输入中位置的读取器，拒收记录时据此写出源字节偏移，方便回到原文件定位。
+ */
+public interface RecordOffsetSource {
+
+    /**
+     * 最近一次 read 返回的记录在输入中的起始字节偏移；无法确定（例如 gzip 输入）时返回 -1。
+     */
+    long lastRecordOffset();
+}
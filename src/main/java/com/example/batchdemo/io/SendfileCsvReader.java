@@ -1,5 +1,8 @@
 package com.example.batchdemo.io;
 
+import com.example.batchdemo.metrics.ReaderMeters;
+import com.example.batchdemo.service.PreallocatedBufferPool;
+import com.example.batchdemo.service.SendfileTransferEngine;
 import org.springframework.batch.item.ExecutionContext;
 import org.springframework.batch.item.ItemReader;
 import org.springframework.batch.item.ItemStream;
@@ -9,54 +12,61 @@ import org.springframework.lang.Nullable;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
-import java.nio.channels.Pipe;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 
 /**
  * 使用 sendfile（FileChannel.transferTo）将数据从文件通道推送到管道，
  * 由管道另一端流式消费，避免用户态缓冲区重复拷贝。
+ * 推送由共享的 {@link SendfileTransferEngine} 完成，读缓冲区从 {@link PreallocatedBufferPool} 借用直接内存；
+ * 传输失败或文件被截断时 read() 抛出异常，而不是当作正常的文件结尾。
+ * chunk 提交时记录已交付行的字节偏移，重启后从该偏移继续 transferTo。
+ * 设置 {@link ReaderMeters} 后每次管道读取计为一次 remap，行数在本地累计、提交时汇报。
  */
-public class SendfileCsvReader extends ItemStreamSupport implements ItemReader<String>, ItemStream {
+public class SendfileCsvReader extends ItemStreamSupport implements ItemReader<String>, ItemStream, RecordOffsetSource {
+
+    /** ExecutionContext 中记录下一行起始字节偏移的键。 */
+    public static final String OFFSET_KEY = "offset";
 
     private final Path path;
     private final int chunkSize;
+    private final SendfileTransferEngine transferEngine;
+    private final PreallocatedBufferPool bufferPool;
 
     private FileChannel channel;
-    private Pipe.SourceChannel sourceChannel;
+    private SendfileTransferEngine.TransferSession session;
     private ByteBuffer readBuffer;
-    private final StringBuilder lineBuffer = new StringBuilder();
+    private long startOffset = 0L;
+    private long bytesFromPipe = 0L;
+    private final LineAccumulator lineBuffer = new LineAccumulator();
+
+    private ReaderMeters meters;
+    private long reportedOffset = 0L;
+    private long recordStart = -1L;
+    private long unreportedLines = 0L;
 
-    public SendfileCsvReader(Path path, int chunkSize) {
+    public SendfileCsvReader(Path path, int chunkSize, SendfileTransferEngine transferEngine, PreallocatedBufferPool bufferPool) {
         this.path = path;
         this.chunkSize = chunkSize;
+        this.transferEngine = transferEngine;
+        this.bufferPool = bufferPool;
+    }
+
+    public void setMeters(ReaderMeters meters) {
+        this.meters = meters;
     }
 
     @Override
     public void open(ExecutionContext executionContext) throws ItemStreamException {
         try {
             this.channel = FileChannel.open(path, StandardOpenOption.READ);
-            Pipe pipe = Pipe.open();
-            this.sourceChannel = pipe.source();
-            // 启动后台线程负责使用 transferTo 推送数据到管道，保持零拷贝路径
-            Thread transferThread = new Thread(() -> {
-                try (Pipe.SinkChannel sink = pipe.sink()) {
-                    long position = 0L;
-                    long size = channel.size();
-                    while (position < size) {
-                        long transferred = channel.transferTo(position, chunkSize, sink);
-                        if (transferred <= 0) {
-                            break;
-                        }
-                        position += transferred;
-                    }
-                } catch (IOException ignored) {
-                    // 关闭时可能触发异常，忽略即可
-                }
-            }, "sendfile-transfer");
-            transferThread.start();
-            this.readBuffer = ByteBuffer.allocate(chunkSize);
+            this.startOffset = executionContext.getLong(getExecutionContextKey(OFFSET_KEY), 0L);
+            this.reportedOffset = startOffset;
+            this.session = transferEngine.start(channel, startOffset, Long.MAX_VALUE, chunkSize);
+            this.readBuffer = bufferPool.borrowBuffer(chunkSize).order(ByteOrder.LITTLE_ENDIAN);
+            this.readBuffer.limit(0); // 初始为空，首次 read() 时从管道填充
         } catch (IOException e) {
             throw new ItemStreamException("初始化 sendfile 读取器失败", e);
         }
@@ -65,51 +75,107 @@ public class SendfileCsvReader extends ItemStreamSupport implements ItemReader<S
     @Nullable
     @Override
     public String read() throws Exception {
+        recordStart = currentOffset();
+        String line = nextLine();
+        if (line != null) {
+            unreportedLines++;
+        }
+        return line;
+    }
+
+    @Override
+    public long lastRecordOffset() {
+        return recordStart;
+    }
+
+    @Nullable
+    private String nextLine() throws IOException {
         while (true) {
-            if (!fillBuffer()) {
-                if (lineBuffer.length() > 0) {
-                    String lastLine = lineBuffer.toString();
-                    lineBuffer.setLength(0);
-                    return lastLine;
+            if (!readBuffer.hasRemaining()) {
+                if (!fillBuffer()) {
+                    return lineBuffer.hasPending() ? lineBuffer.drain() : null;
                 }
-                return null;
+                continue;
             }
-            readBuffer.flip();
-            while (readBuffer.hasRemaining()) {
-                byte b = readBuffer.get();
-                if (b == '\n') {
-                    String line = lineBuffer.toString();
-                    lineBuffer.setLength(0);
-                    return line;
-                } else if (b != '\r') {
-                    lineBuffer.append((char) b);
-                }
+
+            int start = readBuffer.position();
+            int limit = readBuffer.limit();
+            int newline = LineScanner.indexOfNewline(readBuffer, start, limit);
+            if (newline < 0) {
+                // 行跨越分片边界：暂存剩余部分，从管道读入下一批数据后继续查找
+                lineBuffer.append(readBuffer, start, limit);
+                readBuffer.position(limit);
+                continue;
             }
-            readBuffer.clear();
+            readBuffer.position(newline + 1);
+            return lineBuffer.line(readBuffer, start, newline);
         }
     }
 
+    /**
+     * 缓冲区消费完后再从管道读入下一批数据，缓冲区始终保持在“读模式”。
+     * 读到管道 EOF 时确认传输任务正常结束，传输失败会在这里抛出。
+     */
     private boolean fillBuffer() throws IOException {
-        int bytesRead = sourceChannel.read(readBuffer);
-        return bytesRead >= 0 && readBuffer.position() > 0;
+        readBuffer.clear();
+        long readStart = System.nanoTime();
+        int bytesRead = session.source().read(readBuffer);
+        if (meters != null) {
+            meters.recordRemap(System.nanoTime() - readStart);
+        }
+        readBuffer.flip();
+        if (bytesRead > 0) {
+            bytesFromPipe += bytesRead;
+        }
+        if (bytesRead < 0) {
+            session.awaitCompletion();
+            return false;
+        }
+        return true;
     }
 
+    /**
+     * chunk 提交时调用：记录下一行的起始偏移 = 起点 + 已从管道读出的字节 - 缓冲区未消费的字节 - 暂存的半行。
+     */
     @Override
     public void update(ExecutionContext executionContext) throws ItemStreamException {
-        // 无需持久化状态
+        long offset = currentOffset();
+        executionContext.putLong(getExecutionContextKey(OFFSET_KEY), offset);
+        reportProgress(offset);
+    }
+
+    private long currentOffset() {
+        return startOffset + bytesFromPipe - readBuffer.remaining() - lineBuffer.pendingLength();
+    }
+
+    private void reportProgress(long offset) {
+        if (meters != null) {
+            meters.recordProgress(offset - reportedOffset, unreportedLines);
+        }
+        reportedOffset = offset;
+        unreportedLines = 0L;
     }
 
     @Override
     public void close() throws ItemStreamException {
+        if (readBuffer != null) {
+            reportProgress(currentOffset());
+        }
         try {
-            if (sourceChannel != null) {
-                sourceChannel.close();
+            if (session != null) {
+                session.close();
+                session = null;
             }
             if (channel != null) {
                 channel.close();
             }
         } catch (IOException e) {
             throw new ItemStreamException("关闭 sendfile 读取器失败", e);
+        } finally {
+            if (readBuffer != null) {
+                bufferPool.returnBuffer(readBuffer.order(ByteOrder.BIG_ENDIAN));
+                readBuffer = null;
+            }
         }
     }
 }
@@ -0,0 +1,159 @@
+package com.example.batchdemo.job;
+
+import com.example.batchdemo.io.ByteLine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.repeat.CompletionPolicy;
+import org.springframework.batch.repeat.RepeatContext;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.batch.repeat.context.RepeatContextSupport;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.time.Duration;
+
+/**
+ * 自适应的 chunk 大小：按条数和字节数两个上限截断 chunk，并在每个 chunk 结束后根据实测调整条数上限。
+ * <ul>
+ *     <li>提交耗时（写出结束到事务提交完成）占整个 chunk 的比例高于 targetOverhead 时条数翻倍，
+ *     短行文件不再被 Job 仓库的元数据写入卡住吞吐；</li>
+ *     <li>提交耗时超过 maxCommitLatency 或堆使用率超过 heapPressure 时条数减半；</li>
+ *     <li>条数始终在 [minItems, maxItems] 内，单个 chunk 累计的行字节数达到 maxBytes 时提前结束，
+ *     避免长行文件的 chunk 占用过多内存。</li>
+ * </ul>
+ * 同时作为监听器注册到 step 上以获取每行大小与提交耗时，状态只属于一个 step 执行，需声明为 step 作用域。
+ */
+public class AdaptiveCompletionPolicy implements CompletionPolicy, ChunkListener, ItemReadListener<Object>, ItemWriteListener<Object> {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveCompletionPolicy.class);
+
+    private final int minItems;
+    private final int maxItems;
+    private final long maxBytes;
+    private final double targetOverhead;
+    private final long maxCommitLatencyNanos;
+    private final double heapPressure;
+    private final MemoryPoolMXBean tenuredPool = findTenuredPool();
+
+    private int targetItems;
+    private long chunkBytes;
+    private long chunkStart;
+    private long writeEnd;
+
+    public AdaptiveCompletionPolicy(int minItems, int maxItems, int initialItems, long maxBytes,
+                                    double targetOverhead, Duration maxCommitLatency, double heapPressure) {
+        if (minItems < 1 || maxItems < minItems) {
+            throw new IllegalArgumentException("chunk 条数上下限无效: [" + minItems + ", " + maxItems + "]");
+        }
+        this.minItems = minItems;
+        this.maxItems = maxItems;
+        this.targetItems = Math.max(minItems, Math.min(maxItems, initialItems));
+        this.maxBytes = maxBytes;
+        this.targetOverhead = targetOverhead;
+        this.maxCommitLatencyNanos = maxCommitLatency.toNanos();
+        this.heapPressure = heapPressure;
+    }
+
+    /**
+     * 当前的条数上限。
+     */
+    public int getTargetItems() {
+        return targetItems;
+    }
+
+    @Override
+    public RepeatContext start(RepeatContext parent) {
+        chunkBytes = 0L;
+        return new RepeatContextSupport(parent);
+    }
+
+    @Override
+    public void update(RepeatContext context) {
+        ((RepeatContextSupport) context).increment();
+    }
+
+    @Override
+    public boolean isComplete(RepeatContext context, RepeatStatus result) {
+        return result == null || !result.isContinuable() || isComplete(context);
+    }
+
+    @Override
+    public boolean isComplete(RepeatContext context) {
+        return context.getStartedCount() >= targetItems || chunkBytes >= maxBytes;
+    }
+
+    @Override
+    public void afterRead(Object item) {
+        if (item instanceof String line) {
+            chunkBytes += line.length();
+        } else if (item instanceof ByteLine line) {
+            chunkBytes += line.length();
+        }
+    }
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        chunkStart = System.nanoTime();
+        writeEnd = 0L;
+    }
+
+    @Override
+    public void afterWrite(Chunk<?> items) {
+        writeEnd = System.nanoTime();
+    }
+
+    /**
+     * chunk 事务提交后调用：按本次的提交耗时占比与堆使用率调整下一个 chunk 的条数上限。
+     */
+    @Override
+    public void afterChunk(ChunkContext context) {
+        if (writeEnd == 0L) {
+            return; // 没有写出（例如读到文件末尾的空 chunk），不作为调整依据
+        }
+        long now = System.nanoTime();
+        long commitNanos = now - writeEnd;
+        long chunkNanos = Math.max(1L, now - chunkStart);
+        int previous = targetItems;
+        if (commitNanos > maxCommitLatencyNanos || heapUsage() > heapPressure) {
+            targetItems = Math.max(minItems, targetItems / 2);
+        } else if ((double) commitNanos / chunkNanos > targetOverhead && chunkBytes < maxBytes) {
+            targetItems = (int) Math.min(maxItems, (long) targetItems * 2);
+        }
+        if (targetItems != previous && log.isDebugEnabled()) {
+            log.debug("{} chunk 条数上限 {} -> {}，提交耗时 {} µs / chunk 耗时 {} µs，本 chunk {} 字节",
+                    context.getStepContext().getStepName(), previous, targetItems,
+                    commitNanos / 1000, chunkNanos / 1000, chunkBytes);
+        }
+    }
+
+    /**
+     * 老年代在最近一次 GC 后的使用率；取 GC 后的值，避免把尚未回收的垃圾当成内存压力。
+     * 找不到老年代时退化为整个堆的当前使用率。
+     */
+    private double heapUsage() {
+        MemoryUsage usage = tenuredPool != null ? tenuredPool.getCollectionUsage() : null;
+        if (usage == null) {
+            usage = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        }
+        long max = usage.getMax() > 0 ? usage.getMax() : usage.getCommitted();
+        return max > 0 ? (double) usage.getUsed() / max : 0.0;
+    }
+
+    private static MemoryPoolMXBean findTenuredPool() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            String name = pool.getName();
+            if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported()
+                    && (name.contains("Old") || name.contains("Tenured"))) {
+                return pool;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.batchdemo.job;
+
+import com.example.batchdemo.io.ByteLine;
+import org.springframework.batch.item.ItemProcessor;
+
+/**
+ * {@link DataCleaningProcessor} 的字节版本，直接在 {@link ByteLine} 上原地清洗：
+ * 1. 去除首尾空白（与 String.trim 一致，去掉所有 <= 0x20 的字节），只移动边界
+ * 2. ASCII 小写字母原地转大写；多字节 UTF-8 字符原样保留
+ * <p>
+ * 配置了 batch.cleaning.rules 时改为执行同一个编译好的 {@link CleaningProgram} 的字节版本：在字节上一遍完成切列与逐字符规则，
+ * 只有带整列规则的列才解码成字符串，与字符串 step 的结果一致。
+ */
+public class ByteLineCleaningProcessor implements ItemProcessor<ByteLine, ByteLine> {
+
+    private final CleaningProgram program;
+
+    public ByteLineCleaningProcessor() {
+        this(null);
+    }
+
+    /**
+     * program 为 null 时使用默认的去首尾空白并转大写。
+     */
+    public ByteLineCleaningProcessor(CleaningProgram program) {
+        this.program = program;
+    }
+
+    @Override
+    public ByteLine process(ByteLine item) {
+        if (item == null) {
+            return null;
+        }
+        if (program != null) {
+            program.apply(item);
+            return item;
+        }
+        byte[] data = item.data();
+        int start = item.offset();
+        int end = start + item.length();
+        while (start < end && (data[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (data[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        for (int i = start; i < end; i++) {
+            byte b = data[i];
+            if (b >= 'a' && b <= 'z') {
+                data[i] = (byte) (b - ('a' - 'A'));
+            }
+        }
+        item.slice(start, end - start);
+        return item;
+    }
+}
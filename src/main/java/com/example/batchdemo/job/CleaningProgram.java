@@ -0,0 +1,476 @@
+package com.example.batchdemo.job;
+
+import com.example.batchdemo.io.ByteLine;
+
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 由声明式规则编译成的清洗程序：一行只扫描一遍，边按分隔符（引号内的不算）切列边按该列的规则逐字符变换写进同一个缓冲区。
+ * <ul>
+ *     <li>逐字符规则融合在同一次扫描中，按固定顺序生效：strip-control 去掉控制字符，trim 去掉首尾空白，
+ *     collapse-whitespace 把连续空白合成一个空格，upper / lower 转换大小写。ASCII 字符查表判断类别与大小写；</li>
+ *     <li>整列规则在该列扫完后按声明顺序执行：required 不能为空，map:名称 按映射表替换代码，mask:N 只保留末尾 N 个字符，
+ *     replace:正则=>替换 用预编译的正则替换，date:格式 校验日期。带引号的字段对去掉引号、还原 "" 后的值执行，
+ *     执行后补回引号；结果含分隔符、引号或换行的字段按 RFC 4180 加引号并转义。</li>
+ * </ul>
+ * 规则的 columns 为空时作用于所有列，否则只作用于列出的列（从 0 开始）；多条规则作用于同一列时按出现顺序合并。
+ * 校验失败抛出 IllegalArgumentException，开启隔离时该记录进入拒收文件。编译后的程序不可变，可被多个线程共用。
+ * <p>
+ * {@link #apply(ByteLine)} 是同一程序的字节版本：直接在 UTF-8 字节上切列并查 ASCII 表执行逐字符规则，
+ * 只有带整列规则的列、或转换大小写的列里出现非 ASCII 字符时才把这一列解码成字符串处理，结果与字符串版本一致。
+ */
+public final class CleaningProgram {
+
+    /** 一条规则：作用的列与依次执行的操作。 */
+    public record Rule(List<Integer> columns, List<String> operations) {
+    }
+
+    private static final byte CONTROL = 1;
+    private static final byte SPACE = 2;
+    private static final byte[] CLASSES = new byte[128];
+    private static final char[] UPPER = new char[128];
+    private static final char[] LOWER = new char[128];
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            CLASSES[c] = c == ' ' || c == '\t' || c == 0x0B || c == '\f' ? SPACE : c < 0x20 || c == 0x7F ? CONTROL : 0;
+            UPPER[c] = c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
+            LOWER[c] = c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+    }
+
+    private final char delimiter;
+    private final ColumnProgram allColumns;
+    private final ColumnProgram[] columns;
+    private final ThreadLocal<StringBuilder> scratch = ThreadLocal.withInitial(() -> new StringBuilder(256));
+    private final ThreadLocal<ByteBuilder> byteScratch = ThreadLocal.withInitial(() -> new ByteBuilder(256));
+
+    private CleaningProgram(char delimiter, ColumnProgram allColumns, ColumnProgram[] columns) {
+        this.delimiter = delimiter;
+        this.allColumns = allColumns;
+        this.columns = columns;
+    }
+
+    /**
+     * 编译规则，正则、日期格式与映射表在这里一次性准备好；规则写错时抛出 IllegalArgumentException。
+     */
+    public static CleaningProgram compile(char delimiter, List<Rule> rules, Map<String, Map<String, String>> mappings) {
+        ColumnBuilder all = new ColumnBuilder();
+        Map<Integer, ColumnBuilder> specific = new HashMap<>();
+        for (Rule rule : rules) {
+            List<ColumnBuilder> targets = new ArrayList<>();
+            if (rule.columns() == null || rule.columns().isEmpty()) {
+                targets.add(all);
+                targets.addAll(specific.values());
+            } else {
+                for (int column : rule.columns()) {
+                    if (column < 0) {
+                        throw new IllegalArgumentException("清洗规则的列号不能为负数: " + column);
+                    }
+                    targets.add(specific.computeIfAbsent(column, c -> all.copy())); // 先继承已出现的全列规则
+                }
+            }
+            for (String operation : rule.operations()) {
+                for (ColumnBuilder target : targets) {
+                    target.add(operation.trim(), mappings);
+                }
+            }
+        }
+        int width = specific.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1;
+        ColumnProgram[] columns = new ColumnProgram[width];
+        for (Map.Entry<Integer, ColumnBuilder> entry : specific.entrySet()) {
+            columns[entry.getKey()] = entry.getValue().build();
+        }
+        ColumnProgram allColumns = all.build();
+        for (int i = 0; i < width; i++) {
+            if (columns[i] == null) {
+                columns[i] = allColumns;
+            }
+        }
+        return new CleaningProgram(delimiter, allColumns, columns);
+    }
+
+    public String apply(String line) {
+        StringBuilder out = scratch.get();
+        out.setLength(0);
+        int column = 0;
+        ColumnProgram program = program(column);
+        int fieldStart = 0;
+        boolean quoted = false;
+        boolean leading = true;
+        boolean pendingSpace = false;
+        for (int i = 0, n = line.length(); i < n; i++) {
+            char c = line.charAt(i);
+            if (c == delimiter && !quoted) {
+                finishField(out, fieldStart, program, column, pendingSpace, delimiter);
+                out.append(c);
+                program = program(++column);
+                fieldStart = out.length();
+                leading = true;
+                pendingSpace = false;
+                continue;
+            }
+            if (c == '"') {
+                quoted = !quoted; // 转义的 "" 连续翻转两次，状态不变
+            }
+            byte type = c < 128 ? CLASSES[c] : 0;
+            if (type == CONTROL && program.stripControl) {
+                continue;
+            }
+            if (leading && program.trim && c <= ' ') {
+                continue;
+            }
+            if (type == SPACE && program.collapseWhitespace) {
+                pendingSpace = true;
+                continue;
+            }
+            if (pendingSpace) {
+                out.append(' ');
+                pendingSpace = false;
+            }
+            leading = false;
+            out.append(program.convertCase(c));
+        }
+        finishField(out, fieldStart, program, column, pendingSpace, delimiter);
+        return out.toString();
+    }
+
+    /**
+     * 在字节上清洗一行，结果写回 line。分隔符不是 ASCII 时无法按字节切列，退回字符串版本。
+     */
+    public void apply(ByteLine line) {
+        if (delimiter >= 128) {
+            byte[] cleaned = apply(line.toString()).getBytes(StandardCharsets.UTF_8);
+            line.set(cleaned, 0, cleaned.length);
+            return;
+        }
+        ByteBuilder out = byteScratch.get();
+        out.setLength(0);
+        byte[] data = line.data();
+        int column = 0;
+        ColumnProgram program = program(column);
+        int fieldStart = 0;
+        boolean quoted = false;
+        boolean leading = true;
+        boolean pendingSpace = false;
+        boolean nonAscii = false;
+        for (int i = line.offset(), n = i + line.length(); i < n; i++) {
+            byte b = data[i];
+            if (b == delimiter && !quoted) {
+                finishField(out, fieldStart, program, column, pendingSpace, nonAscii, (byte) delimiter);
+                out.append(b);
+                program = program(++column);
+                fieldStart = out.length();
+                leading = true;
+                pendingSpace = false;
+                nonAscii = false;
+                continue;
+            }
+            if (b == '"') {
+                quoted = !quoted;
+            }
+            // 多字节 UTF-8 字符的每个字节都 >= 0x80（有符号为负），既不是控制字符也不是空白
+            byte type = b >= 0 ? CLASSES[b] : 0;
+            if (type == CONTROL && program.stripControl) {
+                continue;
+            }
+            if (leading && program.trim && b >= 0 && b <= ' ') {
+                continue;
+            }
+            if (type == SPACE && program.collapseWhitespace) {
+                pendingSpace = true;
+                continue;
+            }
+            if (pendingSpace) {
+                out.append((byte) ' ');
+                pendingSpace = false;
+            }
+            leading = false;
+            if (b < 0) {
+                nonAscii = true;
+                out.append(b);
+            } else {
+                out.append(program.caseTable == null ? b : (byte) program.caseTable[b]);
+            }
+        }
+        finishField(out, fieldStart, program, column, pendingSpace, nonAscii, (byte) delimiter);
+        line.set(out.bytes, 0, out.length());
+    }
+
+    private ColumnProgram program(int column) {
+        return column < columns.length ? columns[column] : allColumns;
+    }
+
+    /**
+     * 收尾一个字段：处理末尾空白，再依次执行整列规则，结果替换掉 [fieldStart, 末尾)。
+     * 带引号的字段先去掉引号并把 "" 还原成 "，规则作用于真实值，写回时重新加引号转义。
+     */
+    private static void finishField(StringBuilder out, int fieldStart, ColumnProgram program, int column, boolean pendingSpace,
+                                    char delimiter) {
+        if (program.trim) {
+            int end = out.length();
+            while (end > fieldStart && out.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            out.setLength(end);
+        } else if (pendingSpace) {
+            out.append(' ');
+        }
+        if (program.operations.length == 0) {
+            return;
+        }
+        int length = out.length() - fieldStart;
+        boolean quotedField = length >= 2 && out.charAt(fieldStart) == '"' && out.charAt(out.length() - 1) == '"';
+        String value = quotedField
+                ? out.substring(fieldStart + 1, out.length() - 1).replace("\"\"", "\"")
+                : out.substring(fieldStart);
+        out.setLength(fieldStart);
+        out.append(runOperations(value, program, column, quotedField, delimiter));
+    }
+
+    /**
+     * finishField 的字节版本。nonAscii 表示该列含多字节字符：转换大小写的列要把它们按字符再转换一次，
+     * ASCII 部分已经查表转换过，再转换一次不变。
+     */
+    private static void finishField(ByteBuilder out, int fieldStart, ColumnProgram program, int column, boolean pendingSpace,
+                                    boolean nonAscii, byte delimiter) {
+        if (program.trim) {
+            int end = out.length();
+            while (end > fieldStart && out.bytes[end - 1] >= 0 && out.bytes[end - 1] <= ' ') {
+                end--;
+            }
+            out.setLength(end);
+        } else if (pendingSpace) {
+            out.append((byte) ' ');
+        }
+        if (nonAscii && program.caseTable != null) {
+            String field = out.toString(fieldStart, out.length());
+            StringBuilder converted = new StringBuilder(field.length());
+            for (int i = 0, n = field.length(); i < n; i++) {
+                converted.append(program.convertCase(field.charAt(i)));
+            }
+            out.setLength(fieldStart);
+            out.append(converted.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        if (program.operations.length == 0) {
+            return;
+        }
+        int length = out.length() - fieldStart;
+        boolean quotedField = length >= 2 && out.bytes[fieldStart] == '"' && out.bytes[out.length() - 1] == '"';
+        String value = quotedField
+                ? out.toString(fieldStart + 1, out.length() - 1).replace("\"\"", "\"")
+                : out.toString(fieldStart, out.length());
+        out.setLength(fieldStart);
+        out.append(runOperations(value, program, column, quotedField, (char) delimiter).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 依次执行整列规则，返回写回的字段：原先带引号或结果需要引号时加引号并把 " 转义成 ""。
+     */
+    private static String runOperations(String value, ColumnProgram program, int column, boolean quotedField, char delimiter) {
+        try {
+            for (FieldOperation operation : program.operations) {
+                value = operation.apply(value);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("第 " + column + " 列" + e.getMessage(), e);
+        }
+        if (!quotedField && !needsQuoting(value, delimiter)) {
+            return value;
+        }
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                quoted.append('"');
+            }
+            quoted.append(c);
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * 整列规则的结果（映射值、正则替换结果）含分隔符、引号或换行时，必须加引号才不会破坏列结构。
+     */
+    private static boolean needsQuoting(String value, char delimiter) {
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            if (c == delimiter || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 可复用的字节缓冲，按需扩容，每个线程一个。
+     */
+    private static final class ByteBuilder {
+        byte[] bytes;
+        private int length;
+
+        ByteBuilder(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        int length() {
+            return length;
+        }
+
+        void setLength(int length) {
+            this.length = length;
+        }
+
+        void append(byte b) {
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            bytes[length++] = b;
+        }
+
+        void append(byte[] source) {
+            if (length + source.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + source.length));
+            }
+            System.arraycopy(source, 0, bytes, length, source.length);
+            length += source.length;
+        }
+
+        String toString(int from, int to) {
+            return new String(bytes, from, to - from, StandardCharsets.UTF_8);
+        }
+    }
+
+    @FunctionalInterface
+    private interface FieldOperation {
+        String apply(String value);
+    }
+
+    private static final class ColumnProgram {
+        final boolean stripControl;
+        final boolean trim;
+        final boolean collapseWhitespace;
+        final char[] caseTable;
+        final boolean upper;
+        final FieldOperation[] operations;
+
+        ColumnProgram(boolean stripControl, boolean trim, boolean collapseWhitespace, char[] caseTable, boolean upper,
+                      FieldOperation[] operations) {
+            this.stripControl = stripControl;
+            this.trim = trim;
+            this.collapseWhitespace = collapseWhitespace;
+            this.caseTable = caseTable;
+            this.upper = upper;
+            this.operations = operations;
+        }
+
+        char convertCase(char c) {
+            if (caseTable == null) {
+                return c;
+            }
+            if (c < 128) {
+                return caseTable[c];
+            }
+            return upper ? Character.toUpperCase(c) : Character.toLowerCase(c);
+        }
+    }
+
+    private static final class ColumnBuilder {
+        boolean stripControl;
+        boolean trim;
+        boolean collapseWhitespace;
+        char[] caseTable;
+        final List<FieldOperation> operations = new ArrayList<>();
+
+        ColumnBuilder copy() {
+            ColumnBuilder copy = new ColumnBuilder();
+            copy.stripControl = stripControl;
+            copy.trim = trim;
+            copy.collapseWhitespace = collapseWhitespace;
+            copy.caseTable = caseTable;
+            copy.operations.addAll(operations);
+            return copy;
+        }
+
+        void add(String operation, Map<String, Map<String, String>> mappings) {
+            int colon = operation.indexOf(':');
+            String name = colon < 0 ? operation : operation.substring(0, colon);
+            String argument = colon < 0 ? "" : operation.substring(colon + 1);
+            switch (name) {
+                case "strip-control" -> stripControl = true;
+                case "trim" -> trim = true;
+                case "collapse-whitespace" -> collapseWhitespace = true;
+                case "upper" -> caseTable = UPPER;
+                case "lower" -> caseTable = LOWER;
+                case "required" -> operations.add(value -> {
+                    if (value.isEmpty()) {
+                        throw new IllegalArgumentException("不能为空");
+                    }
+                    return value;
+                });
+                case "map" -> {
+                    Map<String, String> mapping = mappings.get(argument);
+                    if (mapping == null) {
+                        throw new IllegalArgumentException("清洗规则引用了不存在的映射表: " + argument);
+                    }
+                    Map<String, String> table = new HashMap<>(mapping);
+                    operations.add(value -> table.getOrDefault(value, value));
+                }
+                case "mask" -> {
+                    int keep = Integer.parseInt(argument);
+                    operations.add(value -> mask(value, keep));
+                }
+                case "replace" -> {
+                    int arrow = argument.indexOf("=>");
+                    if (arrow < 0) {
+                        throw new IllegalArgumentException("replace 规则的格式为 replace:正则=>替换: " + operation);
+                    }
+                    Pattern pattern = Pattern.compile(argument.substring(0, arrow));
+                    String replacement = argument.substring(arrow + 2);
+                    operations.add(value -> pattern.matcher(value).replaceAll(replacement));
+                }
+                case "date" -> {
+                    // STRICT 模式下 yyyy 需要纪元，配置里习惯写 yyyy，这里换成不带纪元的 uuuu
+                    DateTimeFormatter formatter = DateTimeFormatter.ofPattern(argument.replace('y', 'u'))
+                            .withResolverStyle(ResolverStyle.STRICT);
+                    operations.add(value -> {
+                        if (!value.isEmpty()) {
+                            try {
+                                formatter.parse(value);
+                            } catch (DateTimeParseException e) {
+                                throw new IllegalArgumentException("的值 " + value + " 不是 " + argument + " 格式的日期");
+                            }
+                        }
+                        return value;
+                    });
+                }
+                default -> throw new IllegalArgumentException("未知的清洗规则: " + operation);
+            }
+        }
+
+        ColumnProgram build() {
+            return new ColumnProgram(stripControl, trim, collapseWhitespace, caseTable, caseTable == UPPER,
+                    operations.toArray(new FieldOperation[0]));
+        }
+
+        private static String mask(String value, int keep) {
+            if (value.length() <= keep) {
+                return value;
+            }
+            char[] chars = value.toCharArray();
+            for (int i = 0; i < chars.length - keep; i++) {
+                chars[i] = '*';
+            }
+            return new String(chars);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.batchdemo.job;
+
+import com.example.batchdemo.io.CsvTokenizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamSupport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 去重处理器：按键的 128 位指纹判断记录是否出现过，重复记录返回 null 被过滤（计入 step 的 filterCount）。
+ * 键默认为整行，也可以指定若干列（从 0 开始，按 RFC 4180 切分，只切到最后一个键列）。
+ * 指纹保存在堆外的 {@link FingerprintSet} 中，超出内存预算时溢写到磁盘，堆占用与输入行数无关。
+ * <p>
+ * 新加入的指纹另外追加到溢写目录下的日志文件，每次 chunk 提交时写出并把日志路径与长度记进执行上下文；
+ * 失败重启时按记录的长度截断日志、把其中的指纹重新装进集合，已提交部分与剩余部分之间的重复照样去除。
+ * <p>
+ * 去重状态只属于一次 step 执行，需声明为 step 作用域并注册为 stream 与 step 监听器；
+ * close 时释放直接内存并删除溢写文件，step 成功结束时才删除日志。
+ */
+public class DeduplicatingProcessor extends ItemStreamSupport implements ItemProcessor<String, String>, StepExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(DeduplicatingProcessor.class);
+
+    /** 多个键列之间的分隔字节（ASCII 单元分隔符），避免 "a,bc" 与 "ab,c" 拼成相同的键。 */
+    private static final byte KEY_SEPARATOR = 0x1F;
+
+    private static final String JOURNAL_KEY = "journal";
+    private static final String JOURNAL_LENGTH_KEY = "journalLength";
+    private static final int ENTRY_BYTES = 16;
+
+    private final int[] keyColumns;
+    private final int keyFieldLimit;
+    private final CsvTokenizer tokenizer;
+    private final long memoryBudget;
+    private final Path spillDirectory;
+    private final int mergeFanout;
+
+    private FingerprintSet fingerprints;
+    private long duplicates = 0L;
+    private Path journalPath;
+    private FileChannel journal;
+    private final ByteBuffer pending = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+    private boolean completed;
+    private final long[] fingerprint = new long[2];
+    private byte[] lineBytes = new byte[256];
+    private ByteBuffer lineView = ByteBuffer.wrap(lineBytes).order(ByteOrder.LITTLE_ENDIAN);
+    private byte[] keyBytes = new byte[256];
+
+    /**
+     * keyColumns 为空时以整行为键。
+     */
+    public DeduplicatingProcessor(List<Integer> keyColumns, char delimiter, long memoryBudget,
+                                  Path spillDirectory, int mergeFanout) {
+        this.keyColumns = keyColumns.stream().mapToInt(Integer::intValue).toArray();
+        this.keyFieldLimit = Arrays.stream(this.keyColumns).max().orElse(-1) + 1;
+        this.tokenizer = new CsvTokenizer((byte) delimiter, (byte) '"');
+        this.memoryBudget = memoryBudget;
+        this.spillDirectory = spillDirectory;
+        this.mergeFanout = mergeFanout;
+        setName(DeduplicatingProcessor.class.getSimpleName());
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        fingerprints = new FingerprintSet(memoryBudget, spillDirectory, mergeFanout);
+        duplicates = 0L;
+        completed = false;
+        pending.clear();
+        String journalKey = getExecutionContextKey(JOURNAL_KEY);
+        try {
+            if (executionContext.containsKey(journalKey)) {
+                journalPath = Path.of(executionContext.getString(journalKey));
+                replay(executionContext.getLong(getExecutionContextKey(JOURNAL_LENGTH_KEY), 0L));
+            } else {
+                Files.createDirectories(spillDirectory);
+                journalPath = Files.createTempFile(spillDirectory, "dedup-", ".journal");
+                journal = FileChannel.open(journalPath, StandardOpenOption.WRITE);
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("打开去重日志失败: " + journalPath, e);
+        }
+    }
+
+    /**
+     * 重启：日志截断到上次提交时的长度，逐条装回指纹集合，之后从末尾继续追加。
+     */
+    private void replay(long committedLength) throws IOException {
+        if (!Files.exists(journalPath) || Files.size(journalPath) < committedLength) {
+            throw new ItemStreamException("去重日志缺失或短于已提交的长度 " + committedLength
+                    + "，无法恢复已输出记录的指纹，需要重新运行: " + journalPath);
+        }
+        journal = FileChannel.open(journalPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        journal.truncate(committedLength);
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        long position = 0L;
+        while (position < committedLength) {
+            buffer.clear();
+            int read = journal.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            position += read;
+            buffer.flip();
+            while (buffer.remaining() >= ENTRY_BYTES) {
+                fingerprints.add(buffer.getLong(), buffer.getLong());
+            }
+            position -= buffer.remaining(); // 半条记录下次从头读
+        }
+        journal.position(committedLength);
+        log.info("从去重日志恢复 {} 个已输出记录的指纹: {}", fingerprints.size(), journalPath);
+    }
+
+    @Override
+    public String process(String item) throws IOException {
+        if (item == null) {
+            return null;
+        }
+        int length = encode(item);
+        if (keyColumns.length == 0) {
+            Fingerprint128.hash(lineBytes, length, fingerprint);
+        } else {
+            Fingerprint128.hash(keyBytes, extractKey(length), fingerprint);
+        }
+        if (fingerprints.add(fingerprint[0], fingerprint[1])) {
+            if (pending.remaining() < ENTRY_BYTES) {
+                flushPending();
+            }
+            pending.putLong(fingerprint[0]).putLong(fingerprint[1]);
+            return item;
+        }
+        duplicates++;
+        return null;
+    }
+
+    /**
+     * chunk 提交前写出本 chunk 新增的指纹，与输出的提交位置一起记进执行上下文。
+     */
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (journal == null) {
+            return;
+        }
+        try {
+            flushPending();
+            executionContext.putString(getExecutionContextKey(JOURNAL_KEY), journalPath.toString());
+            executionContext.putLong(getExecutionContextKey(JOURNAL_LENGTH_KEY), journal.position());
+        } catch (IOException e) {
+            throw new ItemStreamException("写去重日志失败: " + journalPath, e);
+        }
+    }
+
+    /**
+     * step 以 COMPLETED 结束时记下，随后的 close 才删除日志；失败时保留日志供重启恢复。
+     */
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        this.completed = stepExecution.getStatus() == BatchStatus.COMPLETED;
+        return null;
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (fingerprints == null) {
+            return;
+        }
+        log.info("去重完成：{} 个不同的键，过滤 {} 条重复记录，溢写 {} 次", fingerprints.size(), duplicates, fingerprints.spills());
+        try {
+            fingerprints.close();
+            if (journal != null) {
+                journal.close();
+            }
+            if (completed) {
+                Files.deleteIfExists(journalPath);
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("删除去重溢写文件失败", e);
+        } finally {
+            fingerprints = null;
+            journal = null;
+        }
+    }
+
+    private void flushPending() throws IOException {
+        pending.flip();
+        while (pending.hasRemaining()) {
+            journal.write(pending);
+        }
+        pending.clear();
+    }
+
+    /**
+     * 把行编码成 UTF-8 放进复用的 lineBytes，纯 ASCII 行逐字符拷贝，不分配数组。
+     */
+    private int encode(String line) {
+        int length = line.length();
+        ensureLineCapacity(length);
+        for (int i = 0; i < length; i++) {
+            char c = line.charAt(i);
+            if (c >= 0x80) {
+                byte[] utf8 = line.getBytes(StandardCharsets.UTF_8);
+                ensureLineCapacity(utf8.length);
+                System.arraycopy(utf8, 0, lineBytes, 0, utf8.length);
+                return utf8.length;
+            }
+            lineBytes[i] = (byte) c;
+        }
+        return length;
+    }
+
+    /**
+     * 把各键列的原始字节以分隔字节连接到 keyBytes，返回键长度；记录中缺少的列按空值处理。
+     */
+    private int extractKey(int length) {
+        int fields = tokenizer.tokenize(lineView, 0, length, keyFieldLimit);
+        int keyLength = 0;
+        for (int i = 0; i < keyColumns.length; i++) {
+            int column = keyColumns[i];
+            int start = column < fields ? tokenizer.start(column) : 0;
+            int end = column < fields ? tokenizer.end(column) : 0;
+            int required = keyLength + (end - start) + 1;
+            if (required > keyBytes.length) {
+                keyBytes = Arrays.copyOf(keyBytes, Math.max(required, keyBytes.length * 2));
+            }
+            if (i > 0) {
+                keyBytes[keyLength++] = KEY_SEPARATOR;
+            }
+            System.arraycopy(lineBytes, start, keyBytes, keyLength, end - start);
+            keyLength += end - start;
+        }
+        return keyLength;
+    }
+
+    private void ensureLineCapacity(int required) {
+        if (required > lineBytes.length) {
+            lineBytes = Arrays.copyOf(lineBytes, Math.max(required, lineBytes.length * 2));
+            lineView = ByteBuffer.wrap(lineBytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+}
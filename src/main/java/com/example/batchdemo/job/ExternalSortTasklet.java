@@ -0,0 +1,236 @@
+package com.example.batchdemo.job;
+
+import com.example.batchdemo.io.LineBoundaries;
+import com.example.batchdemo.service.PreallocatedBufferPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 外部归并排序：把清洗后的输出按键排序，内存占用与文件大小无关。
+ * <ol>
+ *     <li>生成有序段：输入按行对齐切成与排序区等大的区间，多个线程各自把区间读进独占的直接内存排序区，
+ *     排序后写成临时段文件，每个线程的排序区与堆上行索引合计不超过内存预算的 1/threads，索引装不下时提前写段；</li>
+ *     <li>归并：段数超过 mergeFanIn 时先并行地分组归并成更大的段，最后一轮用优先队列做 k 路归并，
+ *     每一路以 mmap 窗口顺序读取段文件，行字节直接从映射拷入池化的写缓冲区。</li>
+ * </ol>
+ * 键为整行或某一列的原始字节，按无符号字节序比较，键相同的行保持输入顺序。排序成功后删除输入文件。
+ */
+public class ExternalSortTasklet implements Tasklet {
+
+    private static final Logger log = LoggerFactory.getLogger(ExternalSortTasklet.class);
+
+    private final Path inputPath;
+    private final Path outputPath;
+    private final int keyColumn;
+    private final char delimiter;
+    private final long memoryBudget;
+    private final int threads;
+    private final int mergeFanIn;
+    private final int mergeWindowSize;
+    private final Path tempDirectory;
+    private final PreallocatedBufferPool bufferPool;
+
+    public ExternalSortTasklet(Path inputPath, Path outputPath, int keyColumn, char delimiter, long memoryBudget,
+                               int threads, int mergeFanIn, int mergeWindowSize, Path tempDirectory,
+                               PreallocatedBufferPool bufferPool) {
+        this.inputPath = inputPath;
+        this.outputPath = outputPath;
+        this.keyColumn = keyColumn;
+        this.delimiter = delimiter;
+        this.memoryBudget = memoryBudget;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.mergeFanIn = Math.max(2, mergeFanIn);
+        this.mergeWindowSize = mergeWindowSize;
+        this.tempDirectory = tempDirectory;
+        this.bufferPool = bufferPool;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        long started = System.nanoTime();
+        Files.createDirectories(tempDirectory);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, newThreadFactory());
+        List<Path> runs = new ArrayList<>();
+        try {
+            runs.addAll(generateRuns(executor));
+            int initialRuns = runs.size();
+            while (runs.size() > mergeFanIn) {
+                List<Path> merged = mergePass(executor, runs);
+                runs.clear();
+                runs.addAll(merged);
+            }
+            long lines = merge(runs, outputPath);
+            contribution.incrementWriteCount(lines);
+            log.info("外部排序完成: {} 行，{} 个初始有序段，耗时 {} ms，输出: {}", lines, initialRuns,
+                    (System.nanoTime() - started) / 1_000_000, outputPath);
+        } finally {
+            executor.shutdownNow();
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+        Files.deleteIfExists(inputPath);
+        return RepeatStatus.FINISHED;
+    }
+
+    /**
+     * 并行生成有序段，返回的段按输入顺序排列。
+     * 每个线程的份额中 2/3 给排序区、1/3 给行索引，平均行长不小于 64 字节时一个区间正好排成一段。
+     */
+    private List<Path> generateRuns(ExecutorService executor) throws Exception {
+        long share = Math.max(3L << 20, memoryBudget / threads);
+        int arenaSize = (int) Math.min(1L << 30, share / 3 * 2);
+        long indexBudget = share - arenaSize;
+        try (FileChannel input = FileChannel.open(inputPath, StandardOpenOption.READ)) {
+            long size = input.size();
+            if (size == 0L) {
+                return List.of();
+            }
+            int parts = (int) Math.min(Integer.MAX_VALUE, (size + arenaSize - 1) / arenaSize);
+            long[] bounds = LineBoundaries.split(input, parts);
+            int segments = bounds.length - 1;
+            List<List<Path>> runs = new ArrayList<>(segments);
+            for (int i = 0; i < segments; i++) {
+                runs.add(List.of());
+            }
+            AtomicInteger next = new AtomicInteger();
+            List<Callable<Void>> workers = new ArrayList<>();
+            for (int i = 0; i < Math.min(threads, segments); i++) {
+                workers.add(() -> {
+                    try (RunSorter sorter = new RunSorter(arenaSize, indexBudget, new SortKey(keyColumn, delimiter),
+                            tempDirectory, bufferPool)) {
+                        for (int segment = next.getAndIncrement(); segment < segments; segment = next.getAndIncrement()) {
+                            runs.set(segment, sorter.sort(input, bounds[segment], bounds[segment + 1]));
+                        }
+                    }
+                    return null;
+                });
+            }
+            try {
+                awaitAll(executor.invokeAll(workers));
+            } catch (Exception e) {
+                for (List<Path> segmentRuns : runs) {
+                    for (Path run : segmentRuns) {
+                        Files.deleteIfExists(run);
+                    }
+                }
+                throw e;
+            }
+            return runs.stream().flatMap(List::stream).toList();
+        }
+    }
+
+    /**
+     * 每 mergeFanIn 段一组并行归并成一个新段，全部成功后删除被归并的段；失败时输入段留给调用方清理。
+     */
+    private List<Path> mergePass(ExecutorService executor, List<Path> runs) throws Exception {
+        List<Callable<Path>> groups = new ArrayList<>();
+        for (int from = 0; from < runs.size(); from += mergeFanIn) {
+            List<Path> group = List.copyOf(runs.subList(from, Math.min(runs.size(), from + mergeFanIn)));
+            groups.add(() -> {
+                Path merged = Files.createTempFile(tempDirectory, "sort-", ".run");
+                try {
+                    merge(group, merged);
+                } catch (IOException | RuntimeException e) {
+                    Files.deleteIfExists(merged);
+                    throw e;
+                }
+                return merged;
+            });
+        }
+        List<Future<Path>> futures = executor.invokeAll(groups);
+        try {
+            List<Path> merged = awaitAll(futures);
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+            return merged;
+        } catch (Exception e) {
+            for (Future<Path> future : futures) { // 本轮已归并成功的段同样要清理
+                if (future.isDone() && !future.isCancelled()) {
+                    try {
+                        Files.deleteIfExists(future.get());
+                    } catch (ExecutionException ignored) {
+                        // 失败的组已经删除了自己的输出
+                    }
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 把若干有序段 k 路归并到 target，返回行数。
+     */
+    private long merge(List<Path> runs, Path target) throws IOException {
+        List<SortedRunCursor> cursors = new ArrayList<>(runs.size());
+        try (FileChannel output = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             PooledLineSink sink = new PooledLineSink(output, bufferPool)) {
+            PriorityQueue<SortedRunCursor> queue = new PriorityQueue<>(Math.max(1, runs.size()));
+            for (int i = 0; i < runs.size(); i++) {
+                SortedRunCursor cursor = new SortedRunCursor(runs.get(i), i, new SortKey(keyColumn, delimiter), mergeWindowSize);
+                cursors.add(cursor);
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+            SortedRunCursor smallest;
+            while ((smallest = queue.poll()) != null) {
+                smallest.writeTo(sink);
+                if (smallest.advance()) {
+                    queue.add(smallest);
+                }
+            }
+            return sink.lines();
+        } finally {
+            for (SortedRunCursor cursor : cursors) {
+                cursor.close();
+            }
+        }
+    }
+
+    private static <T> List<T> awaitAll(List<Future<T>> futures) throws Exception {
+        List<T> results = new ArrayList<>(futures.size());
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    private static ThreadFactory newThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "external-sort-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.batchdemo.job;
+
+import com.example.batchdemo.io.DirectBufferCleaner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * 溢写到磁盘的一段有序指纹：每条 16 字节（高 64 位、低 64 位，小端），按无符号值升序排列。
+ * 文件以只读 mmap 映射，堆内只保留每 {@value #FENCE_INTERVAL} 条一个的栅栏，
+ * 查找时先在栅栏上二分定位到一个 16KB 的块，再在块内二分，每次查找只触及一两个页面。
+ */
+final class FingerprintRun implements AutoCloseable {
+
+    static final int ENTRY_BYTES = 16;
+    private static final int FENCE_INTERVAL = 1024;
+    private static final int SEGMENT_SHIFT = 26; // 每段映射 2^26 条，即 1GB
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+    private final Path path;
+    private final int level;
+    private final long count;
+    private final MappedByteBuffer[] segments;
+    private final long[] fenceHi;
+    private final long[] fenceLo;
+
+    private FingerprintRun(Path path, int level) throws IOException {
+        this.path = path;
+        this.level = level;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            this.count = channel.size() / ENTRY_BYTES;
+            int segmentCount = (int) ((count + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+            this.segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long first = (long) i << SEGMENT_SHIFT;
+                long entries = Math.min(count - first, 1L << SEGMENT_SHIFT);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, first * ENTRY_BYTES, entries * ENTRY_BYTES);
+                segments[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+        int fences = (int) ((count + FENCE_INTERVAL - 1) / FENCE_INTERVAL);
+        this.fenceHi = new long[fences];
+        this.fenceLo = new long[fences];
+        for (int i = 0; i < fences; i++) {
+            fenceHi[i] = hi((long) i * FENCE_INTERVAL);
+            fenceLo[i] = lo((long) i * FENCE_INTERVAL);
+        }
+    }
+
+    /**
+     * 映射一个已写好的有序指纹文件。
+     */
+    static FingerprintRun open(Path path, int level) throws IOException {
+        return new FingerprintRun(path, level);
+    }
+
+    /**
+     * 把若干段有序指纹归并成一段写入 target。各段之间互不重复（插入前已查过全部段），归并时无需去重。
+     */
+    static FingerprintRun merge(List<FingerprintRun> inputs, Path target, int level) throws IOException {
+        long[] cursors = new long[inputs.size()];
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (true) {
+                int smallest = -1;
+                for (int i = 0; i < cursors.length; i++) { // 归并路数很少，线性挑选最小值即可
+                    FingerprintRun run = inputs.get(i);
+                    if (cursors[i] < run.count && (smallest < 0 || compare(run.hi(cursors[i]), run.lo(cursors[i]),
+                            inputs.get(smallest).hi(cursors[smallest]), inputs.get(smallest).lo(cursors[smallest])) < 0)) {
+                        smallest = i;
+                    }
+                }
+                if (smallest < 0) {
+                    break;
+                }
+                FingerprintRun run = inputs.get(smallest);
+                if (buffer.remaining() < ENTRY_BYTES) {
+                    drain(buffer, out);
+                }
+                buffer.putLong(run.hi(cursors[smallest])).putLong(run.lo(cursors[smallest]));
+                cursors[smallest]++;
+            }
+            drain(buffer, out);
+        }
+        return open(target, level);
+    }
+
+    int level() {
+        return level;
+    }
+
+    long count() {
+        return count;
+    }
+
+    boolean contains(long hi, long lo) {
+        // 最后一个不大于目标的栅栏
+        int low = 0;
+        int high = fenceHi.length - 1;
+        int fence = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (compare(fenceHi[mid], fenceLo[mid], hi, lo) <= 0) {
+                fence = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (fence < 0) {
+            return false;
+        }
+        long from = (long) fence * FENCE_INTERVAL;
+        long to = Math.min(count, from + FENCE_INTERVAL) - 1;
+        while (from <= to) {
+            long mid = (from + to) >>> 1;
+            int cmp = compare(hi(mid), lo(mid), hi, lo);
+            if (cmp == 0) {
+                return true;
+            }
+            if (cmp < 0) {
+                from = mid + 1;
+            } else {
+                to = mid - 1;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 解除映射并删除文件。
+     */
+    @Override
+    public void close() throws IOException {
+        for (MappedByteBuffer segment : segments) {
+            DirectBufferCleaner.free(segment);
+        }
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * 按无符号值比较两个 128 位指纹，与溢写时的排序一致。
+     */
+    static int compare(long hi1, long lo1, long hi2, long lo2) {
+        int cmp = Long.compareUnsigned(hi1, hi2);
+        return cmp != 0 ? cmp : Long.compareUnsigned(lo1, lo2);
+    }
+
+    private long hi(long index) {
+        return segments[(int) (index >>> SEGMENT_SHIFT)].getLong((int) (index & SEGMENT_MASK) * ENTRY_BYTES);
+    }
+
+    private long lo(long index) {
+        return segments[(int) (index >>> SEGMENT_SHIFT)].getLong((int) (index & SEGMENT_MASK) * ENTRY_BYTES + 8);
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel out) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.batchdemo.job;
+
+import com.example.batchdemo.io.DirectBufferCleaner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 堆外的 128 位指纹集合：直接内存里的开放寻址表（线性探测），每个槽 16 字节存高低两个 long，全 0 表示空槽，
+ * 没有对象、没有装箱，负载因子 0.75 时每个不同的键约占 21 字节。
+ * <p>
+ * 表从小容量开始按需翻倍，达到内存预算后再满就整表排序溢写成一段有序文件（{@link FingerprintRun}），清空后继续；
+ * 之后的新键需要同时查内存表和各段文件。段文件按层级归并：同一层攒满 mergeFanout 段就归并成上一层的一段，
+ * 段数保持在 O(fanout × 层数)，每个键只被重写 O(log n) 次。
+ */
+final class FingerprintSet implements AutoCloseable {
+
+    private static final int SLOT_BYTES = 16;
+    private static final int INITIAL_SLOTS = 1 << 16;
+    private static final int MAX_SLOTS = 1 << 26; // 单个直接缓冲区不超过 1GB
+    private static final double MAX_LOAD = 0.75;
+
+    private final int maxSlots;
+    private final Path spillDirectory;
+    private final int mergeFanout;
+    private final List<FingerprintRun> runs = new ArrayList<>();
+
+    private ByteBuffer table;
+    private int slots;
+    private int size = 0;
+    private long spilledKeys = 0L;
+    private int spills = 0;
+
+    FingerprintSet(long memoryBudget, Path spillDirectory, int mergeFanout) {
+        long budgetSlots = Math.max(INITIAL_SLOTS, Math.min(MAX_SLOTS, memoryBudget / SLOT_BYTES));
+        this.maxSlots = Integer.highestOneBit((int) budgetSlots);
+        this.spillDirectory = spillDirectory;
+        this.mergeFanout = Math.max(2, mergeFanout);
+        allocate(Math.min(INITIAL_SLOTS, maxSlots));
+    }
+
+    /**
+     * 指纹不存在时加入集合并返回 true，已存在返回 false。
+     */
+    boolean add(long hi, long lo) throws IOException {
+        if ((hi | lo) == 0L) {
+            lo = 1L; // 全 0 留给空槽
+        }
+        int mask = slots - 1;
+        int slot = (int) (hi ^ (hi >>> 32)) & mask;
+        while (true) {
+            int offset = slot * SLOT_BYTES;
+            long slotHi = table.getLong(offset);
+            long slotLo = table.getLong(offset + 8);
+            if ((slotHi | slotLo) == 0L) {
+                break;
+            }
+            if (slotHi == hi && slotLo == lo) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        for (FingerprintRun run : runs) {
+            if (run.contains(hi, lo)) {
+                return false;
+            }
+        }
+        int offset = slot * SLOT_BYTES;
+        table.putLong(offset, hi);
+        table.putLong(offset + 8, lo);
+        if (++size > slots * MAX_LOAD) {
+            if (slots < maxSlots) {
+                resize(slots * 2);
+            } else {
+                spill();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 已加入的不同指纹总数（内存表加各段文件）。
+     */
+    long size() {
+        return size + spilledKeys;
+    }
+
+    int spills() {
+        return spills;
+    }
+
+    @Override
+    public void close() throws IOException {
+        DirectBufferCleaner.free(table);
+        table = null;
+        IOException failure = null;
+        for (FingerprintRun run : runs) {
+            try {
+                run.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        runs.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void allocate(int slotCount) {
+        this.table = ByteBuffer.allocateDirect(slotCount * SLOT_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        this.slots = slotCount;
+    }
+
+    private void resize(int slotCount) {
+        ByteBuffer old = table;
+        int oldSlots = slots;
+        allocate(slotCount);
+        int mask = slotCount - 1;
+        for (int i = 0; i < oldSlots; i++) {
+            long hi = old.getLong(i * SLOT_BYTES);
+            long lo = old.getLong(i * SLOT_BYTES + 8);
+            if ((hi | lo) == 0L) {
+                continue;
+            }
+            int slot = (int) (hi ^ (hi >>> 32)) & mask;
+            while (table.getLong(slot * SLOT_BYTES) != 0L || table.getLong(slot * SLOT_BYTES + 8) != 0L) {
+                slot = (slot + 1) & mask;
+            }
+            table.putLong(slot * SLOT_BYTES, hi);
+            table.putLong(slot * SLOT_BYTES + 8, lo);
+        }
+        DirectBufferCleaner.free(old);
+    }
+
+    /**
+     * 把表中的指纹压缩到表头、原地堆排序后写成一段文件，然后清空表。全程不在堆上复制指纹。
+     */
+    private void spill() throws IOException {
+        int count = 0;
+        for (int i = 0; i < slots; i++) {
+            long hi = table.getLong(i * SLOT_BYTES);
+            long lo = table.getLong(i * SLOT_BYTES + 8);
+            if ((hi | lo) != 0L) {
+                if (i != count) {
+                    table.putLong(count * SLOT_BYTES, hi);
+                    table.putLong(count * SLOT_BYTES + 8, lo);
+                }
+                count++;
+            }
+        }
+        heapSort(count);
+        Files.createDirectories(spillDirectory);
+        Path file = Files.createTempFile(spillDirectory, "dedup-", ".run");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer view = table.duplicate();
+            view.position(0).limit(count * SLOT_BYTES);
+            while (view.hasRemaining()) {
+                channel.write(view);
+            }
+        }
+        for (int i = 0; i < slots * 2; i++) {
+            table.putLong(i * Long.BYTES, 0L);
+        }
+        spilledKeys += count;
+        size = 0;
+        spills++;
+        runs.add(FingerprintRun.open(file, 0));
+        compact();
+    }
+
+    /**
+     * 同一层的段攒满 mergeFanout 个时归并成上一层的一段，可能逐层向上连锁归并。
+     */
+    private void compact() throws IOException {
+        for (int level = 0; ; level++) {
+            List<FingerprintRun> sameLevel = new ArrayList<>();
+            for (FingerprintRun run : runs) {
+                if (run.level() == level) {
+                    sameLevel.add(run);
+                }
+            }
+            if (sameLevel.isEmpty()) {
+                return;
+            }
+            if (sameLevel.size() < mergeFanout) {
+                continue;
+            }
+            Path file = Files.createTempFile(spillDirectory, "dedup-", ".run");
+            FingerprintRun merged = FingerprintRun.merge(sameLevel, file, level + 1);
+            runs.removeAll(sameLevel);
+            runs.add(merged);
+            for (FingerprintRun run : sameLevel) {
+                run.close();
+            }
+        }
+    }
+
+    private void heapSort(int count) {
+        for (int i = count / 2 - 1; i >= 0; i--) {
+            siftDown(i, count);
+        }
+        for (int end = count - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+    }
+
+    private void siftDown(int root, int end) {
+        while (true) {
+            int child = 2 * root + 1;
+            if (child >= end) {
+                return;
+            }
+            if (child + 1 < end && compareSlots(child + 1, child) > 0) {
+                child++;
+            }
+            if (compareSlots(root, child) >= 0) {
+                return;
+            }
+            swap(root, child);
+            root = child;
+        }
+    }
+
+    private int compareSlots(int a, int b) {
+        return FingerprintRun.compare(table.getLong(a * SLOT_BYTES), table.getLong(a * SLOT_BYTES + 8),
+                table.getLong(b * SLOT_BYTES), table.getLong(b * SLOT_BYTES + 8));
+    }
+
+    private void swap(int a, int b) {
+        long hi = table.getLong(a * SLOT_BYTES);
+        long lo = table.getLong(a * SLOT_BYTES + 8);
+        table.putLong(a * SLOT_BYTES, table.getLong(b * SLOT_BYTES));
+        table.putLong(a * SLOT_BYTES + 8, table.getLong(b * SLOT_BYTES + 8));
+        table.putLong(b * SLOT_BYTES, hi);
+        table.putLong(b * SLOT_BYTES + 8, lo);
+    }
+}
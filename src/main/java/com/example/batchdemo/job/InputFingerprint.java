@@ -0,0 +1,177 @@
+package com.example.batchdemo.job;
+
+import com.example.batchdemo.io.LineBoundaries;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+
+/**
+ * 只追加输入的指纹：文件大小、修改时间、开头一块与已处理边界前一块的哈希，以及已处理到的字节偏移和当时的输出大小。
+ * 保存在输出旁的 output.fingerprint 中。下次处理同一输入时据此判断文件是否只是在末尾增长：
+ * 是则只处理新增的尾部并追加到现有输出，否则（文件变小、开头或边界内容变化、输出被改动）整体重跑。
+ */
+public final class InputFingerprint {
+
+    private static final Logger log = LoggerFactory.getLogger(InputFingerprint.class);
+
+    /** 参与哈希的开头块与边界块大小。 */
+    private static final int PROBE_SIZE = 64 * 1024;
+
+    private final String input;
+    private final long size;
+    private final long modified;
+    private final String headHash;
+    private final long processedOffset;
+    private final String boundaryHash;
+    private final long outputSize;
+
+    private InputFingerprint(String input, long size, long modified, String headHash, long processedOffset,
+                             String boundaryHash, long outputSize) {
+        this.input = input;
+        this.size = size;
+        this.modified = modified;
+        this.headHash = headHash;
+        this.processedOffset = processedOffset;
+        this.boundaryHash = boundaryHash;
+        this.outputSize = outputSize;
+    }
+
+    /**
+     * 一次运行要处理的输入区间 [startOffset, endOffset) 与输出的起始写入位置；全量运行时两者都从 0 开始。
+     */
+    public record Plan(long startOffset, long endOffset, long outputOffset) {
+    }
+
+    public static Path sidecarPath(Path output) {
+        return output.resolveSibling(output.getFileName() + ".fingerprint");
+    }
+
+    /**
+     * 比较输入与上次保存的指纹，决定全量还是增量。处理终点是最后一个完整行的结尾，仍在写入的半行留到下次。
+     */
+    public static Plan plan(Path input, Path output) throws IOException {
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            long end = LineBoundaries.lastLineEnd(channel, channel.size());
+            InputFingerprint previous = load(sidecarPath(output));
+            String reason = previous == null ? "没有指纹" : previous.mismatch(input, output, channel);
+            if (reason != null) {
+                // 全量运行会重写输出，旧指纹必须先作废，否则这次运行失败后下次会在半截输出上追加
+                Files.deleteIfExists(sidecarPath(output));
+                log.info("全量处理 {}: {}", input, reason);
+                return new Plan(0L, end, 0L);
+            }
+            log.info("增量处理 {}: 从偏移 {} 读到 {}，追加到输出偏移 {}", input, previous.processedOffset,
+                    Math.max(end, previous.processedOffset), previous.outputSize);
+            return new Plan(previous.processedOffset, Math.max(end, previous.processedOffset), previous.outputSize);
+        }
+    }
+
+    /**
+     * 输入已处理到 processedOffset、输出大小为 outputSize 时的指纹。
+     */
+    public static InputFingerprint capture(Path input, long processedOffset, long outputSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            return new InputFingerprint(input.toAbsolutePath().toString(), channel.size(),
+                    Files.getLastModifiedTime(input).toMillis(), hash(channel, 0L, Math.min(PROBE_SIZE, processedOffset)),
+                    processedOffset, boundaryHash(channel, processedOffset), outputSize);
+        }
+    }
+
+    /**
+     * 写到临时文件后原子替换，进程中途退出不会留下半个指纹文件。
+     */
+    public void store(Path sidecar) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("input", input);
+        properties.setProperty("size", Long.toString(size));
+        properties.setProperty("modified", Long.toString(modified));
+        properties.setProperty("headHash", headHash);
+        properties.setProperty("processedOffset", Long.toString(processedOffset));
+        properties.setProperty("boundaryHash", boundaryHash);
+        properties.setProperty("outputSize", Long.toString(outputSize));
+        Path temp = sidecar.resolveSibling(sidecar.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            properties.store(writer, null);
+        }
+        Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 读取指纹文件，不存在或内容不完整时返回 null（按全量处理）。
+     */
+    static InputFingerprint load(Path sidecar) throws IOException {
+        if (!Files.isRegularFile(sidecar)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(sidecar, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        try {
+            return new InputFingerprint(properties.getProperty("input"),
+                    Long.parseLong(properties.getProperty("size")),
+                    Long.parseLong(properties.getProperty("modified")),
+                    properties.getProperty("headHash"),
+                    Long.parseLong(properties.getProperty("processedOffset")),
+                    properties.getProperty("boundaryHash"),
+                    Long.parseLong(properties.getProperty("outputSize")));
+        } catch (NumberFormatException e) {
+            log.warn("指纹文件 {} 内容不完整，按全量处理", sidecar);
+            return null;
+        }
+    }
+
+    /**
+     * 返回不能增量处理的原因，输入只是在末尾增长时返回 null。大小与修改时间都没变时不再读取内容计算哈希。
+     */
+    private String mismatch(Path input, Path output, FileChannel channel) throws IOException {
+        if (!input.toAbsolutePath().toString().equals(this.input)) {
+            return "指纹属于另一个输入 " + this.input;
+        }
+        if (!Files.isRegularFile(output) || Files.size(output) < outputSize) {
+            return "输出文件缺失或被截断";
+        }
+        long currentSize = channel.size();
+        if (currentSize < processedOffset || currentSize < size) {
+            return "文件变小，可能已被轮转或重写";
+        }
+        if (currentSize == size && Files.getLastModifiedTime(input).toMillis() == modified) {
+            return null;
+        }
+        if (!hash(channel, 0L, Math.min(PROBE_SIZE, processedOffset)).equals(headHash)) {
+            return "文件开头的内容变了";
+        }
+        if (!boundaryHash(channel, processedOffset).equals(boundaryHash)) {
+            return "上次处理边界前的内容变了";
+        }
+        return null;
+    }
+
+    private static String boundaryHash(FileChannel channel, long processedOffset) throws IOException {
+        long from = Math.max(0L, processedOffset - PROBE_SIZE);
+        return hash(channel, from, (int) (processedOffset - from));
+    }
+
+    private static String hash(FileChannel channel, long position, long length) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate((int) length);
+        while (block.hasRemaining()) {
+            if (channel.read(block, position + block.position()) < 0) {
+                break;
+            }
+        }
+        long[] fingerprint = new long[2];
+        Fingerprint128.hash(block.array(), block.position(), fingerprint);
+        return String.format("%016x%016x", fingerprint[0], fingerprint[1]);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.batchdemo.job;
+
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 增量 Job 的最后一步：处理 step 成功后记下输入处理到的偏移与当前输出大小，作为下次增量运行的起点。
+ * 处理失败时不会走到这一步，旧指纹仍指向上次成功的边界。
+ */
+public class InputFingerprintTasklet implements Tasklet {
+
+    private final Path inputPath;
+    private final Path outputPath;
+    private final long processedOffset;
+
+    public InputFingerprintTasklet(Path inputPath, Path outputPath, long processedOffset) {
+        this.inputPath = inputPath;
+        this.outputPath = outputPath;
+        this.processedOffset = processedOffset;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        InputFingerprint.capture(inputPath, processedOffset, Files.size(outputPath))
+                .store(InputFingerprint.sidecarPath(outputPath));
+        return RepeatStatus.FINISHED;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.batchdemo.job;
+
+import com.example.batchdemo.io.LineBoundaries;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 把单个大文件按字节切成 gridSize 段并对齐到行首，每段交给一个 worker step 并行清洗。
+ * 每个分区写入独立的有序分片文件（output.part-00000 ...），最后由 {@link PartFileMergeTasklet} 顺序拼接。
+ */
+public class LineAlignedPartitioner implements Partitioner {
+
+    public static final String START_OFFSET_KEY = "startOffset";
+    public static final String END_OFFSET_KEY = "endOffset";
+    public static final String PART_OUTPUT_KEY = "partOutput";
+
+    private final Path inputPath;
+    private final Path outputPath;
+
+    public LineAlignedPartitioner(Path inputPath, Path outputPath) {
+        this.inputPath = inputPath;
+        this.outputPath = outputPath;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        long[] bounds;
+        try (FileChannel channel = FileChannel.open(inputPath, StandardOpenOption.READ)) {
+            bounds = LineBoundaries.split(channel, Math.max(1, gridSize));
+            PartFileMergeTasklet.deleteParts(outputPath); // 清理上一次遗留的分片，避免拼接时混入旧数据
+        } catch (IOException e) {
+            throw new ItemStreamException("切分输入文件失败: " + inputPath, e);
+        }
+        Map<String, ExecutionContext> partitions = new LinkedHashMap<>();
+        for (int i = 0; i < bounds.length - 1; i++) {
+            ExecutionContext context = new ExecutionContext();
+            context.putLong(START_OFFSET_KEY, bounds[i]);
+            context.putLong(END_OFFSET_KEY, bounds[i + 1]);
+            context.putString(PART_OUTPUT_KEY, PartFileMergeTasklet.partPath(outputPath, i).toString());
+            partitions.put("partition" + i, context);
+        }
+        return partitions;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.batchdemo.job;
+
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 分区 worker 全部完成后，按分区序号把分片文件依次拼接到最终输出。
+ * 拼接使用 FileChannel.transferTo，在 Linux 上由内核完成拷贝，不经过用户态缓冲区。
+ */
+public class PartFileMergeTasklet implements Tasklet {
+
+    private static final String PART_SUFFIX = ".part-";
+    private static final String ATTEMPT_SUFFIX = ".a";
+
+    private final Path outputPath;
+
+    public PartFileMergeTasklet(Path outputPath) {
+        this.outputPath = outputPath;
+    }
+
+    /**
+     * 第 index 个分区对应的分片文件路径，序号补零保证按文件名排序即为分区顺序。
+     */
+    public static Path partPath(Path outputPath, int index) {
+        return outputPath.resolveSibling(outputPath.getFileName() + PART_SUFFIX + String.format("%05d", index));
+    }
+
+    /**
+     * 跨进程分区中某次认领写入的分片文件（partPath.a{step执行ID}-{认领次数}），成功后才改名为 partPath。
+     * 被收回认领的旧 worker 只会继续写自己的文件，不会碰到接手者的数据。
+     */
+    public static Path attemptPath(Path partPath, long stepExecutionId, int attempt) {
+        return partPath.resolveSibling(partPath.getFileName() + ATTEMPT_SUFFIX + stepExecutionId + "-" + attempt);
+    }
+
+    /**
+     * 删除某个分片历次认领留下的文件。
+     */
+    public static void deleteAttempts(Path partPath) throws IOException {
+        Path dir = partPath.toAbsolutePath().getParent();
+        if (dir == null || !Files.isDirectory(dir)) {
+            return;
+        }
+        String prefix = partPath.getFileName() + ATTEMPT_SUFFIX;
+        List<Path> attempts;
+        try (Stream<Path> files = Files.list(dir)) {
+            attempts = files.filter(p -> p.getFileName().toString().startsWith(prefix)).toList();
+        }
+        for (Path attempt : attempts) {
+            Files.deleteIfExists(attempt);
+        }
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        List<Path> parts = listParts(outputPath);
+        try (FileChannel target = FileChannel.open(outputPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Path part : parts) {
+                try (FileChannel source = FileChannel.open(part, StandardOpenOption.READ)) {
+                    long position = 0L;
+                    long size = source.size();
+                    while (position < size) {
+                        position += source.transferTo(position, size - position, target);
+                    }
+                }
+            }
+        }
+        for (Path part : parts) {
+            Files.deleteIfExists(part);
+        }
+        return RepeatStatus.FINISHED;
+    }
+
+    static void deleteParts(Path outputPath) throws IOException {
+        for (Path part : listParts(outputPath)) {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    private static List<Path> listParts(Path outputPath) throws IOException {
+        Path dir = outputPath.toAbsolutePath().getParent();
+        Pattern pattern = Pattern.compile(Pattern.quote(outputPath.getFileName() + PART_SUFFIX) + "\\d{5}");
+        List<Path> parts = new ArrayList<>();
+        if (dir == null || !Files.isDirectory(dir)) {
+            return parts;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(p -> pattern.matcher(p.getFileName().toString()).matches())
+                    .sorted()
+                    .forEach(parts::add);
+        }
+        return parts;
+    }
+}
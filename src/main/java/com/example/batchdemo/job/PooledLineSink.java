@@ -0,0 +1,74 @@
+package com.example.batchdemo.job;
+
+import com.example.batchdemo.service.PreallocatedBufferPool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 外部排序写出行的缓冲：从 {@link PreallocatedBufferPool} 借一个直接内存缓冲区，
+ * 行字节从映射窗口或排序区直接拷入，满了再写盘；比缓冲区还长的行直接从源缓冲区写出。
+ */
+final class PooledLineSink implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final PreallocatedBufferPool bufferPool;
+    private ByteBuffer buffer;
+    private long lines = 0L;
+
+    PooledLineSink(FileChannel channel, PreallocatedBufferPool bufferPool) {
+        this.channel = channel;
+        this.bufferPool = bufferPool;
+        this.buffer = bufferPool.borrowBuffer();
+    }
+
+    /**
+     * 写出 source 中 [from, to) 的一行并补上换行符。
+     */
+    void write(ByteBuffer source, int from, int to) throws IOException {
+        int length = to - from;
+        if (length + 1 > buffer.remaining()) {
+            flush();
+            if (length + 1 > buffer.capacity()) {
+                ByteBuffer view = source.duplicate();
+                view.limit(to).position(from);
+                while (view.hasRemaining()) {
+                    channel.write(view);
+                }
+                length = 0;
+            }
+        }
+        if (length > 0) {
+            buffer.put(buffer.position(), source, from, length);
+            buffer.position(buffer.position() + length);
+        }
+        buffer.put((byte) '\n');
+        lines++;
+    }
+
+    long lines() {
+        return lines;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            bufferPool.returnBuffer(buffer);
+            buffer = null;
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.batchdemo.job;
+
+import com.example.batchdemo.io.FileChannelLineWriter;
+import com.example.batchdemo.io.RecordOffsetSource;
+import com.example.batchdemo.service.PreallocatedBufferPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamSupport;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 隔离处理器：先用 {@link RecordValidator} 校验，再交给清洗处理器；校验不通过或清洗抛出异常的记录不向外抛，
+ * 而是连同源字节偏移与原因写进输出旁的 output.rejects，自身返回 null 被过滤。
+ * 异常不再触发 Spring Batch 的回滚与逐条重扫，脏数据只多一次校验的开销。
+ * <p>
+ * 拒收记录先在内存中攒到 chunk 提交，再由一个借用缓冲池的 {@link FileChannelLineWriter} 写出，
+ * 与主输出一样按提交位置断点续跑；chunk 出错时丢弃本 chunk 攒下的记录。
+ * 拒收数超过 max-rejects，或处理条数达到 ratio-min-records 后拒收比例超过 max-reject-ratio 时直接让 step 失败。
+ * <p>
+ * 源偏移由 {@link #offsetListener} 在每次读取后从读取器取得，按读取顺序与处理顺序一一对应；读取器不支持时记为 -1。
+ * 每个 step 执行一个实例，需声明为 step 作用域并注册为 stream、step 与 chunk 监听器。
+ */
+public class QuarantiningProcessor extends ItemStreamSupport
+        implements ItemProcessor<String, String>, StepExecutionListener, ChunkListener {
+
+    private static final Logger log = LoggerFactory.getLogger(QuarantiningProcessor.class);
+
+    private static final String PROCESSED_KEY = "processed";
+    private static final String REJECTED_KEY = "rejected";
+    private static final String REJECT_WRITER_NAME = "rejects";
+
+    private final ItemProcessor<String, String> delegate;
+    private final RecordValidator validator;
+    private final PreallocatedBufferPool bufferPool;
+    private final long maxRejects;
+    private final double maxRejectRatio;
+    private final long ratioMinRecords;
+
+    private Path rejectPath;
+    private FileChannelLineWriter rejectWriter;
+    private final List<String> pendingRejects = new ArrayList<>();
+    private long[] chunkOffsets = new long[256];
+    private int readInChunk;
+    private int processedInChunk;
+    private long processed;
+    private long rejected;
+    private long committedProcessed;
+    private long committedRejected;
+
+    /**
+     * maxRejects 小于 0 表示不限条数，maxRejectRatio 不大于 0 表示不限比例。
+     */
+    public QuarantiningProcessor(ItemProcessor<String, String> delegate, RecordValidator validator,
+                                 PreallocatedBufferPool bufferPool, long maxRejects, double maxRejectRatio,
+                                 long ratioMinRecords) {
+        this.delegate = delegate;
+        this.validator = validator;
+        this.bufferPool = bufferPool;
+        this.maxRejects = maxRejects;
+        this.maxRejectRatio = maxRejectRatio;
+        this.ratioMinRecords = ratioMinRecords;
+        setName(QuarantiningProcessor.class.getSimpleName());
+    }
+
+    public static Path rejectPath(Path output) {
+        return output.resolveSibling(output.getFileName() + ".rejects");
+    }
+
+    /**
+     * 每次读取后记录该记录的源偏移。processor 与 source 都是 step 作用域的代理，监听器本身无状态，可以在 step 定义时创建。
+     */
+    public static ItemReadListener<String> offsetListener(QuarantiningProcessor processor, RecordOffsetSource source) {
+        return new ItemReadListener<>() {
+            @Override
+            public void afterRead(String item) {
+                processor.recordRead(source.lastRecordOffset());
+            }
+        };
+    }
+
+    /**
+     * 拒收文件放在 Job 参数 output 旁边，open 之前确定。
+     */
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        String output = stepExecution.getJobParameters().getString("output");
+        if (output == null) {
+            throw new IllegalStateException("隔离处理器需要 Job 参数 output 来确定拒收文件位置");
+        }
+        this.rejectPath = rejectPath(Path.of(output));
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        rejectWriter = new FileChannelLineWriter(rejectPath, bufferPool);
+        rejectWriter.setName(REJECT_WRITER_NAME);
+        rejectWriter.open(executionContext);
+        committedProcessed = executionContext.getLong(getExecutionContextKey(PROCESSED_KEY), 0L);
+        committedRejected = executionContext.getLong(getExecutionContextKey(REJECTED_KEY), 0L);
+        resetChunk();
+    }
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        resetChunk();
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        resetChunk(); // 本 chunk 回滚，攒下的拒收记录与计数一起作废
+    }
+
+    void recordRead(long sourceOffset) {
+        if (readInChunk == chunkOffsets.length) {
+            chunkOffsets = Arrays.copyOf(chunkOffsets, readInChunk * 2);
+        }
+        chunkOffsets[readInChunk++] = sourceOffset;
+    }
+
+    @Override
+    public String process(String item) {
+        if (item == null) {
+            return null;
+        }
+        long offset = processedInChunk < readInChunk ? chunkOffsets[processedInChunk] : -1L;
+        processedInChunk++;
+        processed++;
+        String reason = validator.validate(item);
+        if (reason == null) {
+            try {
+                return delegate.process(item);
+            } catch (Exception e) {
+                reason = e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+        }
+        reject(item, offset, reason);
+        return null;
+    }
+
+    private void reject(String item, long offset, String reason) {
+        rejected++;
+        pendingRejects.add(offset + "\t" + reason.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ') + "\t" + item);
+        if (maxRejects >= 0 && rejected > maxRejects) {
+            throw new IllegalStateException("拒收记录数 " + rejected + " 超过上限 " + maxRejects + "，见 " + rejectPath);
+        }
+        if (maxRejectRatio > 0 && processed >= ratioMinRecords && rejected > processed * maxRejectRatio) {
+            throw new IllegalStateException(String.format("已处理 %d 条，拒收 %d 条，比例超过上限 %.4f，见 %s",
+                    processed, rejected, maxRejectRatio, rejectPath));
+        }
+    }
+
+    /**
+     * chunk 提交时写出本 chunk 的拒收记录并记录写出位置与计数，重启后从这里继续。
+     */
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (rejectWriter == null) {
+            return;
+        }
+        if (!pendingRejects.isEmpty()) {
+            try {
+                rejectWriter.write(new Chunk<>(pendingRejects));
+            } catch (Exception e) {
+                throw new ItemStreamException("写出拒收记录失败: " + rejectPath, e);
+            }
+            pendingRejects.clear();
+        }
+        rejectWriter.update(executionContext);
+        committedProcessed = processed;
+        committedRejected = rejected;
+        executionContext.putLong(getExecutionContextKey(PROCESSED_KEY), committedProcessed);
+        executionContext.putLong(getExecutionContextKey(REJECTED_KEY), committedRejected);
+        readInChunk = 0;
+        processedInChunk = 0;
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (rejectWriter == null) {
+            return;
+        }
+        rejectWriter.close();
+        rejectWriter = null;
+        if (committedRejected > 0) {
+            log.warn("共处理 {} 条记录，拒收 {} 条，见 {}", committedProcessed, committedRejected, rejectPath);
+            return;
+        }
+        try {
+            Files.deleteIfExists(rejectPath); // 没有拒收记录时不留空文件
+        } catch (IOException e) {
+            log.debug("删除空的拒收文件失败: {}", rejectPath, e);
+        }
+    }
+
+    private void resetChunk() {
+        pendingRejects.clear();
+        processed = committedProcessed;
+        rejected = committedRejected;
+        readInChunk = 0;
+        processedInChunk = 0;
+    }
+}
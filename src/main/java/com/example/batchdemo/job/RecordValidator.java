@@ -0,0 +1,58 @@
+package com.example.batchdemo.job;
+
+/**
+ * 清洗前的结构校验，返回拒收原因，合格时返回 null。各项检查默认关闭，只有配置了的检查才会扫描记录。
+ */
+public class RecordValidator {
+
+    private final int maxLength;
+    private final int expectedColumns;
+    private final char delimiter;
+    private final boolean rejectBlank;
+    private final boolean rejectMalformedEncoding;
+
+    /**
+     * maxLength、expectedColumns 为 0 表示不检查；列数按 RFC 4180 计算，引号内的分隔符不算。
+     */
+    public RecordValidator(int maxLength, int expectedColumns, char delimiter, boolean rejectBlank,
+                           boolean rejectMalformedEncoding) {
+        this.maxLength = maxLength;
+        this.expectedColumns = expectedColumns;
+        this.delimiter = delimiter;
+        this.rejectBlank = rejectBlank;
+        this.rejectMalformedEncoding = rejectMalformedEncoding;
+    }
+
+    public String validate(String record) {
+        if (maxLength > 0 && record.length() > maxLength) {
+            return "记录长度 " + record.length() + " 超过上限 " + maxLength;
+        }
+        if (rejectBlank && record.isBlank()) {
+            return "空行";
+        }
+        if (rejectMalformedEncoding && record.indexOf('\uFFFD') >= 0) {
+            return "包含无法解码的字节";
+        }
+        if (expectedColumns > 0) {
+            int columns = columnCount(record);
+            if (columns != expectedColumns) {
+                return "列数 " + columns + " 与期望的 " + expectedColumns + " 不符";
+            }
+        }
+        return null;
+    }
+
+    private int columnCount(String record) {
+        int columns = 1;
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (c == '"') {
+                quoted = !quoted; // 转义的 "" 连续翻转两次，状态不变
+            } else if (c == delimiter && !quoted) {
+                columns++;
+            }
+        }
+        return columns;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.batchdemo.job;
+
+import com.example.batchdemo.service.PartitionClaimStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.partition.PartitionHandler;
+import org.springframework.batch.core.partition.StepExecutionSplitter;
+import org.springframework.batch.core.repository.JobRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 跨进程的分区处理器：manager 只负责切分与等待，worker step 由其它 JVM 中的
+ * {@link com.example.batchdemo.service.RemotePartitionWorker} 认领执行，双方通过共享 Job 仓库里的
+ * {@link PartitionClaimStore} 协调，不需要消息中间件。
+ * <p>
+ * 切分出的 step 执行先由 splitter 写进 Job 仓库，再登记到认领表；之后按 poll-interval 轮询认领表，
+ * 收回心跳超时的认领交给其它 worker。接手的 worker 加载的是同一个 step 执行，读取器与写入器按其中已提交的偏移续跑，
+ * 丢失的只是崩溃前最后一个未提交的 chunk。认领次数用完的分区在 Job 仓库中标记为 FAILED，整个 Job 随之失败，可按原参数重启。
+ */
+public class RemotePartitionHandler implements PartitionHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(RemotePartitionHandler.class);
+
+    private final PartitionClaimStore claimStore;
+    private final JobExplorer jobExplorer;
+    private final JobRepository jobRepository;
+    private final int gridSize;
+    private final Duration pollInterval;
+    private final Duration heartbeatTimeout;
+    private final int maxAttempts;
+    private final Duration maxWait;
+
+    /**
+     * maxWait 为 0 表示一直等到所有分区结束。
+     */
+    public RemotePartitionHandler(PartitionClaimStore claimStore, JobExplorer jobExplorer, JobRepository jobRepository,
+                                  int gridSize, Duration pollInterval, Duration heartbeatTimeout, int maxAttempts,
+                                  Duration maxWait) {
+        this.claimStore = claimStore;
+        this.jobExplorer = jobExplorer;
+        this.jobRepository = jobRepository;
+        this.gridSize = gridSize;
+        this.pollInterval = pollInterval;
+        this.heartbeatTimeout = heartbeatTimeout;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.maxWait = maxWait;
+    }
+
+    @Override
+    public Collection<StepExecution> handle(StepExecutionSplitter stepSplitter, StepExecution managerStepExecution)
+            throws Exception {
+        Set<StepExecution> partitions = stepSplitter.split(managerStepExecution, gridSize);
+        long jobExecutionId = managerStepExecution.getJobExecutionId();
+        List<Long> ids = partitions.stream().map(StepExecution::getId).sorted().toList();
+        claimStore.register(jobExecutionId, stepSplitter.getStepName(), ids);
+        log.info("已登记 {} 个分区等待 worker 认领，Job 执行ID: {}", ids.size(), jobExecutionId);
+
+        long deadline = maxWait.isZero() ? Long.MAX_VALUE : System.currentTimeMillis() + maxWait.toMillis();
+        String lastProgress = "";
+        while (true) {
+            for (long id : claimStore.reclaimExpired(jobExecutionId,
+                    System.currentTimeMillis() - heartbeatTimeout.toMillis(), maxAttempts)) {
+                markFailed(jobExecutionId, id, "分区已被认领 " + maxAttempts + " 次，worker 均未在心跳超时内完成");
+            }
+            Map<Long, String> statuses = claimStore.statuses(jobExecutionId);
+            long done = 0;
+            long failed = 0;
+            long claimed = 0;
+            for (long id : ids) {
+                String status = statuses.get(id);
+                if (PartitionClaimStore.DONE.equals(status)) {
+                    done++;
+                } else if (PartitionClaimStore.FAILED.equals(status)) {
+                    failed++;
+                } else if (PartitionClaimStore.CLAIMED.equals(status)) {
+                    claimed++;
+                }
+            }
+            String progress = done + "/" + failed + "/" + claimed;
+            if (!progress.equals(lastProgress)) {
+                log.info("分区进度：完成 {}，失败 {}，执行中 {}，待认领 {}", done, failed, claimed,
+                        ids.size() - done - failed - claimed);
+                lastProgress = progress;
+            }
+            if (done + failed == ids.size()) {
+                break;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                claimStore.abandon(jobExecutionId);
+                for (long id : ids) {
+                    String status = statuses.get(id);
+                    if (!PartitionClaimStore.DONE.equals(status) && !PartitionClaimStore.FAILED.equals(status)) {
+                        markFailed(jobExecutionId, id, "等待 worker 超过 " + maxWait);
+                    }
+                }
+                break;
+            }
+            Thread.sleep(pollInterval.toMillis());
+        }
+
+        List<StepExecution> results = new ArrayList<>(ids.size());
+        for (long id : ids) {
+            results.add(jobExplorer.getStepExecution(jobExecutionId, id));
+        }
+        return results;
+    }
+
+    /**
+     * worker 崩溃时 step 执行停在 STARTED，聚合后 manager 会误以为没有失败，这里在 Job 仓库中补记失败。
+     */
+    private void markFailed(long jobExecutionId, long stepExecutionId, String reason) {
+        StepExecution execution = jobExplorer.getStepExecution(jobExecutionId, stepExecutionId);
+        if (execution == null || execution.getStatus() == BatchStatus.COMPLETED) {
+            return;
+        }
+        log.error("分区 {} 失败: {}", execution.getStepName(), reason);
+        execution.setStatus(BatchStatus.FAILED);
+        execution.setExitStatus(ExitStatus.FAILED.addExitDescription(reason));
+        execution.setEndTime(LocalDateTime.now());
+        jobRepository.update(execution);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.batchdemo.job;
+
+import org.springframework.batch.item.ItemProcessor;
+
+/**
+ * 按 batch.cleaning.rules 清洗的处理器，规则在创建时编译成 {@link CleaningProgram}，处理时每行只扫描一遍。
+ * 没有配置规则时仍使用 {@link DataCleaningProcessor}。
+ */
+public class RuleCleaningProcessor implements ItemProcessor<String, String> {
+
+    private final CleaningProgram program;
+
+    public RuleCleaningProcessor(CleaningProgram program) {
+        this.program = program;
+    }
+
+    @Override
+    public String process(String item) {
+        if (item == null) {
+            return null;
+        }
+        return program.apply(item);
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.batchdemo.job;
+
+import com.example.batchdemo.io.DirectBufferCleaner;
+import com.example.batchdemo.io.LineScanner;
+import com.example.batchdemo.service.PreallocatedBufferPool;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 生成有序段文件：把输入的一个按行对齐的区间读进本线程独占的直接内存排序区，
+ * 在堆上只建立行索引（行与键的偏移、8 字节键前缀），对索引做稳定归并排序后按顺序写出。
+ * 每行的索引占 {@link #INDEX_BYTES_PER_LINE} 字节，行数上限由构造时给定的索引预算决定；
+ * 短行多到索引装不下时，先把已索引的部分排序写成一段，再从下一行继续，一个区间因此可能产生多段。
+ * 每个排序线程持有一个实例，排序区与索引数组在各段之间复用。
+ */
+final class RunSorter implements AutoCloseable {
+
+    /** 每行索引的堆占用：lineStarts、lineEnds、keyStarts、keyEnds、order、scratch 六个 int 加一个 long 前缀。 */
+    static final int INDEX_BYTES_PER_LINE = 6 * Integer.BYTES + Long.BYTES;
+
+    private final SortKey key;
+    private final Path tempDirectory;
+    private final PreallocatedBufferPool bufferPool;
+    private final int maxLines;
+    private ByteBuffer arena;
+
+    private int count;
+    private int[] lineStarts = new int[1024];
+    private int[] lineEnds = new int[1024];
+    private int[] keyStarts = new int[1024];
+    private int[] keyEnds = new int[1024];
+    private long[] prefixes = new long[1024];
+    private int[] order = new int[1024];
+    private int[] scratch = new int[1024];
+
+    /**
+     * indexBudget 为行索引数组的堆内存上限（字节）。
+     */
+    RunSorter(int arenaSize, long indexBudget, SortKey key, Path tempDirectory, PreallocatedBufferPool bufferPool) {
+        this.arena = ByteBuffer.allocateDirect(arenaSize).order(ByteOrder.LITTLE_ENDIAN);
+        this.maxLines = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(lineStarts.length, indexBudget / INDEX_BYTES_PER_LINE));
+        this.key = key;
+        this.tempDirectory = tempDirectory;
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * 排序 input 的 [from, to) 区间并写成若干段临时文件，按输入顺序返回文件路径；行数超过索引上限时才会多于一段。
+     * 区间超过排序区时（单行超长导致对齐后变大）临时分配一块够大的直接内存。
+     */
+    List<Path> sort(FileChannel input, long from, long to) throws IOException {
+        int length = (int) (to - from);
+        ByteBuffer data = length <= arena.capacity()
+                ? arena
+                : ByteBuffer.allocateDirect(length).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            data.clear().limit(length);
+            long position = from;
+            while (data.hasRemaining()) {
+                int read = input.read(data, position);
+                if (read < 0) {
+                    throw new EOFException("排序区间超出文件末尾: " + position);
+                }
+                position += read;
+            }
+            List<Path> runs = new ArrayList<>(1);
+            try {
+                for (int start = 0; start < length; ) {
+                    start = index(data, start, length);
+                    mergeSort(data);
+                    runs.add(writeRun(data));
+                }
+            } catch (IOException | RuntimeException e) {
+                for (Path run : runs) {
+                    Files.deleteIfExists(run);
+                }
+                throw e;
+            }
+            return runs;
+        } finally {
+            if (data != arena) {
+                DirectBufferCleaner.free(data);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        DirectBufferCleaner.free(arena);
+        arena = null;
+    }
+
+    private Path writeRun(ByteBuffer data) throws IOException {
+        Path run = Files.createTempFile(tempDirectory, "sort-", ".run");
+        try (FileChannel output = FileChannel.open(run, StandardOpenOption.WRITE);
+             PooledLineSink sink = new PooledLineSink(output, bufferPool)) {
+            for (int i = 0; i < count; i++) {
+                int line = order[i];
+                sink.write(data, lineStarts[line], lineEnds[line]);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(run);
+            throw e;
+        }
+        return run;
+    }
+
+    /**
+     * 从 start 起为各行建立索引，到区间末尾或行数达到上限为止，返回下一段的起点。
+     */
+    private int index(ByteBuffer data, int start, int length) {
+        count = 0;
+        while (start < length) {
+            if (count == lineStarts.length) {
+                if (count == maxLines) {
+                    return start;
+                }
+                grow();
+            }
+            int newline = LineScanner.indexOfNewline(data, start, length);
+            int end = newline < 0 ? length : newline;
+            key.locate(data, start, end);
+            lineStarts[count] = start;
+            lineEnds[count] = end;
+            keyStarts[count] = key.start();
+            keyEnds[count] = key.end();
+            prefixes[count] = SortKey.prefix(data, key.start(), key.end());
+            order[count] = count;
+            count++;
+            start = end + 1;
+        }
+        return length;
+    }
+
+    /**
+     * 自底向上的归并排序，稳定：键相同的行保持输入顺序。
+     */
+    private void mergeSort(ByteBuffer data) {
+        int[] source = order;
+        int[] target = scratch;
+        for (int width = 1; width < count; width <<= 1) {
+            for (int low = 0; low < count; low += width << 1) {
+                int mid = Math.min(low + width, count);
+                int high = Math.min(low + (width << 1), count);
+                int left = low;
+                int right = mid;
+                for (int k = low; k < high; k++) {
+                    if (left < mid && (right >= high || compare(data, source[left], source[right]) <= 0)) {
+                        target[k] = source[left++];
+                    } else {
+                        target[k] = source[right++];
+                    }
+                }
+            }
+            int[] swap = source;
+            source = target;
+            target = swap;
+        }
+        order = source;
+        scratch = target;
+    }
+
+    private int compare(ByteBuffer data, int a, int b) {
+        int cmp = Long.compareUnsigned(prefixes[a], prefixes[b]);
+        if (cmp != 0) {
+            return cmp;
+        }
+        return SortKey.compare(data, keyStarts[a], keyEnds[a], data, keyStarts[b], keyEnds[b]);
+    }
+
+    private void grow() {
+        int capacity = (int) Math.min(maxLines, lineStarts.length * 2L);
+        lineStarts = Arrays.copyOf(lineStarts, capacity);
+        lineEnds = Arrays.copyOf(lineEnds, capacity);
+        keyStarts = Arrays.copyOf(keyStarts, capacity);
+        keyEnds = Arrays.copyOf(keyEnds, capacity);
+        prefixes = Arrays.copyOf(prefixes, capacity);
+        order = Arrays.copyOf(order, capacity);
+        scratch = new int[capacity];
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.batchdemo.job;
+
+import com.example.batchdemo.io.CsvTokenizer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 外部排序的键：整行或某一列的原始字节，按无符号字节序比较（与 LC_ALL=C sort 一致）。
+ * 键的前 8 个字节打包成一个 long 前缀，绝大多数比较只比前缀，前缀相同再逐字节比较余下部分。
+ */
+final class SortKey {
+
+    private final int column;
+    private final CsvTokenizer tokenizer;
+    private int keyStart;
+    private int keyEnd;
+
+    /**
+     * column 小于 0 时以整行为键。
+     */
+    SortKey(int column, char delimiter) {
+        this.column = column;
+        this.tokenizer = column >= 0 ? new CsvTokenizer((byte) delimiter, (byte) '"') : null;
+    }
+
+    /**
+     * 定位 [from, to) 这一行的键，结果通过 {@link #start()}、{@link #end()} 取得；缺少该列时键为空。
+     */
+    void locate(ByteBuffer buffer, int from, int to) {
+        if (tokenizer == null) {
+            keyStart = from;
+            keyEnd = to;
+            return;
+        }
+        int fields = tokenizer.tokenize(buffer, from, to, column + 1);
+        keyStart = column < fields ? tokenizer.start(column) : from;
+        keyEnd = column < fields ? tokenizer.end(column) : from;
+    }
+
+    int start() {
+        return keyStart;
+    }
+
+    int end() {
+        return keyEnd;
+    }
+
+    /**
+     * 键的前 8 个字节按大端打包，不足 8 字节补 0，无符号比较即为字节序比较。
+     */
+    static long prefix(ByteBuffer buffer, int from, int to) {
+        long prefix = 0L;
+        int length = Math.min(Long.BYTES, to - from);
+        for (int i = 0; i < length; i++) {
+            prefix |= (buffer.get(from + i) & 0xFFL) << (56 - (i << 3));
+        }
+        return prefix;
+    }
+
+    /**
+     * 逐字节比较两个键，前缀已经相等时调用；短键是长键的前缀时短键在前。
+     */
+    static int compare(ByteBuffer a, int aFrom, int aTo, ByteBuffer b, int bFrom, int bTo) {
+        int aLength = aTo - aFrom;
+        int bLength = bTo - bFrom;
+        int common = Math.min(aLength, bLength);
+        for (int i = Math.min(Long.BYTES, common); i < common; i++) {
+            int cmp = Integer.compare(a.get(aFrom + i) & 0xFF, b.get(bFrom + i) & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(aLength, bLength);
+    }
+}
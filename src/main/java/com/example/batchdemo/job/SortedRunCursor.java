@@ -0,0 +1,106 @@
+package com.example.batchdemo.job;
+
+import com.example.batchdemo.io.DirectBufferCleaner;
+import com.example.batchdemo.io.LineScanner;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * k 路归并中的一路：以 mmap 窗口顺序读取一段有序文件，当前行及其键直接指向映射字节，比较与写出都不拷贝。
+ * 行跨越窗口末尾时从该行行首重新映射；单行比窗口还长时窗口按需加倍。
+ */
+final class SortedRunCursor implements AutoCloseable, Comparable<SortedRunCursor> {
+
+    private final int runIndex;
+    private final SortKey key;
+    private final int windowSize;
+    private final FileChannel channel;
+    private final long size;
+
+    private MappedByteBuffer window;
+    private long windowStart = 0L;
+    private int lineStart = 0;
+    private int lineEnd = -1;
+    private int keyStart;
+    private int keyEnd;
+    private long prefix;
+
+    /**
+     * runIndex 决定键相同时的先后，保证归并稳定。
+     */
+    SortedRunCursor(Path run, int runIndex, SortKey key, int windowSize) throws IOException {
+        this.runIndex = runIndex;
+        this.key = key;
+        this.windowSize = windowSize;
+        this.channel = FileChannel.open(run, StandardOpenOption.READ);
+        this.size = channel.size();
+    }
+
+    /**
+     * 移到下一行，没有更多行时返回 false。
+     */
+    boolean advance() throws IOException {
+        long next = lineEnd < 0 ? 0L : windowStart + lineEnd + 1;
+        if (next >= size) {
+            return false;
+        }
+        int mapSize = windowSize;
+        while (true) {
+            if (window == null || next < windowStart || next >= windowStart + window.limit()) {
+                remap(next, mapSize);
+            }
+            int from = (int) (next - windowStart);
+            int newline = LineScanner.indexOfNewline(window, from, window.limit());
+            if (newline < 0 && windowStart + window.limit() < size) {
+                // 行跨越窗口末尾：从行首重新映射，一个窗口装不下这一行时加倍
+                if (from == 0) {
+                    mapSize = (int) Math.min(Integer.MAX_VALUE, 2L * window.limit());
+                }
+                remap(next, mapSize);
+                continue;
+            }
+            lineStart = from;
+            lineEnd = newline < 0 ? window.limit() : newline;
+            key.locate(window, lineStart, lineEnd);
+            keyStart = key.start();
+            keyEnd = key.end();
+            prefix = SortKey.prefix(window, keyStart, keyEnd);
+            return true;
+        }
+    }
+
+    /**
+     * 把当前行写到 sink。
+     */
+    void writeTo(PooledLineSink sink) throws IOException {
+        sink.write(window, lineStart, lineEnd);
+    }
+
+    @Override
+    public int compareTo(SortedRunCursor other) {
+        int cmp = Long.compareUnsigned(prefix, other.prefix);
+        if (cmp == 0) {
+            cmp = SortKey.compare(window, keyStart, keyEnd, other.window, other.keyStart, other.keyEnd);
+        }
+        return cmp != 0 ? cmp : Integer.compare(runIndex, other.runIndex);
+    }
+
+    @Override
+    public void close() throws IOException {
+        DirectBufferCleaner.free(window);
+        window = null;
+        channel.close();
+    }
+
+    private void remap(long position, int mapSize) throws IOException {
+        DirectBufferCleaner.free(window);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, mapSize));
+        window.order(ByteOrder.LITTLE_ENDIAN);
+        windowStart = position;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.batchdemo.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * 读写热路径计量器的工厂：按读取器/写入器类型打标签，同类型的多个实例（例如多个分区）共享同一组计量器。
+ */
+@Component
+public class PipelineMetrics {
+
+    private final MeterRegistry registry;
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public ReaderMeters reader(String reader) {
+        return new ReaderMeters(registry, reader);
+    }
+
+    public WriterMeters writer(String writer) {
+        return new WriterMeters(registry, writer);
+    }
+
+    public MeterRegistry registry() {
+        return registry;
+    }
+}
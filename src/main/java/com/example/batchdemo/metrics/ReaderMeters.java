@@ -0,0 +1,44 @@
+package com.example.batchdemo.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一类读取器共用的计量器。读取器在本地字段里累计行数，只在窗口重新映射、chunk 提交和关闭时汇报，
+ * 每行的开销只是一次字段自增，不分配对象。
+ */
+public final class ReaderMeters {
+
+    private final Counter bytes;
+    private final Counter lines;
+    private final Counter remaps;
+    private final Timer remapLatency;
+
+    ReaderMeters(MeterRegistry registry, String reader) {
+        this.bytes = Counter.builder("pipeline.reader.bytes").baseUnit("bytes").tag("reader", reader)
+                .description("读取器已交付的行所占字节数").register(registry);
+        this.lines = Counter.builder("pipeline.reader.lines").tag("reader", reader)
+                .description("读取器已交付的行数").register(registry);
+        this.remaps = Counter.builder("pipeline.reader.remaps").tag("reader", reader)
+                .description("mmap 窗口重新映射或 sendfile 管道读取次数").register(registry);
+        this.remapLatency = Timer.builder("pipeline.reader.remap.latency").tag("reader", reader)
+                .description("单次窗口映射或管道读取耗时").register(registry);
+    }
+
+    public void recordRemap(long nanos) {
+        remaps.increment();
+        remapLatency.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordProgress(long deliveredBytes, long deliveredLines) {
+        if (deliveredBytes > 0) {
+            bytes.increment(deliveredBytes);
+        }
+        if (deliveredLines > 0) {
+            lines.increment(deliveredLines);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.batchdemo.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一类写入器共用的计量器，只在缓冲区刷出和 write 系统调用处计数，不在每行上计数。
+ */
+public final class WriterMeters {
+
+    private final Counter bytes;
+    private final Counter syscalls;
+    private final Counter flushes;
+    private final Timer forces;
+
+    WriterMeters(MeterRegistry registry, String writer) {
+        this.bytes = Counter.builder("pipeline.writer.bytes").baseUnit("bytes").tag("writer", writer)
+                .description("写入通道的字节数").register(registry);
+        this.syscalls = Counter.builder("pipeline.writer.syscalls").tag("writer", writer)
+                .description("FileChannel.write 调用次数").register(registry);
+        this.flushes = Counter.builder("pipeline.writer.flushes").tag("writer", writer)
+                .description("缓冲区刷出（或移交 I/O 线程）次数").register(registry);
+        this.forces = Timer.builder("pipeline.writer.force").tag("writer", writer)
+                .description("按持久化策略调用 FileChannel.force 的耗时").register(registry);
+    }
+
+    public void recordWrite(long written) {
+        syscalls.increment();
+        if (written > 0) {
+            bytes.increment(written);
+        }
+    }
+
+    public void recordFlush() {
+        flushes.increment();
+    }
+
+    public void recordForce(long nanos) {
+        forces.record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,385 @@
+package com.example.batchdemo.service;
+
+import com.example.batchdemo.config.IngestProperties;
+import com.example.batchdemo.io.InputManifest;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 目录监听接入：文件落到 batch.ingest.directories 后自动处理，不需要逐个传 file.requests。
+ * <ul>
+ *     <li>发现：WatchService 监听新建与修改事件，另按 rescan-interval 全量扫描，补上丢失的事件；</li>
+ *     <li>去抖：大小与修改时间在 settle-time 内都不变才认为文件已写完，以 . 开头或 .tmp 结尾的文件视为仍在上传，忽略；</li>
+ *     <li>路由：小文件攒成批次写进清单，由一个 MANIFEST Job 合并处理，批次满或等待超过 batch-max-wait 时提交；
+ *     大文件各自一个 MMAP Job，超过 partition-threshold 的走 PARTITIONED Job。输出放在输出目录下以落地目录命名的子目录里，
+ *     不同落地目录的同名文件不会互相覆盖。</li>
+ * </ul>
+ * Job 交给 {@link FileBatchScheduler} 按内存预算并发运行；成功后输入移到所在目录的 processed/ 下。
+ * 失败的输入留在原处（重启沿用原来的输入路径与清单），旁边写一个记录执行ID的 .文件名.failed 标记，带标记的文件不再登记；
+ * 每次全量扫描时检查标记：该 Job 实例重启成功后移到 processed/，执行被标记为 ABANDONED 或已不在 Job 仓库中时移到 failed/。
+ * 默认的内存 Job 仓库随进程消失，只能在本进程内通过 POST /files/jobs/{执行ID}/restart 重启；进程重启后标记找不到执行记录，
+ * 输入直接移到 failed/。要跨进程重启需把 spring.datasource.url 换成文件模式的 H2 等持久化仓库，启动时对内存仓库给出警告。
+ * 判断与路由都在单个定时线程上进行，监听线程只登记文件。
+ */
+@Service
+public class DirectoryIngestService implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectoryIngestService.class);
+
+    private static final String PROCESSED_DIRECTORY = "processed";
+    private static final String FAILED_DIRECTORY = "failed";
+    private static final String FAILED_MARKER_SUFFIX = ".failed";
+    private static final DateTimeFormatter BATCH_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final IngestProperties properties;
+    private final FileBatchScheduler batchScheduler;
+    private final JobExplorer jobExplorer;
+    private final String repositoryUrl;
+    private final Map<Path, Candidate> pending = new ConcurrentHashMap<>();
+    private final Set<Path> inFlight = ConcurrentHashMap.newKeySet();
+    private final AtomicLong batchSequence = new AtomicLong();
+
+    // 以下字段只在定时线程上访问
+    private final List<Path> batch = new ArrayList<>();
+    private long batchBytes = 0L;
+    private long batchStartedAt = 0L;
+
+    private Path outputDirectory;
+    private WatchService watchService;
+    private ScheduledExecutorService ticker;
+    private Thread watcher;
+
+    public DirectoryIngestService(IngestProperties properties, FileBatchScheduler batchScheduler, JobExplorer jobExplorer,
+                                  @Value("${spring.datasource.url:}") String repositoryUrl) {
+        this.properties = properties;
+        this.batchScheduler = batchScheduler;
+        this.jobExplorer = jobExplorer;
+        this.repositoryUrl = repositoryUrl;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (properties.getDirectories().isEmpty() || properties.getOutputDirectory().isBlank()) {
+            throw new IllegalStateException("开启 batch.ingest 时必须配置 directories 与 output-directory");
+        }
+        if (repositoryUrl.startsWith("jdbc:h2:mem:")) {
+            log.warn("Job 仓库在内存中（{}），失败的输入只能在本进程内通过 POST /files/jobs/{执行ID}/restart 重启，"
+                    + "进程重启后会被移到 {}/；需要跨进程重启时请改用持久化的 spring.datasource.url", repositoryUrl, FAILED_DIRECTORY);
+        }
+        this.outputDirectory = Files.createDirectories(Path.of(properties.getOutputDirectory()));
+        this.watchService = FileSystems.getDefault().newWatchService();
+        for (String raw : properties.getDirectories()) {
+            Path directory = Files.createDirectories(Path.of(raw));
+            Files.createDirectories(directory.resolve(PROCESSED_DIRECTORY));
+            Files.createDirectories(directory.resolve(FAILED_DIRECTORY));
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ingest-tick");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long tickMillis = Math.max(100L, Math.min(properties.getSettleTime().toMillis(), properties.getBatchMaxWait().toMillis()) / 4);
+        ticker.scheduleWithFixedDelay(() -> guarded(this::rescan), 0L, properties.getRescanInterval().toMillis(), TimeUnit.MILLISECONDS);
+        ticker.scheduleWithFixedDelay(() -> guarded(this::tick), tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        this.watcher = new Thread(this::watch, "ingest-watch");
+        watcher.setDaemon(true);
+        watcher.start();
+        log.info("开始监听落地目录: {}，输出目录: {}", properties.getDirectories(), outputDirectory);
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (watcher != null) {
+            watcher.interrupt();
+        }
+    }
+
+    private void watch() {
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path directory = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    ticker.execute(() -> guarded(this::rescan));
+                } else {
+                    observe(directory.resolve((Path) event.context()));
+                }
+            }
+            if (!key.reset()) {
+                log.warn("落地目录 {} 已不可访问，停止监听该目录", directory);
+            }
+        }
+    }
+
+    private void rescan() throws IOException {
+        for (String raw : properties.getDirectories()) {
+            List<Path> markers = new ArrayList<>();
+            try (Stream<Path> files = Files.list(Path.of(raw))) {
+                files.filter(Files::isRegularFile).forEach(path -> {
+                    String name = String.valueOf(path.getFileName());
+                    if (name.startsWith(".") && name.endsWith(FAILED_MARKER_SUFFIX)) {
+                        markers.add(path);
+                    } else {
+                        observe(path);
+                    }
+                });
+            }
+            markers.forEach(this::resolveFailed);
+        }
+    }
+
+    /**
+     * 登记一个可能需要处理的文件，是否已写完由定时线程判断。
+     */
+    private void observe(Path path) {
+        String name = String.valueOf(path.getFileName());
+        if (name.startsWith(".") || name.endsWith(".tmp") || inFlight.contains(path) || Files.exists(failedMarker(path))) {
+            return;
+        }
+        pending.putIfAbsent(path, new Candidate());
+    }
+
+    /**
+     * 检查登记的文件是否已稳定，稳定的按大小路由；批次等待过久时提交。
+     */
+    private void tick() {
+        long now = System.nanoTime();
+        long settleNanos = properties.getSettleTime().toNanos();
+        for (Iterator<Map.Entry<Path, Candidate>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Path, Candidate> entry = it.next();
+            Path path = entry.getKey();
+            Candidate candidate = entry.getValue();
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (IOException e) {
+                it.remove(); // 已被移走或删除
+                continue;
+            }
+            if (!attributes.isRegularFile()) {
+                it.remove();
+                continue;
+            }
+            long size = attributes.size();
+            long modified = attributes.lastModifiedTime().toMillis();
+            if (size != candidate.size || modified != candidate.modified) {
+                candidate.size = size;
+                candidate.modified = modified;
+                candidate.changedAt = now;
+                continue;
+            }
+            if (now - candidate.changedAt < settleNanos) {
+                continue;
+            }
+            inFlight.add(path); // 先标记再移出，监听线程不会在两步之间重新登记
+            it.remove();
+            route(path, size, now);
+        }
+        if (!batch.isEmpty() && now - batchStartedAt >= properties.getBatchMaxWait().toNanos()) {
+            flushBatch();
+        }
+    }
+
+    private void route(Path path, long size, long now) {
+        if (size < properties.getSmallFileThreshold().toBytes()) {
+            if (batch.isEmpty()) {
+                batchStartedAt = now;
+            }
+            batch.add(path);
+            batchBytes += size;
+            if (batch.size() >= properties.getBatchMaxFiles() || batchBytes >= properties.getBatchMaxBytes().toBytes()) {
+                flushBatch();
+            }
+            return;
+        }
+        FileJobRequest.Mode mode = size >= properties.getPartitionThreshold().toBytes()
+                ? FileJobRequest.Mode.PARTITIONED : FileJobRequest.Mode.MMAP;
+        Path output = outputDirectory.resolve(outputLabel(path.getParent())).resolve(path.getFileName());
+        try {
+            Files.createDirectories(output.getParent());
+        } catch (IOException e) {
+            log.error("创建输出目录失败: {}", output.getParent(), e);
+            inFlight.remove(path);
+            return;
+        }
+        submit(new FileJobRequest(path.toString(), output.toString(), mode), List.of(path));
+    }
+
+    /**
+     * 把当前批次写成清单并提交一个 MANIFEST Job；清单写失败时释放这些文件，下次扫描重新登记。
+     */
+    private void flushBatch() {
+        List<Path> inputs = List.copyOf(batch);
+        String name = "batch-" + LocalDateTime.now().format(BATCH_NAME) + "-" + batchSequence.incrementAndGet();
+        Path manifest = outputDirectory.resolve(name + ".manifest");
+        Path output = outputDirectory.resolve(name + ".csv");
+        batch.clear();
+        batchBytes = 0L;
+        try {
+            InputManifest.write(manifest, inputs);
+        } catch (IOException e) {
+            log.error("写入输入清单失败: {}", manifest, e);
+            inputs.forEach(inFlight::remove);
+            return;
+        }
+        log.info("合并 {} 个小文件为一个 Job，清单: {}", inputs.size(), manifest);
+        submit(new FileJobRequest(manifest.toString(), output.toString(), FileJobRequest.Mode.MANIFEST), inputs);
+    }
+
+    private void submit(FileJobRequest request, List<Path> inputs) {
+        batchScheduler.submit(request).thenAccept(outcome -> {
+            JobExecution execution = outcome.getExecution();
+            if (outcome.isSuccessful() || execution == null) {
+                archive(inputs, outcome.isSuccessful()); // 没有创建执行记录的失败无法重启
+            } else {
+                keepForRestart(inputs, execution.getId());
+            }
+        });
+    }
+
+    /**
+     * 不同落地目录可能有同名文件，大文件的输出按落地目录分到不同子目录：目录名加上完整路径的散列，同名目录也能区分。
+     */
+    private static String outputLabel(Path directory) {
+        Path absolute = directory.toAbsolutePath().normalize();
+        return absolute.getFileName() + "-" + String.format("%08x", absolute.toString().hashCode());
+    }
+
+    /**
+     * Job 结束后把输入移出落地目录，之后的扫描不会再处理它们。
+     */
+    private void archive(List<Path> inputs, boolean successful) {
+        String target = successful ? PROCESSED_DIRECTORY : FAILED_DIRECTORY;
+        for (Path input : inputs) {
+            try {
+                Files.move(input, input.resolveSibling(target).resolve(input.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+                Files.deleteIfExists(failedMarker(input));
+            } catch (IOException e) {
+                log.warn("移动已处理的输入失败: {}", input, e);
+            } finally {
+                inFlight.remove(input);
+            }
+        }
+        if (!successful) {
+            log.warn("{} 个输入处理失败，已移到 {}/ 目录", inputs.size(), FAILED_DIRECTORY);
+        }
+    }
+
+    /**
+     * 失败的输入留在原处，写上执行ID标记后不再登记，等待经 REST 接口（仓库持久化时也可用 file.restarts）重启或被放弃。
+     */
+    private void keepForRestart(List<Path> inputs, long executionId) {
+        for (Path input : inputs) {
+            try {
+                Files.writeString(failedMarker(input), Long.toString(executionId), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                log.warn("写入失败标记失败，本进程内不会重新处理，重新启动后会再次登记: {}", input, e);
+                continue; // 留在 inFlight 中
+            }
+            inFlight.remove(input);
+        }
+        log.warn("{} 个输入处理失败，留在落地目录等待重启（POST /files/jobs/{}/restart），放弃该执行后移到 {}/ 目录",
+                inputs.size(), executionId, FAILED_DIRECTORY);
+    }
+
+    /**
+     * 检查失败标记对应的 Job 实例：最新一次执行成功则归档到 processed/，被放弃或已不在 Job 仓库中则归档到 failed/。
+     */
+    private void resolveFailed(Path marker) {
+        String name = String.valueOf(marker.getFileName());
+        Path input = marker.resolveSibling(name.substring(1, name.length() - FAILED_MARKER_SUFFIX.length()));
+        try {
+            if (!Files.exists(input)) {
+                Files.deleteIfExists(marker);
+                return;
+            }
+            JobExecution failed = jobExplorer.getJobExecution(Long.parseLong(Files.readString(marker, StandardCharsets.UTF_8).trim()));
+            BatchStatus status = failed == null ? BatchStatus.ABANDONED
+                    : jobExplorer.getJobExecutions(failed.getJobInstance()).stream()
+                    .max(Comparator.comparing(JobExecution::getId))
+                    .map(JobExecution::getStatus)
+                    .orElse(BatchStatus.ABANDONED);
+            if (status == BatchStatus.COMPLETED || status == BatchStatus.ABANDONED) {
+                archive(List.of(input), status == BatchStatus.COMPLETED);
+            }
+        } catch (IOException | NumberFormatException e) {
+            log.warn("读取失败标记出错: {}", marker, e);
+        }
+    }
+
+    private static Path failedMarker(Path input) {
+        return input.resolveSibling("." + input.getFileName() + FAILED_MARKER_SUFFIX);
+    }
+
+    /**
+     * 定时任务抛出异常会被取消，这里只记录日志，下个周期继续。
+     */
+    private void guarded(IngestTask task) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            log.error("目录监听任务失败", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface IngestTask {
+        void run() throws Exception;
+    }
+
+    private static final class Candidate {
+        long size = -1L;
+        long modified = -1L;
+        long changedAt = 0L;
+    }
+}
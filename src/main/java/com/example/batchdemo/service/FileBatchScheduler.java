@@ -0,0 +1,268 @@
+package com.example.batchdemo.service;
+
+import com.example.batchdemo.config.DedupProperties;
+import com.example.batchdemo.config.WriterProperties;
+import com.example.batchdemo.io.GzipLineReader;
+import com.example.batchdemo.io.InputManifest;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 并发运行一批文件请求：每个请求在有界线程池上同步启动一次 Job，多个文件同时占用磁盘带宽，而不是逐个串行。
+ * REST 接口的单个请求经 {@link #start} 走同一个线程池与内存预算，只是立即返回执行记录。
+ * 准入按内存预算控制：每个 Job 按模式估算同时占用的 mmap 窗口、直接内存缓冲区与去重指纹表字节数，
+ * 预算不足时排队等待先完成的 Job 释放额度。批次按文件大小从大到小提交，避免大文件压在最后形成长尾。
+ */
+@Service
+public class FileBatchScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(FileBatchScheduler.class);
+
+    /** 信号量按 KB 计数，避免字节数超出 int 范围。 */
+    private static final int PERMIT_BYTES = 1024;
+
+    private final FileJobLauncherService launcherService;
+    private final WriterProperties writerProperties;
+    private final DedupProperties dedupProperties;
+    private final WindowReadAhead windowReadAhead;
+    private final GzipCodec gzipCodec;
+    private final ExecutorService executor;
+    private final Semaphore budget;
+    private final int budgetPermits;
+    private final long windowSize;
+    private final long chunkSize;
+    private final long writeBufferSize;
+    private final int gridSize;
+    private final long sortMemory;
+
+    public FileBatchScheduler(FileJobLauncherService launcherService, WriterProperties writerProperties,
+                              DedupProperties dedupProperties, WindowReadAhead windowReadAhead, GzipCodec gzipCodec,
+                              @Value("${batch.scheduler.max-concurrent-jobs:0}") int maxConcurrentJobs,
+                              @Value("${batch.scheduler.memory-budget:512MB}") DataSize memoryBudget,
+                              @Value("${batch.mmap.window-size:8MB}") DataSize windowSize,
+                              @Value("${batch.sendfile.chunk-size:4MB}") DataSize chunkSize,
+                              @Value("${batch.buffer-pool.default-buffer-size:1MB}") DataSize writeBufferSize,
+                              @Value("${batch.partition.grid-size:0}") int gridSize,
+                              @Value("${batch.sort.memory-budget:1GB}") DataSize sortMemory) {
+        this.launcherService = launcherService;
+        this.writerProperties = writerProperties;
+        this.dedupProperties = dedupProperties;
+        this.windowReadAhead = windowReadAhead;
+        this.gzipCodec = gzipCodec;
+        int threads = maxConcurrentJobs > 0 ? maxConcurrentJobs : Runtime.getRuntime().availableProcessors();
+        this.executor = newExecutor(threads);
+        this.budgetPermits = (int) Math.min(Integer.MAX_VALUE, Math.max(1L, memoryBudget.toBytes() / PERMIT_BYTES));
+        this.budget = new Semaphore(budgetPermits, true); // 公平模式，按提交顺序（大文件优先）准入
+        this.windowSize = windowSize.toBytes();
+        this.chunkSize = chunkSize.toBytes();
+        this.writeBufferSize = writeBufferSize.toBytes();
+        this.gridSize = gridSize > 0 ? gridSize : Runtime.getRuntime().availableProcessors();
+        this.sortMemory = sortMemory.toBytes();
+    }
+
+    /**
+     * 并发运行整批请求并等待全部结束，返回按提交顺序（文件从大到小）排列的结果。
+     * 单个文件失败不影响其它文件，失败信息记录在对应的 {@link FileJobOutcome} 中。
+     */
+    public List<FileJobOutcome> runAll(List<FileJobRequest> requests) {
+        long started = System.nanoTime();
+        List<SizedRequest> ordered = new ArrayList<>(requests.size());
+        for (FileJobRequest request : requests) {
+            ordered.add(new SizedRequest(request, inputSize(request)));
+        }
+        ordered.sort(Comparator.comparingLong(SizedRequest::size).reversed());
+
+        List<CompletableFuture<FileJobOutcome>> futures = new ArrayList<>(ordered.size());
+        for (SizedRequest sized : ordered) {
+            futures.add(submit(sized.request(), sized.size()));
+        }
+        List<FileJobOutcome> outcomes = new ArrayList<>(futures.size());
+        for (CompletableFuture<FileJobOutcome> future : futures) {
+            outcomes.add(future.join());
+        }
+        logSummary(outcomes, Duration.ofNanos(System.nanoTime() - started));
+        return outcomes;
+    }
+
+    /**
+     * 提交单个请求，内存预算允许时立即启动，否则排队；返回的 future 在 Job 结束后完成，不会异常完成。
+     */
+    public CompletableFuture<FileJobOutcome> submit(FileJobRequest request) {
+        return submit(request, inputSize(request));
+    }
+
+    /**
+     * 异步提交单个请求（REST 接口使用）：立即在 Job 仓库中创建执行记录并返回，Job 与批量请求共用 file-job 线程池
+     * 与内存预算，准入后才开始运行，排队期间执行状态为 STARTING。
+     */
+    public JobExecution start(FileJobRequest request) throws Exception {
+        long inputSize = inputSize(request);
+        int permits = permits(request, inputSize);
+        return launcherService.start(request, job -> executor.execute(() -> runAdmitted(request, inputSize, permits, job)));
+    }
+
+    /**
+     * 异步重启失败的执行（REST 接口使用）：与 {@link #start} 一样立即返回新的执行记录，按原请求估算的内存预算准入后运行。
+     */
+    public JobExecution restart(long failedExecutionId) throws Exception {
+        FileJobRequest request = launcherService.requestOf(failedExecutionId);
+        long inputSize = inputSize(request);
+        int permits = permits(request, inputSize);
+        return launcherService.restart(failedExecutionId, job -> executor.execute(() -> runAdmitted(request, inputSize, permits, job)));
+    }
+
+    /**
+     * 估算一个 Job 运行期间同时占用的 mmap 窗口、直接内存缓冲区与去重指纹表字节数。
+     */
+    long estimateFootprint(FileJobRequest request, long inputSize) {
+        long writer = writeBufferSize * (writerProperties.isAsync() ? Math.max(1, writerProperties.getRingSize()) : 1);
+        if (GzipCodec.isGzip(Path.of(request.getOutputPath()))) {
+            // 压缩中的每个缓冲区另占一块同样大小的压缩输出缓冲区，压缩时不使用异步环
+            writer = writeBufferSize * (1 + 4L * gzipCodec.threads());
+        }
+        long mapped = windowReadAhead.peakMappedBytes(windowSize);
+        long window = inputSize > 0 ? Math.min(mapped, inputSize) : mapped;
+        long dedup = dedupFootprint(request);
+        return switch (request.getMode()) {
+            case SENDFILE -> chunkSize + writer + dedup;
+            case PARTITIONED -> dedup > 0 ? window + writer + dedup : (long) gridSize * (window + writer);
+            case REMOTE_PARTITIONED -> writer; // 清洗在 worker 进程中进行，本进程只拼接分片
+            case MMAP_SORTED -> Math.max(window + writer + dedup, sortMemory); // 清洗与排序两个 step 先后执行
+            default -> window + writer + dedup;
+        };
+    }
+
+    /**
+     * 去重指纹表在直接内存中按需增长到 batch.dedup.memory-budget，不经过缓冲池，按上限计入准入。
+     * 只有单线程的字符串 step 去重：分区、跨进程分区与字节模式不计；gzip 输入的分区请求按单线程的 gzip Job 运行，要计。
+     */
+    private long dedupFootprint(FileJobRequest request) {
+        if (!dedupProperties.isEnabled()) {
+            return 0L;
+        }
+        return switch (request.getMode()) {
+            case REMOTE_PARTITIONED, MMAP_BYTES -> 0L;
+            case PARTITIONED -> GzipLineReader.isGzip(Path.of(request.getInputPath()))
+                    ? dedupProperties.getMemoryBudget().toBytes() : 0L;
+            default -> dedupProperties.getMemoryBudget().toBytes();
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private CompletableFuture<FileJobOutcome> submit(FileJobRequest request, long inputSize) {
+        int permits = permits(request, inputSize);
+        return CompletableFuture.supplyAsync(() -> run(request, inputSize, permits), executor);
+    }
+
+    /**
+     * 单个 Job 超过总预算时按总预算准入，即独占运行，而不是永远等不到额度。
+     */
+    private int permits(FileJobRequest request, long inputSize) {
+        return (int) Math.min(budgetPermits, Math.max(1L, estimateFootprint(request, inputSize) / PERMIT_BYTES));
+    }
+
+    /**
+     * 在 file-job 线程上等到预算后运行已创建执行记录的 Job；job 由 TaskExecutorJobLauncher 提供，自己记录成败。
+     */
+    private void runAdmitted(FileJobRequest request, long inputSize, int permits, Runnable job) {
+        try {
+            budget.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("排队中的 Job 在准入前被取消，输入: {}", request.getInputPath());
+            return;
+        }
+        try {
+            log.info("启动批处理，请求模式: {}, 输入: {} ({} 字节), 输出: {}, 占用内存预算 {} KB",
+                    request.getMode(), request.getInputPath(), inputSize, request.getOutputPath(), permits);
+            job.run();
+        } finally {
+            budget.release(permits);
+        }
+    }
+
+    private FileJobOutcome run(FileJobRequest request, long inputSize, int permits) {
+        long started = System.nanoTime();
+        try {
+            budget.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new FileJobOutcome(request, inputSize, null, e, Duration.ofNanos(System.nanoTime() - started));
+        }
+        try {
+            log.info("启动批处理，请求模式: {}, 输入: {} ({} 字节), 输出: {}, 占用内存预算 {} KB",
+                    request.getMode(), request.getInputPath(), inputSize, request.getOutputPath(), permits);
+            JobExecution execution = launcherService.launch(request);
+            return new FileJobOutcome(request, inputSize, execution, null, Duration.ofNanos(System.nanoTime() - started));
+        } catch (Exception e) {
+            log.error("批处理启动失败，输入: {}", request.getInputPath(), e);
+            return new FileJobOutcome(request, inputSize, null, e, Duration.ofNanos(System.nanoTime() - started));
+        } finally {
+            budget.release(permits);
+        }
+    }
+
+    private void logSummary(List<FileJobOutcome> outcomes, Duration elapsed) {
+        long totalBytes = 0L;
+        int succeeded = 0;
+        for (FileJobOutcome outcome : outcomes) {
+            totalBytes += outcome.getInputSize();
+            if (outcome.isSuccessful()) {
+                succeeded++;
+            } else {
+                log.warn("文件处理未成功，输入: {}, 状态: {}, 耗时: {} ms", outcome.getRequest().getInputPath(),
+                        outcome.getStatus(), outcome.getElapsed().toMillis());
+            }
+        }
+        double seconds = Math.max(1L, elapsed.toMillis()) / 1000.0;
+        log.info("批次完成: {}/{} 个文件成功，共 {} 字节，耗时 {} ms，吞吐 {} MB/s", succeeded, outcomes.size(),
+                totalBytes, elapsed.toMillis(), String.format("%.1f", totalBytes / seconds / (1024 * 1024)));
+    }
+
+    private static long inputSize(FileJobRequest request) {
+        if (request.getMode() == FileJobRequest.Mode.MANIFEST) {
+            return InputManifest.totalSize(Path.of(request.getInputPath()));
+        }
+        try {
+            return Files.size(Path.of(request.getInputPath()));
+        } catch (IOException e) {
+            return 0L; // 文件不存在等错误留给 Job 自己报告
+        }
+    }
+
+    private static ExecutorService newExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "file-job-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private record SizedRequest(FileJobRequest request, long size) {
+    }
+}
@@ -1,12 +1,22 @@
 package com.example.batchdemo.service;
 
+import com.example.batchdemo.io.GzipLineReader;
+import com.example.batchdemo.io.InputManifest;
+import com.example.batchdemo.job.InputFingerprint;
 import org.springframework.batch.core.Job;
-import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.explore.JobExplorer;
 import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.launch.support.TaskExecutorJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
 
+import java.nio.file.Path;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * 每个文件处理请求对应一次 Job 启动，确保“一个文件一个请求”的语义。
@@ -15,32 +25,159 @@ import java.time.Instant;
 public class FileJobLauncherService {
 
     private final JobLauncher jobLauncher;
+    private final JobRepository jobRepository;
+    private final JobExplorer jobExplorer;
     private final Job memoryMappedJob;
     private final Job sendfileJob;
+    private final Job partitionedJob;
+    private final Job memoryMappedByteJob;
+    private final Job csvJob;
+    private final Job sortedJob;
+    private final Job gzipJob;
+    private final Job incrementalJob;
+    private final Job manifestJob;
+    private final Job remotePartitionedJob;
 
-    public FileJobLauncherService(JobLauncher jobLauncher, Job memoryMappedJob, Job sendfileJob) {
+    public FileJobLauncherService(JobLauncher jobLauncher, JobRepository jobRepository, JobExplorer jobExplorer,
+                                  Job memoryMappedJob, Job sendfileJob, Job partitionedJob, Job memoryMappedByteJob,
+                                  Job csvJob, Job sortedJob, Job gzipJob,
+                                  Job incrementalJob, Job manifestJob, Job remotePartitionedJob) {
         this.jobLauncher = jobLauncher;
+        this.jobRepository = jobRepository;
+        this.jobExplorer = jobExplorer;
         this.memoryMappedJob = memoryMappedJob;
         this.sendfileJob = sendfileJob;
+        this.partitionedJob = partitionedJob;
+        this.memoryMappedByteJob = memoryMappedByteJob;
+        this.csvJob = csvJob;
+        this.sortedJob = sortedJob;
+        this.gzipJob = gzipJob;
+        this.incrementalJob = incrementalJob;
+        this.manifestJob = manifestJob;
+        this.remotePartitionedJob = remotePartitionedJob;
     }
 
     /**
-     * 根据请求选择对应的 Job 启动，实现“一个文件一个请求”。
+     * 根据请求选择对应的 Job 同步启动，实现“一个文件一个请求”，返回结束后的执行记录。
      */
-    public void launch(FileJobRequest request) throws Exception {
-        if (request.getMode() == FileJobRequest.Mode.MMAP) {
-            launchJob(memoryMappedJob, request.getInputPath(), request.getOutputPath());
-        } else {
-            launchJob(sendfileJob, request.getInputPath(), request.getOutputPath());
+    public JobExecution launch(FileJobRequest request) throws Exception {
+        return launchJob(jobLauncher, jobFor(request), request);
+    }
+
+    /**
+     * 异步启动：在 Job 仓库中创建执行记录后把 Job 交给 executor 运行，立即返回刚创建的执行记录。
+     * executor 决定 Job 何时、在哪个线程上运行，由 {@link FileBatchScheduler#start} 传入带准入控制的执行器。
+     */
+    public JobExecution start(FileJobRequest request, TaskExecutor executor) throws Exception {
+        TaskExecutorJobLauncher launcher = new TaskExecutorJobLauncher();
+        launcher.setJobRepository(jobRepository);
+        launcher.setTaskExecutor(executor);
+        launcher.afterPropertiesSet();
+        return launchJob(launcher, jobFor(request), request);
+    }
+
+    /**
+     * 以原参数重新启动失败的 Job 实例：读取器从上次提交的字节偏移继续，写入器截断到上次提交的位置后追加，
+     * 恢复耗时只取决于剩余数据量。默认的内存 H2 仓库只能在同一进程内重启（REST 接口或目录接入的失败输入），
+     * 需要 Job 仓库在进程间持久化（例如文件模式的 H2）才能跨进程重启。
+     */
+    public JobExecution restart(long failedExecutionId) throws Exception {
+        JobExecution failed = failedExecution(failedExecutionId);
+        return jobLauncher.run(jobNamed(failed.getJobInstance().getJobName()), failed.getJobParameters());
+    }
+
+    /**
+     * 异步重启：与 {@link #start} 一样创建执行记录后把 Job 交给 executor 运行，立即返回新的执行记录。
+     */
+    public JobExecution restart(long failedExecutionId, TaskExecutor executor) throws Exception {
+        JobExecution failed = failedExecution(failedExecutionId);
+        TaskExecutorJobLauncher launcher = new TaskExecutorJobLauncher();
+        launcher.setJobRepository(jobRepository);
+        launcher.setTaskExecutor(executor);
+        launcher.afterPropertiesSet();
+        return launcher.run(jobNamed(failed.getJobInstance().getJobName()), failed.getJobParameters());
+    }
+
+    /**
+     * 失败执行对应的请求，路径取自 Job 参数，模式由 Job 名称推出（gzip Job 按 MMAP 计），用于重启前估算内存预算。
+     */
+    public FileJobRequest requestOf(long failedExecutionId) {
+        JobExecution failed = failedExecution(failedExecutionId);
+        Job job = jobNamed(failed.getJobInstance().getJobName());
+        FileJobRequest.Mode mode = job == gzipJob ? FileJobRequest.Mode.MMAP : Arrays.stream(FileJobRequest.Mode.values())
+                .filter(candidate -> jobFor(candidate) == job)
+                .findFirst()
+                .orElse(FileJobRequest.Mode.MMAP);
+        return new FileJobRequest(failed.getJobParameters().getString("input"), failed.getJobParameters().getString("output"), mode);
+    }
+
+    private JobExecution failedExecution(long failedExecutionId) {
+        JobExecution failed = jobExplorer.getJobExecution(failedExecutionId);
+        if (failed == null) {
+            throw new IllegalArgumentException("找不到 Job 执行记录: " + failedExecutionId);
         }
+        return failed;
+    }
+
+    private Job jobNamed(String jobName) {
+        return List.of(memoryMappedJob, sendfileJob, partitionedJob, memoryMappedByteJob, csvJob, sortedJob, gzipJob,
+                        incrementalJob, manifestJob, remotePartitionedJob).stream()
+                .filter(candidate -> candidate.getName().equals(jobName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("未知的 Job: " + jobName));
     }
 
-    private void launchJob(Job job, String input, String output) throws Exception {
-        JobParameters params = new JobParametersBuilder()
+    /**
+     * gzip 输入（按文件魔数判断）无法 mmap 或按字节切分，MMAP、SENDFILE、PARTITIONED 模式统一改走 gzip 版本 Job。
+     */
+    private Job jobFor(FileJobRequest request) {
+        if (request.getMode() != FileJobRequest.Mode.MANIFEST && GzipLineReader.isGzip(Path.of(request.getInputPath()))) {
+            return switch (request.getMode()) {
+                case MMAP, SENDFILE, PARTITIONED -> gzipJob;
+                default -> throw new IllegalArgumentException(request.getMode() + " 模式不支持 gzip 输入: " + request.getInputPath());
+            };
+        }
+        return jobFor(request.getMode());
+    }
+
+    private Job jobFor(FileJobRequest.Mode mode) {
+        return switch (mode) {
+            case MMAP -> memoryMappedJob;
+            case PARTITIONED -> partitionedJob;
+            case MMAP_BYTES -> memoryMappedByteJob;
+            case CSV -> csvJob;
+            case MMAP_SORTED -> sortedJob;
+            case INCREMENTAL -> incrementalJob;
+            case MANIFEST -> manifestJob;
+            case REMOTE_PARTITIONED -> remotePartitionedJob;
+            default -> sendfileJob;
+        };
+    }
+
+    /**
+     * 增量模式在启动前比较输入指纹，把本次要处理的输入区间与输出追加位置作为 Job 参数传入，重启时沿用同一区间；
+     * 清单模式记下清单中文件的总字节数，供进度计算使用。
+     */
+    private JobExecution launchJob(JobLauncher launcher, Job job, FileJobRequest request) throws Exception {
+        String input = request.getInputPath();
+        String output = request.getOutputPath();
+        if (request.getMode() == FileJobRequest.Mode.REMOTE_PARTITIONED) {
+            // worker 进程的工作目录可能不同，分区区间与分片路径都要用绝对路径
+            input = Path.of(input).toAbsolutePath().toString();
+            output = Path.of(output).toAbsolutePath().toString();
+        }
+        JobParametersBuilder params = new JobParametersBuilder()
                 .addString("input", input)
                 .addString("output", output)
-                .addLong("timestamp", Instant.now().toEpochMilli())
-                .toJobParameters();
-        jobLauncher.run(job, params);
+                .addLong("timestamp", Instant.now().toEpochMilli());
+        if (request.getMode() == FileJobRequest.Mode.INCREMENTAL) {
+            InputFingerprint.Plan plan = InputFingerprint.plan(Path.of(request.getInputPath()), Path.of(request.getOutputPath()));
+            params.addLong("startOffset", plan.startOffset())
+                    .addLong("endOffset", plan.endOffset())
+                    .addLong("outputOffset", plan.outputOffset());
+        } else if (request.getMode() == FileJobRequest.Mode.MANIFEST) {
+            params.addLong("inputBytes", InputManifest.totalSize(Path.of(request.getInputPath())));
+        }
+        return launcher.run(job, params.toJobParameters());
     }
 }
@@ -0,0 +1,61 @@
+package com.example.batchdemo.service;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+
+/**
+ * 批量调度中单个文件请求的执行结果：Job 正常跑完时带有 {@link JobExecution}，启动阶段抛出异常时带有 failure。
+ */
+public class FileJobOutcome {
+
+    private final FileJobRequest request;
+    private final long inputSize;
+    private final JobExecution execution;
+    private final Throwable failure;
+    private final Duration elapsed;
+
+    FileJobOutcome(FileJobRequest request, long inputSize, @Nullable JobExecution execution,
+                   @Nullable Throwable failure, Duration elapsed) {
+        this.request = request;
+        this.inputSize = inputSize;
+        this.execution = execution;
+        this.failure = failure;
+        this.elapsed = elapsed;
+    }
+
+    public FileJobRequest getRequest() {
+        return request;
+    }
+
+    public long getInputSize() {
+        return inputSize;
+    }
+
+    @Nullable
+    public JobExecution getExecution() {
+        return execution;
+    }
+
+    @Nullable
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * 启动异常记为 FAILED，否则取 Job 的最终状态。
+     */
+    public BatchStatus getStatus() {
+        return execution == null ? BatchStatus.FAILED : execution.getStatus();
+    }
+
+    public boolean isSuccessful() {
+        return failure == null && getStatus() == BatchStatus.COMPLETED;
+    }
+}
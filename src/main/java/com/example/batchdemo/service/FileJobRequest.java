@@ -6,11 +6,18 @@ import java.util.Objects;
 /**
  * 将每个文件路径/模式封装成一个批处理请求对象，等同于“一个文件一个请求”的语义。
  * 接收的字符串格式：mode:input:output，例如 MMAP:/data/in.csv:/data/out.csv。
+ * PARTITIONED 模式按行切分同一个文件，由多个线程并行处理；MMAP_BYTES 模式全程以字节行流转，不创建 String；
+ * CSV 模式按 RFC 4180 切分记录（引号内可换行），只输出 batch.csv.columns 中的列；
+ * MMAP_SORTED 模式清洗后再按 batch.sort.key-column 外部排序；
+ * INCREMENTAL 模式用于只追加的输入，文件只在末尾增长时只处理新增部分并追加到已有输出；
+ * MANIFEST 模式的输入是每行一个路径的清单，清单中的文件依次清洗后合并写入同一个输出；
+ * REMOTE_PARTITIONED 模式与 PARTITIONED 一样按行切分，分区交给共享同一 Job 仓库的其它 worker 进程执行，本进程只等待与拼接。
+ * 输入为 gzip 文件时 MMAP、SENDFILE、PARTITIONED 模式改为解压读取；输出文件名以 .gz 结尾时输出 gzip。
  */
 public class FileJobRequest {
 
     public enum Mode {
-        MMAP, SENDFILE
+        MMAP, SENDFILE, PARTITIONED, MMAP_BYTES, CSV, MMAP_SORTED, INCREMENTAL, MANIFEST, REMOTE_PARTITIONED
     }
 
     private final String inputPath;
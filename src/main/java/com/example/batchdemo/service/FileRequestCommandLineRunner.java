@@ -13,7 +13,9 @@ import java.util.List;
 
 /**
  * 在程序启动时，将每个文件视为一次“请求”去触发对应的 Job，避免使用 REST。
- * 可以通过 --file.requests=MMAP:/data/in.csv:/data/out.csv 的形式传入多个请求。
+ * 可以通过 --file.requests=MMAP:/data/in.csv:/data/out.csv 的形式传入多个请求；
+ * 通过 --file.restarts=执行ID 重启失败的 Job，从上次提交的偏移继续处理。
+ * 多个请求交给 {@link FileBatchScheduler} 并发运行，全部结束后汇总结果。
  */
 @Component
 public class FileRequestCommandLineRunner implements ApplicationRunner {
@@ -23,22 +25,36 @@ public class FileRequestCommandLineRunner implements ApplicationRunner {
     @Value("${file.requests:}")
     private List<String> rawRequests = Collections.emptyList();
 
+    @Value("${file.restarts:}")
+    private List<Long> restartExecutionIds = Collections.emptyList();
+
     private final FileJobLauncherService launcherService;
+    private final FileBatchScheduler batchScheduler;
 
-    public FileRequestCommandLineRunner(FileJobLauncherService launcherService) {
+    public FileRequestCommandLineRunner(FileJobLauncherService launcherService, FileBatchScheduler batchScheduler) {
         this.launcherService = launcherService;
+        this.batchScheduler = batchScheduler;
     }
 
     @Override
     public void run(ApplicationArguments args) throws Exception {
+        for (Long executionId : restartExecutionIds) {
+            if (executionId == null) {
+                continue;
+            }
+            log.info("重启失败的批处理，执行ID: {}", executionId);
+            launcherService.restart(executionId);
+        }
         List<FileJobRequest> requests = normalize(rawRequests);
         if (requests.isEmpty()) {
             log.info("未收到 file.requests，跳过批处理触发");
             return;
         }
-        for (FileJobRequest request : requests) {
-            log.info("启动批处理，请求模式: {}, 输入: {}, 输出: {}", request.getMode(), request.getInputPath(), request.getOutputPath());
-            launcherService.launch(request);
+        long failed = batchScheduler.runAll(requests).stream()
+                .filter(outcome -> outcome.getFailure() != null)
+                .count();
+        if (failed > 0) {
+            throw new IllegalStateException(failed + " 个文件请求启动失败，详见日志");
         }
     }
 
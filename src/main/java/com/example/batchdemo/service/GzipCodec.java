@@ -0,0 +1,66 @@
+package com.example.batchdemo.service;
+
+import com.example.batchdemo.io.AbstractFileChannelWriter;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+/**
+ * gzip 压缩与解压共享的线程池：写入器把刷出的缓冲区交给这里并行压缩，gzip 读取器在这里并行解压 BGZF 块。
+ * 每个线程复用自己的 Deflater，避免每块都分配 zlib 的本地内存。输出文件名以 .gz 结尾时写入器自动开启压缩。
+ */
+@Component
+public class GzipCodec {
+
+    private final int threads;
+    private final ThreadLocal<Deflater> deflaters;
+    private final ExecutorService executor;
+
+    public GzipCodec(@Value("${batch.compression.threads:0}") int threads,
+                     @Value("${batch.compression.level:6}") int level) {
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(level, true));
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(this.threads, this.threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "gzip-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 输出文件名以 .gz 结尾时让写入器压缩输出，每个写入器最多有两倍线程数的缓冲区在压缩中。
+     * 分区写入器的分片文件名不带 .gz，因此按 Job 的最终输出判断。
+     */
+    public <W extends AbstractFileChannelWriter<?>> W applyTo(W writer, Path output) {
+        if (isGzip(output)) {
+            writer.setCompression(executor, deflaters, 2 * threads);
+        }
+        return writer;
+    }
+
+    public static boolean isGzip(Path output) {
+        return String.valueOf(output.getFileName()).endsWith(".gz");
+    }
+
+    public ExecutorService executor() {
+        return executor;
+    }
+
+    public int threads() {
+        return threads;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.batchdemo.service;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.lang.Nullable;
+
+/**
+ * 某次 Job 执行的进度快照：已处理字节数来自读取器在每次 chunk 提交时保存的字节偏移，
+ * 行数来自 step 的 readCount，速率按执行开始至今的平均值计算。
+ */
+public class JobProgress {
+
+    private final long executionId;
+    private final BatchStatus status;
+    private final long totalBytes;
+    private final long bytesProcessed;
+    private final long linesRead;
+    private final long elapsedMillis;
+    private final Long etaSeconds;
+
+    JobProgress(long executionId, BatchStatus status, long totalBytes, long bytesProcessed, long linesRead,
+                long elapsedMillis, @Nullable Long etaSeconds) {
+        this.executionId = executionId;
+        this.status = status;
+        this.totalBytes = totalBytes;
+        this.bytesProcessed = bytesProcessed;
+        this.linesRead = linesRead;
+        this.elapsedMillis = elapsedMillis;
+        this.etaSeconds = etaSeconds;
+    }
+
+    public long getExecutionId() {
+        return executionId;
+    }
+
+    public BatchStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * 输入文件大小，读取失败时为 -1。
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getBytesProcessed() {
+        return bytesProcessed;
+    }
+
+    public long getLinesRead() {
+        return linesRead;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getPercent() {
+        return totalBytes > 0 ? Math.min(100.0, bytesProcessed * 100.0 / totalBytes) : 0.0;
+    }
+
+    public double getBytesPerSecond() {
+        return elapsedMillis > 0 ? bytesProcessed * 1000.0 / elapsedMillis : 0.0;
+    }
+
+    public double getLinesPerSecond() {
+        return elapsedMillis > 0 ? linesRead * 1000.0 / elapsedMillis : 0.0;
+    }
+
+    /**
+     * 按当前平均速率估算的剩余秒数；尚无进度或总大小未知时为 null。
+     */
+    @Nullable
+    public Long getEtaSeconds() {
+        return etaSeconds;
+    }
+
+    public boolean isRunning() {
+        return status.isRunning();
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.batchdemo.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 跨进程分区的认领表，与 Job 仓库放在同一个数据库里。
+ * 每个 worker step 执行一行：manager 登记为 PENDING，worker 用条件更新抢占为 CLAIMED 并定期刷新心跳，
+ * 执行完标记为 DONE 或 FAILED；心跳超时的认领由 manager 退回 PENDING 交给其它 worker，认领次数用完后标记为 FAILED。
+ * 心跳记录的是进程的墙钟毫秒数，要求各进程时钟一致（同一台机器上天然满足）。
+ * 表结构在 batch/schema-partition-claim.sql 中，随数据源由 spring.sql.init 初始化，这里不执行 DDL。
+ */
+@Service
+public class PartitionClaimStore {
+
+    public static final String PENDING = "PENDING";
+    public static final String CLAIMED = "CLAIMED";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
+    /** 一次认领：worker 据此从 Job 仓库加载 step 执行并运行名为 stepName 的 step。 */
+    public record Claim(long stepExecutionId, long jobExecutionId, String stepName, int attempt) {
+    }
+
+    private static final int CLAIM_CANDIDATES = 8;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PartitionClaimStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 登记待处理的分区；重启时已登记过的 step 执行不重复登记。
+     */
+    public void register(long jobExecutionId, String stepName, Collection<Long> stepExecutionIds) {
+        for (long id : stepExecutionIds) {
+            Integer existing = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM BATCH_PARTITION_CLAIM WHERE STEP_EXECUTION_ID = ?", Integer.class, id);
+            if (existing == null || existing == 0) {
+                jdbcTemplate.update("INSERT INTO BATCH_PARTITION_CLAIM "
+                                + "(STEP_EXECUTION_ID, JOB_EXECUTION_ID, STEP_NAME, STATUS, ATTEMPTS) VALUES (?, ?, ?, ?, 0)",
+                        id, jobExecutionId, stepName, PENDING);
+            }
+        }
+    }
+
+    /**
+     * 认领一个待处理的分区；多个 worker 同时抢同一行时只有一个条件更新成功，失败的换下一行。
+     */
+    public Optional<Claim> claim(String worker) {
+        List<Map<String, Object>> candidates = jdbcTemplate.queryForList(
+                "SELECT STEP_EXECUTION_ID, JOB_EXECUTION_ID, STEP_NAME, ATTEMPTS FROM BATCH_PARTITION_CLAIM "
+                        + "WHERE STATUS = ? ORDER BY STEP_EXECUTION_ID FETCH FIRST " + CLAIM_CANDIDATES + " ROWS ONLY",
+                PENDING);
+        for (Map<String, Object> row : candidates) {
+            long id = ((Number) row.get("STEP_EXECUTION_ID")).longValue();
+            int updated = jdbcTemplate.update("UPDATE BATCH_PARTITION_CLAIM "
+                            + "SET STATUS = ?, WORKER = ?, HEARTBEAT = ?, ATTEMPTS = ATTEMPTS + 1 "
+                            + "WHERE STEP_EXECUTION_ID = ? AND STATUS = ?",
+                    CLAIMED, worker, System.currentTimeMillis(), id, PENDING);
+            if (updated == 1) {
+                return Optional.of(new Claim(id, ((Number) row.get("JOB_EXECUTION_ID")).longValue(),
+                        (String) row.get("STEP_NAME"), ((Number) row.get("ATTEMPTS")).intValue() + 1));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * 刷新心跳，返回 false 表示认领已被 manager 收回，worker 应尽快停止该分区。
+     */
+    public boolean heartbeat(long stepExecutionId, String worker) {
+        return jdbcTemplate.update("UPDATE BATCH_PARTITION_CLAIM SET HEARTBEAT = ? "
+                        + "WHERE STEP_EXECUTION_ID = ? AND WORKER = ? AND STATUS = ?",
+                System.currentTimeMillis(), stepExecutionId, worker, CLAIMED) == 1;
+    }
+
+    /**
+     * 记录分区的结果，只有仍持有认领的 worker 能写入；返回 false 表示认领已被收回。
+     */
+    public boolean complete(long stepExecutionId, String worker, String status) {
+        return jdbcTemplate.update("UPDATE BATCH_PARTITION_CLAIM SET STATUS = ?, HEARTBEAT = ? "
+                        + "WHERE STEP_EXECUTION_ID = ? AND WORKER = ? AND STATUS = ?",
+                status, System.currentTimeMillis(), stepExecutionId, worker, CLAIMED) == 1;
+    }
+
+    /**
+     * 收回心跳早于 expiredBefore 的认领：认领次数未满 maxAttempts 的退回 PENDING，已满的标记为 FAILED。
+     * 返回被标记为 FAILED 的 step 执行，由调用方在 Job 仓库中同步标记失败。
+     */
+    public List<Long> reclaimExpired(long jobExecutionId, long expiredBefore, int maxAttempts) {
+        List<Long> exhausted = jdbcTemplate.queryForList("SELECT STEP_EXECUTION_ID FROM BATCH_PARTITION_CLAIM "
+                        + "WHERE JOB_EXECUTION_ID = ? AND STATUS = ? AND HEARTBEAT < ? AND ATTEMPTS >= ?",
+                Long.class, jobExecutionId, CLAIMED, expiredBefore, maxAttempts);
+        for (long id : exhausted) {
+            jdbcTemplate.update("UPDATE BATCH_PARTITION_CLAIM SET STATUS = ? WHERE STEP_EXECUTION_ID = ? AND STATUS = ?",
+                    FAILED, id, CLAIMED);
+        }
+        jdbcTemplate.update("UPDATE BATCH_PARTITION_CLAIM SET STATUS = ?, WORKER = NULL "
+                        + "WHERE JOB_EXECUTION_ID = ? AND STATUS = ? AND HEARTBEAT < ? AND ATTEMPTS < ?",
+                PENDING, jobExecutionId, CLAIMED, expiredBefore, maxAttempts);
+        return exhausted;
+    }
+
+    /**
+     * 某次 Job 执行下各分区的状态，键为 step 执行 ID。
+     */
+    public Map<Long, String> statuses(long jobExecutionId) {
+        Map<Long, String> statuses = new HashMap<>();
+        jdbcTemplate.query("SELECT STEP_EXECUTION_ID, STATUS FROM BATCH_PARTITION_CLAIM WHERE JOB_EXECUTION_ID = ?",
+                rs -> {
+                    statuses.put(rs.getLong(1), rs.getString(2));
+                }, jobExecutionId);
+        return statuses;
+    }
+
+    /**
+     * manager 放弃等待时把尚未完成的分区标记为 FAILED，之后回来的 worker 写不进结果。
+     */
+    public void abandon(long jobExecutionId) {
+        jdbcTemplate.update("UPDATE BATCH_PARTITION_CLAIM SET STATUS = ? WHERE JOB_EXECUTION_ID = ? AND STATUS IN (?, ?)",
+                FAILED, jobExecutionId, PENDING, CLAIMED);
+    }
+}
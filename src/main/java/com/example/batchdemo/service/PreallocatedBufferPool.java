@@ -1,56 +1,456 @@
 package com.example.batchdemo.service;
 
+import com.example.batchdemo.io.DirectBufferCleaner;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 
+import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 在应用启动时预分配直接内存，避免每次读写大文件都临时申请内存。
- * 重启时会主动清空引用，帮助垃圾回收及时释放旧的直接内存，再重新分配。
+ * 缓冲区按容量分成若干档（size class），每档一个无锁空闲队列；每个线程另有一个小“弹匣”缓存，
+ * 同一线程借还缓冲区时只有一次无竞争的加锁，不碰全局队列。
+ * 所有直接内存（空闲 + 借出）受 maxOffHeap 硬上限约束：用尽时借用方阻塞等待归还，超时抛出异常，
+ * 不再无上限地 allocateDirect；超出空闲上限的缓冲区归还时立即显式释放，不等 GC。
+ * 所有弹匣都登记在池里：线程退出后其弹匣中的缓冲区在下一次有线程新建弹匣或额度不足时被释放，
+ * 短命线程池（排序、gzip、预读、远程 worker）不会把额度永久占住；刷新与关闭时清空所有线程的弹匣。
+ * 额度仍不足时再从仍活着但空闲的线程的弹匣里取：同档的缓冲区直接转交借用方，否则释放腾出额度，
+ * 弹匣缓存的缓冲区因此不会让其它线程在上限前等到超时。
+ * 作为 {@link MeterBinder} 导出占用量、未命中与超档分配次数，计量读取的都是已有的原子计数器。
  */
 @Component
-public class PreallocatedBufferPool {
+public class PreallocatedBufferPool implements MeterBinder {
 
-    private static final int DEFAULT_BUFFER_SIZE = 1024 * 1024; // 1MB
-    private static final int BUFFER_COUNT = 8; // 预分配 8 个缓冲区满足并发请求
+    private final int[] classSizes;
+    private final SizeClass[] classes;
+    private final int defaultBufferSize;
+    private final int preallocateCount;
+    private final long maxOffHeapBytes;
+    private final int maxIdlePerClass;
+    private final int magazineSize;
+    private final long acquireTimeoutNanos;
 
-    private final Deque<ByteBuffer> pool = new ArrayDeque<>();
+    private final ThreadLocal<Magazine> magazines;
+    private final Queue<Magazine> registry = new ConcurrentLinkedQueue<>();
+    private final AtomicLong reservedBytes = new AtomicLong();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final Object exhausted = new Object();
+
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong fallbackAllocations = new AtomicLong();
+
+    public PreallocatedBufferPool(
+            @Value("${batch.buffer-pool.size-classes:64KB,256KB,1MB,4MB}") List<DataSize> sizeClasses,
+            @Value("${batch.buffer-pool.default-buffer-size:1MB}") DataSize defaultBufferSize,
+            @Value("${batch.buffer-pool.preallocate-count:8}") int preallocateCount,
+            @Value("${batch.buffer-pool.max-off-heap:256MB}") DataSize maxOffHeap,
+            @Value("${batch.buffer-pool.max-idle-per-class:16}") int maxIdlePerClass,
+            @Value("${batch.buffer-pool.magazine-size:2}") int magazineSize,
+            @Value("${batch.buffer-pool.acquire-timeout:30s}") Duration acquireTimeout) {
+        this.classSizes = sizeClasses.stream().mapToInt(size -> (int) size.toBytes()).sorted().distinct().toArray();
+        if (classSizes.length == 0) {
+            throw new IllegalArgumentException("batch.buffer-pool.size-classes 至少需要一个容量档");
+        }
+        this.classes = new SizeClass[classSizes.length];
+        for (int i = 0; i < classSizes.length; i++) {
+            classes[i] = new SizeClass(classSizes[i]);
+        }
+        this.defaultBufferSize = (int) defaultBufferSize.toBytes();
+        if (classIndex(this.defaultBufferSize) < 0) {
+            throw new IllegalArgumentException("batch.buffer-pool.default-buffer-size 不能大于最大容量档");
+        }
+        this.preallocateCount = preallocateCount;
+        this.maxOffHeapBytes = maxOffHeap.toBytes();
+        this.maxIdlePerClass = maxIdlePerClass;
+        this.magazineSize = magazineSize;
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        this.magazines = ThreadLocal.withInitial(this::newMagazine);
+    }
 
     /**
-     * 清空旧的直接内存引用并重新分配，确保内存可以复用。
+     * 释放所有空闲缓冲区（包括各线程弹匣里的）后按默认容量重新预分配，确保重启后可以刷新上一次的缓存池，实现内存复用。
+     * 已借出的缓冲区不受影响，归还后继续复用。
      */
-    public synchronized void flushAndPreallocate() {
-        pool.clear();
-        for (int i = 0; i < BUFFER_COUNT; i++) {
-            pool.offer(ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE));
+    public void flushAndPreallocate() {
+        drainMagazines(true);
+        trimIdle(Long.MAX_VALUE);
+        SizeClass target = classes[classIndex(defaultBufferSize)];
+        for (int i = 0; i < preallocateCount && target.idle.get() < maxIdlePerClass; i++) {
+            if (!tryReserve(target.size)) {
+                break;
+            }
+            target.free.offer(ByteBuffer.allocateDirect(target.size));
+            target.idle.incrementAndGet();
         }
     }
 
     /**
-     * 借出一个可重复使用的直接内存缓冲区。
+     * 借出一个默认容量（batch.buffer-pool.default-buffer-size）的直接内存缓冲区。
      */
-    public synchronized ByteBuffer borrowBuffer() {
-        ByteBuffer buffer = pool.pollFirst();
+    public ByteBuffer borrowBuffer() {
+        return borrowBuffer(defaultBufferSize);
+    }
+
+    /**
+     * 借出容量不小于 minCapacity 的直接内存缓冲区：先查本线程弹匣，再查该档的全局空闲队列，
+     * 都没有时在上限内新分配；超过最大档的请求按实际大小单独分配，归还时直接释放。
+     */
+    public ByteBuffer borrowBuffer(int minCapacity) {
+        int index = classIndex(minCapacity);
+        if (index < 0) {
+            fallbackAllocations.incrementAndGet();
+            reserve(minCapacity);
+            return ByteBuffer.allocateDirect(minCapacity);
+        }
+        ByteBuffer buffer = magazines.get().pop(index);
+        if (buffer == null) {
+            buffer = pollIdle(classes[index]);
+        }
         if (buffer == null) {
-            buffer = ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE);
+            misses.incrementAndGet();
+            buffer = allocate(index);
         }
         buffer.clear();
         return buffer;
     }
 
     /**
-     * 归还缓冲区，方便下一次请求继续复用。
+     * 归还缓冲区，方便下一次请求继续复用；超出空闲上限或不属于任何档的缓冲区立即释放。
      */
-    public synchronized void returnBuffer(ByteBuffer buffer) {
+    public void returnBuffer(ByteBuffer buffer) {
         buffer.clear();
-        pool.offerLast(buffer);
+        int index = exactClassIndex(buffer.capacity());
+        if (index < 0) {
+            release(buffer);
+            return;
+        }
+        // 有线程在等待时绕过弹匣，让缓冲区立刻对等待者可见
+        if (waiters.get() == 0 && magazines.get().push(index, buffer)) {
+            return;
+        }
+        SizeClass sizeClass = classes[index];
+        if (sizeClass.idle.incrementAndGet() <= maxIdlePerClass) {
+            sizeClass.free.offer(buffer);
+            signalWaiters();
+        } else {
+            sizeClass.idle.decrementAndGet();
+            release(buffer);
+        }
+    }
+
+    /**
+     * 当前已分配（空闲 + 借出）的直接内存字节数。
+     */
+    public long reservedBytes() {
+        return reservedBytes.get();
+    }
+
+    /**
+     * 空闲队列与弹匣都没有可用缓冲区、需要新分配的次数。
+     */
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * 请求超过最大容量档、只能单独分配的次数。
+     */
+    public long fallbackAllocations() {
+        return fallbackAllocations.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("pipeline.buffer.pool.reserved", reservedBytes, AtomicLong::get).baseUnit("bytes")
+                .description("已分配（空闲 + 借出）的直接内存字节数").register(registry);
+        Gauge.builder("pipeline.buffer.pool.max", () -> maxOffHeapBytes).baseUnit("bytes")
+                .description("直接内存硬上限").register(registry);
+        for (SizeClass sizeClass : classes) {
+            Gauge.builder("pipeline.buffer.pool.idle", sizeClass.idle, AtomicInteger::get)
+                    .tag("size", String.valueOf(sizeClass.size))
+                    .description("该容量档全局空闲队列中的缓冲区个数").register(registry);
+        }
+        FunctionCounter.builder("pipeline.buffer.pool.misses", misses, AtomicLong::get)
+                .description("需要新分配缓冲区的借用次数").register(registry);
+        FunctionCounter.builder("pipeline.buffer.pool.fallback.allocations", fallbackAllocations, AtomicLong::get)
+                .description("超过最大容量档的单独分配次数").register(registry);
     }
 
     @PreDestroy
     public void onShutdown() {
-        pool.clear();
+        drainMagazines(true);
+        trimIdle(Long.MAX_VALUE);
+    }
+
+    private ByteBuffer allocate(int index) {
+        SizeClass sizeClass = classes[index];
+        long deadline = System.nanoTime() + acquireTimeoutNanos;
+        while (true) {
+            if (tryReserve(sizeClass.size)) {
+                return ByteBuffer.allocateDirect(sizeClass.size);
+            }
+            // 上限已满：先回收已退出线程的弹匣，再从活着的线程的弹匣里拿同档的缓冲区，
+            // 然后释放其它档的空闲缓冲区与弹匣里的缓冲区腾出额度，仍不够再等待归还
+            if (drainMagazines(false) > 0) {
+                continue;
+            }
+            ByteBuffer stolen = stealFromMagazines(index);
+            if (stolen != null) {
+                return stolen;
+            }
+            if (trimIdle(sizeClass.size) > 0 || releaseFromMagazines(sizeClass.size) > 0) {
+                continue;
+            }
+            ByteBuffer returned = awaitReturn(sizeClass, deadline);
+            if (returned != null) {
+                return returned;
+            }
+        }
+    }
+
+    private void reserve(long bytes) {
+        long deadline = System.nanoTime() + acquireTimeoutNanos;
+        while (!tryReserve(bytes)) {
+            if (drainMagazines(false) > 0 || trimIdle(bytes) > 0 || releaseFromMagazines(bytes) > 0) {
+                continue;
+            }
+            awaitReturn(null, deadline);
+        }
+    }
+
+    private boolean tryReserve(long bytes) {
+        while (true) {
+            long current = reservedBytes.get();
+            if (current + bytes > maxOffHeapBytes) {
+                return false;
+            }
+            if (reservedBytes.compareAndSet(current, current + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 等待其它线程归还或释放缓冲区；sizeClass 非空时优先直接拿到归还到该档的缓冲区。
+     */
+    private ByteBuffer awaitReturn(SizeClass sizeClass, long deadline) {
+        waiters.incrementAndGet();
+        try {
+            synchronized (exhausted) {
+                ByteBuffer buffer = sizeClass == null ? null : pollIdle(sizeClass);
+                if (buffer != null) {
+                    return buffer;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new IllegalStateException("直接内存池已达上限 " + maxOffHeapBytes + " 字节，等待归还超时");
+                }
+                TimeUnit.NANOSECONDS.timedWait(exhausted, Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(100)));
+                return sizeClass == null ? null : pollIdle(sizeClass);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待直接内存缓冲区被中断", e);
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    private ByteBuffer pollIdle(SizeClass sizeClass) {
+        ByteBuffer buffer = sizeClass.free.poll();
+        if (buffer != null) {
+            sizeClass.idle.decrementAndGet();
+        }
+        return buffer;
+    }
+
+    /**
+     * 从大到小释放全局空闲缓冲区，直到腾出 bytes 字节或没有可释放的，返回实际释放的字节数。
+     */
+    private long trimIdle(long bytes) {
+        long freed = 0L;
+        for (int i = classes.length - 1; i >= 0 && freed < bytes; i--) {
+            ByteBuffer buffer;
+            while (freed < bytes && (buffer = pollIdle(classes[i])) != null) {
+                freed += buffer.capacity();
+                release(buffer);
+            }
+        }
+        return freed;
+    }
+
+    private void release(ByteBuffer buffer) {
+        reservedBytes.addAndGet(-buffer.capacity());
+        DirectBufferCleaner.free(buffer);
+        signalWaiters();
+    }
+
+    private void signalWaiters() {
+        if (waiters.get() > 0) {
+            synchronized (exhausted) {
+                exhausted.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 新线程第一次借还时创建弹匣并登记；顺便回收已退出线程留下的弹匣，登记表的长度因此只跟活跃线程数有关。
+     */
+    private Magazine newMagazine() {
+        drainMagazines(false);
+        Magazine magazine = new Magazine(Thread.currentThread(), classSizes.length, magazineSize);
+        registry.add(magazine);
+        return magazine;
+    }
+
+    /**
+     * 释放弹匣里缓存的缓冲区，返回释放的字节数。all 为 false 时只处理所属线程已退出的弹匣并把它们移出登记表；
+     * 为 true 时清空所有弹匣，活着的线程之后照常往自己的弹匣里借还。
+     */
+    private long drainMagazines(boolean all) {
+        long freed = 0L;
+        for (Iterator<Magazine> it = registry.iterator(); it.hasNext(); ) {
+            Magazine magazine = it.next();
+            boolean dead = !magazine.ownerAlive();
+            if (!dead && !all) {
+                continue;
+            }
+            if (dead) {
+                it.remove();
+            }
+            ByteBuffer buffer;
+            while ((buffer = magazine.poll()) != null) {
+                freed += buffer.capacity();
+                release(buffer);
+            }
+        }
+        return freed;
+    }
+
+    /**
+     * 从任一弹匣（包括活着的线程的）取出一个第 index 档的缓冲区原样转交，额度不变；没有时返回 null。
+     */
+    private ByteBuffer stealFromMagazines(int index) {
+        for (Magazine magazine : registry) {
+            ByteBuffer buffer = magazine.pop(index);
+            if (buffer != null) {
+                return buffer;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 释放弹匣（包括活着的线程的）里缓存的缓冲区，直到腾出 bytes 字节或弹匣都空了，返回实际释放的字节数。
+     */
+    private long releaseFromMagazines(long bytes) {
+        long freed = 0L;
+        for (Iterator<Magazine> it = registry.iterator(); it.hasNext() && freed < bytes; ) {
+            Magazine magazine = it.next();
+            ByteBuffer buffer;
+            while (freed < bytes && (buffer = magazine.poll()) != null) {
+                freed += buffer.capacity();
+                release(buffer);
+            }
+        }
+        return freed;
+    }
+
+    private int classIndex(int minCapacity) {
+        for (int i = 0; i < classSizes.length; i++) {
+            if (classSizes[i] >= minCapacity) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int exactClassIndex(int capacity) {
+        for (int i = 0; i < classSizes.length; i++) {
+            if (classSizes[i] == capacity) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static final class SizeClass {
+        final int size;
+        final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+        final AtomicInteger idle = new AtomicInteger();
+
+        SizeClass(int size) {
+            this.size = size;
+        }
+    }
+
+    /**
+     * 线程私有的小缓存，每档最多 magazineSize 个缓冲区。平时只被所属线程访问，锁总是无竞争的；
+     * 只有回收、清空与上限已满时取用其中的缓冲区，其它线程才会进来。所属线程用弱引用记录，弹匣不会让已退出的线程对象滞留。
+     */
+    private static final class Magazine {
+        final WeakReference<Thread> owner;
+        final ByteBuffer[][] slots;
+        final int[] counts;
+
+        Magazine(Thread owner, int classCount, int magazineSize) {
+            this.owner = new WeakReference<>(owner);
+            this.slots = new ByteBuffer[classCount][magazineSize];
+            this.counts = new int[classCount];
+        }
+
+        boolean ownerAlive() {
+            Thread thread = owner.get();
+            return thread != null && thread.isAlive();
+        }
+
+        /**
+         * 取出任意一个缓存的缓冲区，用于回收与清空。
+         */
+        synchronized ByteBuffer poll() {
+            for (int i = 0; i < counts.length; i++) {
+                ByteBuffer buffer = pop(i);
+                if (buffer != null) {
+                    return buffer;
+                }
+            }
+            return null;
+        }
+
+        synchronized ByteBuffer pop(int index) {
+            int count = counts[index];
+            if (count == 0) {
+                return null;
+            }
+            ByteBuffer buffer = slots[index][--count];
+            slots[index][count] = null;
+            counts[index] = count;
+            return buffer;
+        }
+
+        synchronized boolean push(int index, ByteBuffer buffer) {
+            int count = counts[index];
+            if (count == slots[index].length) {
+                return false;
+            }
+            slots[index][count] = buffer;
+            counts[index] = count + 1;
+            return true;
+        }
     }
 }
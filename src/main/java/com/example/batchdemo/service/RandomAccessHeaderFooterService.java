@@ -3,12 +3,17 @@ package com.example.batchdemo.service;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 /**
- * 使用 RandomAccessFile 预留空间的方式添加文件头/尾，不需要全量读取大文件。
+ * 对已有文件按位置写入头/尾，不需要全量读取大文件。
+ * Job 输出需要带记录数与校验和的头尾时，应在写出时由写入器生成（batch.writer.control-header-size），
+ * 这里只用于在 Job 之外手工补写。
  */
 @Service
 public class RandomAccessHeaderFooterService {
@@ -16,12 +21,23 @@ public class RandomAccessHeaderFooterService {
     private static final int RESERVED_HEADER_SIZE = 256;
 
     /**
-     * 创建文件并预留文件头空间，后续可直接覆盖写入 header 文本。
+     * 创建空文件并预留文件头空间（空格填充、以换行结尾），后续可直接覆盖写入 header 文本。
+     * 文件已有内容时拒绝执行，不会清空已写好的输出。
      */
     public void createFileWithReservedHeader(Path path) throws IOException {
-        try (RandomAccessFile raf = new RandomAccessFile(path.toFile(), "rw")) {
-            raf.setLength(0);
-            raf.seek(RESERVED_HEADER_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            reserve(channel, path);
+        }
+    }
+
+    /**
+     * 预留文件头并写入 header，只打开一次文件。
+     */
+    public void createFileWithHeader(Path path, String header) throws IOException {
+        byte[] bytes = headerBytes(header);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            reserve(channel, path);
+            writeFully(channel, ByteBuffer.wrap(bytes), 0L);
         }
     }
 
@@ -29,13 +45,9 @@ public class RandomAccessHeaderFooterService {
      * 覆盖写入 header 内容，不需要移动正文数据。
      */
     public void writeHeader(Path path, String header) throws IOException {
-        byte[] bytes = header.getBytes(StandardCharsets.UTF_8);
-        if (bytes.length > RESERVED_HEADER_SIZE) {
-            throw new IllegalArgumentException("header 长度超出预留空间");
-        }
-        try (RandomAccessFile raf = new RandomAccessFile(path.toFile(), "rw")) {
-            raf.seek(0);
-            raf.write(bytes);
+        byte[] bytes = headerBytes(header);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            writeFully(channel, ByteBuffer.wrap(bytes), 0L);
         }
     }
 
@@ -43,9 +55,32 @@ public class RandomAccessHeaderFooterService {
      * 直接定位到文件末尾追加 footer，无需读取全量数据。
      */
     public void appendFooter(Path path, String footer) throws IOException {
-        try (RandomAccessFile raf = new RandomAccessFile(path.toFile(), "rw")) {
-            raf.seek(raf.length());
-            raf.write(footer.getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            writeFully(channel, ByteBuffer.wrap(footer.getBytes(StandardCharsets.UTF_8)), channel.size());
+        }
+    }
+
+    private static void reserve(FileChannel channel, Path path) throws IOException {
+        if (channel.size() > 0) {
+            throw new IllegalStateException("文件已有内容，不能再预留头部: " + path);
+        }
+        byte[] blank = new byte[RESERVED_HEADER_SIZE];
+        Arrays.fill(blank, (byte) ' ');
+        blank[RESERVED_HEADER_SIZE - 1] = '\n';
+        writeFully(channel, ByteBuffer.wrap(blank), 0L);
+    }
+
+    private static byte[] headerBytes(String header) {
+        byte[] bytes = header.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= RESERVED_HEADER_SIZE) {
+            throw new IllegalArgumentException("header 长度超出预留空间");
+        }
+        return bytes;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer bytes, long position) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes, position + bytes.position());
         }
     }
 }
@@ -0,0 +1,230 @@
+package com.example.batchdemo.service;
+
+import com.example.batchdemo.config.RemotePartitionProperties;
+import com.example.batchdemo.job.LineAlignedPartitioner;
+import com.example.batchdemo.job.PartFileMergeTasklet;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 跨进程分区的 worker：batch.remote.worker-enabled=true 时启动 worker-threads 个线程轮询 {@link PartitionClaimStore}，
+ * 认领到分区后从共享 Job 仓库加载对应的 step 执行，在本进程中运行同名的 worker step（即 partitionedWorkerStep），
+ * step 作用域的读取器与写入器照常从 step 执行上下文取得分区区间与分片路径。
+ * <p>
+ * 执行期间由单独的线程按 heartbeat-interval 刷新心跳；发现认领已被 manager 收回时让 step 在下一个 chunk 边界停止，
+ * 此时接手的 worker 已在运行，旧 worker 之后对 step 执行的更新会因版本号冲突被 Job 仓库拒绝。
+ * <p>
+ * 每次认领写自己的分片文件（{@link PartFileMergeTasklet#attemptPath}），接手时从上一次认领的文件复制已提交的部分；
+ * 只有仍持有认领的 worker 在分区成功后才把它改名为正式分片。被收回认领但仍在运行的旧 worker
+ * 写的、截断的都只是它自己的文件，不会破坏接手者的输出。
+ */
+@Service
+public class RemotePartitionWorker implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(RemotePartitionWorker.class);
+
+    /** step 执行上下文中本次认领写入的分片文件，partitionWriter 优先写它。 */
+    public static final String ATTEMPT_OUTPUT_KEY = "attemptOutput";
+
+    /** step 执行上下文中上一次认领写入的分片文件，重启时从中复制已提交的部分。 */
+    public static final String RESTART_SOURCE_KEY = "restartSource";
+
+    private final RemotePartitionProperties properties;
+    private final PartitionClaimStore claimStore;
+    private final JobExplorer jobExplorer;
+    private final ApplicationContext applicationContext;
+    private final Map<Long, StepExecution> running = new ConcurrentHashMap<>();
+
+    private String workerId;
+    private volatile boolean stopped;
+    private ExecutorService pollers;
+    private ScheduledExecutorService heartbeats;
+
+    public RemotePartitionWorker(RemotePartitionProperties properties, PartitionClaimStore claimStore,
+                                 JobExplorer jobExplorer, ApplicationContext applicationContext) {
+        this.properties = properties;
+        this.claimStore = claimStore;
+        this.jobExplorer = jobExplorer;
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!properties.isWorkerEnabled()) {
+            return;
+        }
+        this.workerId = properties.getWorkerId().isBlank()
+                ? ProcessHandle.current().pid() + "@" + hostName() : properties.getWorkerId();
+        int threads = Math.max(1, properties.getWorkerThreads());
+        AtomicInteger sequence = new AtomicInteger();
+        this.pollers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "remote-worker-" + sequence.getAndIncrement());
+            thread.setDaemon(false); // worker 进程靠这些线程保持运行
+            return thread;
+        });
+        for (int i = 0; i < threads; i++) {
+            pollers.submit(this::poll);
+        }
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "remote-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getHeartbeatInterval().toMillis();
+        heartbeats.scheduleWithFixedDelay(this::heartbeat, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("分区 worker {} 已启动，{} 个线程", workerId, threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopped = true;
+        running.values().forEach(StepExecution::setTerminateOnly);
+        if (pollers != null) {
+            pollers.shutdown();
+        }
+        if (heartbeats != null) {
+            heartbeats.shutdownNow();
+        }
+    }
+
+    private void poll() {
+        while (!stopped) {
+            try {
+                Optional<PartitionClaimStore.Claim> claim = claimStore.claim(workerId);
+                if (claim.isPresent()) {
+                    execute(claim.get());
+                } else {
+                    Thread.sleep(properties.getPollInterval().toMillis());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("认领或执行分区失败", e); // 数据库暂时不可用等情况，稍后重试
+                sleepQuietly();
+            }
+        }
+    }
+
+    private void execute(PartitionClaimStore.Claim claim) {
+        StepExecution execution = jobExplorer.getStepExecution(claim.jobExecutionId(), claim.stepExecutionId());
+        if (execution == null) {
+            claimStore.complete(claim.stepExecutionId(), workerId, PartitionClaimStore.FAILED);
+            return;
+        }
+        if (execution.getStatus() == BatchStatus.COMPLETED) {
+            // 上一个 worker 跑完后没来得及改名或登记结果
+            if (promote(claim, execution)) {
+                claimStore.complete(claim.stepExecutionId(), workerId, PartitionClaimStore.DONE);
+            }
+            return;
+        }
+        ExecutionContext context = execution.getExecutionContext();
+        Path partPath = Path.of(context.getString(LineAlignedPartitioner.PART_OUTPUT_KEY));
+        String previous = context.getString(ATTEMPT_OUTPUT_KEY, null);
+        if (previous != null) {
+            context.putString(RESTART_SOURCE_KEY, previous);
+        }
+        context.putString(ATTEMPT_OUTPUT_KEY,
+                PartFileMergeTasklet.attemptPath(partPath, claim.stepExecutionId(), claim.attempt()).toString());
+        log.info("开始执行分区 {}（第 {} 次认领），step 执行ID: {}", execution.getStepName(), claim.attempt(),
+                claim.stepExecutionId());
+        running.put(claim.stepExecutionId(), execution);
+        try {
+            applicationContext.getBean(claim.stepName(), Step.class).execute(execution);
+        } catch (Exception e) {
+            log.error("分区 {} 执行异常", execution.getStepName(), e);
+        } finally {
+            running.remove(claim.stepExecutionId());
+        }
+        String result = execution.getStatus() == BatchStatus.COMPLETED ? PartitionClaimStore.DONE : PartitionClaimStore.FAILED;
+        if (result.equals(PartitionClaimStore.DONE) && !promote(claim, execution)) {
+            return;
+        }
+        if (!claimStore.complete(claim.stepExecutionId(), workerId, result)) {
+            log.warn("分区 {} 的认领已被收回，结果 {} 不再登记", execution.getStepName(), result);
+        } else {
+            log.info("分区 {} 结束: {}", execution.getStepName(), execution.getStatus());
+        }
+    }
+
+    /**
+     * 确认仍持有认领后把本分区最后一次认领写的文件改名为正式分片，并删除历次认领留下的文件。
+     * 返回 false 表示认领已被收回或改名失败，此时不登记 DONE。
+     */
+    private boolean promote(PartitionClaimStore.Claim claim, StepExecution execution) {
+        ExecutionContext context = execution.getExecutionContext();
+        Path partPath = Path.of(context.getString(LineAlignedPartitioner.PART_OUTPUT_KEY));
+        String attemptOutput = context.getString(ATTEMPT_OUTPUT_KEY, null);
+        if (!claimStore.heartbeat(claim.stepExecutionId(), workerId)) {
+            log.warn("分区 {} 的认领已被收回，不再改名分片文件", execution.getStepName());
+            return false;
+        }
+        try {
+            if (attemptOutput != null && Files.exists(Path.of(attemptOutput))) {
+                Files.move(Path.of(attemptOutput), partPath, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+            PartFileMergeTasklet.deleteAttempts(partPath);
+            return true;
+        } catch (IOException e) {
+            log.error("分区 {} 的分片文件改名失败: {}", execution.getStepName(), attemptOutput, e);
+            claimStore.complete(claim.stepExecutionId(), workerId, PartitionClaimStore.FAILED);
+            return false;
+        }
+    }
+
+    private void heartbeat() {
+        for (Map.Entry<Long, StepExecution> entry : running.entrySet()) {
+            try {
+                if (!claimStore.heartbeat(entry.getKey(), workerId)) {
+                    log.warn("分区 {} 的认领已被收回，停止执行", entry.getValue().getStepName());
+                    entry.getValue().setTerminateOnly();
+                }
+            } catch (Exception e) {
+                log.warn("刷新分区心跳失败", e);
+            }
+        }
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(properties.getPollInterval().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.batchdemo.service;
+
+import com.example.batchdemo.io.DirectBufferCleaner;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.Pipe;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 所有 sendfile 读取器共享的传输引擎：在有界执行器上用 transferTo 把文件推送到各自的管道，
+ * 不再为每个 Job 临时创建一个无人管理的线程。
+ * 运行在 JDK 21+ 时使用虚拟线程，否则使用固定大小的平台线程池。两种模式下同时进行的传输都受 max-concurrent-transfers
+ * 个许可限制：start 在调用方线程上等待许可，传输结束或被取消时归还，执行器里不会堆积无限多的任务与管道；
+ * 预读同样有许可上限，拿不到许可时直接跳过。
+ * 每个传输会提前 prefetchDepth 个分片把文件预读进页缓存，让 transferTo 尽量不在磁盘 I/O 上阻塞；
+ * 传输过程中的 IOException 或提前截断都会记录下来，由读取端在读到管道 EOF 时抛出，而不是当作正常结束。
+ */
+@Component
+public class SendfileTransferEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(SendfileTransferEngine.class);
+
+    private final ExecutorService transferExecutor;
+    private final ExecutorService prefetchExecutor;
+    private final Semaphore transferPermits;
+    private final Semaphore prefetchPermits;
+    private final int prefetchDepth;
+
+    public SendfileTransferEngine(@Value("${batch.sendfile.max-concurrent-transfers:0}") int maxConcurrentTransfers,
+                                  @Value("${batch.sendfile.prefetch-depth:2}") int prefetchDepth) {
+        int threads = maxConcurrentTransfers > 0 ? maxConcurrentTransfers : Runtime.getRuntime().availableProcessors();
+        int prefetchThreads = Math.max(1, threads / 2);
+        ExecutorService virtual = newVirtualThreadExecutor();
+        if (virtual != null) {
+            this.transferExecutor = virtual;
+            this.prefetchExecutor = virtual;
+        } else {
+            this.transferExecutor = newBoundedExecutor(threads, "sendfile-transfer-");
+            this.prefetchExecutor = newBoundedExecutor(prefetchThreads, "sendfile-prefetch-");
+        }
+        this.transferPermits = new Semaphore(threads, true);
+        this.prefetchPermits = new Semaphore(prefetchThreads);
+        this.prefetchDepth = Math.max(0, prefetchDepth);
+    }
+
+    /**
+     * 启动一次传输：把 channel 的 [from, to) 按 chunkSize 分片 transferTo 到新管道，读取端从返回会话的 source() 读。
+     * 同时进行的传输已达上限时在这里等待其它传输结束。
+     */
+    public TransferSession start(FileChannel channel, long from, long to, int chunkSize) throws IOException {
+        try {
+            transferPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待 sendfile 传输许可被中断");
+        }
+        TransferSession session = null;
+        try {
+            session = new TransferSession(Pipe.open());
+            TransferSession started = session;
+            session.future = transferExecutor.submit(() -> started.run(channel, from, to, chunkSize));
+            return session;
+        } catch (IOException | RuntimeException e) {
+            if (session != null) {
+                session.pipe.source().close();
+                session.pipe.sink().close();
+            }
+            transferPermits.release();
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        transferExecutor.shutdownNow();
+        prefetchExecutor.shutdownNow();
+    }
+
+    /**
+     * 预读：映射即将传输的分片并 load() 进页缓存，然后立即解除映射。
+     */
+    private void prefetch(FileChannel channel, long position, long size) {
+        if (!prefetchPermits.tryAcquire()) {
+            return; // 预读只是优化，忙不过来时跳过
+        }
+        try {
+            prefetchExecutor.execute(() -> {
+                try {
+                    MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+                    region.load();
+                    DirectBufferCleaner.free(region);
+                } catch (IOException | RuntimeException e) {
+                    log.debug("sendfile 预读失败，忽略: {}", e.getMessage()); // 预读失败不影响传输
+                } finally {
+                    prefetchPermits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            prefetchPermits.release();
+        }
+    }
+
+    /**
+     * 任务数已由许可限制在 threads 以内，队列按同样的容量设界，只作为兜底。
+     */
+    private static ExecutorService newBoundedExecutor(int threads, String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(threads), factory);
+    }
+
+    /**
+     * JDK 21+ 提供 Executors.newVirtualThreadPerTaskExecutor，这里通过反射调用以保持 JDK 17 可编译。
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 一次传输的句柄：读取端通过 {@link #source()} 读数据，读到 EOF 后调用 {@link #awaitCompletion()} 确认传输完整。
+     */
+    public final class TransferSession implements Closeable {
+
+        private final Pipe pipe;
+        private final AtomicBoolean permitHeld = new AtomicBoolean(true);
+        private volatile Future<?> future;
+        private volatile IOException failure;
+        private volatile boolean cancelled;
+        private volatile boolean started;
+
+        private TransferSession(Pipe pipe) {
+            this.pipe = pipe;
+        }
+
+        public Pipe.SourceChannel source() {
+            return pipe.source();
+        }
+
+        private void run(FileChannel channel, long from, long to, int chunkSize) {
+            started = true;
+            try (Pipe.SinkChannel sink = pipe.sink()) {
+                long position = from;
+                long prefetched = from;
+                long end = Math.min(to, channel.size());
+                while (position < end) {
+                    long prefetchLimit = Math.min(end, position + (long) chunkSize * (prefetchDepth + 1));
+                    while (prefetchDepth > 0 && prefetched < prefetchLimit) {
+                        long size = Math.min(chunkSize, end - prefetched);
+                        if (prefetched > position) { // 当前分片马上就传输，不需要预读
+                            prefetch(channel, prefetched, size);
+                        }
+                        prefetched += size;
+                    }
+                    long transferred = channel.transferTo(position, Math.min(chunkSize, end - position), sink);
+                    if (transferred <= 0) {
+                        throw new IOException("sendfile 传输在 " + position + "/" + end + " 字节处提前结束，文件可能被截断");
+                    }
+                    position += transferred;
+                }
+            } catch (IOException e) {
+                if (!cancelled) {
+                    failure = e;
+                }
+            } finally {
+                releasePermit();
+            }
+        }
+
+        private void releasePermit() {
+            if (permitHeld.compareAndSet(true, false)) {
+                transferPermits.release();
+            }
+        }
+
+        /**
+         * 管道读到 EOF 后调用：等待传输任务结束，传输失败时抛出原始异常。
+         */
+        public void awaitCompletion() throws IOException {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("等待 sendfile 传输结束被中断", e);
+            } catch (ExecutionException e) {
+                throw new IOException("sendfile 传输任务异常", e.getCause());
+            }
+            IOException error = failure;
+            if (error != null) {
+                throw new IOException("sendfile 传输失败", error);
+            }
+        }
+
+        /**
+         * 关闭读取端并等待传输任务退出；此后传输端的异常属于正常取消，不再上报。
+         */
+        @Override
+        public void close() throws IOException {
+            cancelled = true;
+            pipe.source().close();
+            Future<?> task = future;
+            if (task == null || (!started && task.cancel(false))) {
+                releasePermit(); // 仍在排队的传输直接取消，run 不会再执行
+                pipe.sink().close();
+                return;
+            }
+            try {
+                task.get(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException e) {
+                task.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.batchdemo.service;
+
+import com.example.batchdemo.io.AbstractMemoryMappedReader;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * mmap 读取器共享的预读线程池：读取器消费第 N 个窗口时，在这里映射第 N+1 个窗口并 load() 预先触发缺页，
+ * 冷页缓存下读取器切换窗口时不必再逐页等待磁盘。
+ * 使用平台线程：load() 阻塞在缺页上，换成虚拟线程也会占住载体线程。
+ */
+@Component
+public class WindowReadAhead {
+
+    private final boolean enabled;
+    private final int maxWindowSize;
+    private final ExecutorService executor;
+
+    public WindowReadAhead(@Value("${batch.mmap.read-ahead:false}") boolean enabled,
+                           @Value("${batch.mmap.max-window-size:64MB}") DataSize maxWindowSize,
+                           @Value("${batch.mmap.read-ahead-threads:0}") int threads) {
+        this.enabled = enabled;
+        this.maxWindowSize = (int) Math.min(Integer.MAX_VALUE, maxWindowSize.toBytes());
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "mmap-read-ahead-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * batch.mmap.read-ahead 开启时让读取器使用预读，窗口在初始大小与 max-window-size 之间自适应。
+     */
+    public <R extends AbstractMemoryMappedReader<?>> R applyTo(R reader) {
+        if (enabled) {
+            reader.setReadAhead(this, maxWindowSize);
+        }
+        return reader;
+    }
+
+    /**
+     * 一个 mmap 读取器同时映射的最大字节数：预读模式下是当前窗口加预读窗口，且窗口可能增长到上限。
+     */
+    public long peakMappedBytes(long windowSize) {
+        return enabled ? 2L * Math.max(windowSize, maxWindowSize) : windowSize;
+    }
+
+    /**
+     * 在后台映射 [position, position + size) 并 load() 进物理内存。
+     */
+    public Future<MappedByteBuffer> mapAhead(FileChannel channel, long position, long size) {
+        return executor.submit(() -> {
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+            window.load();
+            return window;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -1,44 +1,119 @@
 package com.example.batchdemo.web;
 
-import com.example.batchdemo.service.FileJobLauncherService;
+import com.example.batchdemo.service.FileBatchScheduler;
+import com.example.batchdemo.service.JobProgress;
+import com.example.batchdemo.service.JobProgressService;
 import com.example.batchdemo.service.RandomAccessHeaderFooterService;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.net.URI;
 import java.nio.file.Path;
+import java.util.List;
 
 /**
  * 提供 REST API，让每个大文件处理以单独请求的方式触发。
+ * 提交接口只创建执行记录后立即返回执行ID，Job 经 {@link FileBatchScheduler} 按内存预算准入后在其线程池上运行；
+ * 状态、进度通过轮询或 SSE 获取。
  */
 @RestController
 @RequestMapping("/files")
 public class FileProcessingController {
 
-    private final FileJobLauncherService jobLauncherService;
+    private final FileBatchScheduler batchScheduler;
+    private final JobProgressService progressService;
+    private final JobProgressBroadcaster progressBroadcaster;
     private final RandomAccessHeaderFooterService headerFooterService;
 
-    public FileProcessingController(FileJobLauncherService jobLauncherService,
+    public FileProcessingController(FileBatchScheduler batchScheduler,
+                                    JobProgressService progressService,
+                                    JobProgressBroadcaster progressBroadcaster,
                                     RandomAccessHeaderFooterService headerFooterService) {
-        this.jobLauncherService = jobLauncherService;
+        this.batchScheduler = batchScheduler;
+        this.progressService = progressService;
+        this.progressBroadcaster = progressBroadcaster;
         this.headerFooterService = headerFooterService;
     }
 
+    /**
+     * 异步提交一个文件请求，返回 202 与执行ID，不等待 Job 结束；内存预算不足时 Job 以 STARTING 状态排队。
+     */
     @PostMapping("/process")
-    public ResponseEntity<String> process(@RequestBody FileProcessingRequest request) throws Exception {
-        if (request.getMode() == FileProcessingRequest.Mode.MMAP) {
-            jobLauncherService.launchMemoryMapped(request.getInputPath(), request.getOutputPath());
-        } else {
-            jobLauncherService.launchSendfile(request.getInputPath(), request.getOutputPath());
+    public ResponseEntity<JobStatusView> process(@RequestBody FileProcessingRequest request) throws Exception {
+        JobExecution execution = batchScheduler.start(request.toJobRequest());
+        return ResponseEntity.accepted()
+                .location(URI.create("/files/jobs/" + execution.getId()))
+                .body(JobStatusView.of(execution));
+    }
+
+    /**
+     * 以原参数重启失败的执行，返回 202 与新的执行ID；读取器与写入器从上次提交点继续。
+     * 默认的内存 Job 仓库不跨进程保存执行记录，这是目录接入等失败输入在本进程内重启的途径。
+     */
+    @PostMapping("/jobs/{executionId}/restart")
+    public ResponseEntity<JobStatusView> restart(@PathVariable("executionId") long executionId) throws Exception {
+        if (progressService.execution(executionId) == null) {
+            throw notFound(executionId);
+        }
+        JobExecution execution;
+        try {
+            execution = batchScheduler.restart(executionId);
+        } catch (JobExecutionException e) {
+            // 仍在运行、已经成功完成或不可重启
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/files/jobs/" + execution.getId()))
+                .body(JobStatusView.of(execution));
+    }
+
+    @GetMapping("/jobs/{executionId}")
+    public JobStatusView status(@PathVariable("executionId") long executionId) {
+        JobExecution execution = progressService.execution(executionId);
+        if (execution == null) {
+            throw notFound(executionId);
+        }
+        return JobStatusView.of(execution);
+    }
+
+    /**
+     * 已处理字节数、行数、平均速率与预计剩余时间。
+     */
+    @GetMapping("/jobs/{executionId}/progress")
+    public JobProgress progress(@PathVariable("executionId") long executionId) {
+        JobProgress progress = progressService.progress(executionId);
+        if (progress == null) {
+            throw notFound(executionId);
+        }
+        return progress;
+    }
+
+    /**
+     * 所有运行中 Job 的进度，便于同时观察大量在途任务。
+     */
+    @GetMapping("/jobs/running")
+    public List<JobProgress> running() {
+        return progressService.running();
+    }
+
+    @GetMapping(path = "/jobs/{executionId}/progress/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamProgress(@PathVariable("executionId") long executionId) {
+        if (progressService.execution(executionId) == null) {
+            throw notFound(executionId);
         }
-        return ResponseEntity.ok("已触发批处理任务，输出: " + request.getOutputPath());
+        return progressBroadcaster.subscribe(executionId);
     }
 
     @PostMapping("/header")
     public ResponseEntity<String> reserveHeader(@RequestParam("path") String path,
                                                 @RequestParam("header") String header) throws Exception {
-        Path file = Path.of(path);
-        headerFooterService.createFileWithReservedHeader(file);
-        headerFooterService.writeHeader(file, header);
+        headerFooterService.createFileWithHeader(Path.of(path), header);
         return ResponseEntity.ok("已写入头部，不需要全量读取正文");
     }
 
@@ -48,4 +123,8 @@ public class FileProcessingController {
         headerFooterService.appendFooter(Path.of(path), footer);
         return ResponseEntity.ok("已追加文件尾");
     }
+
+    private static ResponseStatusException notFound(long executionId) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "找不到 Job 执行记录: " + executionId);
+    }
 }
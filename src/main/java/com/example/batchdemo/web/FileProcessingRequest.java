@@ -1,16 +1,14 @@
 package com.example.batchdemo.web;
 
+import com.example.batchdemo.service.FileJobRequest;
+
 /**
- * API 请求体：每个请求绑定一个大文件路径，指定处理模式与输出路径。
+ * API 请求体：每个请求绑定一个大文件路径，指定处理模式（取值同 file.requests）与输出路径。
  */
 public class FileProcessingRequest {
     private String inputPath;
     private String outputPath;
-    private Mode mode = Mode.MMAP;
-
-    public enum Mode {
-        MMAP, SENDFILE
-    }
+    private FileJobRequest.Mode mode = FileJobRequest.Mode.MMAP;
 
     public String getInputPath() {
         return inputPath;
@@ -28,11 +26,15 @@ public class FileProcessingRequest {
         this.outputPath = outputPath;
     }
 
-    public Mode getMode() {
+    public FileJobRequest.Mode getMode() {
         return mode;
     }
 
-    public void setMode(Mode mode) {
+    public void setMode(FileJobRequest.Mode mode) {
         this.mode = mode;
     }
+
+    public FileJobRequest toJobRequest() {
+        return new FileJobRequest(inputPath, outputPath, mode);
+    }
 }
@@ -0,0 +1,106 @@
+package com.example.batchdemo.web;
+
+import com.example.batchdemo.service.JobProgress;
+import com.example.batchdemo.service.JobProgressService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 以 SSE 推送 Job 进度：所有订阅共用一个定时线程，每个执行每轮只查询一次 Job 仓库，
+ * 再广播给订阅它的全部连接，连接本身不占用 HTTP 线程。Job 结束后推送最后一次进度并关闭连接。
+ */
+@Component
+public class JobProgressBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(JobProgressBroadcaster.class);
+
+    private final JobProgressService progressService;
+    private final long timeoutMillis;
+    private final Map<Long, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    public JobProgressBroadcaster(JobProgressService progressService,
+                                  @Value("${batch.web.progress-interval:1s}") Duration interval,
+                                  @Value("${batch.web.sse-timeout:30m}") Duration timeout) {
+        this.progressService = progressService;
+        this.timeoutMillis = timeout.toMillis();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "job-progress-sse");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(100L, interval.toMillis());
+        this.scheduler.scheduleAtFixedRate(this::broadcast, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 订阅某次执行的进度，立即推送一次当前进度。
+     */
+    public SseEmitter subscribe(long executionId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        List<SseEmitter> emitters = subscribers.computeIfAbsent(executionId, id -> new CopyOnWriteArrayList<>());
+        emitters.add(emitter);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> emitters.remove(emitter));
+        scheduler.execute(() -> publish(executionId, List.of(emitter)));
+        return emitter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        subscribers.values().forEach(emitters -> emitters.forEach(SseEmitter::complete));
+        subscribers.clear();
+    }
+
+    private void broadcast() {
+        for (Map.Entry<Long, List<SseEmitter>> entry : subscribers.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                subscribers.remove(entry.getKey(), entry.getValue());
+                continue;
+            }
+            try {
+                publish(entry.getKey(), entry.getValue());
+            } catch (RuntimeException e) {
+                log.warn("推送 Job 进度失败，执行ID: {}", entry.getKey(), e); // 不能让异常终止定时任务
+            }
+        }
+    }
+
+    private void publish(long executionId, List<SseEmitter> emitters) {
+        JobProgress progress = progressService.progress(executionId);
+        if (progress == null) { // 执行记录不存在
+            emitters.forEach(SseEmitter::complete);
+            subscribers.remove(executionId);
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().name("progress").data(progress));
+                if (!progress.isRunning()) {
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e); // 客户端已断开
+            }
+        }
+        if (!progress.isRunning()) {
+            subscribers.remove(executionId);
+        }
+    }
+}
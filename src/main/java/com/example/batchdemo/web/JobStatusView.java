@@ -0,0 +1,74 @@
+package com.example.batchdemo.web;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+
+import java.time.LocalDateTime;
+
+/**
+ * API 响应体：一次 Job 执行的状态，提交接口与状态查询接口共用。
+ */
+public class JobStatusView {
+
+    private final long executionId;
+    private final String jobName;
+    private final BatchStatus status;
+    private final String exitCode;
+    private final String exitDescription;
+    private final String inputPath;
+    private final String outputPath;
+    private final LocalDateTime startTime;
+    private final LocalDateTime endTime;
+
+    private JobStatusView(JobExecution execution) {
+        this.executionId = execution.getId();
+        this.jobName = execution.getJobInstance().getJobName();
+        this.status = execution.getStatus();
+        this.exitCode = execution.getExitStatus().getExitCode();
+        this.exitDescription = execution.getExitStatus().getExitDescription();
+        this.inputPath = execution.getJobParameters().getString("input");
+        this.outputPath = execution.getJobParameters().getString("output");
+        this.startTime = execution.getStartTime();
+        this.endTime = execution.getEndTime();
+    }
+
+    public static JobStatusView of(JobExecution execution) {
+        return new JobStatusView(execution);
+    }
+
+    public long getExecutionId() {
+        return executionId;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public BatchStatus getStatus() {
+        return status;
+    }
+
+    public String getExitCode() {
+        return exitCode;
+    }
+
+    public String getExitDescription() {
+        return exitDescription;
+    }
+
+    public String getInputPath() {
+        return inputPath;
+    }
+
+    public String getOutputPath() {
+        return outputPath;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+}
@@ -0,0 +1,10 @@
+-- 跨进程分区的认领表，与 Job 仓库放在同一个数据库里，由 spring.sql.init 在启动时执行，可重复执行
+CREATE TABLE IF NOT EXISTS BATCH_PARTITION_CLAIM (
+    STEP_EXECUTION_ID BIGINT NOT NULL PRIMARY KEY,
+    JOB_EXECUTION_ID BIGINT NOT NULL,
+    STEP_NAME VARCHAR(100) NOT NULL,
+    STATUS VARCHAR(10) NOT NULL,
+    WORKER VARCHAR(100),
+    ATTEMPTS INT NOT NULL,
+    HEARTBEAT BIGINT
+);
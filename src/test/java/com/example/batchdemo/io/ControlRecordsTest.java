@@ -0,0 +1,148 @@
+package com.example.batchdemo.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ControlRecordsTest {
+
+    private static final byte[] NL = {'\n'};
+    private static final int HEADER_SIZE = 80;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void headerStaysIncompleteUntilFinishWritesTrailer() throws Exception {
+        Path file = tempDir.resolve("out.csv");
+        try (FileChannel channel = open(file)) {
+            ControlRecords records = new ControlRecords(HEADER_SIZE, "orders", NL);
+            records.reserveHeader(channel);
+            commit(channel, records, "a\n", "b\n");
+            assertTrue(header(file).startsWith("INC|"));
+
+            records.finish(channel);
+        }
+
+        String body = "a\nb\n";
+        String expected = "HDR|" + fields(2, body) + "|orders";
+        String content = Files.readString(file, StandardCharsets.US_ASCII);
+        assertEquals(expected, header(file).substring(0, expected.length()));
+        assertEquals(HEADER_SIZE, content.indexOf('\n') + 1);
+        assertEquals(body + "TRL|" + fields(2, body) + "\n", content.substring(HEADER_SIZE));
+    }
+
+    @Test
+    void finishDropsBytesWrittenAfterLastCommit() throws Exception {
+        Path file = tempDir.resolve("out.csv");
+        try (FileChannel channel = open(file)) {
+            ControlRecords records = new ControlRecords(HEADER_SIZE, "", NL);
+            records.reserveHeader(channel);
+            commit(channel, records, "kept\n");
+            write(channel, records, new CRC32C(), "uncommitted\n");
+
+            records.finish(channel);
+        }
+
+        String content = Files.readString(file, StandardCharsets.US_ASCII);
+        assertEquals("kept\nTRL|" + fields(1, "kept\n") + "\n", content.substring(HEADER_SIZE));
+    }
+
+    @Test
+    void resumeReadsFinishedHeaderAndAppendsAfterOldBody() throws Exception {
+        Path file = tempDir.resolve("out.csv");
+        try (FileChannel channel = open(file)) {
+            ControlRecords records = new ControlRecords(HEADER_SIZE, "", NL);
+            records.reserveHeader(channel);
+            commit(channel, records, "a\n");
+            records.finish(channel);
+        }
+
+        try (FileChannel channel = open(file)) {
+            ControlRecords records = new ControlRecords(HEADER_SIZE, "", NL);
+            long end = records.resume(channel);
+            assertEquals(HEADER_SIZE + 2, end);
+            assertEquals(1, records.records());
+            assertTrue(header(file).startsWith("INC|"), "追加期间头部应改回未完成");
+
+            channel.truncate(end);
+            channel.position(end);
+            commit(channel, records, "b\n", "c\n");
+            records.finish(channel);
+        }
+
+        String body = "a\nb\nc\n";
+        assertTrue(header(file).startsWith("HDR|" + fields(3, body)));
+        assertEquals(body + "TRL|" + fields(3, body) + "\n",
+                Files.readString(file, StandardCharsets.US_ASCII).substring(HEADER_SIZE));
+    }
+
+    @Test
+    void resumeRejectsOutputLeftIncomplete() throws Exception {
+        Path file = tempDir.resolve("out.csv");
+        try (FileChannel channel = open(file)) {
+            ControlRecords records = new ControlRecords(HEADER_SIZE, "", NL);
+            records.reserveHeader(channel);
+            commit(channel, records, "a\n");
+        }
+
+        try (FileChannel channel = open(file)) {
+            assertThrows(IOException.class, () -> new ControlRecords(HEADER_SIZE, "", NL).resume(channel));
+        }
+    }
+
+    @Test
+    void headerSizeMustFitFieldsAndLabel() {
+        assertThrows(IllegalArgumentException.class, () -> new ControlRecords(40, "label", NL));
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * 按写入器的方式逐条计数、写出，提交时把本次写出的字节数与 CRC32C 交给 commit。
+     */
+    private static void commit(FileChannel channel, ControlRecords records, String... lines) throws IOException {
+        CRC32C crc = new CRC32C();
+        long length = write(channel, records, crc, lines);
+        records.commit(channel.position(), (int) crc.getValue(), length);
+    }
+
+    private static long write(FileChannel channel, ControlRecords records, CRC32C crc, String... lines) throws IOException {
+        long length = 0L;
+        for (String line : lines) {
+            records.recordStarted();
+            byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+            crc.update(bytes);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            length += bytes.length;
+        }
+        return length;
+    }
+
+    private static String header(Path file) throws IOException {
+        return Files.readString(file, StandardCharsets.US_ASCII).substring(0, HEADER_SIZE);
+    }
+
+    private static String fields(long records, String body) {
+        CRC32C crc = new CRC32C();
+        crc.update(body.getBytes(StandardCharsets.US_ASCII));
+        return String.format("%019d|%019d|%08x", records, body.length(), crc.getValue());
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.batchdemo.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class Crc32cCombinerTest {
+
+    @Test
+    void combineMatchesSinglePassChecksumAtEverySplit() {
+        byte[] data = new byte[1031];
+        new Random(42).nextBytes(data);
+        int whole = crc(data, 0, data.length);
+
+        for (int split = 0; split <= data.length; split++) {
+            int combined = Crc32cCombiner.combine(crc(data, 0, split), crc(data, split, data.length), data.length - split);
+            assertEquals(whole, combined, "split=" + split);
+        }
+    }
+
+    @Test
+    void combineFoldsManyChunksInOrder() {
+        byte[] data = new byte[3 * 1024 * 1024 + 17];
+        new Random(7).nextBytes(data);
+        int[] bounds = {0, 1, 65_536, 65_537, 1_000_000, 2 * 1024 * 1024, data.length};
+
+        int checksum = 0;
+        for (int i = 1; i < bounds.length; i++) {
+            checksum = Crc32cCombiner.combine(checksum, crc(data, bounds[i - 1], bounds[i]), bounds[i] - bounds[i - 1]);
+        }
+        assertEquals(crc(data, 0, data.length), checksum);
+    }
+
+    @Test
+    void emptySuffixLeavesChecksumUnchanged() {
+        assertEquals(0x12345678, Crc32cCombiner.combine(0x12345678, 0, 0L));
+    }
+
+    private static int crc(byte[] data, int from, int to) {
+        CRC32C crc = new CRC32C();
+        crc.update(data, from, to - from);
+        return (int) crc.getValue();
+    }
+}
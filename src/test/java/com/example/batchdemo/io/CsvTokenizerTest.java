@@ -0,0 +1,103 @@
+package com.example.batchdemo.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvTokenizerTest {
+
+    private final CsvTokenizer tokenizer = new CsvTokenizer((byte) ',', (byte) '"');
+
+    private static ByteBuffer buffer(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Test
+    void quotedFieldKeepsDelimiterAndEscapedQuotes() {
+        ByteBuffer buffer = buffer("a,\"b,\"\"c\"\"\",d");
+
+        assertEquals(3, tokenizer.tokenize(buffer, 0, buffer.limit(), Integer.MAX_VALUE));
+        assertEquals("a", tokenizer.decode(0));
+        assertTrue(tokenizer.isQuoted(1));
+        assertEquals("b,\"c\"", tokenizer.decode(1));
+        assertTrue(tokenizer.contentEquals(1, "b,\"c\"".getBytes(StandardCharsets.UTF_8)));
+        assertFalse(tokenizer.contentEquals(1, "b,\"c".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("d", tokenizer.decode(2));
+        assertEquals(2, tokenizer.start(1));
+        assertEquals(11, tokenizer.end(1));
+    }
+
+    @Test
+    void emptyAndQuotedEmptyFieldsAreEmpty() {
+        ByteBuffer buffer = buffer(",\"\",x,");
+
+        assertEquals(4, tokenizer.tokenize(buffer, 0, buffer.limit(), Integer.MAX_VALUE));
+        assertTrue(tokenizer.isEmpty(0));
+        assertTrue(tokenizer.isEmpty(1));
+        assertFalse(tokenizer.isEmpty(2));
+        assertTrue(tokenizer.isEmpty(3));
+    }
+
+    @Test
+    void tokenizeStopsAtMaxFields() {
+        ByteBuffer buffer = buffer("1,2,3,4");
+
+        assertEquals(2, tokenizer.tokenize(buffer, 0, buffer.limit(), 2));
+        assertEquals("2", tokenizer.decode(1));
+    }
+
+    @Test
+    void multiByteContentIsDecodedAsUtf8() {
+        ByteBuffer buffer = buffer("\"上海,浦东\",北京");
+
+        tokenizer.tokenize(buffer, 0, buffer.limit(), Integer.MAX_VALUE);
+        assertEquals("上海,浦东", tokenizer.decode(0));
+        assertTrue(tokenizer.contentEquals(1, "北京".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void newlineInsideQuotesDoesNotEndRecord() {
+        ByteBuffer buffer = buffer("1,\"a\nb\",c\n2");
+
+        assertEquals(9, tokenizer.recordEnd(buffer, 0, buffer.limit()));
+        assertEquals(-1, tokenizer.recordEnd(buffer, 10, buffer.limit()));
+    }
+
+    @Test
+    void quoteStateCarriesAcrossSegments() {
+        String text = "1,\"x\ny\"\"\nz\",w\r\nnext";
+        ByteBuffer buffer = buffer(text);
+        int expected = text.indexOf("\r\n") + 1;
+        for (int split = 1; split < expected; split++) {
+            tokenizer.reset();
+            int end = tokenizer.recordEnd(buffer, 0, split);
+            if (end < 0) {
+                end = tokenizer.recordEnd(buffer, split, buffer.limit());
+            }
+            assertEquals(expected, end, "split=" + split);
+        }
+    }
+
+    @Test
+    void resetClearsOpenQuote() {
+        ByteBuffer open = buffer("\"unterminated");
+        ByteBuffer line = buffer("a\n");
+
+        assertEquals(-1, tokenizer.recordEnd(open, 0, open.limit()));
+        tokenizer.reset();
+        assertEquals(1, tokenizer.recordEnd(line, 0, line.limit()));
+    }
+
+    @Test
+    void rejectsDelimiterThatCannotSplitRecords() {
+        assertThrows(IllegalArgumentException.class, () -> new CsvTokenizer((byte) '"', (byte) '"'));
+        assertThrows(IllegalArgumentException.class, () -> new CsvTokenizer((byte) '\n', (byte) '"'));
+    }
+}
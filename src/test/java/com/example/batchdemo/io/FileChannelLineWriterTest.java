@@ -0,0 +1,186 @@
+package com.example.batchdemo.io;
+
+import com.example.batchdemo.service.PreallocatedBufferPool;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileChannelLineWriterTest {
+
+    private static final String NL = System.lineSeparator();
+
+    @TempDir
+    Path tempDir;
+
+    private final PreallocatedBufferPool bufferPool = new PreallocatedBufferPool(
+            List.of(DataSize.ofKilobytes(64)), DataSize.ofKilobytes(64), 0,
+            DataSize.ofMegabytes(4), 4, 2, Duration.ofSeconds(5));
+
+    @Test
+    void restartTruncatesUncommittedTailAndAppendsFromCommittedPosition() throws Exception {
+        Path output = tempDir.resolve("out.csv");
+        ExecutionContext context = new ExecutionContext();
+
+        FileChannelLineWriter writer = new FileChannelLineWriter(output, bufferPool);
+        writer.open(context);
+        writer.write(new Chunk<>(List.of("a", "b")));
+        writer.update(context);
+        // 第二个 chunk 已写进文件但没有提交，随后进程退出
+        writer.write(new Chunk<>(List.of("lost")));
+        writer.close();
+        assertEquals("a" + NL + "b" + NL + "lost" + NL, Files.readString(output));
+        long committed = context.getLong(writer.getExecutionContextKey(AbstractFileChannelWriter.POSITION_KEY));
+        assertEquals(("a" + NL + "b" + NL).length(), committed);
+
+        FileChannelLineWriter restarted = new FileChannelLineWriter(output, bufferPool);
+        restarted.open(context);
+        assertEquals(committed, Files.size(output));
+        restarted.write(new Chunk<>(List.of("c")));
+        restarted.update(context);
+        restarted.close();
+
+        assertEquals("a" + NL + "b" + NL + "c" + NL, Files.readString(output));
+    }
+
+    @Test
+    void firstOpenWithoutCheckpointTruncatesExistingOutput() throws Exception {
+        Path output = tempDir.resolve("out.csv");
+        Files.writeString(output, "stale" + NL);
+
+        FileChannelLineWriter writer = new FileChannelLineWriter(output, bufferPool);
+        ExecutionContext context = new ExecutionContext();
+        writer.open(context);
+        writer.write(new Chunk<>(List.of("x")));
+        writer.update(context);
+        writer.close();
+
+        assertEquals("x" + NL, Files.readString(output));
+    }
+
+    @Test
+    void appendPositionKeepsPreviousRunOutput() throws Exception {
+        Path output = tempDir.resolve("out.csv");
+        Files.writeString(output, "old" + NL + "partial");
+
+        FileChannelLineWriter writer = new FileChannelLineWriter(output, bufferPool);
+        writer.setAppendPosition(("old" + NL).length());
+        ExecutionContext context = new ExecutionContext();
+        writer.open(context);
+        writer.write(new Chunk<>(List.of("new")));
+        writer.update(context);
+        writer.close();
+
+        assertEquals("old" + NL + "new" + NL, Files.readString(output));
+    }
+
+    @Test
+    void restartFailsWhenOutputIsShorterThanCommittedPosition() throws Exception {
+        Path output = tempDir.resolve("out.csv");
+        ExecutionContext context = new ExecutionContext();
+
+        FileChannelLineWriter writer = new FileChannelLineWriter(output, bufferPool);
+        writer.open(context);
+        writer.write(new Chunk<>(List.of("first", "second")));
+        writer.update(context);
+        writer.close();
+        // 模拟提交点之前的数据没有落盘就断电
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.WRITE)) {
+            channel.truncate(3);
+        }
+
+        FileChannelLineWriter restarted = new FileChannelLineWriter(output, bufferPool);
+        assertThrows(ItemStreamException.class, () -> restarted.open(context));
+        assertEquals("fir", Files.readString(output, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void controlRecordsSurviveRestartAndAreFinishedOnlyAfterCompletion() throws Exception {
+        Path output = tempDir.resolve("out.csv");
+        ExecutionContext context = new ExecutionContext();
+
+        FileChannelLineWriter writer = new FileChannelLineWriter(output, bufferPool);
+        writer.setControlRecords(80, "demo");
+        writer.open(context);
+        writer.write(new Chunk<>(List.of("a")));
+        writer.update(context);
+        writer.write(new Chunk<>(List.of("lost")));
+        writer.close(); // 未完成：不写控制尾
+        assertTrue(Files.readString(output).startsWith("INC|"));
+
+        FileChannelLineWriter restarted = new FileChannelLineWriter(output, bufferPool);
+        restarted.setControlRecords(80, "demo");
+        restarted.open(context);
+        restarted.write(new Chunk<>(List.of("b")));
+        restarted.update(context);
+        restarted.markCompleted();
+        restarted.close();
+
+        String body = "a" + NL + "b" + NL;
+        CRC32C crc = new CRC32C();
+        crc.update(body.getBytes(StandardCharsets.UTF_8));
+        String fields = String.format("%019d|%019d|%08x", 2, body.length(), crc.getValue());
+        String content = Files.readString(output);
+        assertTrue(content.startsWith("HDR|" + fields + "|demo"));
+        assertEquals(body + "TRL|" + fields + NL, content.substring(80));
+    }
+
+    @Test
+    void durablePositionFollowsForcePolicy() throws Exception {
+        assertEquals(List.of(0L, 0L, 0L), durablePositions(AbstractFileChannelWriter.DurabilityPolicy.NONE, 1L, 1, false));
+        assertEquals(List.of(0L, 0L, 0L),
+                durablePositions(AbstractFileChannelWriter.DurabilityPolicy.FORCE_AT_CLOSE, 1L, 1, false));
+        // 每个 chunk 写 4 行、每行 "line-n" 加换行
+        long chunk = 4L * ("line-0" + NL).length();
+        assertEquals(List.of(0L, 2 * chunk, 2 * chunk),
+                durablePositions(AbstractFileChannelWriter.DurabilityPolicy.FORCE_EVERY_CHUNKS, 1L, 2, false));
+        assertEquals(List.of(0L, 2 * chunk, 2 * chunk),
+                durablePositions(AbstractFileChannelWriter.DurabilityPolicy.FORCE_EVERY_BYTES, chunk + 1, 1, false));
+    }
+
+    @Test
+    void asyncWriterForcesAtEveryCommitWithIntervalOne() throws Exception {
+        long chunk = 4L * ("line-0" + NL).length();
+        assertEquals(List.of(chunk, 2 * chunk, 3 * chunk),
+                durablePositions(AbstractFileChannelWriter.DurabilityPolicy.FORCE_EVERY_CHUNKS, 1L, 1, true));
+    }
+
+    /**
+     * 写三个 chunk，返回每次提交后 ExecutionContext 中记录的 force 位置；每次提交时输出都已写到提交位置。
+     */
+    private List<Long> durablePositions(AbstractFileChannelWriter.DurabilityPolicy policy, long everyBytes, int everyChunks,
+                                        boolean async) throws Exception {
+        Path output = tempDir.resolve(policy + "-" + async + ".csv");
+        ExecutionContext context = new ExecutionContext();
+        FileChannelLineWriter writer = new FileChannelLineWriter(output, bufferPool);
+        writer.setDurability(policy, everyBytes, everyChunks);
+        writer.setAsync(async);
+        writer.open(context);
+        List<Long> positions = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            writer.write(new Chunk<>(List.of("line-0", "line-1", "line-2", "line-3")));
+            writer.update(context);
+            long committed = context.getLong(writer.getExecutionContextKey(AbstractFileChannelWriter.POSITION_KEY));
+            assertEquals(committed, Files.size(output));
+            positions.add(context.getLong(writer.getExecutionContextKey(AbstractFileChannelWriter.DURABLE_POSITION_KEY)));
+        }
+        writer.close();
+        return positions;
+    }
+}
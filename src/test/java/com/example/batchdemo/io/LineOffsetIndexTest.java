@@ -0,0 +1,241 @@
+package com.example.batchdemo.io;
+
+import com.example.batchdemo.service.PreallocatedBufferPool;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LineOffsetIndexTest {
+
+    private static final int INTERVAL = 8;
+
+    @TempDir
+    Path tempDir;
+
+    private final PreallocatedBufferPool bufferPool = new PreallocatedBufferPool(
+            List.of(DataSize.ofKilobytes(64)), DataSize.ofKilobytes(64), 0,
+            DataSize.ofMegabytes(4), 4, 2, Duration.ofSeconds(5));
+
+    @Test
+    void offsetOfSeeksToEveryLine() throws Exception {
+        Path output = tempDir.resolve("out.csv");
+        List<String> lines = lines(0, 100);
+        write(output, 0, new ExecutionContext(), lines);
+
+        LineOffsetIndex index = LineOffsetIndex.load(output);
+        assertEquals(lines.size(), index.lineCount());
+        assertEquals(Files.size(output), index.dataLength());
+        long[] expected = offsets(lines, 0L);
+        for (int line = 0; line <= lines.size(); line++) {
+            assertEquals(expected[line], index.offsetOf(line), "line=" + line);
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> index.offsetOf(lines.size() + 1));
+    }
+
+    @Test
+    void offsetsStartAfterControlHeaderAndChecksumMatchesControlRecords() throws Exception {
+        Path output = tempDir.resolve("out.csv");
+        List<String> lines = lines(0, 30);
+        write(output, 80, new ExecutionContext(), lines);
+
+        LineOffsetIndex index = LineOffsetIndex.load(output);
+        assertEquals(80L, index.offsetOf(0));
+        assertEquals(offsets(lines, 80L)[17], index.offsetOf(17));
+        assertTrue(index.verify());
+        // 控制头与索引共用写入器算出的同一个 CRC32C
+        String header = Files.readString(output, StandardCharsets.UTF_8).substring(0, 80);
+        assertTrue(header.startsWith("HDR|"));
+        assertEquals(String.format("%08x", index.checksum()), header.split("\\|")[3]);
+    }
+
+    @Test
+    void splitIsContiguousBalancedAndStartsOnLineBoundaries() throws Exception {
+        Path output = tempDir.resolve("out.csv");
+        List<String> lines = lines(0, 1000);
+        write(output, 0, new ExecutionContext(), lines);
+
+        LineOffsetIndex index = LineOffsetIndex.load(output);
+        List<LineOffsetIndex.Range> ranges = index.split(4);
+        assertEquals(4, ranges.size());
+        long nextLine = 0L;
+        long nextOffset = 0L;
+        long target = index.dataLength() / 4;
+        long slack = INTERVAL * 20L; // 每段最多偏离 interval 行，每行不超过 20 字节
+        for (LineOffsetIndex.Range range : ranges) {
+            assertEquals(nextLine, range.firstLine());
+            assertEquals(nextOffset, range.startOffset());
+            assertEquals(index.offsetOf(range.firstLine()), range.startOffset());
+            assertEquals(index.offsetOf(range.firstLine() + range.lineCount()), range.endOffset());
+            assertTrue(Math.abs(range.endOffset() - range.startOffset() - target) <= slack,
+                    "段长 " + (range.endOffset() - range.startOffset()) + " 偏离目标 " + target);
+            nextLine = range.firstLine() + range.lineCount();
+            nextOffset = range.endOffset();
+        }
+        assertEquals(index.lineCount(), nextLine);
+        assertEquals(index.dataLength(), nextOffset);
+        assertEquals(1, LineOffsetIndex.load(write(tempDir.resolve("small.csv"), 0, new ExecutionContext(), lines(0, 3)))
+                .split(4).size());
+    }
+
+    @Test
+    void indexStaysValidAfterRestartDropsUncommittedTail() throws Exception {
+        Path output = tempDir.resolve("out.csv");
+        ExecutionContext context = new ExecutionContext();
+        FileChannelLineWriter writer = writer(output, 0);
+        writer.open(context);
+        writer.write(new Chunk<>(lines(0, 20)));
+        writer.update(context);
+        writer.write(new Chunk<>(lines(20, 40))); // 未提交，重启时截掉
+        writer.close();
+
+        FileChannelLineWriter restarted = writer(output, 0);
+        restarted.open(context);
+        restarted.write(new Chunk<>(lines(100, 110)));
+        restarted.update(context);
+        restarted.close();
+
+        List<String> expected = new ArrayList<>(lines(0, 20));
+        expected.addAll(lines(100, 110));
+        assertIndexMatches(output, expected);
+    }
+
+    @Test
+    void indexIsRebuiltWhenItDoesNotMatchTheAppendPosition() throws Exception {
+        Path output = tempDir.resolve("out.csv");
+        write(output, 0, new ExecutionContext(), lines(0, 25));
+        Files.delete(LineOffsetIndex.indexPath(output));
+
+        FileChannelLineWriter appender = writer(output, 0);
+        appender.setAppendPosition(Files.size(output));
+        ExecutionContext context = new ExecutionContext();
+        appender.open(context);
+        appender.write(new Chunk<>(lines(25, 40)));
+        appender.update(context);
+        appender.close();
+
+        assertIndexMatches(output, lines(0, 40));
+    }
+
+    @Test
+    void incrementalAppendContinuesIndexAndChecksum() throws Exception {
+        Path output = tempDir.resolve("out.csv");
+        write(output, 80, new ExecutionContext(), lines(0, 25));
+
+        FileChannelLineWriter appender = writer(output, 80);
+        appender.setAppendPosition(Files.size(output));
+        ExecutionContext context = new ExecutionContext();
+        appender.open(context);
+        appender.write(new Chunk<>(lines(25, 40)));
+        appender.update(context);
+        appender.markCompleted();
+        appender.close();
+
+        LineOffsetIndex index = LineOffsetIndex.load(output);
+        assertEquals(40, index.lineCount());
+        assertEquals(offsets(lines(0, 40), 80L)[33], index.offsetOf(33));
+        assertTrue(index.verify());
+    }
+
+    @Test
+    void verifyDetectsChangedOrTruncatedData() throws Exception {
+        Path output = tempDir.resolve("out.csv");
+        write(output, 0, new ExecutionContext(), lines(0, 50));
+        LineOffsetIndex index = LineOffsetIndex.load(output);
+        assertTrue(index.verify());
+
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'#'}), 5);
+        }
+        assertFalse(index.verify());
+
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.WRITE)) {
+            channel.truncate(index.dataLength() - 1);
+        }
+        assertFalse(index.verify());
+    }
+
+    @Test
+    void loadRejectsCorruptIndex() throws Exception {
+        Path output = tempDir.resolve("out.csv");
+        write(output, 0, new ExecutionContext(), lines(0, 10));
+        Files.write(LineOffsetIndex.indexPath(output), new byte[]{1, 2, 3});
+
+        assertThrows(IOException.class, () -> LineOffsetIndex.load(output));
+    }
+
+    private FileChannelLineWriter writer(Path output, int controlHeaderSize) {
+        FileChannelLineWriter writer = new FileChannelLineWriter(output, bufferPool);
+        writer.setLineIndexInterval(INTERVAL);
+        writer.setControlRecords(controlHeaderSize, "");
+        return writer;
+    }
+
+    /**
+     * 每 7 行提交一次写出所有行并以成功完成关闭。
+     */
+    private Path write(Path output, int controlHeaderSize, ExecutionContext context, List<String> lines) throws Exception {
+        FileChannelLineWriter writer = writer(output, controlHeaderSize);
+        writer.open(context);
+        for (int i = 0; i < lines.size(); i += 7) {
+            writer.write(new Chunk<>(lines.subList(i, Math.min(lines.size(), i + 7))));
+            writer.update(context);
+        }
+        writer.markCompleted();
+        writer.close();
+        return output;
+    }
+
+    private static void assertIndexMatches(Path output, List<String> lines) throws IOException {
+        assertEquals(String.join("", lines.stream().map(line -> line + System.lineSeparator()).toList()),
+                Files.readString(output));
+        LineOffsetIndex index = LineOffsetIndex.load(output);
+        assertEquals(lines.size(), index.lineCount());
+        assertEquals(Files.size(output), index.dataLength());
+        long[] expected = offsets(lines, 0L);
+        for (int line = 0; line <= lines.size(); line++) {
+            assertEquals(expected[line], index.offsetOf(line), "line=" + line);
+        }
+        assertTrue(index.verify());
+    }
+
+    /**
+     * 行长各不相同，采样之间的扫描才有意义。
+     */
+    private static List<String> lines(int from, int to) {
+        List<String> lines = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            lines.add(i + "," + "x".repeat(i % 13));
+        }
+        return lines;
+    }
+
+    /**
+     * 每行的起始偏移，最后再加一个数据长度。
+     */
+    private static long[] offsets(List<String> lines, long start) {
+        long[] offsets = new long[lines.size() + 1];
+        offsets[0] = start;
+        for (int i = 0; i < lines.size(); i++) {
+            offsets[i + 1] = offsets[i] + lines.get(i).getBytes(StandardCharsets.UTF_8).length + System.lineSeparator().length();
+        }
+        return offsets;
+    }
+}
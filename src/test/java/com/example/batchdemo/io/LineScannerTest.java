@@ -0,0 +1,75 @@
+package com.example.batchdemo.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LineScannerTest {
+
+    /** 与目标字节只差最高位或相邻的值，SWAR 判零时最容易因进位误判。 */
+    private static final byte[] NEIGHBOURS = {0x0A, (byte) 0x8A, 0x0B, 0x09, 0x00, (byte) 0xFF, ',', (byte) 0xAC, '"'};
+
+    @Test
+    void indexOfNewlineMatchesByteByByteScanAtEveryOffset() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN}) {
+            for (int round = 0; round < 200; round++) {
+                byte[] bytes = randomBytes(random, 1 + random.nextInt(40));
+                ByteBuffer buffer = ByteBuffer.wrap(bytes).order(order);
+                for (int from = 0; from <= bytes.length; from++) {
+                    for (int to = from; to <= bytes.length; to++) {
+                        assertEquals(naive(bytes, from, to, (byte) '\n'), LineScanner.indexOfNewline(buffer, from, to),
+                                "from=" + from + " to=" + to + " order=" + order);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void indexOfFindsDelimiterAndQuoteInDirectBuffers() {
+        SplittableRandom random = new SplittableRandom(7);
+        for (byte target : new byte[]{',', '"', (byte) 0x8A, 0x00}) {
+            for (int round = 0; round < 200; round++) {
+                byte[] bytes = randomBytes(random, 1 + random.nextInt(40));
+                ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.put(bytes).clear();
+                for (int from = 0; from <= bytes.length; from++) {
+                    assertEquals(naive(bytes, from, bytes.length, target),
+                            LineScanner.indexOf(buffer, from, bytes.length, target), "target=" + target + " from=" + from);
+                }
+            }
+        }
+    }
+
+    @Test
+    void scanDoesNotMoveBufferPosition() {
+        ByteBuffer buffer = ByteBuffer.wrap("abcdefghij\nklm".getBytes());
+        buffer.position(3);
+
+        assertEquals(10, LineScanner.indexOfNewline(buffer, 3, buffer.limit()));
+        assertEquals(3, buffer.position());
+        assertEquals(-1, LineScanner.indexOfNewline(buffer, 11, buffer.limit()));
+    }
+
+    private static byte[] randomBytes(SplittableRandom random, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = random.nextInt(4) == 0 ? NEIGHBOURS[random.nextInt(NEIGHBOURS.length)] : (byte) random.nextInt(256);
+        }
+        return bytes;
+    }
+
+    private static int naive(byte[] bytes, int from, int to, byte target) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
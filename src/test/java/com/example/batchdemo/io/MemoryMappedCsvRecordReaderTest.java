@@ -0,0 +1,88 @@
+package com.example.batchdemo.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MemoryMappedCsvRecordReaderTest {
+
+    private static final String CSV = "id,name,note\r\n"
+            + "1,\"a\r\nb\",x\r\n"
+            + "2,\"say \"\"hi\"\"\",y\r\n"
+            + "3,plain,z";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void recordsStraddlingWindowsKeepQuotedNewlinesAndDropCrlf() throws Exception {
+        Path file = write(CSV);
+        for (int windowSize = 1; windowSize <= CSV.length() + 1; windowSize++) {
+            MemoryMappedCsvRecordReader reader = new MemoryMappedCsvRecordReader(file, windowSize, ',');
+
+            assertEquals(List.of("id,name,note", "1,\"a\r\nb\",x", "2,\"say \"\"hi\"\"\",y", "3,plain,z"),
+                    readAll(reader, new ExecutionContext()), "windowSize=" + windowSize);
+        }
+    }
+
+    @Test
+    void projectsColumnsByNameInConfiguredOrder() throws Exception {
+        MemoryMappedCsvRecordReader reader = new MemoryMappedCsvRecordReader(write(CSV), 8, ',');
+        reader.setColumns(List.of("note", "name"));
+
+        assertEquals(List.of("note,name", "x,\"a\r\nb\"", "y,\"say \"\"hi\"\"\"", "z,plain"),
+                readAll(reader, new ExecutionContext()));
+    }
+
+    @Test
+    void missingColumnIsProjectedAsEmptyField() throws Exception {
+        MemoryMappedCsvRecordReader reader = new MemoryMappedCsvRecordReader(write("a,b,c\n1\n"), 4, ',');
+        reader.setColumns(List.of("c", "a"));
+
+        assertEquals(List.of("c,a", ",1"), readAll(reader, new ExecutionContext()));
+    }
+
+    @Test
+    void restartResumesAtCommittedRecordWithoutRepeatingHeader() throws Exception {
+        Path file = write(CSV);
+        ExecutionContext context = new ExecutionContext();
+        MemoryMappedCsvRecordReader first = new MemoryMappedCsvRecordReader(file, 5, ',');
+        first.setColumns(List.of("id", "note"));
+        first.open(context);
+        assertEquals("id,note", first.read());
+        assertEquals("1,x", first.read());
+        first.update(context);
+        first.close();
+
+        MemoryMappedCsvRecordReader second = new MemoryMappedCsvRecordReader(file, 5, ',');
+        second.setColumns(List.of("id", "note"));
+        assertEquals(List.of("2,y", "3,z"), readAll(second, context));
+    }
+
+    private Path write(String content) throws Exception {
+        Path file = Files.createTempFile(tempDir, "input-", ".csv");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static List<String> readAll(MemoryMappedCsvRecordReader reader, ExecutionContext context) throws Exception {
+        List<String> records = new ArrayList<>();
+        reader.open(context);
+        try {
+            for (String record = reader.read(); record != null; record = reader.read()) {
+                records.add(record);
+            }
+        } finally {
+            reader.close();
+        }
+        return records;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.batchdemo.job;
+
+import com.example.batchdemo.io.ByteLine;
+import com.example.batchdemo.io.ByteLinePool;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CleaningProgramTest {
+
+    private static CleaningProgram compile(List<CleaningProgram.Rule> rules, Map<String, Map<String, String>> mappings) {
+        return CleaningProgram.compile(',', rules, mappings);
+    }
+
+    /**
+     * 字符串版本与字节版本清洗同一行，结果必须一致。
+     */
+    private static String clean(CleaningProgram program, String line) {
+        String cleaned = program.apply(line);
+        byte[] bytes = (" " + line).getBytes(StandardCharsets.UTF_8);
+        ByteLine byteLine = new ByteLinePool().acquire(bytes.length);
+        byteLine.set(bytes, 0, bytes.length);
+        byteLine.slice(1, bytes.length - 1); // 从非零偏移开始，和读取器切出的行一样
+        program.apply(byteLine);
+        assertEquals(cleaned, byteLine.toString(), "字节版本与字符串版本不一致");
+        return cleaned;
+    }
+
+    private static CleaningProgram.Rule rule(List<Integer> columns, String... operations) {
+        return new CleaningProgram.Rule(columns, List.of(operations));
+    }
+
+    @Test
+    void quotedDelimiterDoesNotSplitColumn() {
+        CleaningProgram program = compile(List.of(rule(List.of(2), "upper")), Map.of());
+
+        assertEquals("x,\"a,b\",Y", clean(program, "x,\"a,b\",y"));
+    }
+
+    @Test
+    void escapedQuotesAreUnescapedBeforeOperationsAndEscapedAgainAfter() {
+        CleaningProgram program = compile(List.of(rule(List.of(0), "map:greetings")),
+                Map.of("greetings", Map.of("say \"hi\"", "said \"hello\"")));
+
+        assertEquals("\"said \"\"hello\"\"\",1", clean(program, "\"say \"\"hi\"\"\",1"));
+    }
+
+    @Test
+    void mappedValueContainingDelimiterIsQuoted() {
+        CleaningProgram program = compile(List.of(rule(List.of(0), "map:codes")),
+                Map.of("codes", Map.of("A", "x,y")));
+
+        assertEquals("\"x,y\",1", clean(program, "A,1"));
+    }
+
+    @Test
+    void replacementContainingQuoteIsEscaped() {
+        CleaningProgram program = compile(List.of(rule(List.of(0), "replace:x=>\"")), Map.of());
+
+        assertEquals("\"a\"\"b\",c", clean(program, "axb,c"));
+    }
+
+    @Test
+    void trimAndCollapseWhitespacePerColumn() {
+        CleaningProgram program = compile(List.of(rule(List.of(), "trim", "collapse-whitespace")), Map.of());
+
+        assertEquals("a b,c,", clean(program, "  a \t  b  ,\tc\t,   "));
+    }
+
+    @Test
+    void collapseWithoutTrimKeepsSingleBoundarySpace() {
+        CleaningProgram program = compile(List.of(rule(List.of(), "collapse-whitespace")), Map.of());
+
+        assertEquals(" a b ,c", clean(program, "  a   b   ,c"));
+    }
+
+    @Test
+    void columnRulesInheritEarlierAllColumnRules() {
+        CleaningProgram program = compile(List.of(rule(List.of(), "trim"), rule(List.of(1), "upper")), Map.of());
+
+        assertEquals("a,B,c", clean(program, " a , b , c "));
+    }
+
+    @Test
+    void failedValidationNamesTheColumn() {
+        CleaningProgram program = compile(List.of(rule(List.of(1), "required")), Map.of());
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> clean(program, "a,,c"));
+        assertTrue(e.getMessage().startsWith("第 1 列"), e.getMessage());
+    }
+
+    @Test
+    void unknownOperationFailsAtCompileTime() {
+        assertThrows(IllegalArgumentException.class, () -> compile(List.of(rule(List.of(), "shout")), Map.of()));
+    }
+
+    @Test
+    void byteVersionConvertsCaseOfMultibyteCharactersLikeStringVersion() {
+        CleaningProgram program = compile(List.of(rule(List.of(), "trim", "upper")), Map.of());
+
+        assertEquals("ÄBC,É", clean(program, " äbc , é "));
+    }
+
+    @Test
+    void byteVersionKeepsMultibyteCharactersInColumnsWithoutCaseRules() {
+        CleaningProgram program = compile(List.of(rule(List.of(), "strip-control", "collapse-whitespace"),
+                rule(List.of(1), "mask:2")), Map.of());
+
+        assertEquals("中 文,**字节", clean(program, "中\u0001  文,中文字节"));
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.batchdemo.job;
+
+import com.example.batchdemo.service.PreallocatedBufferPool;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExternalSortTaskletTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final PreallocatedBufferPool bufferPool = new PreallocatedBufferPool(
+            List.of(DataSize.ofKilobytes(64), DataSize.ofMegabytes(1)), DataSize.ofKilobytes(64), 0,
+            DataSize.ofMegabytes(64), 4, 2, Duration.ofSeconds(5));
+
+    @Test
+    void runSorterSplitsIntoSortedRunsWhenIndexBudgetIsSmall() throws Exception {
+        List<String> lines = randomLines(5000, 3);
+        Path input = write(lines);
+        Path runDir = Files.createDirectory(tempDir.resolve("runs"));
+        List<Path> runs;
+        try (RunSorter sorter = new RunSorter(1 << 20, 1024L * RunSorter.INDEX_BYTES_PER_LINE,
+                new SortKey(-1, ','), runDir, bufferPool);
+             FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            runs = sorter.sort(channel, 0L, channel.size());
+        }
+
+        assertEquals(5, runs.size());
+        List<String> all = new ArrayList<>();
+        for (Path run : runs) {
+            List<String> runLines = Files.readAllLines(run, StandardCharsets.UTF_8);
+            List<String> sorted = new ArrayList<>(runLines);
+            sorted.sort(Comparator.naturalOrder());
+            assertEquals(sorted, runLines);
+            all.addAll(runLines);
+        }
+        all.sort(Comparator.naturalOrder());
+        List<String> expected = new ArrayList<>(lines);
+        expected.sort(Comparator.naturalOrder());
+        assertEquals(expected, all);
+    }
+
+    @Test
+    void sortsByKeyColumnStablyAcrossMultipleMergePasses() throws Exception {
+        int count = 100_000;
+        SplittableRandom random = new SplittableRandom(5);
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lines.add(i + "," + (char) ('a' + random.nextInt(26)) + random.nextInt(100));
+        }
+        Path input = write(lines);
+        Path output = tempDir.resolve("sorted.csv");
+        Path sortDir = tempDir.resolve("sort");
+        ExternalSortTasklet tasklet = new ExternalSortTasklet(input, output, 1, ',', 0L, 2, 2, 64 * 1024,
+                sortDir, bufferPool);
+        StepContribution contribution = new StepContribution(new StepExecution("sort", new JobExecution(1L)));
+
+        tasklet.execute(contribution, null);
+
+        List<String> expected = new ArrayList<>(lines);
+        expected.sort(Comparator.comparing(line -> line.substring(line.indexOf(',') + 1))); // List.sort 是稳定排序
+        assertEquals(expected, Files.readAllLines(output, StandardCharsets.UTF_8));
+        assertEquals(count, contribution.getWriteCount());
+        assertFalse(Files.exists(input), "排序完成后删除输入");
+        try (Stream<Path> left = Files.list(sortDir)) {
+            assertEquals(0L, left.count(), "临时段文件应全部删除");
+        }
+    }
+
+    @Test
+    void emptyInputProducesEmptyOutput() throws Exception {
+        Path input = write(List.of());
+        Path output = tempDir.resolve("sorted.csv");
+        ExternalSortTasklet tasklet = new ExternalSortTasklet(input, output, -1, ',', 0L, 1, 2, 64 * 1024,
+                tempDir.resolve("sort"), bufferPool);
+
+        tasklet.execute(new StepContribution(new StepExecution("sort", new JobExecution(1L))), null);
+
+        assertTrue(Files.exists(output));
+        assertEquals(0L, Files.size(output));
+    }
+
+    private static List<String> randomLines(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lines.add(Long.toHexString(random.nextLong()) + "," + i);
+        }
+        return lines;
+    }
+
+    private Path write(List<String> lines) throws Exception {
+        Path file = Files.createTempFile(tempDir, "input-", ".csv");
+        Files.write(file, lines, StandardCharsets.UTF_8);
+        return file;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.batchdemo.job;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FingerprintSetTest {
+
+    @TempDir
+    Path spillDir;
+
+    @Test
+    void detectsDuplicatesInMemory() throws Exception {
+        try (FingerprintSet set = new FingerprintSet(64L << 20, spillDir, 4)) {
+            assertTrue(set.add(1L, 2L));
+            assertTrue(set.add(2L, 1L));
+            assertFalse(set.add(1L, 2L));
+            assertEquals(2L, set.size());
+            assertEquals(0, set.spills());
+        }
+    }
+
+    @Test
+    void detectsDuplicatesAcrossSpilledRuns() throws Exception {
+        int keys = 300_000;
+        try (FingerprintSet set = new FingerprintSet(0L, spillDir, 2)) {
+            SplittableRandom random = new SplittableRandom(11);
+            long[] his = new long[keys];
+            long[] los = new long[keys];
+            for (int i = 0; i < keys; i++) {
+                his[i] = random.nextLong();
+                los[i] = random.nextLong();
+                assertTrue(set.add(his[i], los[i]), "第一次出现的指纹 " + i);
+            }
+            assertTrue(set.spills() > 0, "小预算下应当溢写");
+            for (int i = 0; i < keys; i += 7) {
+                assertFalse(set.add(his[i], los[i]), "重复的指纹 " + i);
+            }
+            assertEquals(keys, set.size());
+        }
+        try (Stream<Path> left = Files.list(spillDir)) {
+            assertEquals(0L, left.count(), "关闭后应删除溢写文件");
+        }
+    }
+}
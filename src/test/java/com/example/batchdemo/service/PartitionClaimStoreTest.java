@@ -0,0 +1,124 @@
+package com.example.batchdemo.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartitionClaimStoreTest {
+
+    private static final long JOB = 1L;
+
+    private EmbeddedDatabase database;
+    private PartitionClaimStore store;
+
+    @BeforeEach
+    void createTable() {
+        // 与应用启动时相同的建表脚本
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("classpath:batch/schema-partition-claim.sql")
+                .build();
+        store = new PartitionClaimStore(new JdbcTemplate(database));
+    }
+
+    @AfterEach
+    void shutdown() {
+        database.shutdown();
+    }
+
+    @Test
+    void eachPendingPartitionIsClaimedByOneWorker() {
+        store.register(JOB, "worker", List.of(11L, 12L));
+        store.register(JOB, "worker", List.of(11L, 12L)); // 重启时重复登记不产生新行
+
+        PartitionClaimStore.Claim first = store.claim("a").orElseThrow();
+        PartitionClaimStore.Claim second = store.claim("b").orElseThrow();
+
+        assertEquals(11L, first.stepExecutionId());
+        assertEquals(12L, second.stepExecutionId());
+        assertEquals(1, first.attempt());
+        assertEquals(JOB, first.jobExecutionId());
+        assertEquals("worker", first.stepName());
+        assertEquals(Optional.empty(), store.claim("c"));
+        assertEquals(Map.of(11L, PartitionClaimStore.CLAIMED, 12L, PartitionClaimStore.CLAIMED), store.statuses(JOB));
+    }
+
+    @Test
+    void heartbeatAndCompleteOnlySucceedForTheClaimingWorker() {
+        store.register(JOB, "worker", List.of(11L));
+        store.claim("a").orElseThrow();
+
+        assertTrue(store.heartbeat(11L, "a"));
+        assertFalse(store.heartbeat(11L, "b"));
+        assertFalse(store.complete(11L, "b", PartitionClaimStore.DONE));
+        assertTrue(store.complete(11L, "a", PartitionClaimStore.DONE));
+        assertFalse(store.heartbeat(11L, "a")); // 已完成，不再持有认领
+        assertEquals(PartitionClaimStore.DONE, store.statuses(JOB).get(11L));
+    }
+
+    @Test
+    void liveHeartbeatIsNotReclaimed() {
+        store.register(JOB, "worker", List.of(11L));
+        long claimedAt = System.currentTimeMillis();
+        store.claim("a").orElseThrow();
+
+        assertEquals(List.of(), store.reclaimExpired(JOB, claimedAt - 1, 3));
+        assertEquals(PartitionClaimStore.CLAIMED, store.statuses(JOB).get(11L));
+        assertTrue(store.heartbeat(11L, "a"));
+    }
+
+    @Test
+    void expiredClaimReturnsToPendingAndIsTakenOverByAnotherWorker() {
+        store.register(JOB, "worker", List.of(11L));
+        store.claim("a").orElseThrow();
+
+        // 心跳早于 expiredBefore 即视为超时
+        assertEquals(List.of(), store.reclaimExpired(JOB, System.currentTimeMillis() + 1, 3));
+        assertEquals(PartitionClaimStore.PENDING, store.statuses(JOB).get(11L));
+        assertFalse(store.heartbeat(11L, "a"), "被收回的认领不能再刷新心跳");
+
+        PartitionClaimStore.Claim takeover = store.claim("b").orElseThrow();
+        assertEquals(2, takeover.attempt());
+        assertFalse(store.complete(11L, "a", PartitionClaimStore.DONE), "旧 worker 回来后写不进结果");
+        assertTrue(store.complete(11L, "b", PartitionClaimStore.DONE));
+        assertEquals(PartitionClaimStore.DONE, store.statuses(JOB).get(11L));
+    }
+
+    @Test
+    void expiredClaimFailsOnceAttemptsAreUsedUp() {
+        store.register(JOB, "worker", List.of(11L, 12L));
+        store.claim("a").orElseThrow();
+
+        assertEquals(List.of(11L), store.reclaimExpired(JOB, System.currentTimeMillis() + 1, 1));
+        assertEquals(Map.of(11L, PartitionClaimStore.FAILED, 12L, PartitionClaimStore.PENDING), store.statuses(JOB));
+        assertEquals(12L, store.claim("b").orElseThrow().stepExecutionId());
+        assertEquals(Optional.empty(), store.claim("c"));
+    }
+
+    @Test
+    void abandonFailsUnfinishedPartitions() {
+        store.register(JOB, "worker", List.of(11L, 12L, 13L));
+        store.claim("a").orElseThrow();
+        store.claim("b").orElseThrow();
+        store.complete(12L, "b", PartitionClaimStore.DONE);
+
+        store.abandon(JOB);
+
+        assertEquals(Map.of(11L, PartitionClaimStore.FAILED, 12L, PartitionClaimStore.DONE, 13L, PartitionClaimStore.FAILED),
+                store.statuses(JOB));
+        assertFalse(store.complete(11L, "a", PartitionClaimStore.DONE));
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.batchdemo.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PreallocatedBufferPoolTest {
+
+    private static final int SMALL = 64 * 1024;
+    private static final int LARGE = 256 * 1024;
+
+    private static PreallocatedBufferPool pool(long maxOffHeap, Duration acquireTimeout) {
+        return new PreallocatedBufferPool(List.of(DataSize.ofKilobytes(64), DataSize.ofKilobytes(256)),
+                DataSize.ofKilobytes(64), 0, DataSize.ofBytes(maxOffHeap), 4, 2, acquireTimeout);
+    }
+
+    @Test
+    void borrowRoundsUpToSizeClassAndReusesReturnedBuffer() {
+        PreallocatedBufferPool pool = pool(1 << 20, Duration.ofSeconds(1));
+
+        ByteBuffer buffer = pool.borrowBuffer(1000);
+        assertEquals(SMALL, buffer.capacity());
+        assertTrue(buffer.isDirect());
+        pool.returnBuffer(buffer);
+
+        assertTrue(pool.borrowBuffer(SMALL) == buffer);
+        assertEquals(SMALL, pool.reservedBytes());
+        assertEquals(1L, pool.misses());
+    }
+
+    @Test
+    void exhaustedPoolTimesOutInsteadOfExceedingCap() {
+        PreallocatedBufferPool pool = pool(2L * SMALL, Duration.ofMillis(200));
+        pool.borrowBuffer();
+        pool.borrowBuffer();
+
+        assertThrows(IllegalStateException.class, pool::borrowBuffer);
+        assertEquals(2L * SMALL, pool.reservedBytes());
+    }
+
+    @Test
+    void borrowBlocksUntilAnotherThreadReturnsABuffer() throws Exception {
+        PreallocatedBufferPool pool = pool(2L * SMALL, Duration.ofSeconds(10));
+        pool.borrowBuffer();
+        ByteBuffer held = pool.borrowBuffer();
+
+        CompletableFuture<ByteBuffer> waiting = CompletableFuture.supplyAsync(pool::borrowBuffer);
+        Thread.sleep(200);
+        assertTrue(!waiting.isDone(), "上限已满时借用应当阻塞");
+        pool.returnBuffer(held);
+
+        assertEquals(SMALL, waiting.get(5, TimeUnit.SECONDS).capacity());
+        assertEquals(2L * SMALL, pool.reservedBytes());
+    }
+
+    @Test
+    void buffersCachedByExitedThreadAreFreedToMakeRoom() throws Exception {
+        PreallocatedBufferPool pool = pool(LARGE, Duration.ofSeconds(5));
+        Thread borrower = new Thread(() -> pool.returnBuffer(pool.borrowBuffer(SMALL)));
+        borrower.start();
+        borrower.join();
+        assertEquals(SMALL, pool.reservedBytes());
+
+        assertEquals(LARGE, pool.borrowBuffer(LARGE).capacity());
+        assertEquals(LARGE, pool.reservedBytes());
+    }
+
+    @Test
+    void buffersCachedByLiveIdleThreadAreTakenAtCap() throws Exception {
+        PreallocatedBufferPool pool = pool(2L * SMALL, Duration.ofMillis(500));
+        CountDownLatch cached = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread idle = new Thread(() -> {
+            ByteBuffer first = pool.borrowBuffer();
+            ByteBuffer second = pool.borrowBuffer();
+            pool.returnBuffer(first);
+            pool.returnBuffer(second);
+            cached.countDown();
+            try {
+                done.await(); // 线程活着但不再借还，两个缓冲区留在它的弹匣里
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        idle.start();
+        try {
+            assertTrue(cached.await(5, TimeUnit.SECONDS));
+            assertEquals(2L * SMALL, pool.reservedBytes());
+
+            // 同档：直接转交弹匣里的缓冲区
+            assertEquals(SMALL, pool.borrowBuffer().capacity());
+            assertEquals(SMALL, pool.borrowBuffer().capacity());
+            assertEquals(2L * SMALL, pool.reservedBytes());
+            assertEquals(4L, pool.misses()); // 两次新分配 + 两次在本线程弹匣与全局队列都没拿到
+        } finally {
+            done.countDown();
+            idle.join();
+        }
+    }
+
+    @Test
+    void buffersCachedByLiveIdleThreadAreFreedForLargerClass() throws Exception {
+        PreallocatedBufferPool pool = pool(LARGE, Duration.ofMillis(500));
+        CountDownLatch cached = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread idle = new Thread(() -> {
+            pool.returnBuffer(pool.borrowBuffer(SMALL));
+            cached.countDown();
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        idle.start();
+        try {
+            assertTrue(cached.await(5, TimeUnit.SECONDS));
+
+            // 不同档：释放弹匣里的缓冲区腾出额度，而不是等到超时
+            assertEquals(LARGE, pool.borrowBuffer(LARGE).capacity());
+            assertEquals(LARGE, pool.reservedBytes());
+        } finally {
+            done.countDown();
+            idle.join();
+        }
+    }
+
+    @Test
+    void oversizedRequestIsAllocatedSeparatelyAndReleasedOnReturn() {
+        PreallocatedBufferPool pool = pool(1 << 20, Duration.ofSeconds(1));
+
+        ByteBuffer buffer = pool.borrowBuffer(LARGE + 1);
+        assertEquals(LARGE + 1, buffer.capacity());
+        assertEquals(1L, pool.fallbackAllocations());
+        assertEquals(LARGE + 1L, pool.reservedBytes());
+
+        pool.returnBuffer(buffer);
+        assertEquals(0L, pool.reservedBytes());
+    }
+}